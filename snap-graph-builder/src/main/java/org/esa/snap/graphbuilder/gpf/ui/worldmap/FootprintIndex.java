@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.graphbuilder.gpf.ui.worldmap;
+
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.util.ProductUtils;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A spatial index (an R-tree bulk loaded by Sort-Tile-Recursive) over the footprints shown on the world map.
+ * <p>
+ * The footprint paths are assembled once, split at the anti-meridian, in model coordinates (longitude and latitude).
+ * Their view paths are cached for the last used model-to-view transform. The index answers which footprints
+ * intersect a model area, e.g. the visible area of the map or an AOI, and which contain a location.
+ * <p>
+ * The index is immutable, a changed list of footprints requires a new index. The footprints of a previous index
+ * are reused, so that adding footprints to a list does not assemble the existing ones again.
+ */
+public class FootprintIndex {
+
+    private static final int NODE_CAPACITY = 16;
+
+    private final Footprint[] footprints;
+    private final Node root;
+
+    /**
+     * @param geoBoundaries the geo boundaries of the footprints
+     * @param previous      a previous index of which the footprints can be reused, may be {@code null}
+     */
+    public FootprintIndex(GeoPos[][] geoBoundaries, FootprintIndex previous) {
+        final Map<GeoPos[], Footprint> previousFootprints = new IdentityHashMap<>();
+        if (previous != null) {
+            for (Footprint footprint : previous.footprints) {
+                previousFootprints.put(footprint.geoBoundary, footprint);
+            }
+        }
+        footprints = new Footprint[geoBoundaries.length];
+        final List<Node> leaves = new ArrayList<>(geoBoundaries.length);
+        for (int i = 0; i < geoBoundaries.length; i++) {
+            Footprint footprint = previousFootprints.get(geoBoundaries[i]);
+            if (footprint == null) {
+                footprint = new Footprint(geoBoundaries[i]);
+            }
+            footprints[i] = footprint;
+            if (footprint.bounds != null) {
+                leaves.add(new Node(footprint.bounds, i));
+            }
+        }
+        root = leaves.isEmpty() ? null : build(leaves);
+    }
+
+    public int getFootprintCount() {
+        return footprints.length;
+    }
+
+    public Footprint getFootprint(int index) {
+        return footprints[index];
+    }
+
+    /**
+     * @param modelArea an area in model coordinates
+     * @return the footprints intersecting the area, in the order of the geo boundaries the index has been created from
+     */
+    public List<Footprint> findIntersecting(Rectangle2D modelArea) {
+        final List<Footprint> result = new ArrayList<>();
+        for (int index : query(modelArea)) {
+            if (footprints[index].intersects(modelArea)) {
+                result.add(footprints[index]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param lon the longitude
+     * @param lat the latitude
+     * @return the footprints containing the location, in the order of the geo boundaries the index has been created from
+     */
+    public List<Footprint> findContaining(double lon, double lat) {
+        final List<Footprint> result = new ArrayList<>();
+        for (int index : query(new Rectangle2D.Double(lon, lat, 0.0, 0.0))) {
+            if (footprints[index].contains(lon, lat)) {
+                result.add(footprints[index]);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Returns the sorted indices of the footprints of which the bounds intersect the area.
+     */
+    private int[] query(Rectangle2D area) {
+        if (root == null) {
+            return new int[0];
+        }
+        int[] indices = new int[16];
+        int count = 0;
+        final List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            final Node node = stack.remove(stack.size() - 1);
+            if (!intersects(node.bounds, area)) {
+                continue;
+            }
+            if (node.children == null) {
+                if (count == indices.length) {
+                    indices = Arrays.copyOf(indices, 2 * count);
+                }
+                indices[count++] = node.index;
+            } else {
+                stack.addAll(Arrays.asList(node.children));
+            }
+        }
+        indices = Arrays.copyOf(indices, count);
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    /*
+     * Rectangle2D.intersects() is false for empty rectangles, but a query point or a degenerate footprint
+     * must still be found.
+     */
+    private static boolean intersects(Rectangle2D r1, Rectangle2D r2) {
+        return r1.getMinX() <= r2.getMaxX() && r2.getMinX() <= r1.getMaxX()
+               && r1.getMinY() <= r2.getMaxY() && r2.getMinY() <= r1.getMaxY();
+    }
+
+    /*
+     * Sort-Tile-Recursive: the nodes of a level are sorted by x into vertical slices, each slice is sorted by y
+     * and cut into parent nodes of NODE_CAPACITY children. This is repeated until a single node remains.
+     */
+    private static Node build(List<Node> nodes) {
+        while (nodes.size() > 1) {
+            final int numParents = (nodes.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            final int numSlices = (int) Math.ceil(Math.sqrt(numParents));
+            final int sliceSize = numSlices * NODE_CAPACITY;
+            nodes.sort(Comparator.comparingDouble(node -> node.bounds.getCenterX()));
+            final List<Node> parents = new ArrayList<>(numParents);
+            for (int sliceStart = 0; sliceStart < nodes.size(); sliceStart += sliceSize) {
+                final List<Node> slice = new ArrayList<>(nodes.subList(sliceStart, Math.min(sliceStart + sliceSize, nodes.size())));
+                slice.sort(Comparator.comparingDouble(node -> node.bounds.getCenterY()));
+                for (int start = 0; start < slice.size(); start += NODE_CAPACITY) {
+                    final List<Node> children = slice.subList(start, Math.min(start + NODE_CAPACITY, slice.size()));
+                    parents.add(new Node(children.toArray(new Node[children.size()])));
+                }
+            }
+            nodes = parents;
+        }
+        return nodes.get(0);
+    }
+
+    /**
+     * A footprint on the world map.
+     */
+    public static class Footprint {
+
+        private final GeoPos[] geoBoundary;
+        private final GeneralPath[] modelPaths;
+        private final Rectangle2D bounds;
+        private AffineTransform viewTransform;
+        private Shape[] viewPaths;
+
+        private Footprint(GeoPos[] geoBoundary) {
+            this.geoBoundary = geoBoundary;
+            ProductUtils.normalizeGeoPolygon(geoBoundary);
+            final List<GeneralPath> pathList = NestWorldMapPane.assemblePathList(geoBoundary);
+            modelPaths = pathList.toArray(new GeneralPath[pathList.size()]);
+            Rectangle2D pathBounds = null;
+            for (GeneralPath path : modelPaths) {
+                if (pathBounds == null) {
+                    pathBounds = path.getBounds2D();
+                } else {
+                    pathBounds.add(path.getBounds2D());
+                }
+            }
+            bounds = pathBounds;
+        }
+
+        public GeoPos[] getGeoBoundary() {
+            return geoBoundary;
+        }
+
+        /**
+         * @return the paths of the footprint in model coordinates, must not be modified
+         */
+        public GeneralPath[] getModelPaths() {
+            return modelPaths;
+        }
+
+        /**
+         * @return the bounds in model coordinates, or {@code null} if the footprint is empty
+         */
+        public Rectangle2D getBounds() {
+            return bounds;
+        }
+
+        /**
+         * @param modelToView the model-to-view transform
+         * @return the paths of the footprint in view coordinates, cached as long as the transform does not change
+         */
+        public synchronized Shape[] getViewPaths(AffineTransform modelToView) {
+            if (viewPaths == null || !modelToView.equals(viewTransform)) {
+                viewPaths = new Shape[modelPaths.length];
+                for (int i = 0; i < modelPaths.length; i++) {
+                    viewPaths[i] = modelToView.createTransformedShape(modelPaths[i]);
+                }
+                viewTransform = new AffineTransform(modelToView);
+            }
+            return viewPaths;
+        }
+
+        public boolean intersects(Rectangle2D modelArea) {
+            if (bounds == null || !FootprintIndex.intersects(bounds, modelArea)) {
+                return false;
+            }
+            if (modelArea.isEmpty()) {
+                return contains(modelArea.getX(), modelArea.getY());
+            }
+            for (GeneralPath path : modelPaths) {
+                if (path.intersects(modelArea)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean contains(double lon, double lat) {
+            for (GeneralPath path : modelPaths) {
+                if (path.contains(lon, lat)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Node {
+
+        private final Rectangle2D bounds;
+        private final Node[] children;
+        private final int index;
+
+        private Node(Rectangle2D bounds, int index) {
+            this.bounds = bounds;
+            this.children = null;
+            this.index = index;
+        }
+
+        private Node(Node[] children) {
+            this.children = children;
+            this.index = -1;
+            bounds = new Rectangle2D.Double();
+            bounds.setRect(children[0].bounds);
+            for (Node child : children) {
+                bounds.add(child.bounds);
+            }
+        }
+    }
+}
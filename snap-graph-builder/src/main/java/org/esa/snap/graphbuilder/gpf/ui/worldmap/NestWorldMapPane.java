@@ -42,6 +42,7 @@ import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.Shape;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
@@ -55,6 +56,8 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * This class displays a world map specified by the {@link NestWorldMapPaneDataModel}.
@@ -77,6 +80,9 @@ public class NestWorldMapPane extends JPanel {
     private final static Color selectionFillColor = new Color(255, 255, 0, 70);
     private final static Color selectionBorderColor = new Color(255, 255, 0, 255);
 
+    // the boundary paths of the products, which are expensive to compute from the geo-coding
+    private final Map<Product, ProductBoundary> productBoundaryMap = new WeakHashMap<>();
+
     public NestWorldMapPane(NestWorldMapPaneDataModel dataModel) {
         this.dataModel = dataModel;
         try {
@@ -149,7 +155,7 @@ public class NestWorldMapPane extends JPanel {
         //NESTMOD
         final GeneralPath[] generalPaths;
         if (product != null && product.getGeoCoding() != null) {
-            generalPaths = getGeoBoundaryPaths(product);
+            generalPaths = getProductBoundaryPaths(product);
         } else {
             final ArrayList<GeneralPath> pathList = assemblePathList(selGeoBoundaries[0]);
             generalPaths = pathList.toArray(new GeneralPath[pathList.size()]);
@@ -250,6 +256,19 @@ public class NestWorldMapPane extends JPanel {
         return ProductUtils.createGeoBoundaryPaths(product, null, step);
     }
 
+    /*
+     * Returns the cached boundary paths of the product, they are recomputed if its geo-coding has changed.
+     * The returned paths must not be modified.
+     */
+    private GeneralPath[] getProductBoundaryPaths(Product product) {
+        ProductBoundary boundary = productBoundaryMap.get(product);
+        if (boundary == null || boundary.geoCoding != product.getGeoCoding()) {
+            boundary = new ProductBoundary(product.getGeoCoding(), getGeoBoundaryPaths(product));
+            productBoundaryMap.put(product, boundary);
+        }
+        return boundary.paths;
+    }
+
     private PixelPos getProductCenter(final Product product) {
         final GeoCoding geoCoding = product.getGeoCoding();
         PixelPos centerPos = null;
@@ -373,14 +392,18 @@ public class NestWorldMapPane extends JPanel {
         @Override
         public void paintOverlay(LayerCanvas canvas, Rendering rendering) {
 
-            for (final GeoPos[] extraGeoBoundary : dataModel.getAdditionalGeoBoundaries()) {
-                drawGeoBoundary(rendering.getGraphics(), extraGeoBoundary, null, null,
-                        transWhiteColor, borderWhiteColor);
+            // only the footprints within the visible area are drawn
+            final Viewport viewport = layerCanvas.getViewport();
+            final AffineTransform modelToView = viewport.getModelToViewTransform();
+            final Rectangle2D visibleArea = viewport.getViewToModelTransform().createTransformedShape(
+                    viewport.getViewBounds()).getBounds2D();
+
+            for (final FootprintIndex.Footprint footprint : dataModel.getAdditionalGeoBoundaryIndex().findIntersecting(visibleArea)) {
+                drawFootprint(rendering.getGraphics(), footprint, modelToView, transWhiteColor, borderWhiteColor);
             }
 
-            for (final GeoPos[] selectGeoBoundary : dataModel.getSelectedGeoBoundaries()) {
-                drawGeoBoundary(rendering.getGraphics(), selectGeoBoundary, null, null,
-                        transRedColor, borderRedColor);
+            for (final FootprintIndex.Footprint footprint : dataModel.getSelectedGeoBoundaryIndex().findIntersecting(visibleArea)) {
+                drawFootprint(rendering.getGraphics(), footprint, modelToView, transRedColor, borderRedColor);
             }
 
             final Product selectedProduct = dataModel.getSelectedProduct();
@@ -407,7 +430,7 @@ public class NestWorldMapPane extends JPanel {
                 return;
             }
 
-            GeneralPath[] boundaryPaths = getGeoBoundaryPaths(product);
+            GeneralPath[] boundaryPaths = getProductBoundaryPaths(product);
             final String text = String.valueOf(product.getRefNo());
             final PixelPos textCenter = getProductCenter(product);
             drawGeoBoundary(g2d, boundaryPaths, text, textCenter, fillColor, borderColor);
@@ -418,13 +441,20 @@ public class NestWorldMapPane extends JPanel {
                                      final Color fillColor, final Color borderColor) {
             final AffineTransform transform = layerCanvas.getViewport().getModelToViewTransform();
             for (GeneralPath boundaryPath : boundaryPaths) {
-                boundaryPath.transform(transform);
-                drawPath(g2d, boundaryPath, fillColor, borderColor);
+                drawPath(g2d, transform.createTransformedShape(boundaryPath), fillColor, borderColor);
             }
 
             drawText(g2d, text, textCenter, 0.0f);
         }
 
+        private void drawFootprint(final Graphics2D g2d, final FootprintIndex.Footprint footprint,
+                                   final AffineTransform modelToView,
+                                   final Color fillColor, final Color borderColor) {
+            for (Shape viewPath : footprint.getViewPaths(modelToView)) {
+                drawPath(g2d, viewPath, fillColor, borderColor);
+            }
+        }
+
         private void drawGeoBoundary(final Graphics2D g2d, final GeoPos[] geoBoundary,
                                      final String text, final PixelPos textCenter,
                                      final Color fillColor, final Color borderColor) {
@@ -442,7 +472,7 @@ public class NestWorldMapPane extends JPanel {
             drawText(g2d, text, textCenter, 0.0f);
         }
 
-        private void drawPath(Graphics2D g2d, final GeneralPath gp,
+        private void drawPath(Graphics2D g2d, final Shape gp,
                               final Color fillColor, final Color borderColor) {
             g2d.setColor(fillColor);
             g2d.fill(gp);
@@ -495,6 +525,17 @@ public class NestWorldMapPane extends JPanel {
 
     }
 
+    private static class ProductBoundary {
+
+        private final GeoCoding geoCoding;
+        private final GeneralPath[] paths;
+
+        private ProductBoundary(GeoCoding geoCoding, GeneralPath[] paths) {
+            this.geoCoding = geoCoding;
+            this.paths = paths;
+        }
+    }
+
     private class ZoomAllAction extends AbstractAction {
 
         private ZoomAllAction() {
@@ -45,6 +45,10 @@ public class NestWorldMapPaneDataModel {
     private ArrayList<Product> productList;
     private final ArrayList<GeoPos[]> additionalGeoBoundaryList;
     private final ArrayList<GeoPos[]> selectedGeoBoundaryList;
+    private FootprintIndex additionalGeoBoundaryIndex;
+    private FootprintIndex selectedGeoBoundaryIndex;
+    private boolean additionalGeoBoundaryIndexValid;
+    private boolean selectedGeoBoundaryIndexValid;
 
     private final GeoPos selectionBoxStart = new GeoPos();
     private final GeoPos selectionBoxEnd = new GeoPos();
@@ -115,9 +119,21 @@ public class NestWorldMapPaneDataModel {
         if (geoBoundarys != null) {
             additionalGeoBoundaryList.addAll(Arrays.asList(geoBoundarys));
         }
+        additionalGeoBoundaryIndexValid = false;
         firePropertyChange(PROPERTY_ADDITIONAL_GEO_BOUNDARIES, oldGeoBoundarys, additionalGeoBoundaryList);
     }
 
+    /**
+     * @return the spatial index of the additional geo boundaries, created when first requested after a change
+     */
+    public FootprintIndex getAdditionalGeoBoundaryIndex() {
+        if (!additionalGeoBoundaryIndexValid) {
+            additionalGeoBoundaryIndex = new FootprintIndex(getAdditionalGeoBoundaries(), additionalGeoBoundaryIndex);
+            additionalGeoBoundaryIndexValid = true;
+        }
+        return additionalGeoBoundaryIndex;
+    }
+
     public GeoPos[][] getSelectedGeoBoundaries() {
         return selectedGeoBoundaryList.toArray(new GeoPos[selectedGeoBoundaryList.size()][]);
     }
@@ -128,9 +144,22 @@ public class NestWorldMapPaneDataModel {
         if (geoBoundarys != null) {
             selectedGeoBoundaryList.addAll(Arrays.asList(geoBoundarys));
         }
+        selectedGeoBoundaryIndexValid = false;
         firePropertyChange(PROPERTY_SELECTED_GEO_BOUNDARIES, oldGeoBoundarys, selectedGeoBoundaryList);
     }
 
+    /**
+     * @return the spatial index of the selected geo boundaries, created when first requested after a change
+     */
+    public FootprintIndex getSelectedGeoBoundaryIndex() {
+        if (!selectedGeoBoundaryIndexValid) {
+            // the selected boundaries are usually also additional ones, so their footprints are reused
+            selectedGeoBoundaryIndex = new FootprintIndex(getSelectedGeoBoundaries(), additionalGeoBoundaryIndex);
+            selectedGeoBoundaryIndexValid = true;
+        }
+        return selectedGeoBoundaryIndex;
+    }
+
     public void addModelChangeListener(PropertyChangeListener listener) {
         if (changeSupport == null) {
             changeSupport = new PropertyChangeSupport(this);
@@ -16,7 +16,6 @@
 package org.esa.snap.graphbuilder.rcp.dialogs;
 
 import com.bc.ceres.core.ProgressMonitor;
-import com.bc.ceres.core.SubProgressMonitor;
 import org.esa.snap.db.CommonReaders;
 import org.esa.snap.db.ProductEntry;
 import org.esa.snap.framework.datamodel.Product;
@@ -29,6 +28,7 @@ import org.esa.snap.graphbuilder.rcp.dialogs.support.FileTable;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphDialog;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphExecuter;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphNode;
+import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphTemplate;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphsMenu;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.ProgressBarProgressMonitor;
 import org.esa.snap.rcp.SnapApp;
@@ -36,12 +36,18 @@ import org.esa.snap.util.MemUtils;
 import org.esa.snap.util.ResourceUtils;
 import org.esa.snap.util.io.FileUtils;
 
+import javax.media.jai.JAI;
+import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
+import javax.swing.JSpinner;
 import javax.swing.JTabbedPane;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -49,14 +55,19 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides the dialog for executing a graph on a list of products
@@ -69,12 +80,19 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
 
     protected final static Path defaultGraphPath = ResourceUtils.getGraphFolder("");
 
+    // the tile cache each of the graphs processed at the same time should be able to use
+    private static final long TILE_CACHE_PER_GRAPH = 512L * 1024L * 1024L;
+
     private final JTabbedPane tabbedPane;
     private final JLabel statusLabel;
     private final JLabel bottomStatusLabel;
     private final JPanel progressPanel;
     private final JProgressBar progressBar;
     private final JLabel progressMsgLabel;
+    private final JPanel graphProgressPanel;
+    private final JSpinner parallelGraphsSpinner;
+    private final JCheckBox stopOnErrorCheckBox;
+    private final JCheckBox resumeCheckBox;
     private ProgressBarProgressMonitor progBarMonitor = null;
 
     private Map<File, File[]> slaveFileMap = null;
@@ -82,6 +100,7 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
     private final boolean closeOnDone;
     private boolean skipExistingTargetFiles = false;
 
+    private GraphTemplate graphTemplate = null;
     private boolean isProcessing = false;
     protected File graphFile;
     protected boolean openProcessedProducts = true;
@@ -128,8 +147,30 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
             }
         });
         progressPanel.add(progressCancelBtn, BorderLayout.EAST);
+        graphProgressPanel = new JPanel();
+        graphProgressPanel.setLayout(new BoxLayout(graphProgressPanel, BoxLayout.Y_AXIS));
+        progressPanel.add(graphProgressPanel, BorderLayout.SOUTH);
         progressPanel.setVisible(false);
-        mainPanel.add(progressPanel, BorderLayout.SOUTH);
+
+        // scheduling options
+        final int maxParallelGraphs = Runtime.getRuntime().availableProcessors();
+        final int parallelGraphs = Math.min(maxParallelGraphs, Math.max(1,
+                getIntPref("batch.parallel_graphs", getDefaultParallelGraphs())));
+        parallelGraphsSpinner = new JSpinner(new SpinnerNumberModel(parallelGraphs, 1, maxParallelGraphs, 1));
+        stopOnErrorCheckBox = new JCheckBox("Stop on first error",
+                                            Boolean.parseBoolean(getPref("batch.stop_on_error", "false")));
+        resumeCheckBox = new JCheckBox("Skip graphs completed by an interrupted run",
+                                       Boolean.parseBoolean(getPref("batch.resume", "true")));
+        final JPanel optionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        optionsPanel.add(new JLabel("Graphs in parallel:"));
+        optionsPanel.add(parallelGraphsSpinner);
+        optionsPanel.add(stopOnErrorCheckBox);
+        optionsPanel.add(resumeCheckBox);
+
+        final JPanel southPanel = new JPanel(new BorderLayout(2, 2));
+        southPanel.add(optionsPanel, BorderLayout.NORTH);
+        southPanel.add(progressPanel, BorderLayout.CENTER);
+        mainPanel.add(southPanel, BorderLayout.SOUTH);
 
         productSetPanel = new ProductSetPanel(appContext, null, new FileTable(), true, true);
         tabbedPane.add("I/O Parameters", productSetPanel);
@@ -281,10 +322,27 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
         return SnapApp.getDefault().getPreferences().get(id, defaultStr);
     }
 
+    /*
+     * Returns the default if the preference is not a valid number.
+     */
+    private static int getIntPref(final String id, final int defaultValue) {
+        return SnapApp.getDefault().getPreferences().getInt(id, defaultValue);
+    }
+
     private static void setPref(final String id, final String value) {
         SnapApp.getDefault().getPreferences().put(id, value);
     }
 
+    /**
+     * @return the number of graphs processed at the same time by default, limited by the number of processors
+     * and by the tile cache available to each graph
+     */
+    static int getDefaultParallelGraphs() {
+        final long tileCacheSize = JAI.getDefaultInstance().getTileCache().getMemoryCapacity();
+        final int numGraphs = (int) Math.min(Runtime.getRuntime().availableProcessors(), tileCacheSize / TILE_CACHE_PER_GRAPH);
+        return Math.max(1, numGraphs);
+    }
+
     @Override
     protected void onClose() {
         CancelProcessing();
@@ -311,10 +369,18 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
 
             MemUtils.freeAllMemory();
 
+            final int numParallelGraphs = (Integer) parallelGraphsSpinner.getValue();
+            final boolean stopOnError = stopOnErrorCheckBox.isSelected();
+            final boolean resume = resumeCheckBox.isSelected();
+            setPref("batch.parallel_graphs", String.valueOf(numParallelGraphs));
+            setPref("batch.stop_on_error", String.valueOf(stopOnError));
+            setPref("batch.resume", String.valueOf(resume));
+
             progressBar.setValue(0);
+            graphProgressPanel.removeAll();
             progBarMonitor = new ProgressBarProgressMonitor(progressBar, progressMsgLabel, progressPanel);
 
-            final SwingWorker processThread = new ProcessThread(progBarMonitor);
+            final SwingWorker processThread = new ProcessThread(progBarMonitor, numParallelGraphs, stopOnError, resume);
             processThread.execute();
 
         } else {
@@ -333,6 +399,7 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
             gex.ClearGraph();
         }
         graphExecutorList.clear();
+        graphTemplate = null;
     }
 
     /**
@@ -361,12 +428,15 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
         boolean result;
         statusLabel.setText("");
         try {
-            cloneGraphs();
-
             assignParameters();
 
-            // first graph must pass
+            // first graph must pass, the others are instantiated from it
             result = graphExecutorList.get(0).InitGraph();
+            if (result) {
+                cloneGraphs();
+
+                assignParameters();
+            }
 
         } catch (Exception e) {
             statusLabel.setText(e.getMessage());
@@ -451,6 +521,8 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
         final File[] fileList = productSetPanel.getFileList();
         int graphIndex = 0;
         for (File f : fileList) {
+            if (graphIndex >= graphExecutorList.size())
+                break;
             String name;
             final Object o = productSetPanel.getValueAt(graphIndex, 0);
             if (o instanceof String)
@@ -519,29 +591,26 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
         }
     }
 
+    /**
+     * Instantiates a graph for each input from a template of the first graph. The graphs of a previous call are
+     * kept if the template has not changed, only their source and target parameters need to be assigned again.
+     */
     protected void cloneGraphs() throws Exception {
         final GraphExecuter graphEx = graphExecutorList.get(0);
-        for (int graphIndex = 1; graphIndex < graphExecutorList.size(); ++graphIndex) {
-            final GraphExecuter cloneGraphEx = graphExecutorList.get(graphIndex);
-            cloneGraphEx.ClearGraph();
+        final GraphTemplate template = graphEx.createTemplate();
+        if (!template.equals(graphTemplate)) {
+            while (graphExecutorList.size() > 1) {
+                graphExecutorList.remove(graphExecutorList.size() - 1).ClearGraph();
+            }
+            graphTemplate = template;
         }
-        graphExecutorList.clear();
-        graphExecutorList.add(graphEx);
 
-        final File[] fileList = productSetPanel.getFileList();
-        for (int graphIndex = 1; graphIndex < fileList.length; ++graphIndex) {
-
-            final GraphExecuter cloneGraphEx = new GraphExecuter();
-            LoadGraph(cloneGraphEx, graphFile, false);
-            graphExecutorList.add(cloneGraphEx);
-
-            // copy UI parameter to clone
-            final List<GraphNode> cloneGraphNodes = cloneGraphEx.GetGraphNodes();
-            for (GraphNode cloneNode : cloneGraphNodes) {
-                final GraphNode node = graphEx.getGraphNodeList().findGraphNode(cloneNode.getID());
-                if (node != null)
-                     cloneNode.setOperatorUI(node.GetOperatorUI());
-            }
+        final int numGraphs = Math.max(1, productSetPanel.getFileList().length);
+        while (graphExecutorList.size() > numGraphs) {
+            graphExecutorList.remove(graphExecutorList.size() - 1).ClearGraph();
+        }
+        while (graphExecutorList.size() < numGraphs) {
+            graphExecutorList.add(graphTemplate.createGraph());
         }
     }
 
@@ -562,12 +631,24 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
     private class ProcessThread extends SwingWorker<Boolean, Object> {
 
         private final ProgressMonitor pm;
+        private final int numParallelGraphs;
+        private final boolean stopOnError;
+        private final boolean resume;
+        // guards the work reported to pm, which is not thread-safe
+        private final Object progressLock = new Object();
         private ProcessTimeMonitor timeMonitor = new ProcessTimeMonitor();
+        private BatchJournal journal;
         private boolean errorOccured = false;
-        final List<String> errMsgs = new ArrayList<>();
+        private volatile boolean stopRequested = false;
+        private int numFinished = 0;
+        final List<String> errMsgs = Collections.synchronizedList(new ArrayList<String>());
 
-        public ProcessThread(final ProgressMonitor pm) {
+        public ProcessThread(final ProgressMonitor pm, final int numParallelGraphs,
+                             final boolean stopOnError, final boolean resume) {
             this.pm = pm;
+            this.numParallelGraphs = numParallelGraphs;
+            this.stopOnError = stopOnError;
+            this.resume = resume;
         }
 
         @Override
@@ -578,49 +659,31 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
                 timeMonitor.start();
                 isProcessing = true;
 
-                final File[] existingFiles = productSetPanel.getTargetFolder().listFiles();
+                final File targetFolder = productSetPanel.getTargetFolder();
+                final File[] existingFiles = targetFolder.listFiles();
+                journal = BatchJournal.open(targetFolder);
 
                 final File[] fileList = productSetPanel.getFileList();
-                int graphIndex = 0;
-                for (GraphExecuter graphEx : graphExecutorList) {
-                    if (pm.isCanceled()) break;
-
-                    if(shouldSkip(graphEx, existingFiles)) {
-                        continue;
-                    }
-
-                    try {
-                        final String nOfm = String.valueOf(graphIndex + 1) + " of " + graphExecutorList.size() + ' ';
-                        final String statusText = "Processing " + nOfm + fileList[graphIndex].getName();
-                        statusLabel.setText(statusText);
-                        notifyMSG(BatchProcessListener.BatchMSG.UPDATE, statusText);
-
-                        MemUtils.freeAllMemory();
-
-                        graphEx.InitGraph();
-
-                        graphEx.executeGraph(new SubProgressMonitor(pm, 100));
-
-                        graphEx.disposeGraphContext();
-                    } catch (Exception e) {
-                        System.out.print(e.getMessage());
-                        String filename = fileList[graphIndex].getName();
-                        errMsgs.add(filename + " -> " + e.getMessage());
-                    }
-
-                    graphEx = null;
-                    ++graphIndex;
-
-                    // calculate time remaining
-                    final long duration = timeMonitor.getCurrentDuration();
-                    final double timePerGraph = duration / (double) graphIndex;
-                    final long timeLeft = (long) (timePerGraph * (graphExecutorList.size() - graphIndex));
-                    if (timeLeft > 0) {
-                        String remainingStr = "Estimated " + ProcessTimeMonitor.formatDuration(timeLeft) + " remaining";
-                        if (!errMsgs.isEmpty())
-                            remainingStr += " (Errors occurred)";
-                        bottomStatusLabel.setText(remainingStr);
+                final ExecutorService executor = Executors.newFixedThreadPool(numParallelGraphs, runnable -> {
+                    final Thread thread = new Thread(runnable, "Batch graph processing");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                try {
+                    for (int i = 0; i < graphExecutorList.size(); ++i) {
+                        final GraphExecuter graphEx = graphExecutorList.get(i);
+                        if (shouldSkip(graphEx, existingFiles)) {
+                            graphFinished(100);
+                            continue;
+                        }
+                        final int graphIndex = i;
+                        executor.execute(() -> processGraph(graphIndex, graphEx, fileList[graphIndex]));
                     }
+                } finally {
+                    executor.shutdown();
+                }
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // the graphs poll pm for cancellation
                 }
 
                 MemUtils.freeAllMemory();
@@ -628,24 +691,100 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
             } catch (Exception e) {
                 System.out.print(e.getMessage());
                 if (e.getMessage() != null && !e.getMessage().isEmpty())
-                    statusLabel.setText(e.getMessage());
+                    setStatusText(e.getMessage());
                 else
-                    statusLabel.setText(e.toString());
+                    setStatusText(e.toString());
                 errorOccured = true;
             } finally {
+                if (journal != null) {
+                    journal.close();
+                }
                 isProcessing = false;
                 pm.done();
             }
             return true;
         }
 
+        private void processGraph(final int graphIndex, final GraphExecuter graphEx, final File file) {
+            if (pm.isCanceled() || stopRequested) {
+                graphFinished(100);
+                return;
+            }
+            final GraphProgressMonitor graphPM = new GraphProgressMonitor(file.getName());
+            try {
+                final String graphKey = BatchJournal.getGraphKey(graphEx.getGraphAsString());
+                if (resume && journal.isCompleted(graphKey)) {
+                    return;
+                }
+                graphEx.InitGraph();
+
+                final String nOfm = String.valueOf(graphIndex + 1) + " of " + graphExecutorList.size() + ' ';
+                final String statusText = "Processing " + nOfm + file.getName();
+                setStatusText(statusText);
+                notifyMSG(BatchProcessListener.BatchMSG.UPDATE, statusText);
+
+                if (numParallelGraphs == 1) {
+                    // with other graphs running, their cached tiles are still needed
+                    MemUtils.freeAllMemory();
+                }
+
+                graphEx.executeGraph(graphPM);
+
+                graphEx.disposeGraphContext();
+
+                if (!graphPM.isCanceled()) {
+                    journal.record(graphKey, file);
+                }
+            } catch (Exception e) {
+                if (!graphPM.isCanceled()) {
+                    System.out.print(e.getMessage());
+                    errMsgs.add(file.getName() + " -> " + e.getMessage());
+                    if (stopOnError) {
+                        stopRequested = true;
+                    }
+                }
+            } finally {
+                graphPM.done();
+            }
+        }
+
+        private void graphFinished(final double remainingWork) {
+            final int numDone;
+            synchronized (progressLock) {
+                pm.internalWorked(remainingWork);
+                numDone = ++numFinished;
+            }
+
+            // calculate time remaining from the throughput so far
+            final long duration = timeMonitor.getCurrentDuration();
+            final double timePerGraph = duration / (double) numDone;
+            final long timeLeft = (long) (timePerGraph * (graphExecutorList.size() - numDone));
+            if (timeLeft > 0) {
+                String remainingStr = "Estimated " + ProcessTimeMonitor.formatDuration(timeLeft) + " remaining";
+                if (!errMsgs.isEmpty())
+                    remainingStr += " (Errors occurred)";
+                final String text = remainingStr;
+                SwingUtilities.invokeLater(() -> bottomStatusLabel.setText(text));
+            }
+        }
+
+        private void setStatusText(final String text) {
+            SwingUtilities.invokeLater(() -> statusLabel.setText(text));
+        }
+
         @Override
         public void done() {
+            graphProgressPanel.removeAll();
             if (!errorOccured) {
                 final long duration = timeMonitor.stop();
                 statusLabel.setText("Processing completed in " + ProcessTimeMonitor.formatDuration(duration));
                 bottomStatusLabel.setText("");
 
+                if (errMsgs.isEmpty() && !pm.isCanceled() && journal != null) {
+                    // nothing left to resume
+                    journal.delete();
+                }
+
                 if(openProcessedProducts) {
                     openTargetProducts();
                 }
@@ -656,6 +795,9 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
                     msg.append(errStr);
                     msg.append('\n');
                 }
+                if (stopRequested) {
+                    msg.append("The remaining graphs have not been processed.\n");
+                }
                 showErrorDialog(msg.toString());
             }
             cleanUpTempFiles();
@@ -688,6 +830,94 @@ public class BatchGraphDialog extends ModelessDialog implements GraphDialog {
             }
             return false;
         }
+
+        /**
+         * Shows the progress of a single graph in its own row and forwards it to the overall progress,
+         * where each graph accounts for 100 units of work.
+         */
+        private class GraphProgressMonitor implements ProgressMonitor {
+
+            private final JProgressBar graphProgressBar = new JProgressBar(0, 100);
+            private final JPanel rowPanel = new JPanel(new BorderLayout(4, 0));
+            private double totalWork;
+            private double currentWork;
+            private double forwardedWork;
+            private boolean done;
+
+            private GraphProgressMonitor(final String name) {
+                graphProgressBar.setStringPainted(true);
+                graphProgressBar.setString(name);
+                rowPanel.add(graphProgressBar, BorderLayout.CENTER);
+                SwingUtilities.invokeLater(() -> {
+                    graphProgressPanel.add(rowPanel);
+                    graphProgressPanel.revalidate();
+                });
+            }
+
+            @Override
+            public void beginTask(final String taskName, final int totalWork) {
+                this.totalWork = totalWork;
+                currentWork = 0.0;
+            }
+
+            @Override
+            public void done() {
+                final double remainingWork;
+                synchronized (progressLock) {
+                    if (done) {
+                        return;
+                    }
+                    done = true;
+                    remainingWork = 100.0 - forwardedWork;
+                }
+                graphFinished(remainingWork);
+                SwingUtilities.invokeLater(() -> {
+                    graphProgressPanel.remove(rowPanel);
+                    graphProgressPanel.revalidate();
+                    graphProgressPanel.repaint();
+                });
+            }
+
+            @Override
+            public void internalWorked(final double work) {
+                final int value;
+                // may be called by the tile computation threads of the graph
+                synchronized (progressLock) {
+                    if (done || totalWork <= 0.0) {
+                        return;
+                    }
+                    currentWork = Math.min(totalWork, currentWork + work);
+                    final double graphWork = 100.0 * currentWork / totalWork;
+                    pm.internalWorked(graphWork - forwardedWork);
+                    forwardedWork = graphWork;
+                    value = (int) graphWork;
+                }
+                SwingUtilities.invokeLater(() -> graphProgressBar.setValue(value));
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return pm.isCanceled() || stopRequested;
+            }
+
+            @Override
+            public void setCanceled(final boolean canceled) {
+                pm.setCanceled(canceled);
+            }
+
+            @Override
+            public void setTaskName(final String taskName) {
+            }
+
+            @Override
+            public void setSubTaskName(final String subTaskName) {
+            }
+
+            @Override
+            public void worked(final int work) {
+                internalWorked(work);
+            }
+        }
     }
 
     public interface BatchProcessListener {
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.graphbuilder.rcp.dialogs;
+
+import org.esa.snap.util.SystemUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records the graphs of a batch which have been processed successfully, so that a batch interrupted by a crash
+ * or by cancelling can be resumed without processing them again.
+ * <p>
+ * The journal is kept in the target folder. A graph is identified by the SHA-256 digest of its XML including all
+ * parameters and the source and target files, hence a graph is only skipped if it would be processed in exactly
+ * the same way.
+ * Each completed graph is written immediately.
+ */
+class BatchJournal {
+
+    static final String FILE_NAME = ".batch_journal.txt";
+
+    private final File file;
+    private final Set<String> completedKeys = new HashSet<>();
+    private Writer writer;
+
+    private BatchJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the journal of the given target folder, creating it if it does not exist yet.
+     * Failures are logged only; the returned journal is then empty and records nothing.
+     *
+     * @param targetFolder the target folder of the batch
+     * @return the journal
+     */
+    static BatchJournal open(final File targetFolder) {
+        final BatchJournal journal = new BatchJournal(new File(targetFolder, FILE_NAME));
+        try {
+            journal.load();
+            if (targetFolder.isDirectory() || targetFolder.mkdirs()) {
+                journal.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal.file, true),
+                                                                           StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            SystemUtils.LOG.warning("Unable to open batch journal " + journal.file + ": " + e.getMessage());
+        }
+        return journal;
+    }
+
+    /**
+     * @param graphXml the graph as returned by {@code GraphExecuter.getGraphAsString()}
+     * @return the key identifying the graph in the journal
+     */
+    static String getGraphKey(final String graphXml) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+        final byte[] hash = digest.digest(graphXml.getBytes(StandardCharsets.UTF_8));
+        final StringBuilder key = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    synchronized boolean isCompleted(final String graphKey) {
+        return completedKeys.contains(graphKey);
+    }
+
+    /**
+     * @param graphKey  the key of the graph
+     * @param inputFile the source product of the graph, for information only
+     */
+    synchronized void record(final String graphKey, final File inputFile) {
+        completedKeys.add(graphKey);
+        if (writer != null) {
+            try {
+                writer.write(graphKey + '\t' + inputFile.getAbsolutePath() + '\n');
+                writer.flush();
+            } catch (IOException e) {
+                SystemUtils.LOG.warning("Unable to write batch journal " + file + ": " + e.getMessage());
+                close();
+            }
+        }
+    }
+
+    synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                SystemUtils.LOG.warning("Unable to close batch journal " + file + ": " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Closes and deletes the journal, usually after the batch has been completed without errors.
+     */
+    synchronized void delete() {
+        close();
+        completedKeys.clear();
+        if (file.exists() && !file.delete()) {
+            SystemUtils.LOG.warning("Unable to delete batch journal " + file);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // graph key and source product
+                final String[] tokens = line.split("\t", 2);
+                if (tokens.length == 2) {
+                    completedKeys.add(tokens[0]);
+                }
+            }
+        }
+    }
+}
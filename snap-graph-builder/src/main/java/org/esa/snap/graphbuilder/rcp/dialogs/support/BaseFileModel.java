@@ -19,6 +19,7 @@ import org.esa.snap.db.ProductDB;
 import org.esa.snap.db.ProductEntry;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
+import org.esa.snap.util.SystemUtils;
 
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
@@ -26,10 +27,40 @@ import javax.swing.table.TableColumnModel;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Table model of product files. Rows are added immediately, the product headers of their files are read in the
+ * background by a few reader threads and the values read are cached by file path and modification time.
+ * Until a header has been read, the values of its row are {@code null}.
+ */
 public abstract class BaseFileModel extends AbstractTableModel implements FileTableModel {
 
+    private static final int NUM_READER_THREADS = 4;
+    private static final int MAX_CACHED_HEADERS = 10000;
+
+    private static final ExecutorService headerReader = Executors.newFixedThreadPool(NUM_READER_THREADS, runnable -> {
+        final Thread thread = new Thread(runnable, "Product header reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the values read for a file, by model class and file path
+    private static final Map<String, CachedHeader> headerCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedHeader>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedHeader> eldest) {
+                    return size() > MAX_CACHED_HEADERS;
+                }
+            });
+    // the errors of the reader threads not reported yet, reported together in the EDT
+    private static final List<String> entryErrors = new ArrayList<>();
+    private static boolean entryErrorsReporting = false;
+
     protected String titles[] = null;
     protected Class types[] = null;
     protected int widths[] = null;
@@ -56,25 +87,48 @@ public abstract class BaseFileModel extends AbstractTableModel implements FileTa
         try {
             return ProductDB.instance().getProductEntry(file);
         } catch (Exception e) {
-            if (SnapApp.getDefault() != null) {
-                SnapDialogs.showError("Error getting product entry: "+e.getMessage());
+            SystemUtils.LOG.warning("Error getting product entry of " + file + ": " + e.getMessage());
+            synchronized (entryErrors) {
+                entryErrors.add(e.getMessage());
+                if (!entryErrorsReporting) {
+                    entryErrorsReporting = true;
+                    SwingUtilities.invokeLater(BaseFileModel::reportEntryErrors);
+                }
             }
         }
         return null;
     }
 
+    /*
+     * Shows a single dialog for the errors collected so far. Errors occurring while it is shown have been logged only.
+     */
+    private static void reportEntryErrors() {
+        final List<String> errors;
+        synchronized (entryErrors) {
+            errors = new ArrayList<>(entryErrors);
+            entryErrors.clear();
+        }
+        try {
+            if (SnapApp.getDefault() != null) {
+                final String message = errors.size() == 1 ? errors.get(0)
+                        : errors.get(0) + "\n(" + (errors.size() - 1) + " more errors)";
+                SnapDialogs.showError("Error getting product entry: " + message);
+            }
+        } finally {
+            synchronized (entryErrors) {
+                entryErrors.clear();
+                entryErrorsReporting = false;
+            }
+        }
+    }
+
     public void addFile(final File file) {
         fileList.add(file);
         clearBlankFile();
 
-        // check if already exists in db
-        final ProductEntry existingEntry = getProductEntry(file);
-        if (existingEntry != null) {
-            dataList.add(createFileStats(existingEntry));
-        } else {
-            dataList.add(createFileStats(file));
-        }
-        fireTableDataChanged();
+        // the product entry in the db or the product itself is read in the background
+        dataList.add(createFileStats(file));
+        fireTableRowsInserted(dataList.size() - 1, dataList.size() - 1);
     }
 
     public void addFile(final ProductEntry entry) {
@@ -82,7 +136,7 @@ public abstract class BaseFileModel extends AbstractTableModel implements FileTa
         clearBlankFile();
 
         dataList.add(createFileStats(entry));
-        fireTableDataChanged();
+        fireTableRowsInserted(dataList.size() - 1, dataList.size() - 1);
     }
 
     public void addFile(final File file, final String[] values) {
@@ -91,12 +145,12 @@ public abstract class BaseFileModel extends AbstractTableModel implements FileTa
 
         dataList.add(new TableData(values));
 
-        fireTableDataChanged();
+        fireTableRowsInserted(dataList.size() - 1, dataList.size() - 1);
     }
 
     public void removeFile(final int index) {
         fileList.remove(index);
-        dataList.remove(index);
+        dataList.remove(index).removed = true;
 
         fireTableDataChanged();
     }
@@ -135,6 +189,9 @@ public abstract class BaseFileModel extends AbstractTableModel implements FileTa
 
     public void clear() {
         fileList.clear();
+        for (TableData tableData : dataList) {
+            tableData.removed = true;
+        }
         dataList.clear();
         addBlankFile();
 
@@ -188,6 +245,8 @@ public abstract class BaseFileModel extends AbstractTableModel implements FileTa
 
     public class TableData {
         protected final String data[] = new String[titles.length];
+        // a header not read yet is not needed anymore
+        private volatile boolean removed = false;
 
         public TableData() {
 
@@ -214,29 +273,56 @@ public abstract class BaseFileModel extends AbstractTableModel implements FileTa
         }
 
         private void readProduct(final File file) {
-
-            final SwingWorker worker = new SwingWorker() {
-                @Override
-                protected Object doInBackground() throws Exception {
+            if (file.getName().isEmpty()) {
+                return;
+            }
+            headerReader.execute(() -> {
+                if (removed) {
+                    return;
+                }
+                try {
+                    final String cacheKey = BaseFileModel.this.getClass().getName() + '|' + file.getAbsolutePath();
+                    final long lastModified = file.lastModified();
+                    final CachedHeader cachedHeader = headerCache.get(cacheKey);
+                    if (cachedHeader != null && cachedHeader.lastModified == lastModified) {
+                        System.arraycopy(cachedHeader.data, 0, data, 0, data.length);
+                        return;
+                    }
                     try {
-                        if (!file.getName().isEmpty()) {
-                            try {
-                                updateData(file);
-                            } catch (Exception ex) {
-                                data[0] = file.getName();
-                                for (int i = 1; i < data.length; ++i) {
-                                    data[i] = "";
-                                }
-                            }
+                        // check if already exists in db
+                        final ProductEntry existingEntry = getProductEntry(file);
+                        if (existingEntry != null) {
+                            updateData(existingEntry);
+                        } else {
+                            updateData(file);
+                        }
+                        headerCache.put(cacheKey, new CachedHeader(lastModified, data.clone()));
+                    } catch (Exception ex) {
+                        data[0] = file.getName();
+                        for (int i = 1; i < data.length; ++i) {
+                            data[i] = "";
                         }
-                    } finally {
-                        fireTableDataChanged();
                     }
-                    return null;
+                } finally {
+                    SwingUtilities.invokeLater(() -> {
+                        final int row = dataList.indexOf(this);
+                        if (row >= 0) {
+                            fireTableRowsUpdated(row, row);
+                        }
+                    });
                 }
-            };
-            worker.execute();
+            });
         }
     }
 
-}
\ No newline at end of file
+    private static final class CachedHeader {
+
+        private final long lastModified;
+        private final String[] data;
+
+        private CachedHeader(final long lastModified, final String[] data) {
+            this.lastModified = lastModified;
+            this.data = data;
+        }
+    }
+}
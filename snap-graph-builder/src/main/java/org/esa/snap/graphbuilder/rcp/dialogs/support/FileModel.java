@@ -62,17 +62,22 @@ public class FileModel extends BaseFileModel implements FileTableModel {
 
         protected synchronized void updateData(final File file) throws IOException {
             data[0] = file.getName();
-            Product product = getProductFromProductManager(file);
-            if(product == null) {
-                product = CommonReaders.readProduct(file);
+            final Product openedProduct = getProductFromProductManager(file);
+            final Product product = openedProduct != null ? openedProduct : CommonReaders.readProduct(file);
+            try {
+                final MetadataElement absRoot = AbstractMetadata.getAbstractedMetadata(product);
+
+                data[0] = product.getName();
+                data[1] = product.getProductType();
+                data[2] = OperatorUtils.getAcquisitionDate(absRoot);
+                data[3] = String.valueOf(absRoot.getAttributeInt(AbstractMetadata.REL_ORBIT, 0));
+                data[4] = String.valueOf(absRoot.getAttributeInt(AbstractMetadata.ABS_ORBIT, 0));
+            } finally {
+                // only the header is needed
+                if (product != openedProduct && product != null) {
+                    product.dispose();
+                }
             }
-            final MetadataElement absRoot = AbstractMetadata.getAbstractedMetadata(product);
-
-            data[0] = product.getName();
-            data[1] = product.getProductType();
-            data[2] = OperatorUtils.getAcquisitionDate(absRoot);
-            data[3] = String.valueOf(absRoot.getAttributeInt(AbstractMetadata.REL_ORBIT, 0));
-            data[4] = String.valueOf(absRoot.getAttributeInt(AbstractMetadata.ABS_ORBIT, 0));
         }
 
         protected void updateData(final ProductEntry entry) {
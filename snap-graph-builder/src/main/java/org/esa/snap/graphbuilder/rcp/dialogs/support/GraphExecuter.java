@@ -341,6 +341,18 @@ public class GraphExecuter extends Observable {
         return stringWriter.toString();
     }
 
+    /**
+     * Assigns the parameters of the operator UIs and creates a template from the graph, from which
+     * the graphs of a batch are instantiated.
+     *
+     * @return the template
+     * @throws GraphException if the parameters cannot be assigned
+     */
+    public GraphTemplate createTemplate() throws GraphException {
+        AssignAllParameters();
+        return new GraphTemplate(graph, graphDescription);
+    }
+
     public void loadGraph(final File filePath, final boolean addUI) throws GraphException {
 
         try {
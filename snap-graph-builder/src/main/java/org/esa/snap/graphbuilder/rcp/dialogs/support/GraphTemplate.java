@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.graphbuilder.rcp.dialogs.support;
+
+import com.bc.ceres.binding.dom.DomElement;
+import com.bc.ceres.binding.dom.XppDomElement;
+import org.esa.snap.framework.gpf.graph.Graph;
+import org.esa.snap.framework.gpf.graph.GraphException;
+import org.esa.snap.framework.gpf.graph.Node;
+import org.esa.snap.framework.gpf.graph.NodeSource;
+
+/**
+ * An immutable snapshot of a graph with all parameters of its operator UIs assigned, from which graphs
+ * are instantiated for batch processing.
+ * <p>
+ * The graph is copied in memory, so instantiating it neither reads nor parses the graph file again, and the
+ * instances have no operator UIs. Only the parameters which differ per instance, usually the source and
+ * target files, have to be set on them.
+ */
+public class GraphTemplate {
+
+    private final Graph graph;
+    private final String graphDescription;
+    private final String signature;
+
+    GraphTemplate(final Graph graph, final String graphDescription) {
+        this.graph = copyGraph(graph);
+        this.graphDescription = graphDescription;
+        final StringBuilder sb = new StringBuilder();
+        for (Node node : this.graph.getNodes()) {
+            sb.append(node.getId()).append('=').append(node.getOperatorName()).append('(');
+            for (NodeSource source : node.getSources()) {
+                sb.append(source.getName()).append('=').append(source.getSourceNodeId()).append(',');
+            }
+            sb.append(')');
+            appendSignature(sb, node.getConfiguration());
+            sb.append(';');
+        }
+        signature = sb.toString();
+    }
+
+    /**
+     * Creates a new instance of the graph.
+     *
+     * @return a graph executer of the instance, without operator UIs
+     * @throws GraphException if the graph cannot be set
+     */
+    public GraphExecuter createGraph() throws GraphException {
+        final GraphExecuter graphEx = new GraphExecuter();
+        graphEx.setGraph(copyGraph(graph), false);
+        graphEx.setGraphDescription(graphDescription);
+        return graphEx;
+    }
+
+    /**
+     * Two templates are equal if their nodes, connections and parameters are equal, hence the instances of
+     * one template can be used in place of the instances of the other.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof GraphTemplate && signature.equals(((GraphTemplate) o).signature);
+    }
+
+    @Override
+    public int hashCode() {
+        return signature.hashCode();
+    }
+
+    private static Graph copyGraph(final Graph graph) {
+        final Graph copy = new Graph(graph.getId());
+        for (Node node : graph.getNodes()) {
+            final Node nodeCopy = new Node(node.getId(), node.getOperatorName());
+            if (node.getConfiguration() != null) {
+                nodeCopy.setConfiguration(copyElement(node.getConfiguration()));
+            }
+            for (NodeSource source : node.getSources()) {
+                nodeCopy.addSource(new NodeSource(source.getName(), source.getSourceNodeId()));
+            }
+            copy.addNode(nodeCopy);
+        }
+        return copy;
+    }
+
+    private static DomElement copyElement(final DomElement element) {
+        final DomElement copy = new XppDomElement(element.getName());
+        for (String attributeName : element.getAttributeNames()) {
+            copy.setAttribute(attributeName, element.getAttribute(attributeName));
+        }
+        if (element.getChildCount() == 0 && element.getValue() != null) {
+            copy.setValue(element.getValue());
+        }
+        for (DomElement child : element.getChildren()) {
+            copy.addChild(copyElement(child));
+        }
+        return copy;
+    }
+
+    private static void appendSignature(final StringBuilder sb, final DomElement element) {
+        if (element == null) {
+            return;
+        }
+        sb.append('<').append(element.getName());
+        for (String attributeName : element.getAttributeNames()) {
+            sb.append(' ').append(attributeName).append('=').append(element.getAttribute(attributeName));
+        }
+        sb.append('>');
+        if (element.getChildCount() == 0) {
+            sb.append(element.getValue());
+        }
+        for (DomElement child : element.getChildren()) {
+            appendSignature(sb, child);
+        }
+        sb.append("</>");
+    }
+}
@@ -0,0 +1,65 @@
+package org.esa.snap.graphbuilder.gpf.ui.worldmap;
+
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.junit.Test;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FootprintIndexTest {
+
+    @Test
+    public void testFindIntersecting() throws Exception {
+        // a grid of 1 x 1 degree footprints
+        final GeoPos[][] boundaries = new GeoPos[100 * 50][];
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 50; j++) {
+                boundaries[i * 50 + j] = createBox(j, i, j + 1, i + 1);
+            }
+        }
+        final FootprintIndex index = new FootprintIndex(boundaries, null);
+        assertEquals(5000, index.getFootprintCount());
+
+        final List<FootprintIndex.Footprint> footprints = index.findIntersecting(new Rectangle2D.Double(10.2, 20.2, 1.5, 0.5));
+        assertEquals(2, footprints.size());
+        assertSame(boundaries[20 * 50 + 10], footprints.get(0).getGeoBoundary());
+        assertSame(boundaries[20 * 50 + 11], footprints.get(1).getGeoBoundary());
+
+        assertTrue(index.findIntersecting(new Rectangle2D.Double(60.0, 20.0, 10.0, 10.0)).isEmpty());
+        assertEquals(5000, index.findIntersecting(new Rectangle2D.Double(-180.0, -90.0, 360.0, 180.0)).size());
+    }
+
+    @Test
+    public void testFindContaining() throws Exception {
+        final GeoPos[][] boundaries = {
+                createBox(0, 0, 10, 10),
+                createBox(5, 5, 15, 15),
+                createBox(-20, -20, -10, -10),
+        };
+        final FootprintIndex index = new FootprintIndex(boundaries, null);
+        assertEquals(2, index.findContaining(7.0, 7.0).size());
+        assertEquals(1, index.findContaining(2.0, 2.0).size());
+        assertSame(boundaries[2], index.findContaining(-15.0, -15.0).get(0).getGeoBoundary());
+        assertTrue(index.findContaining(50.0, 50.0).isEmpty());
+    }
+
+    @Test
+    public void testFootprintsAreReused() throws Exception {
+        final GeoPos[][] boundaries = {createBox(0, 0, 10, 10)};
+        final FootprintIndex index = new FootprintIndex(boundaries, null);
+        final FootprintIndex newIndex = new FootprintIndex(new GeoPos[][]{boundaries[0], createBox(20, 20, 30, 30)}, index);
+        assertSame(index.getFootprint(0), newIndex.getFootprint(0));
+        assertEquals(2, newIndex.getFootprintCount());
+    }
+
+    private static GeoPos[] createBox(double lon1, double lat1, double lon2, double lat2) {
+        return new GeoPos[]{
+                new GeoPos(lat1, lon1),
+                new GeoPos(lat1, lon2),
+                new GeoPos(lat2, lon2),
+                new GeoPos(lat2, lon1),
+        };
+    }
+}
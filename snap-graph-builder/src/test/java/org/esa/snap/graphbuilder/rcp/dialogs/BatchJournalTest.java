@@ -0,0 +1,57 @@
+package org.esa.snap.graphbuilder.rcp.dialogs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class BatchJournalTest {
+
+    private File targetFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        targetFolder = Files.createTempDirectory("batch_journal").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        new File(targetFolder, BatchJournal.FILE_NAME).delete();
+        targetFolder.delete();
+    }
+
+    @Test
+    public void testCompletedGraphsAreResumed() throws Exception {
+        final String key1 = BatchJournal.getGraphKey("<graph id=\"1\"/>");
+        final String key2 = BatchJournal.getGraphKey("<graph id=\"2\"/>");
+        assertNotEquals(key1, key2);
+
+        final BatchJournal journal = BatchJournal.open(targetFolder);
+        assertFalse(journal.isCompleted(key1));
+        journal.record(key1, new File("input1.dim"));
+        assertTrue(journal.isCompleted(key1));
+        journal.close();
+
+        final BatchJournal resumedJournal = BatchJournal.open(targetFolder);
+        assertTrue(resumedJournal.isCompleted(key1));
+        assertFalse(resumedJournal.isCompleted(key2));
+        resumedJournal.record(key2, new File("input2.dim"));
+        resumedJournal.delete();
+        assertFalse(new File(targetFolder, BatchJournal.FILE_NAME).exists());
+
+        final BatchJournal newJournal = BatchJournal.open(targetFolder);
+        assertFalse(newJournal.isCompleted(key1));
+        newJournal.close();
+    }
+
+    @Test
+    public void testGraphKeyIsSha256() throws Exception {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", BatchJournal.getGraphKey("abc"));
+        // equal String.hashCode() and length
+        assertNotEquals(BatchJournal.getGraphKey("<graph id=\"Aa\"/>"), BatchJournal.getGraphKey("<graph id=\"BB\"/>"));
+    }
+}
@@ -18,6 +18,7 @@ package org.esa.snap.graphbuiler.rcp.dialogs.support;
 import org.esa.snap.framework.gpf.graph.GraphException;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphExecuter;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphNode;
+import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphTemplate;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -121,6 +122,31 @@ public class TestGraphExecuter implements Observer {
         //graphEx.executeGraph(new NullProgressMonitor());
     }
 
+    @Test
+    public void testCreateGraphFromTemplate() throws GraphException {
+        GraphNode nodeA = graphEx.addOperator("testOp");
+        GraphNode nodeB = graphEx.addOperator("testOp");
+        nodeB.connectOperatorSource(nodeA.getID());
+        graphEx.setOperatorParam(nodeA.getID(), "file", "a.dim");
+
+        final GraphTemplate template = graphEx.createTemplate();
+        assertEquals(template, graphEx.createTemplate());
+
+        final GraphExecuter instance = template.createGraph();
+        final List<GraphNode> nodeList = instance.GetGraphNodes();
+        assertEquals(2, nodeList.size());
+        final GraphNode instanceB = instance.getGraphNodeList().findGraphNode(nodeB.getID());
+        assertEquals(nodeA.getID(), instanceB.getNode().getSources()[0].getSourceNodeId());
+
+        // the parameters of an instance are independent of the template
+        instance.setOperatorParam(nodeA.getID(), "file", "b.dim");
+        assertEquals("a.dim", nodeA.getNode().getConfiguration().getChild("file").getValue());
+        assertEquals(template, graphEx.createTemplate());
+
+        graphEx.setOperatorParam(nodeA.getID(), "file", "c.dim");
+        assertNotEquals(template, graphEx.createTemplate());
+    }
+
     /**
      * Implements the functionality of Observer participant of Observer Design Pattern to define a one-to-many
      * dependency between a Subject object and any number of Observer objects so that when the
@@ -20,21 +20,32 @@ import org.esa.snap.db.ProductDB;
 import org.esa.snap.db.ProductEntry;
 import org.esa.snap.db.QuickLookGenerator;
 import org.esa.snap.framework.datamodel.Product;
-import org.esa.snap.gpf.ThreadManager;
 import org.esa.snap.util.ProductFunctions;
 
 import javax.swing.SwingWorker;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Scans folders for products to add or update into the database
  */
 public final class DBScanner extends SwingWorker {
+    private static final int MAX_READERS = 4;
+    private static final int MAX_QUICKLOOK_RENDERERS = 4;
+    private static final long PROGRESS_INTERVAL = 200;
+    private static final long QUICK_LOOK_NOTIFICATION_INTERVAL = 5000;
+
     private final ProductDB db;
 
     private final File baseDir;
@@ -42,7 +53,7 @@ public final class DBScanner extends SwingWorker {
     private final boolean generateQuicklooks;
     private final com.bc.ceres.core.ProgressMonitor pm;
     private final List<DBScannerListener> listenerList = new ArrayList<>(1);
-    private final List<ErrorFile> errorList = new ArrayList<>();
+    private final List<ErrorFile> errorList = Collections.synchronizedList(new ArrayList<>());
 
     public DBScanner(final ProductDB database, final File baseDir, final boolean doRecursive,
                      final boolean doQuicklooks, final com.bc.ceres.core.ProgressMonitor pm) {
@@ -69,10 +80,50 @@ public final class DBScanner extends SwingWorker {
         }
     }
 
+    /*
+     * The scan is a pipeline of three stages: the folders are walked first, then the products are read by a pool
+     * of readers and inserted into the database by a single writer, and finally the quicklooks are rendered by
+     * another pool. The number of products and quicklooks in flight is bounded, so a slow stage blocks the
+     * stages feeding it. Progress and cancellation are handled by the scanning thread only.
+     */
     @Override
     protected Boolean doInBackground() throws Exception {
         errorList.clear();
 
+        final ProductEntry[] entriesInPath = db.getProductEntryInPath(baseDir);
+        final Map<File, ProductEntry> fileMap = new HashMap<>(entriesInPath.length);
+        for (ProductEntry entry : entriesInPath) {
+            fileMap.put(entry.getFile(), entry);
+        }
+
+        final ScanCheckpoint checkpoint = ScanCheckpoint.open(baseDir);
+        boolean completed = false;
+        try {
+            final List<ScanItem> items = collectItems(fileMap, checkpoint);
+            if (!pm.isCanceled()) {
+                completed = processItems(items, checkpoint);
+            }
+            db.cleanUpRemovedProducts(pm);
+            pm.setTaskName("");
+
+        } catch (Throwable e) {
+            System.out.println("Scanning Exception\n" + e.getMessage());
+        } finally {
+            checkpoint.close(completed);
+            for (ProductEntry entry : entriesInPath) {
+                entry.dispose();
+            }
+            pm.done();
+        }
+        return true;
+    }
+
+    /*
+     * Walks the folders and decides for each file what needs to be done. Files already in the database only need
+     * a missing quicklook, unless they have been modified since they have been indexed. Files which could not be
+     * read by a previous scan are skipped if they are unchanged.
+     */
+    private List<ScanItem> collectItems(final Map<File, ProductEntry> fileMap, final ScanCheckpoint checkpoint) {
         final List<File> dirList = new ArrayList<>(20);
         dirList.add(baseDir);
         if (doRecursive) {
@@ -81,120 +132,125 @@ public final class DBScanner extends SwingWorker {
         }
 
         final ProductFunctions.ValidProductFileFilter fileFilter = new ProductFunctions.ValidProductFileFilter(false);
-        final List<File> fileList = new ArrayList<>(dirList.size());
-        for (File file : dirList) {
-            final File[] files = file.listFiles(fileFilter);
-            if(files != null) {
-                fileList.addAll(Arrays.asList(files));
+        final List<ScanItem> itemList = new ArrayList<>(dirList.size());
+        int numFiles = 0;
+        for (File dir : dirList) {
+            final File[] files = dir.listFiles(fileFilter);
+            if (files == null) {
+                continue;
             }
-            pm.setTaskName("Collecting "+fileList.size()+" files...");
-        }
-
-        final List<File> qlProductFiles = new ArrayList<>(fileList.size());
-        final List<Integer> qlIDs = new ArrayList<>(fileList.size());
-
-        final ProductEntry[] entriesInPath = db.getProductEntryInPath(baseDir);
-        final Map<File, ProductEntry> fileMap = new ConcurrentHashMap<>(entriesInPath.length);
-        for (ProductEntry entry : entriesInPath) {
-            fileMap.put(entry.getFile(), entry);
-        }
-
-        final int total = fileList.size();
-        pm.beginTask("Scanning Files...", total);
-        int i = 0;
-        int prodCount = 0;
-        try {
-            for (File file : fileList) {
-                ++i;
-                String taskMsg = "Scanning " + i + " of " + total + " files ";
-                if (prodCount > 0)
-                    taskMsg += "(" + prodCount + " new products)";
-                pm.setTaskName(taskMsg);
-                pm.worked(1);
-
-                // check if already exists in db
-                //final ProductEntry existingEntry = db.getProductEntry(file);
+            for (File file : files) {
+                ++numFiles;
+                final ScanItem item = new ScanItem(file);
                 final ProductEntry existingEntry = fileMap.get(file);
-
                 if (existingEntry != null) {
-                    // check for missing quicklook
-                    if (generateQuicklooks && !existingEntry.quickLookExists()) {
-                        qlProductFiles.add(file);
-                        qlIDs.add(existingEntry.getId());
+                    if (checkpoint.isModified(file, item.lastModified, item.length)) {
+                        // the product has been modified since it has been indexed, read it again
+                        item.reindex = true;
+                    } else {
+                        if (!checkpoint.isRecorded(file)) {
+                            // indexed before checkpoints were kept, remember its state to detect later modifications
+                            checkpoint.record(file, item.lastModified, item.length, ScanCheckpoint.Status.INDEXED);
+                        }
+                        // check for missing quicklook
+                        if (generateQuicklooks && !existingEntry.quickLookExists()) {
+                            item.quicklookID = existingEntry.getId();
+                        } else {
+                            item.skip = true;
+                        }
+                    }
+                } else {
+                    final ScanCheckpoint.Status status = checkpoint.getStatus(file, item.lastModified, item.length);
+                    if (status == ScanCheckpoint.Status.NO_READER) {
+                        item.skip = true;
+                    } else if (status == ScanCheckpoint.Status.UNREADABLE) {
+                        errorList.add(new ErrorFile(file, ErrorFile.UNREADABLE));
+                        item.skip = true;
                     }
-                    existingEntry.dispose();
-                    continue;
                 }
+                itemList.add(item);
+            }
+            if (pm.isCanceled()) {
+                break;
+            }
+            pm.setTaskName("Collecting " + numFiles + " files...");
+        }
+        return itemList;
+    }
 
-                if (pm.isCanceled())
+    private boolean processItems(final List<ScanItem> items, final ScanCheckpoint checkpoint) throws InterruptedException {
+        final int numProcessors = Runtime.getRuntime().availableProcessors();
+        final int numReaders = Math.max(1, Math.min(MAX_READERS, numProcessors / 2));
+        final int numQuicklookRenderers = Math.max(1, Math.min(MAX_QUICKLOOK_RENDERERS, numProcessors - numReaders));
+        final ForkJoinPool readerPool = new ForkJoinPool(numReaders);
+        final ExecutorService insertExecutor = Executors.newSingleThreadExecutor();
+        final ForkJoinPool quicklookPool = new ForkJoinPool(numQuicklookRenderers);
+        // bounds the products being read or waiting for insertion, and the quicklooks waiting for rendering
+        final Semaphore productPermits = new Semaphore(2 * numReaders);
+        final Semaphore quicklookPermits = new Semaphore(4 * numQuicklookRenderers);
+
+        final Pipeline pipeline = new Pipeline(items.size(), checkpoint, insertExecutor, quicklookPool, quicklookPermits);
+        pm.beginTask("Scanning Files...", items.size());
+        try {
+            for (final ScanItem item : items) {
+                if (pm.isCanceled()) {
                     break;
-
-                try {
-                    // quick test for common readers
-                    final Product sourceProduct = CommonReaders.readProduct(file);
-                    if (sourceProduct != null) {
-                        final ProductEntry entry = db.saveProduct(sourceProduct);
-                        ++prodCount;
-                        if (!entry.quickLookExists()) {
-                            qlProductFiles.add(file);
-                            qlIDs.add(entry.getId());
-                        }
-                        sourceProduct.dispose();
-                        entry.dispose();
-                    } else if (!file.isDirectory()) {
-                        System.out.println("No reader for " + file.getAbsolutePath());
+                }
+                if (item.skip) {
+                    pipeline.itemDone();
+                } else if (item.quicklookID >= 0) {
+                    if (!acquire(quicklookPermits, pipeline)) {
+                        break;
                     }
-                } catch (Throwable e) {
-                    errorList.add(new ErrorFile(file, ErrorFile.UNREADABLE));
-                    System.out.println("Unable to read " + file.getAbsolutePath() + '\n' + e.getMessage());
+                    quicklookPool.execute(() -> pipeline.renderQuicklook(item));
+                } else {
+                    if (!acquire(productPermits, pipeline)) {
+                        break;
+                    }
+                    readerPool.execute(() -> pipeline.read(item, productPermits));
                 }
+                pipeline.updateProgress();
             }
 
-            db.cleanUpRemovedProducts(pm);
-
+            // shut down the stages in order, each stage feeds the next one
+            readerPool.shutdown();
+            awaitTermination(readerPool, pipeline);
+            insertExecutor.shutdown();
+            awaitTermination(insertExecutor, pipeline);
             notifyMSG(DBScannerListener.MSG.FOLDERS_SCANNED);
-
-            if (generateQuicklooks) {
-                final int numQL = qlProductFiles.size();
-                pm.beginTask("Generating Quicklooks...", numQL);
-                final ThreadManager threadManager = new ThreadManager();
-
-                for (int j = 0; j < numQL; ++j) {
-                    pm.setTaskName("Generating Quicklook... " + (j + 1) + " of " + numQL);
-                    pm.worked(1);
-                    if (pm.isCanceled())
-                        break;
-
-                    final File file = qlProductFiles.get(j);
-                    final int qlID = qlIDs.get(j);
-
-                    final Thread worker = new Thread() {
-
-                        @Override
-                        public void run() {
-                            try {
-                                QuickLookGenerator.createQuickLook(qlID, file);
-                            } catch (Throwable e) {
-                                System.out.println("QL Unable to read " + file.getAbsolutePath() + '\n' + e.getMessage());
-                            }
-                        }
-                    };
-                    threadManager.add(worker);
-
-                    notifyMSG(DBScannerListener.MSG.QUICK_LOOK_GENERATED);
-                }
-                threadManager.finish();
+            quicklookPool.shutdown();
+            awaitTermination(quicklookPool, pipeline);
+            pipeline.updateProgress();
+            if (pipeline.numQuicklooks.get() > 0) {
+                notifyMSG(DBScannerListener.MSG.QUICK_LOOK_GENERATED);
             }
-            pm.setTaskName("");
-
-        } catch (Throwable e) {
-            System.out.println("Scanning Exception\n" + e.getMessage());
         } finally {
-            pm.done();
+            readerPool.shutdownNow();
+            insertExecutor.shutdownNow();
+            quicklookPool.shutdownNow();
+        }
+        return !pm.isCanceled();
+    }
+
+    /*
+     * Waits for a permit while keeping the progress up to date. Returns false if the scan has been canceled.
+     */
+    private boolean acquire(final Semaphore permits, final Pipeline pipeline) throws InterruptedException {
+        while (!permits.tryAcquire(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+            pipeline.updateProgress();
+            if (pm.isCanceled()) {
+                return false;
+            }
         }
         return true;
     }
 
+    private void awaitTermination(final ExecutorService executor, final Pipeline pipeline) throws InterruptedException {
+        while (!executor.awaitTermination(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+            pipeline.updateProgress();
+        }
+    }
+
     @Override
     public void done() {
         notifyMSG(DBScannerListener.MSG.DONE);
@@ -218,6 +274,160 @@ public final class DBScanner extends SwingWorker {
         return dirList.toArray(new File[dirList.size()]);
     }
 
+    private static final class ScanItem {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private boolean skip;
+        private boolean reindex;
+        private int quicklookID = -1;
+
+        private ScanItem(final File file) {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+    }
+
+    /**
+     * The read, insert and quicklook stages of a scan. The counters are updated by the stages and
+     * reported to the progress monitor by the scanning thread.
+     */
+    private final class Pipeline {
+        private final int numItems;
+        private final ScanCheckpoint checkpoint;
+        private final ExecutorService insertExecutor;
+        private final ExecutorService quicklookPool;
+        private final Semaphore quicklookPermits;
+        private final AtomicInteger numItemsDone = new AtomicInteger();
+        private final AtomicInteger numNewProducts = new AtomicInteger();
+        private final AtomicInteger numQuicklooks = new AtomicInteger();
+        private int numItemsReported;
+        private long lastQuicklookNotification;
+
+        private Pipeline(final int numItems, final ScanCheckpoint checkpoint, final ExecutorService insertExecutor,
+                         final ExecutorService quicklookPool, final Semaphore quicklookPermits) {
+            this.numItems = numItems;
+            this.checkpoint = checkpoint;
+            this.insertExecutor = insertExecutor;
+            this.quicklookPool = quicklookPool;
+            this.quicklookPermits = quicklookPermits;
+        }
+
+        private void read(final ScanItem item, final Semaphore productPermits) {
+            Product sourceProduct = null;
+            try {
+                if (!pm.isCanceled()) {
+                    // quick test for common readers
+                    sourceProduct = CommonReaders.readProduct(item.file);
+                    if (sourceProduct == null) {
+                        if (!item.file.isDirectory()) {
+                            System.out.println("No reader for " + item.file.getAbsolutePath());
+                        }
+                        checkpoint.record(item.file, item.lastModified, item.length, ScanCheckpoint.Status.NO_READER);
+                    }
+                }
+            } catch (Throwable e) {
+                errorList.add(new ErrorFile(item.file, ErrorFile.UNREADABLE));
+                checkpoint.record(item.file, item.lastModified, item.length, ScanCheckpoint.Status.UNREADABLE);
+                System.out.println("Unable to read " + item.file.getAbsolutePath() + '\n' + e.getMessage());
+            }
+            if (sourceProduct == null) {
+                productPermits.release();
+                itemDone();
+                return;
+            }
+            final Product product = sourceProduct;
+            insertExecutor.execute(() -> insert(item, product, productPermits));
+        }
+
+        private void insert(final ScanItem item, final Product product, final Semaphore productPermits) {
+            boolean needsQuicklook = false;
+            try {
+                if (!pm.isCanceled()) {
+                    if (item.reindex) {
+                        // saveProduct() does not update an existing entry
+                        db.removeProducts(item.file, com.bc.ceres.core.ProgressMonitor.NULL);
+                    }
+                    final ProductEntry entry = db.saveProduct(product);
+                    numNewProducts.incrementAndGet();
+                    checkpoint.record(item.file, item.lastModified, item.length, ScanCheckpoint.Status.INDEXED);
+                    if (generateQuicklooks && !entry.quickLookExists()) {
+                        item.quicklookID = entry.getId();
+                        needsQuicklook = true;
+                    }
+                    entry.dispose();
+                }
+            } catch (Throwable e) {
+                errorList.add(new ErrorFile(item.file, ErrorFile.UNREADABLE));
+                System.out.println("Unable to read " + item.file.getAbsolutePath() + '\n' + e.getMessage());
+            } finally {
+                product.dispose();
+                productPermits.release();
+            }
+            if (needsQuicklook && acquireQuicklookPermit()) {
+                quicklookPool.execute(() -> renderQuicklook(item));
+            } else {
+                itemDone();
+            }
+        }
+
+        private boolean acquireQuicklookPermit() {
+            try {
+                while (!quicklookPermits.tryAcquire(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    if (pm.isCanceled()) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void renderQuicklook(final ScanItem item) {
+            try {
+                if (!pm.isCanceled()) {
+                    QuickLookGenerator.createQuickLook(item.quicklookID, item.file);
+                    numQuicklooks.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                System.out.println("QL Unable to read " + item.file.getAbsolutePath() + '\n' + e.getMessage());
+            } finally {
+                quicklookPermits.release();
+                itemDone();
+            }
+        }
+
+        private void itemDone() {
+            numItemsDone.incrementAndGet();
+        }
+
+        /*
+         * Called by the scanning thread only.
+         */
+        private void updateProgress() {
+            final int done = numItemsDone.get();
+            if (done > numItemsReported) {
+                pm.worked(done - numItemsReported);
+                numItemsReported = done;
+                String taskMsg = "Scanning " + done + " of " + numItems + " files ";
+                final int prodCount = numNewProducts.get();
+                if (prodCount > 0) {
+                    taskMsg += "(" + prodCount + " new products)";
+                }
+                pm.setTaskName(taskMsg);
+            }
+            // the listeners refresh the product table, so they are not notified for every single quicklook
+            final long now = System.currentTimeMillis();
+            if (numQuicklooks.get() > 0 && now - lastQuicklookNotification >= QUICK_LOOK_NOTIFICATION_INTERVAL) {
+                lastQuicklookNotification = now;
+                notifyMSG(DBScannerListener.MSG.QUICK_LOOK_GENERATED);
+            }
+        }
+    }
+
     public List<ErrorFile> getErrorList() {
         return errorList;
     }
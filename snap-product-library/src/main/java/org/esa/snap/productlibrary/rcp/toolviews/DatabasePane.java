@@ -43,9 +43,11 @@ import java.awt.event.ItemListener;
 import java.io.File;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
 
@@ -76,11 +78,20 @@ public final class DatabasePane extends JPanel {
     private final JButton updateButton = new JButton(UIUtils.loadImageIcon("icons/ViewRefresh16.png"));
     private final JTextArea productText = new JTextArea();
 
+    private static final int PAGE_SIZE = 500;
+
     private ProductDB db;
     private DBQuery dbQuery = new DBQuery();
-    private ProductEntry[] productEntryList = null;
+    private final List<ProductEntry> productEntryList = new ArrayList<>();
     boolean modifyingCombos = false;
 
+    // the settings of the query not made in this panel, kept here as they are not readable from the DBQuery
+    private File baseDir = null;
+    private GeoPos[] selectionBox = null;
+    private boolean returnAllIfNoIntersection = false;
+
+    private QueryWorker currentQuery = null;
+
     private final List<DatabaseQueryListener> listenerList = new ArrayList<>(1);
 
     public DatabasePane() {
@@ -158,6 +169,12 @@ public final class DatabasePane extends JPanel {
         }
     }
 
+    private void notifyNewEntries(final ProductEntry[] entries) {
+        for (final DatabaseQueryListener listener : listenerList) {
+            listener.notifyNewEntriesAvailable(entries);
+        }
+    }
+
     private static void handleException(Throwable t) {
         t.printStackTrace();
         final SnapApp app = SnapApp.getDefault();
@@ -341,6 +358,7 @@ public final class DatabasePane extends JPanel {
     }
 
     public void setBaseDir(final File dir) {
+        baseDir = dir;
         dbQuery.setBaseDir(dir);
         if (db != null)
             queryDatabase();
@@ -371,23 +389,13 @@ public final class DatabasePane extends JPanel {
     }
 
     private void setData() {
-        dbQuery.setSelectedMissions(toStringArray(missionJList.getSelectedValuesList()));
-        dbQuery.setSelectedProductTypes(toStringArray(productTypeJList.getSelectedValuesList()));
-        dbQuery.setSelectedName(nameField.getText());
-        dbQuery.setSelectedAcquisitionMode((String) acquisitionModeCombo.getSelectedItem());
-        dbQuery.setSelectedPass((String) passCombo.getSelectedItem());
-        dbQuery.setSelectedTrack(trackField.getText());
-
-        dbQuery.setStartEndDate(getDate(startDateBox), getDate(endDateBox));
-
-        dbQuery.setSelectedPolarization((String) polarizationCombo.getSelectedItem());
-        dbQuery.setSelectedCalibration((String) calibrationCombo.getSelectedItem());
-        dbQuery.setSelectedOrbitCorrection((String) orbitCorrectionCombo.getSelectedItem());
-
-        dbQuery.clearMetadataQuery();
-        dbQuery.setFreeQuery(metadataArea.getText());
+        new QueryParameters().applyTo(dbQuery);
     }
 
+    /**
+     * Queries the database in the background. A query which is still running is cancelled and its result is
+     * discarded. The result is delivered to the listeners in pages, see {@link DatabaseQueryListener}.
+     */
     public void queryDatabase() {
         if (db == null) {
             try {
@@ -400,29 +408,53 @@ public final class DatabasePane extends JPanel {
             refresh();
         }
 
-        setData();
-
-        if (productEntryList != null) {
-            ProductEntry.dispose(productEntryList);
+        final QueryParameters parameters = new QueryParameters();
+        parameters.applyTo(dbQuery);
+        if (currentQuery != null) {
+            currentQuery.cancel(true);
+            currentQuery = null;
         }
         try {
             if(db.isReady()) {
-                productEntryList = dbQuery.queryDatabase(db);
-                notifyQuery();
+                // the worker queries its own copy of the settings, the UI may change them meanwhile
+                currentQuery = new QueryWorker(parameters.createQuery());
+                currentQuery.execute();
             }
         } catch (Throwable t) {
             handleException(t);
         }
     }
 
+    /*
+     * Called in the EDT for every page of the result of the current query. The first page replaces
+     * the entries of the previous query.
+     */
+    private void showPage(final ProductEntry[] page, final boolean firstPage) {
+        if (firstPage) {
+            final ProductEntry[] oldEntries = getProductEntryList();
+            productEntryList.clear();
+            notifyQuery();
+            ProductEntry.dispose(oldEntries);
+        }
+        if (page.length > 0) {
+            productEntryList.addAll(Arrays.asList(page));
+            notifyNewEntries(page);
+        }
+    }
+
     public void setSelectionRect(final GeoPos[] selectionBox) {
+        this.selectionBox = selectionBox != null ? selectionBox.clone() : null;
+        returnAllIfNoIntersection = true;
         dbQuery.setSelectionRect(selectionBox);
         dbQuery.setReturnAllIfNoIntersection(true);
         queryDatabase();
     }
 
+    /**
+     * @return the entries of the current query result delivered so far
+     */
     public ProductEntry[] getProductEntryList() {
-        return productEntryList;
+        return productEntryList.toArray(new ProductEntry[productEntryList.size()]);
     }
 
     public DBQuery getDBQuery() {
@@ -433,6 +465,7 @@ public final class DatabasePane extends JPanel {
     public void findSlices(final int dataTakeId) {
         metadataArea.setText(AbstractMetadata.data_take_id+"="+dataTakeId);
 
+        selectionBox = null;
         dbQuery.setSelectionRect(null);
         queryDatabase();
 
@@ -522,4 +555,135 @@ public final class DatabasePane extends JPanel {
             productText.setText("");
         }
     }
+
+    /**
+     * The query settings at the time a query has been requested.
+     */
+    private final class QueryParameters {
+        private final String[] missions = toStringArray(missionJList.getSelectedValuesList());
+        private final String[] productTypes = toStringArray(productTypeJList.getSelectedValuesList());
+        private final String name = nameField.getText();
+        private final String acquisitionMode = (String) acquisitionModeCombo.getSelectedItem();
+        private final String pass = (String) passCombo.getSelectedItem();
+        private final String track = trackField.getText();
+        private final Calendar startDate = getDate(startDateBox);
+        private final Calendar endDate = getDate(endDateBox);
+        private final String polarization = (String) polarizationCombo.getSelectedItem();
+        private final String calibration = (String) calibrationCombo.getSelectedItem();
+        private final String orbitCorrection = (String) orbitCorrectionCombo.getSelectedItem();
+        private final String freeQuery = metadataArea.getText();
+        private final File queryBaseDir = baseDir;
+        private final GeoPos[] querySelectionBox = selectionBox;
+        private final boolean queryReturnAll = returnAllIfNoIntersection;
+        private final boolean[] monthSelected = new boolean[12];
+
+        private QueryParameters() {
+            for (int m = 0; m < monthSelected.length; m++) {
+                monthSelected[m] = dbQuery.isMonthSelected(m);
+            }
+        }
+
+        /*
+         * Applies the settings made in this panel.
+         */
+        private void applyTo(final DBQuery query) {
+            query.setSelectedMissions(missions);
+            query.setSelectedProductTypes(productTypes);
+            query.setSelectedName(name);
+            query.setSelectedAcquisitionMode(acquisitionMode);
+            query.setSelectedPass(pass);
+            query.setSelectedTrack(track);
+
+            query.setStartEndDate(startDate, endDate);
+
+            query.setSelectedPolarization(polarization);
+            query.setSelectedCalibration(calibration);
+            query.setSelectedOrbitCorrection(orbitCorrection);
+
+            query.clearMetadataQuery();
+            query.setFreeQuery(freeQuery);
+        }
+
+        /*
+         * Creates a new query of all settings, which is not shared with the UI.
+         */
+        private DBQuery createQuery() {
+            final DBQuery query = new DBQuery();
+            applyTo(query);
+            query.setBaseDir(queryBaseDir);
+            query.setSelectionRect(querySelectionBox);
+            if (queryReturnAll) {
+                query.setReturnAllIfNoIntersection(true);
+            }
+            for (int m = 0; m < monthSelected.length; m++) {
+                query.setMonthSelected(m, monthSelected[m]);
+            }
+            return query;
+        }
+    }
+
+    /**
+     * Runs a query in the background and hands its result over to the EDT in pages, so that the table, the
+     * statistics and the world map are built incrementally while the UI stays responsive.
+     * <p>
+     * The query itself is a single call, which loads the whole result. A worker which has been cancelled is
+     * interrupted; if its query completes nevertheless, its result is disposed instead of being shown.
+     */
+    private final class QueryWorker extends SwingWorker<Void, Void> {
+
+        private final DBQuery query;
+
+        private QueryWorker(final DBQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            final ProductEntry[] entries = query.queryDatabase(db);
+            if (entries.length == 0) {
+                postPage(entries, true);
+            }
+            for (int i = 0; i < entries.length; i += PAGE_SIZE) {
+                final ProductEntry[] page = Arrays.copyOfRange(entries, i, Math.min(i + PAGE_SIZE, entries.length));
+                if (isCancelled()) {
+                    ProductEntry.dispose(page);
+                } else {
+                    postPage(page, i == 0);
+                }
+            }
+            return null;
+        }
+
+        /*
+         * Every page is either shown or, if the worker has been cancelled meanwhile, disposed.
+         */
+        private void postPage(final ProductEntry[] page, final boolean firstPage) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    if (currentQuery == QueryWorker.this && !isCancelled()) {
+                        showPage(page, firstPage);
+                    } else {
+                        ProductEntry.dispose(page);
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+            } catch (InterruptedException e) {
+                handleException(e);
+            } catch (ExecutionException e) {
+                handleException(e.getCause());
+            }
+            if (currentQuery == this) {
+                currentQuery = null;
+            }
+        }
+    }
 }
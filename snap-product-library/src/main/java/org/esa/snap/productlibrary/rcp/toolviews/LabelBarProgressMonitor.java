@@ -44,6 +44,13 @@ public class LabelBarProgressMonitor implements ProgressMonitor {
     private int lastWorkUI;
     private boolean cancelRequested;
 
+    private static final long RATE_INTERVAL = 2000;
+    private String rateUnit;
+    private String taskName = "";
+    private String rateText = "";
+    private long rateStartTime;
+    private double rateStartWork;
+
     private final List<ProgressBarListener> listenerList = new ArrayList<>(1);
 
     public LabelBarProgressMonitor(JProgressBar progressBar, JLabel messageLabel) {
@@ -51,6 +58,15 @@ public class LabelBarProgressMonitor implements ProgressMonitor {
         this.messageLabel = messageLabel;
     }
 
+    /**
+     * Enables the display of the throughput, e.g. "12.5 files/s", next to the task name.
+     *
+     * @param rateUnit the name of the work units, or <code>null</code> to disable the throughput display
+     */
+    public void setRateUnit(String rateUnit) {
+        this.rateUnit = rateUnit;
+    }
+
     /**
      * Notifies that the main task is beginning.  This must only be called once
      * on a given progress monitor instance.
@@ -68,6 +84,10 @@ public class LabelBarProgressMonitor implements ProgressMonitor {
         currentWorkUI = 0;
         lastWorkUI = 0;
         totalWorkUI = totalWork;
+        taskName = name;
+        rateText = "";
+        rateStartTime = System.currentTimeMillis();
+        rateStartWork = 0.0;
         if (messageLabel != null) {
             messageLabel.setText(name);
         }
@@ -107,6 +127,7 @@ public class LabelBarProgressMonitor implements ProgressMonitor {
      */
     public void internalWorked(double work) {
         currentWork += work;
+        updateRate();
         currentWorkUI = (int) (totalWorkUI * currentWork / totalWork);
         if (currentWorkUI > lastWorkUI) {
             runInUI(new Runnable() {
@@ -162,10 +183,12 @@ public class LabelBarProgressMonitor implements ProgressMonitor {
      * @see #beginTask(String, int)
      */
     public void setTaskName(final String name) {
+        taskName = name;
+        final String text = name + rateText;
         runInUI(new Runnable() {
             public void run() {
                 if (messageLabel != null) {
-                    messageLabel.setText(name);
+                    messageLabel.setText(text);
                 }
             }
         });
@@ -193,6 +216,24 @@ public class LabelBarProgressMonitor implements ProgressMonitor {
         internalWorked(work);
     }
 
+    /*
+     * The throughput is measured over intervals of a few seconds, so that it follows changes of the speed.
+     */
+    private void updateRate() {
+        if (rateUnit == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long elapsed = now - rateStartTime;
+        if (elapsed >= RATE_INTERVAL) {
+            final double rate = 1000.0 * (currentWork - rateStartWork) / elapsed;
+            rateText = String.format(" - %.1f %s/s", rate, rateUnit);
+            rateStartTime = now;
+            rateStartWork = currentWork;
+            setTaskName(taskName);
+        }
+    }
+
     ////////////////////////////////////////////////////////////////////////
     // Stuff to be performed in Swing's event-dispatching thread
 
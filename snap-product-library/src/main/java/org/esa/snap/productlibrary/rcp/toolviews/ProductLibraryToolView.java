@@ -23,6 +23,7 @@ import org.esa.snap.framework.ui.tool.ToolButtonFactory;
 import org.esa.snap.productlibrary.rcp.toolviews.model.DatabaseQueryListener;
 import org.esa.snap.productlibrary.rcp.toolviews.model.DatabaseStatistics;
 import org.esa.snap.productlibrary.rcp.toolviews.model.ProductEntryTableModel;
+import org.esa.snap.productlibrary.rcp.toolviews.model.dataprovider.QuicklookProvider;
 import org.esa.snap.productlibrary.rcp.toolviews.model.ProductLibraryConfig;
 import org.esa.snap.productlibrary.rcp.toolviews.model.SortingDecorator;
 import org.esa.snap.productlibrary.rcp.toolviews.timeline.TimelinePanel;
@@ -105,6 +106,7 @@ public class ProductLibraryToolView extends ToolTopComponent implements LabelBar
     private JPanel mainPanel;
     private JComboBox repositoryListCombo;
     private JTable productEntryTable  = new JTable();
+    private ProductEntryTableModel tableModel = null;
 
     private JLabel statusLabel;
     private JPanel progressPanel;
@@ -384,6 +386,7 @@ public class ProductLibraryToolView extends ToolTopComponent implements LabelBar
     private synchronized void updateRepostitory(final File baseDir, final boolean doRecursive, final boolean doQuicklooks) {
         if (baseDir == null) return;
         progMon = createLabelBarProgressMonitor();
+        progMon.setRateUnit("files");
         final DBScanner scanner = new DBScanner(dbPane.getDB(), baseDir, doRecursive, doQuicklooks, progMon);
         scanner.addListener(new MyDatabaseScannerListener());
         scanner.execute();
@@ -483,7 +486,7 @@ public class ProductLibraryToolView extends ToolTopComponent implements LabelBar
     }
 
     public void ShowRepository(final ProductEntry[] productEntryList) {
-        final ProductEntryTableModel tableModel = new ProductEntryTableModel(productEntryList);
+        tableModel = new ProductEntryTableModel(productEntryList);
         productEntryTable.setModel(new SortingDecorator(tableModel, productEntryTable.getTableHeader()));
         productEntryTable.setColumnModel(tableModel.getColumnModel());
         notifySelectionChanged();
@@ -568,6 +571,12 @@ public class ProductLibraryToolView extends ToolTopComponent implements LabelBar
         ShowRepository(dbPane.getProductEntryList());
     }
 
+    public void notifyNewEntriesAvailable(final ProductEntry[] entries) {
+        tableModel.addEntries(entries);
+        worldMapUI.addProductEntryList(entries);
+        updateStatusLabel();
+    }
+
     public void notifyNewMapSelectionAvailable() {
         dbPane.setSelectionRect(worldMapUI.getSelectionBox());
     }
@@ -596,6 +605,10 @@ public class ProductLibraryToolView extends ToolTopComponent implements LabelBar
                     handleErrorList(errorList);
                 }
             }
+            if (msg.equals(DBScanner.DBScannerListener.MSG.QUICK_LOOK_GENERATED)
+                    || msg.equals(DBScanner.DBScannerListener.MSG.DONE)) {
+                QuicklookProvider.clearUnavailableQuickLooks();
+            }
             UpdateUI();
         }
     }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.productlibrary.rcp.toolviews;
+
+import org.esa.snap.util.SystemUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the outcome of scanning the files of a repository folder, so that files which have not been
+ * modified since (same modification time and size) are not read again by the next scan, and products in the
+ * database which have been modified are read again.
+ * <p>
+ * The outcomes are appended to a log file while scanning and flushed regularly. If a scan is interrupted,
+ * the next scan resumes from the recorded state. When a scan completes, the log is compacted.
+ */
+final class ScanCheckpoint {
+
+    enum Status {
+        /** The product has been added to the database. */
+        INDEXED,
+        /** No reader has been found for the file. */
+        NO_READER,
+        /** Reading the product has failed. */
+        UNREADABLE
+    }
+
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final File file;
+    private final Map<String, Record> records;
+    private Writer writer;
+    private int numUnflushed;
+
+    private ScanCheckpoint(File file) {
+        this.file = file;
+        this.records = new HashMap<>();
+    }
+
+    /**
+     * Opens the checkpoint of the given repository folder, creating it if it does not exist yet.
+     * Failures are logged only; the returned checkpoint is then empty and records nothing.
+     *
+     * @param baseDir the repository folder
+     * @return the checkpoint
+     */
+    static ScanCheckpoint open(final File baseDir) {
+        final File dir = new File(SystemUtils.getApplicationDataDir(), "product_library" + File.separator + "scans");
+        final String name = "scan_" + Integer.toHexString(baseDir.getAbsolutePath().hashCode()) + ".txt";
+        final ScanCheckpoint checkpoint = new ScanCheckpoint(new File(dir, name));
+        try {
+            checkpoint.load();
+            if (dir.isDirectory() || dir.mkdirs()) {
+                checkpoint.writer = checkpoint.createWriter(true);
+            }
+        } catch (IOException e) {
+            SystemUtils.LOG.warning("Unable to open scan checkpoint " + checkpoint.file + ": " + e.getMessage());
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @return the recorded status of the file, or {@code null} if the file is unknown or has been modified since
+     */
+    synchronized Status getStatus(final File productFile, final long lastModified, final long length) {
+        final Record record = records.get(productFile.getAbsolutePath());
+        if (record != null && record.lastModified == lastModified && record.length == length) {
+            return record.status;
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code true} if the file has been recorded with another modification time or size
+     */
+    synchronized boolean isModified(final File productFile, final long lastModified, final long length) {
+        final Record record = records.get(productFile.getAbsolutePath());
+        return record != null && (record.lastModified != lastModified || record.length != length);
+    }
+
+    /**
+     * @return {@code true} if an outcome has been recorded for the file
+     */
+    synchronized boolean isRecorded(final File productFile) {
+        return records.containsKey(productFile.getAbsolutePath());
+    }
+
+    synchronized void record(final File productFile, final long lastModified, final long length, final Status status) {
+        final String path = productFile.getAbsolutePath();
+        records.put(path, new Record(lastModified, length, status));
+        if (writer != null) {
+            try {
+                writeRecord(writer, path, records.get(path));
+                if (++numUnflushed >= FLUSH_INTERVAL) {
+                    writer.flush();
+                    numUnflushed = 0;
+                }
+            } catch (IOException e) {
+                SystemUtils.LOG.warning("Unable to write scan checkpoint " + file + ": " + e.getMessage());
+                closeWriter();
+            }
+        }
+    }
+
+    /**
+     * Closes the checkpoint.
+     *
+     * @param compact if the log shall be rewritten with one line per file, usually after a completed scan
+     */
+    synchronized void close(final boolean compact) {
+        final boolean canWrite = writer != null;
+        closeWriter();
+        if (compact && canWrite) {
+            try (Writer compactWriter = createWriter(false)) {
+                for (Map.Entry<String, Record> entry : records.entrySet()) {
+                    writeRecord(compactWriter, entry.getKey(), entry.getValue());
+                }
+            } catch (IOException e) {
+                SystemUtils.LOG.warning("Unable to compact scan checkpoint " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // status, last modified, length and path, later lines override earlier ones
+                final String[] tokens = line.split("\t", 4);
+                if (tokens.length == 4) {
+                    try {
+                        records.put(tokens[3], new Record(Long.parseLong(tokens[1]), Long.parseLong(tokens[2]),
+                                                          Status.valueOf(tokens[0])));
+                    } catch (IllegalArgumentException ignored) {
+                        // e.g. a line truncated by an interrupted scan
+                    }
+                }
+            }
+        }
+    }
+
+    private Writer createWriter(boolean append) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8));
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                SystemUtils.LOG.warning("Unable to close scan checkpoint " + file + ": " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    private static void writeRecord(Writer writer, String path, Record record) throws IOException {
+        writer.write(record.status.name() + '\t' + record.lastModified + '\t' + record.length + '\t' + path + '\n');
+    }
+
+    private static final class Record {
+
+        private final long lastModified;
+        private final long length;
+        private final Status status;
+
+        private Record(long lastModified, long length, Status status) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.status = status;
+        }
+    }
+}
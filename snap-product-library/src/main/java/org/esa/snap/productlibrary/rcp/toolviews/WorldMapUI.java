@@ -22,6 +22,7 @@ import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.graphbuilder.gpf.ui.worldmap.NestWorldMapPane;
 import org.esa.snap.graphbuilder.gpf.ui.worldmap.NestWorldMapPaneDataModel;
 
+import javax.swing.Timer;
 import javax.swing.event.MouseInputAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
@@ -32,16 +33,25 @@ import java.util.List;
  */
 public class WorldMapUI {
 
+    private static final int BOUNDARY_UPDATE_DELAY = 250;
+
     private final NestWorldMapPaneDataModel worldMapDataModel;
     private final NestWorldMapPane worlMapPane;
 
     private final List<DatabaseQueryListener> listenerList = new ArrayList<>(1);
 
+    // the boundaries of the entries shown, pages of entries are added in bursts, so the map is updated with a delay
+    private final List<GeoPos[]> geoBoundaryList = new ArrayList<>();
+    private final Timer boundaryUpdateTimer;
+
     public WorldMapUI() {
 
         worldMapDataModel = new NestWorldMapPaneDataModel();
         worlMapPane = new NestWorldMapPane(worldMapDataModel);
         worlMapPane.getLayerCanvas().addMouseListener(new MouseHandler());
+
+        boundaryUpdateTimer = new Timer(BOUNDARY_UPDATE_DELAY, e -> updateGeoBoundaries());
+        boundaryUpdateTimer.setRepeats(false);
     }
 
     /**
@@ -108,13 +118,32 @@ public class WorldMapUI {
 
     public void setProductEntryList(final ProductEntry[] productEntryList) {
         if (productEntryList == null) return;
-        final GeoPos[][] geoBoundaries = new GeoPos[productEntryList.length][4];
-        int i = 0;
+        geoBoundaryList.clear();
         for (ProductEntry entry : productEntryList) {
-            geoBoundaries[i++] = entry.getGeoBoundary();
+            geoBoundaryList.add(entry.getGeoBoundary());
         }
 
-        worldMapDataModel.setAdditionalGeoBoundaries(geoBoundaries);
+        boundaryUpdateTimer.stop();
+        updateGeoBoundaries();
+    }
+
+    /**
+     * Adds the boundaries of further entries to the map, e.g. of the next page of a query result.
+     * Subsequent calls are coalesced into a single update of the map.
+     *
+     * @param productEntryList the entries to add
+     */
+    public void addProductEntryList(final ProductEntry[] productEntryList) {
+        for (ProductEntry entry : productEntryList) {
+            geoBoundaryList.add(entry.getGeoBoundary());
+        }
+        if (!boundaryUpdateTimer.isRunning()) {
+            boundaryUpdateTimer.start();
+        }
+    }
+
+    private void updateGeoBoundaries() {
+        worldMapDataModel.setAdditionalGeoBoundaries(geoBoundaryList.toArray(new GeoPos[geoBoundaryList.size()][]));
     }
 
     public void setSelectedProductEntryList(final ProductEntry[] selectedProductEntryList) {
@@ -15,12 +15,24 @@
  */
 package org.esa.snap.productlibrary.rcp.toolviews.model;
 
+import org.esa.snap.db.ProductEntry;
+
 /**
 
  */
 public interface DatabaseQueryListener {
 
+    /**
+     * A new query result is being delivered. The previous entries have been removed.
+     */
     void notifyNewEntryListAvailable();
 
+    /**
+     * A page of the current query result has been added.
+     *
+     * @param entries the added entries
+     */
+    void notifyNewEntriesAvailable(ProductEntry[] entries);
+
     void notifyNewMapSelectionAvailable();
 }
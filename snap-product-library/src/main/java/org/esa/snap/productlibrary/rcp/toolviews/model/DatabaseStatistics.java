@@ -32,17 +32,26 @@ public class DatabaseStatistics implements DatabaseQueryListener {
     }
 
     public void notifyNewEntryListAvailable() {
-        updateStats(dbPane.getProductEntryList());
+        yearDataMap.clear();
+        monthData = new MonthData();
+        overallMaxYearCnt = 0;
+        overallMaxDayCnt = 0;
+        addStats(dbPane.getProductEntryList());
+    }
+
+    public void notifyNewEntriesAvailable(final ProductEntry[] entries) {
+        addStats(entries);
     }
 
     public void notifyNewMapSelectionAvailable() {
     }
 
-    private void updateStats(final ProductEntry[] entryList) {
+    /*
+     * The statistics are accumulated page by page as the query result arrives.
+     */
+    private void addStats(final ProductEntry[] entryList) {
         if(entryList == null)
             return;
-        yearDataMap.clear();
-        monthData = new MonthData();
 
         for (ProductEntry entry : entryList) {
             final ProductData.UTC utc = entry.getFirstLineTime();
@@ -58,20 +67,13 @@ public class DatabaseStatistics implements DatabaseQueryListener {
 
             final int month = cal.get(Calendar.MONTH);
             monthData.add(month);
-        }
 
-        // find highest year count
-        overallMaxYearCnt = 0;
-        overallMaxDayCnt = 0;
-        for(Integer year : yearDataMap.keySet()) {
-            final YearData yData = yearDataMap.get(year);
-            int cnt = yData.yearCnt;
-            int dayCnt = yData.maxDayCnt;
-            if(cnt > overallMaxYearCnt) {
-                overallMaxYearCnt = cnt;
+            // the counts only grow, so the highest counts can be tracked per entry
+            if(yData.yearCnt > overallMaxYearCnt) {
+                overallMaxYearCnt = yData.yearCnt;
             }
-            if(dayCnt > overallMaxDayCnt) {
-                overallMaxDayCnt = dayCnt;
+            if(yData.maxDayCnt > overallMaxDayCnt) {
+                overallMaxDayCnt = yData.maxDayCnt;
             }
         }
 
@@ -27,16 +27,19 @@ import javax.swing.table.DefaultTableColumnModel;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ProductEntryTableModel extends AbstractTableModel {
 
-    private final ProductEntry[] productEntryList;
+    private final List<ProductEntry> productEntryList = new ArrayList<>();
     final List<DataProvider> dataProviders = new ArrayList<>(5);
     private final List<TableColumn> columnList = new ArrayList<>();
 
     public ProductEntryTableModel(final ProductEntry[] productList) {
-        this.productEntryList = productList;
+        if (productList != null) {
+            productEntryList.addAll(Arrays.asList(productList));
+        }
         dataProviders.add(new IDProvider());
         dataProviders.add(new PropertiesProvider());
         try {
@@ -52,6 +55,20 @@ public class ProductEntryTableModel extends AbstractTableModel {
         }
     }
 
+    /**
+     * Appends entries to the table, e.g. the next page of a query result.
+     *
+     * @param entries the entries to append
+     */
+    public void addEntries(final ProductEntry[] entries) {
+        if (entries.length == 0) {
+            return;
+        }
+        final int firstRow = productEntryList.size();
+        productEntryList.addAll(Arrays.asList(entries));
+        fireTableRowsInserted(firstRow, productEntryList.size() - 1);
+    }
+
     public DataProvider getDataProvider(final int columnIndex) {
         if (columnIndex >= 0 && columnIndex < dataProviders.size()) {
             return dataProviders.get(columnIndex);
@@ -68,7 +85,7 @@ public class ProductEntryTableModel extends AbstractTableModel {
     }
 
     public int getRowCount() {
-        return productEntryList != null ? productEntryList.length : 0;
+        return productEntryList.size();
     }
 
     public int getColumnCount() {
@@ -89,12 +106,7 @@ public class ProductEntryTableModel extends AbstractTableModel {
     }   */
 
     public Object getValueAt(final int rowIndex, final int columnIndex) {
-        if (productEntryList != null) {
-            final ProductEntry entry = productEntryList[rowIndex];
-            if (entry != null)
-                return entry;
-        }
-        return null;
+        return productEntryList.get(rowIndex);
     }
 
     @Override
@@ -67,8 +67,18 @@ public class SortingDecorator extends AbstractTableModel {
         this.tableModel = tableModel;
         this.tableModel.addTableModelListener(new TableModelListener() {
             public void tableChanged(final TableModelEvent e) {
-                initViewToModel();
-                fireTableChanged(e);
+                if (e.getType() == TableModelEvent.INSERT && viewToModel != null
+                        && e.getFirstRow() == viewToModel.length) {
+                    appendRows(e.getFirstRow(), e.getLastRow());
+                    if (isSorting()) {
+                        fireTableDataChanged();
+                    } else {
+                        fireTableRowsInserted(e.getFirstRow(), e.getLastRow());
+                    }
+                } else {
+                    initViewToModel();
+                    fireTableChanged(e);
+                }
             }
         });
 
@@ -137,6 +147,36 @@ public class SortingDecorator extends AbstractTableModel {
         }
     }
 
+    /*
+     * Adds rows appended to the model to the view. Only the new rows are sorted, they are then merged
+     * into the already sorted view.
+     */
+    private void appendRows(final int firstRow, final int lastRow) {
+        final Row[] newRows = new Row[lastRow - firstRow + 1];
+        for (int i = 0; i < newRows.length; i++) {
+            newRows[i] = new Row(firstRow + i);
+        }
+        final Row[] oldRows = viewToModel;
+        if (!isSorting()) {
+            viewToModel = Arrays.copyOf(oldRows, oldRows.length + newRows.length);
+            System.arraycopy(newRows, 0, viewToModel, oldRows.length, newRows.length);
+            return;
+        }
+        Arrays.sort(newRows);
+        final Row[] merged = new Row[oldRows.length + newRows.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            // on equal rows the old one comes first, as a stable sort of all rows would do
+            if (j >= newRows.length || (i < oldRows.length && oldRows[i].compareTo(newRows[j]) <= 0)) {
+                merged[k] = oldRows[i++];
+            } else {
+                merged[k] = newRows[j++];
+            }
+        }
+        viewToModel = merged;
+    }
+
     boolean isSorting() {
         return !sortingColumns.isEmpty() || doSortBy;
     }
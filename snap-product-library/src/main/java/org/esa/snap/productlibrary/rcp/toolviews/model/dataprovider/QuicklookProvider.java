@@ -16,6 +16,7 @@
 package org.esa.snap.productlibrary.rcp.toolviews.model.dataprovider;
 
 import org.esa.snap.db.ProductEntry;
+import org.esa.snap.util.SystemUtils;
 
 import javax.swing.AbstractCellEditor;
 import javax.swing.BorderFactory;
@@ -30,11 +31,14 @@ import javax.swing.table.TableColumn;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.util.Comparator;
 
 public class QuicklookProvider implements DataProvider {
 
     private final static Comparator quickLookComparator = new QuickLookComparator();
+    private final static ThumbnailCache thumbnailCache = new ThumbnailCache(
+            new File(SystemUtils.getApplicationDataDir(), "product_library" + File.separator + "thumbnails"));
     private TableColumn quickLookColumn;
     private static final int preferredWidth = 100;
     private static final int preferredHeight = 65;
@@ -51,6 +55,14 @@ public class QuicklookProvider implements DataProvider {
         return quickLookComparator;
     }
 
+    /**
+     * Forgets which products have no quick look, so that their quick looks are looked up again,
+     * e.g. after quick looks have been generated.
+     */
+    public static void clearUnavailableQuickLooks() {
+        thumbnailCache.clearUnavailable();
+    }
+
     public TableColumn getTableColumn() {
         if (quickLookColumn == null) {
             try {
@@ -105,22 +117,21 @@ public class QuicklookProvider implements DataProvider {
                 }
 
                 if (value instanceof ProductEntry) {
-                    final BufferedImage image = ((ProductEntry) value).getQuickLook();
-                    if (image == null) {
+                    // the thumbnails are loaded in the background, the table is repainted once one is available
+                    final ProductEntry entry = (ProductEntry) value;
+                    final int cellWidth = table.getColumnModel().getColumn(column).getWidth();
+                    final BufferedImage image = thumbnailCache.get(entry, cellWidth);
+                    if (image != null) {
+                        tableComponent.setIcon(new ImageIcon(image));
+                        tableComponent.setText("");
+                        setTableRowHeight(table, row);
+                    } else if (thumbnailCache.isUnavailable(entry)) {
                         tableComponent.setIcon(null);
                         tableComponent.setText("Not available!");
                     } else {
-                        final TableColumn tableColumn = table.getColumnModel().getColumn(column);
-                        int cellWidth = tableColumn.getWidth();
-                        int cellHeight = tableColumn.getWidth();
-                        if (image.getHeight() > image.getWidth())
-                            cellWidth = -1;
-                        else
-                            cellHeight = -1;
-                        tableComponent.setIcon(
-                                new ImageIcon(image.getScaledInstance(cellWidth, cellHeight, BufferedImage.SCALE_FAST)));
-                        tableComponent.setText("");
-                        setTableRowHeight(table, row);
+                        tableComponent.setIcon(null);
+                        tableComponent.setText("Loading...");
+                        thumbnailCache.request(entry, cellWidth, table::repaint);
                     }
                 } else {
                     tableComponent.setIcon(null);
@@ -204,19 +215,11 @@ public class QuicklookProvider implements DataProvider {
                 return 1;
             }
 
-            final BufferedImage image1 = ((ProductEntry) o1).getQuickLook();
-            final BufferedImage image2 = ((ProductEntry) o2).getQuickLook();
-
-            if (image1 == null) {
-                return -1;
-            } else if (image2 == null) {
-                return 1;
-            }
-
-            final Integer height1 = image1.getHeight();
-            final Integer height2 = image2.getHeight();
+            // sorting by the existence of quick looks, loading them just to compare their heights is too slow
+            final boolean exists1 = ((ProductEntry) o1).quickLookExists();
+            final boolean exists2 = ((ProductEntry) o2).quickLookExists();
 
-            return height1.compareTo(height2);
+            return Boolean.compare(exists1, exists2);
         }
     }
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.productlibrary.rcp.toolviews.model.dataprovider;
+
+import org.esa.snap.db.ProductEntry;
+import org.esa.snap.util.SystemUtils;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-level cache of the quick look thumbnails shown in the product table.
+ * <p>
+ * The first level holds the thumbnails scaled to the width of the table column. It is limited by the memory
+ * occupied by its images, evicting the least recently used ones, and its images are softly referenced.
+ * The second level is a store of small, already decoded and scaled down quick looks on disk, from which the
+ * first level is filled without reading and scaling the full quick look again. The store is limited to
+ * {@link #MAX_STORE_SIZE} bytes; the thumbnails read least recently are deleted first.
+ * <p>
+ * Thumbnails are loaded in the background, the most recently requested first. At most {@link #MAX_QUEUED_REQUESTS}
+ * requests are queued, the oldest ones are dropped, as their rows have most likely been scrolled out of view.
+ * They are requested again when their rows are painted again. Except for the loading itself, the cache is
+ * accessed in the EDT only.
+ */
+final class ThumbnailCache {
+
+    /** The size of the longest side of the thumbnails kept on disk. */
+    private static final int STORED_SIZE = 256;
+    private static final long MAX_MEMORY_SIZE = 32L * 1024L * 1024L;
+    private static final int NUM_LOADER_THREADS = 2;
+    static final long MAX_STORE_SIZE = 128L * 1024L * 1024L;
+    static final int MAX_QUEUED_REQUESTS = 100;
+
+    private final File storeDir;
+    private final LinkedHashMap<Key, CachedImage> images = new LinkedHashMap<>(128, 0.75f, true);
+    private final Set<Key> pendingKeys = new HashSet<>();
+    // may be cleared by the scanner thread
+    private final Set<String> unavailablePaths = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final ExecutorService loader;
+    private long memorySize;
+    // bytes stored since the store has been pruned
+    private final AtomicLong storedSize = new AtomicLong();
+
+    ThumbnailCache(final File storeDir) {
+        this.storeDir = storeDir;
+        // last in, first out, so that the rows currently scrolled to are loaded first
+        loader = new ThreadPoolExecutor(NUM_LOADER_THREADS, NUM_LOADER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                                        new LinkedBlockingDeque<Runnable>() {
+                                            @Override
+                                            public boolean offer(Runnable runnable) {
+                                                // called in the EDT by request()
+                                                while (size() >= MAX_QUEUED_REQUESTS) {
+                                                    final Runnable stale = pollLast();
+                                                    if (stale instanceof LoadTask) {
+                                                        pendingKeys.remove(((LoadTask) stale).key);
+                                                    }
+                                                }
+                                                return offerFirst(runnable);
+                                            }
+                                        },
+                                        runnable -> {
+                                            final Thread thread = new Thread(runnable, "Product Library thumbnail loader");
+                                            thread.setDaemon(true);
+                                            thread.setPriority(Thread.MIN_PRIORITY);
+                                            return thread;
+                                        });
+        loader.execute(this::pruneStore);
+    }
+
+    /**
+     * @return the thumbnail of the given entry scaled to the given width, or {@code null} if it is not loaded (yet)
+     */
+    BufferedImage get(final ProductEntry entry, final int width) {
+        final Key key = new Key(entry, width);
+        final CachedImage cachedImage = images.get(key);
+        if (cachedImage == null) {
+            return null;
+        }
+        final BufferedImage image = cachedImage.image.get();
+        if (image == null) {
+            // reclaimed by the garbage collector
+            images.remove(key);
+            memorySize -= cachedImage.size;
+        }
+        return image;
+    }
+
+    /**
+     * @return whether loading the quick look of the given entry has failed or it has no quick look
+     */
+    boolean isUnavailable(final ProductEntry entry) {
+        return unavailablePaths.contains(getPath(entry));
+    }
+
+    /**
+     * Forgets which entries have no quick look, e.g. because quick looks have been generated since.
+     */
+    void clearUnavailable() {
+        unavailablePaths.clear();
+    }
+
+    /**
+     * Loads the thumbnail of the given entry in the background, unless it is already being loaded.
+     *
+     * @param entry    the entry
+     * @param width    the width of the table column
+     * @param onLoaded called in the EDT once the thumbnail is available, or is known to be unavailable
+     */
+    void request(final ProductEntry entry, final int width, final Runnable onLoaded) {
+        final Key key = new Key(entry, width);
+        if (!pendingKeys.add(key)) {
+            return;
+        }
+        loader.execute(new LoadTask(key, entry, onLoaded));
+    }
+
+    private void put(final Key key, final BufferedImage image) {
+        final CachedImage cachedImage = new CachedImage(image);
+        final CachedImage oldImage = images.put(key, cachedImage);
+        if (oldImage != null) {
+            memorySize -= oldImage.size;
+        }
+        memorySize += cachedImage.size;
+        final Iterator<CachedImage> iterator = images.values().iterator();
+        while (memorySize > MAX_MEMORY_SIZE && images.size() > 1) {
+            memorySize -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /*
+     * Reads the stored thumbnail of the entry, or creates and stores it from the quick look.
+     */
+    private BufferedImage loadThumbnail(final ProductEntry entry) throws IOException {
+        final File productFile = entry.getFile();
+        final File storedFile = new File(storeDir, Integer.toHexString(productFile.getAbsolutePath().hashCode())
+                                                   + '_' + productFile.getName() + ".png");
+        if (storedFile.isFile() && storedFile.lastModified() >= productFile.lastModified()) {
+            final BufferedImage thumbnail = ImageIO.read(storedFile);
+            if (thumbnail != null) {
+                // marks the thumbnail as used recently
+                storedFile.setLastModified(System.currentTimeMillis());
+                return thumbnail;
+            }
+        }
+        if (!entry.quickLookExists()) {
+            return null;
+        }
+        final BufferedImage quickLook = entry.getQuickLook();
+        if (quickLook == null) {
+            return null;
+        }
+        final BufferedImage thumbnail;
+        if (Math.max(quickLook.getWidth(), quickLook.getHeight()) > STORED_SIZE) {
+            thumbnail = scale(quickLook, STORED_SIZE);
+        } else {
+            thumbnail = quickLook;
+        }
+        if (storeDir.isDirectory() || storeDir.mkdirs()) {
+            try {
+                ImageIO.write(thumbnail, "png", storedFile);
+                if (storedSize.addAndGet(storedFile.length()) > MAX_STORE_SIZE / 8) {
+                    pruneStore();
+                }
+            } catch (IOException e) {
+                SystemUtils.LOG.warning("Unable to store thumbnail " + storedFile + ": " + e.getMessage());
+            }
+        }
+        return thumbnail;
+    }
+
+    /*
+     * Deletes the thumbnails read least recently until the store is not larger than MAX_STORE_SIZE.
+     */
+    private synchronized void pruneStore() {
+        storedSize.set(0L);
+        final File[] files = storeDir.listFiles((dir, name) -> name.endsWith(".png"));
+        if (files == null) {
+            return;
+        }
+        long size = 0L;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= MAX_STORE_SIZE) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length && size > MAX_STORE_SIZE; i++) {
+            final long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    /*
+     * Scales the image such that its longest side is of the given size, as the table cells did before.
+     */
+    private static BufferedImage scale(final BufferedImage image, final int size) {
+        final int width;
+        final int height;
+        if (image.getHeight() > image.getWidth()) {
+            height = size;
+            width = Math.max(1, (int) Math.round((double) image.getWidth() * size / image.getHeight()));
+        } else {
+            width = size;
+            height = Math.max(1, (int) Math.round((double) image.getHeight() * size / image.getWidth()));
+        }
+        final int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        final BufferedImage scaledImage = new BufferedImage(width, height, type);
+        final Graphics2D g = scaledImage.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaledImage;
+    }
+
+    private static String getPath(final ProductEntry entry) {
+        return entry.getFile().getAbsolutePath();
+    }
+
+    private static final class Key {
+
+        // the entries are recreated by every query, hence they are identified by their file
+        private final String path;
+        private final int width;
+
+        private Key(final ProductEntry entry, final int width) {
+            this.path = getPath(entry);
+            this.width = width;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return width == other.width && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + width;
+        }
+    }
+
+    private final class LoadTask implements Runnable {
+
+        private final Key key;
+        private final ProductEntry entry;
+        private final Runnable onLoaded;
+
+        private LoadTask(final Key key, final ProductEntry entry, final Runnable onLoaded) {
+            this.key = key;
+            this.entry = entry;
+            this.onLoaded = onLoaded;
+        }
+
+        @Override
+        public void run() {
+            BufferedImage image = null;
+            try {
+                final BufferedImage thumbnail = loadThumbnail(entry);
+                if (thumbnail != null) {
+                    image = scale(thumbnail, key.width);
+                }
+            } catch (Throwable e) {
+                SystemUtils.LOG.warning("Unable to load quick look of " + key.path + ": " + e.getMessage());
+            }
+            final BufferedImage loadedImage = image;
+            SwingUtilities.invokeLater(() -> {
+                pendingKeys.remove(key);
+                if (loadedImage != null) {
+                    put(key, loadedImage);
+                } else {
+                    unavailablePaths.add(key.path);
+                }
+                onLoaded.run();
+            });
+        }
+    }
+
+    private static final class CachedImage {
+
+        private final SoftReference<BufferedImage> image;
+        private final long size;
+
+        private CachedImage(final BufferedImage image) {
+            this.image = new SoftReference<>(image);
+            this.size = 4L * image.getWidth() * image.getHeight();
+        }
+    }
+}
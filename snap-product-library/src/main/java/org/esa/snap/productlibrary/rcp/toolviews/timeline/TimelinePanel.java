@@ -1,5 +1,6 @@
 package org.esa.snap.productlibrary.rcp.toolviews.timeline;
 
+import org.esa.snap.db.ProductEntry;
 import org.esa.snap.productlibrary.rcp.toolviews.model.DatabaseQueryListener;
 import org.esa.snap.productlibrary.rcp.toolviews.model.DatabaseStatistics;
 import org.esa.snap.graphbuilder.rcp.utils.DialogUtils;
@@ -97,6 +98,11 @@ public class TimelinePanel extends JPanel implements DatabaseQueryListener {
         currentPanel.updateUI();
     }
 
+    public void notifyNewEntriesAvailable(final ProductEntry[] entries) {
+        // the statistics have already been updated, the plot only needs to be repainted
+        currentPanel.repaint();
+    }
+
     public void notifyNewMapSelectionAvailable() {
 
     }
@@ -19,12 +19,8 @@ package org.esa.snap.rcp.actions.file.export;
 import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
 import org.esa.snap.framework.datamodel.Band;
-import org.esa.snap.framework.datamodel.GeoCoding;
-import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.framework.datamodel.Mask;
-import org.esa.snap.framework.datamodel.PixelPos;
 import org.esa.snap.framework.datamodel.Product;
-import org.esa.snap.framework.datamodel.TiePointGrid;
 import org.esa.snap.framework.ui.AbstractDialog;
 import org.esa.snap.framework.ui.ModalDialog;
 import org.esa.snap.framework.ui.SelectExportMethodDialog;
@@ -55,14 +51,16 @@ import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
-import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
-import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.text.SimpleDateFormat;
@@ -173,8 +171,9 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
                                   ERR_MSG_BASE + "No Mask image available.");
             return;
         }
+        final MaskPixelExporter exporter = new MaskPixelExporter(product, maskImage, false);
         // Compute total number of Mask pixels
-        final long numMaskPixels = getNumMaskPixels(maskImage, product.getSceneRasterWidth(), product.getSceneRasterHeight());
+        final long numMaskPixels = exporter.getNumMaskPixels();
 
         String numPixelsText;
         if (numMaskPixels == 1) {
@@ -187,44 +186,67 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
         final JCheckBox createHeaderBox = new JCheckBox("Create header");
         final JCheckBox exportTiePointsBox = new JCheckBox("Export tie-points");
         final JCheckBox exportWavelengthsAndSFBox = new JCheckBox("Export wavelengths + solar fluxes");
+        final JCheckBox binaryFormatBox = new JCheckBox("Write binary columnar file (file export only)");
         final int method = SelectExportMethodDialog.run(SnapApp.getDefault().getMainFrame(), getWindowTitle(),
                                                         questionText + numPixelsText, new JCheckBox[]{
                         createHeaderBox,
                         exportTiePointsBox,
-                        exportWavelengthsAndSFBox
+                        exportWavelengthsAndSFBox,
+                        binaryFormatBox
                 }, getHelpCtx().getHelpID());
 
         final boolean mustCreateHeader = createHeaderBox.isSelected();
         final boolean mustExportTiePoints = exportTiePointsBox.isSelected();
         final boolean mustExportWavelengthsAndSF = exportWavelengthsAndSFBox.isSelected();
+        final boolean binaryFormat = binaryFormatBox.isSelected() && method == SelectExportMethodDialog.EXPORT_TO_FILE;
 //
-        final PrintWriter out;
+        final Closeable out;
+        final MaskPixelExporter.Output output;
         final StringBuffer clipboardText;
         final int initialBufferSize = 256000;
         if (method == SelectExportMethodDialog.EXPORT_TO_CLIPBOARD) {
             // Write into string buffer
             final StringWriter stringWriter = new StringWriter(initialBufferSize);
-            out = new PrintWriter(stringWriter);
+            final PrintWriter printWriter = new PrintWriter(stringWriter);
+            if (mustCreateHeader) {
+                createHeader(printWriter, product, maskName, mustExportWavelengthsAndSF);
+            }
+            out = printWriter;
+            output = new MaskPixelExporter.TextOutput(printWriter);
             clipboardText = stringWriter.getBuffer();
         } else if (method == SelectExportMethodDialog.EXPORT_TO_FILE) {
             // Write into file, get file from user
-            final File file = promptForFile(createDefaultFileName(product, maskName));
+            final File file = promptForFile(createDefaultFileName(product, maskName, binaryFormat), binaryFormat);
             if (file == null) {
                 return; // Cancel
             }
-            final FileWriter fileWriter;
             try {
-                fileWriter = new FileWriter(file);
+                if (binaryFormat) {
+                    final StringWriter metadata = new StringWriter();
+                    if (mustCreateHeader) {
+                        createHeader(new PrintWriter(metadata), product, maskName, mustExportWavelengthsAndSF);
+                    }
+                    final OutputStream stream = new BufferedOutputStream(new FileOutputStream(file), initialBufferSize);
+                    out = stream;
+                    output = new MaskPixelExporter.BinaryOutput(stream, metadata.toString());
+                } else {
+                    final PrintWriter printWriter = new PrintWriter(new BufferedWriter(new FileWriter(file), initialBufferSize));
+                    if (mustCreateHeader) {
+                        createHeader(printWriter, product, maskName, mustExportWavelengthsAndSF);
+                    }
+                    out = printWriter;
+                    output = new MaskPixelExporter.TextOutput(printWriter);
+                }
             } catch (IOException e) {
                 SnapDialogs.showError(Bundle.CTL_ExportMaskPixelsAction_DialogTitle(),
                                       ERR_MSG_BASE + "Failed to create file '" + file + "':\n" + e.getMessage());
                 return; // Error
             }
-            out = new PrintWriter(new BufferedWriter(fileWriter, initialBufferSize));
             clipboardText = null;
         } else {
             return; // Cancel
         }
+        final MaskPixelExporter pixelExporter = mustExportTiePoints ? new MaskPixelExporter(product, maskImage, true) : exporter;
 
         final ProgressMonitorSwingWorker<Exception, Object> swingWorker = new ProgressMonitorSwingWorker<Exception, Object>(
                 SnapApp.getDefault().getMainFrame(), Bundle.CTL_ExportMaskPixelsAction_DialogTitle()) {
@@ -233,8 +255,7 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
             protected Exception doInBackground(ProgressMonitor pm) throws Exception {
                 Exception returnValue = null;
                 try {
-                    boolean success = exportMaskPixels(out, product, maskImage, maskName,
-                                                       mustCreateHeader, mustExportTiePoints, mustExportWavelengthsAndSF, pm);
+                    boolean success = pixelExporter.export(output, pm);
                     if (success && clipboardText != null) {
                         SystemUtils.copyToClipboard(clipboardText.toString());
                         clipboardText.setLength(0);
@@ -277,9 +298,9 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
         swingWorker.execute();
     }
 
-    private static String createDefaultFileName(final Product raster, String maskName) {
+    private static String createDefaultFileName(final Product raster, String maskName, boolean binaryFormat) {
         String productName = FileUtils.getFilenameWithoutExtension(raster.getProduct().getName());
-        return productName + "_" + maskName + "_Mask.txt";
+        return productName + "_" + maskName + "_Mask" + (binaryFormat ? ".bin" : ".txt");
     }
 
     private static String getWindowTitle() {
@@ -292,87 +313,19 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
      * @param visatApp the VISAT application
      * @return the selected file, <code>null</code> means "Cancel"
      */
-    private static File promptForFile(String defaultFileName) {
-        final SnapFileFilter fileFilter = new SnapFileFilter("TXT", "txt", "Text");
+    private static File promptForFile(String defaultFileName, boolean binaryFormat) {
+        final SnapFileFilter fileFilter = binaryFormat
+                                          ? new SnapFileFilter("BIN", "bin", "Binary columnar")
+                                          : new SnapFileFilter("TXT", "txt", "Text");
         return SnapDialogs.requestFileForSave(Bundle.CTL_ExportMaskPixelsAction_DialogTitle(),
                                               false,
                                               fileFilter,
-                                              ".txt",
+                                              binaryFormat ? ".bin" : ".txt",
                                               defaultFileName,
                                               null,
                                               "exportMaskPixels.lastDir");
     }
 
-    /*
-     * Writes all pixel values of the given product within the given Mask to the specified out.
-     *
-     * @param out      the data output writer
-     * @param product  the product providing the pixel values
-     * @param maskImage the mask image for the Mask
-     * @return <code>true</code> for success, <code>false</code> if export has been terminated (by user)
-     */
-    private static boolean exportMaskPixels(final PrintWriter out,
-                                            final Product product,
-                                            final RenderedImage maskImage,
-                                            String maskName,
-                                            boolean mustCreateHeader,
-                                            boolean mustExportTiePoints,
-                                            boolean mustExportWavelengthsAndSF,
-                                            ProgressMonitor pm) throws IOException {
-
-        final Band[] bands = product.getBands();
-        final TiePointGrid[] tiePointGrids = product.getTiePointGrids();
-        final GeoCoding geoCoding = product.getGeoCoding();
-
-        final int minTileX = maskImage.getMinTileX();
-        final int minTileY = maskImage.getMinTileY();
-
-        final int numXTiles = maskImage.getNumXTiles();
-        final int numYTiles = maskImage.getNumYTiles();
-
-        final int w = product.getSceneRasterWidth();
-        final int h = product.getSceneRasterHeight();
-        final Rectangle imageRect = new Rectangle(0, 0, w, h);
-
-        pm.beginTask("Writing pixel data...", numXTiles * numYTiles + 2);
-        try {
-            if (mustCreateHeader) {
-                createHeader(out, product, maskName, mustExportWavelengthsAndSF);
-            }
-            pm.worked(1);
-            writeColumnNames(out, geoCoding, bands, mustExportTiePoints, tiePointGrids);
-            pm.worked(1);
-
-            for (int tileX = minTileX; tileX < minTileX + numXTiles; ++tileX) {
-                for (int tileY = minTileY; tileY < minTileY + numYTiles; ++tileY) {
-                    if (pm.isCanceled()) {
-                        return false;
-                    }
-                    final Rectangle tileRectangle = new Rectangle(maskImage.getTileGridXOffset() + tileX * maskImage.getTileWidth(),
-                                                                  maskImage.getTileGridYOffset() + tileY * maskImage.getTileHeight(),
-                                                                  maskImage.getTileWidth(), maskImage.getTileHeight());
-
-                    final Rectangle r = imageRect.intersection(tileRectangle);
-                    if (!r.isEmpty()) {
-                        Raster maskTile = maskImage.getTile(tileX, tileY);
-                        for (int y = r.y; y < r.y + r.height; y++) {
-                            for (int x = r.x; x < r.x + r.width; x++) {
-                                if (maskTile.getSample(x, y, 0) != 0) {
-                                    writeDataLine(out, geoCoding, bands, mustExportTiePoints, tiePointGrids, x, y);
-                                }
-                            }
-                        }
-                    }
-                    pm.worked(1);
-                }
-            }
-        } finally {
-            pm.done();
-        }
-
-        return true;
-    }
-
     private static void createHeader(PrintWriter out, Product product, String maskName, boolean mustExportWavelengthsAndSF) {
         out.write("# Exported mask '" + maskName + "' on " +
                           new SimpleDateFormat("dd-MMM-yyyy HH:mm:ss.mmmmmm").format(new GregorianCalendar().getTime()) + "\n");
@@ -399,137 +352,6 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
         }
     }
 
-    /*
-     * Writes the header line of the dataset to be exported.
-     *
-     * @param out                     the data output writer
-     * @param geoCoding               the product's geo-coding
-     * @param bands                   the array of bands to be considered
-     * @param mustExportTiePointGrids if tie-point grids shall be considered
-     * @param tiePointGrids           the array of tie-point grids to be considered
-     */
-    private static void writeColumnNames(final PrintWriter out,
-                                         final GeoCoding geoCoding,
-                                         final Band[] bands,
-                                         boolean mustExportTiePointGrids,
-                                         TiePointGrid[] tiePointGrids) {
-        out.print("Pixel-X");
-        out.print("\t");
-        out.print("Pixel-Y");
-        if (geoCoding != null) {
-            out.print("\t");
-            out.print("Longitude");
-            out.print("\t");
-            out.print("Latitude");
-        }
-        for (final Band band : bands) {
-            out.print("\t");
-            out.print(band.getName());
-        }
-        if (mustExportTiePointGrids) {
-            for (final TiePointGrid grid : tiePointGrids) {
-                out.print("\t");
-                out.print(grid.getName());
-            }
-        }
-        out.print("\n");
-    }
-
-    /*
-     * Writes a data line of the dataset to be exported for the given pixel position.
-     *
-     * @param out                     the data output writer
-     * @param geoCoding               the product's geo-coding
-     * @param bands                   the array of bands that provide pixel values
-     * @param mustExportTiePointGrids if tie-point grids shall be exported
-     * @param tiePointGrids           the array of tie-point grids that provide pixel values
-     * @param x                       the current pixel's X coordinate
-     * @param y                       the current pixel's Y coordinate
-     */
-    private static void writeDataLine(final PrintWriter out,
-                                      final GeoCoding geoCoding,
-                                      final Band[] bands,
-                                      boolean mustExportTiePoints,
-                                      TiePointGrid[] tiePointGrids, int x,
-                                      int y) throws IOException {
-        final PixelPos pixelPos = new PixelPos(x + 0.5f, y + 0.5f);
-
-        out.print(String.valueOf(pixelPos.x));
-        out.print("\t");
-        out.print(String.valueOf(pixelPos.y));
-        if (geoCoding != null) {
-            final GeoPos geoPos = geoCoding.getGeoPos(pixelPos, null);
-            out.print("\t");
-            out.print(String.valueOf(geoPos.lon));
-            out.print("\t");
-            out.print(String.valueOf(geoPos.lat));
-        }
-        final int[] intPixel = new int[1];
-        final float[] floatPixel = new float[1];
-        for (final Band band : bands) {
-            out.print("\t");
-            if (band.isPixelValid(x, y)) {
-                if (band.isFloatingPointType()) {
-                    band.readPixels(x, y, 1, 1, floatPixel, ProgressMonitor.NULL);
-                    out.print(floatPixel[0]);
-                } else {
-                    band.readPixels(x, y, 1, 1, intPixel, ProgressMonitor.NULL);
-                    out.print(intPixel[0]);
-                }
-            } else {
-                out.print("NaN");
-            }
-        }
-        if (mustExportTiePoints) {
-            for (final TiePointGrid grid : tiePointGrids) {
-                grid.readPixels(x, y, 1, 1, floatPixel, ProgressMonitor.NULL);
-                out.print("\t");
-                out.print(floatPixel[0]);
-            }
-        }
-        out.print("\n");
-    }
-
-
-    /*
-     * Computes the total number of pixels within the specified Mask.
-     *
-     * @param raster   the raster data node
-     * @param maskImage the rendered image masking out the Mask
-     * @return the total number of pixels in the Mask
-     */
-    private static long getNumMaskPixels(final RenderedImage maskImage, int sceneRasterWidth, int sceneRasterHeight) {
-        final int minTileX = maskImage.getMinTileX();
-        final int minTileY = maskImage.getMinTileY();
-
-        final int numXTiles = maskImage.getNumXTiles();
-        final int numYTiles = maskImage.getNumYTiles();
-
-        final Rectangle imageRect = new Rectangle(0, 0, sceneRasterWidth, sceneRasterHeight);
-
-        long numMaskPixels = 0;
-        for (int tileX = minTileX; tileX < minTileX + numXTiles; ++tileX) {
-            for (int tileY = minTileY; tileY < minTileY + numYTiles; ++tileY) {
-                final Rectangle tileRectangle = new Rectangle(maskImage.getTileGridXOffset() + tileX * maskImage.getTileWidth(),
-                                                              maskImage.getTileGridYOffset() + tileY * maskImage.getTileHeight(),
-                                                              maskImage.getTileWidth(), maskImage.getTileHeight());
-
-                final Rectangle r = imageRect.intersection(tileRectangle);
-                if (!r.isEmpty()) {
-                    Raster maskTile = maskImage.getTile(tileX, tileY);
-                    for (int y = r.y; y < r.y + r.height; y++) {
-                        for (int x = r.x; x < r.x + r.width; x++) {
-                            if (maskTile.getSample(x, y, 0) != 0) {
-                                numMaskPixels++;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return numMaskPixels;
-    }
-
     @Override
     public HelpCtx getHelpCtx() {
         return new HelpCtx(HELP_ID);
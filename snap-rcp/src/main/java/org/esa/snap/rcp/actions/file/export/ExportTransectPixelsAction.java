@@ -36,6 +36,7 @@ import org.esa.snap.framework.ui.UIUtils;
 import org.esa.snap.framework.ui.product.ProductSceneView;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
+import org.esa.snap.rcp.statistics.TransectSampler;
 import org.esa.snap.util.StringUtils;
 import org.esa.snap.util.SystemUtils;
 import org.esa.snap.util.io.FileUtils;
@@ -52,14 +53,15 @@ import javax.swing.JCheckBox;
 import javax.swing.SwingWorker;
 import java.awt.Dialog;
 import java.awt.event.ActionEvent;
-import java.awt.geom.Point2D;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Date;
+import java.util.Formatter;
 
 
 @ActionID(category = "File", id = "org.esa.snap.rcp.actions.file.export.ExportTransectPixelsAction" )
@@ -146,7 +148,11 @@ public class ExportTransectPixelsAction extends AbstractAction implements HelpCt
         }
 
         // Compute total number of transect pixels
-        final int numTransectPixels = getNumTransectPixels(raster.getProduct(), transectProfileData);
+        final Product product = raster.getProduct();
+        final TransectSampler sampler = new TransectSampler(product.getSceneRasterWidth(),
+                                                            product.getSceneRasterHeight(),
+                                                            transectProfileData.getPixelPositions());
+        final int numTransectPixels = sampler.getNumValidPoints();
 
         String numPixelsText;
         if (numTransectPixels == 1) {
@@ -206,10 +212,7 @@ public class ExportTransectPixelsAction extends AbstractAction implements HelpCt
                     final boolean mustExportWavelengthsAndSF = exportWavelengthsAndSFBox.isSelected();
                     final boolean mustExportTiePoints = exportTiePointsBox.isSelected();
                     TransectExporter exporter = new TransectExporter(mustCreateHeader, mustExportWavelengthsAndSF, mustExportTiePoints);
-                    boolean success = exporter.exportTransectPixels(out, raster.getProduct(),
-                                                                    transectProfileData,
-                                                                    numTransectPixels,
-                                                                    pm);
+                    boolean success = exporter.exportTransectPixels(out, product, sampler, pm);
                     if (success && clipboardText != null) {
                         SystemUtils.copyToClipboard(clipboardText.toString());
                         clipboardText.setLength(0);
@@ -275,23 +278,6 @@ public class ExportTransectPixelsAction extends AbstractAction implements HelpCt
                                               "exportTransectPixels.lastDir");
     }
 
-    private static int getNumTransectPixels(final Product product,
-                                            final TransectProfileData transectProfileData) {
-
-        final Point2D[] pixelPositions = transectProfileData.getPixelPositions();
-        int numTransectPixels = 0;
-        for (Point2D pixelPosition : pixelPositions) {
-            int x = (int) Math.floor(pixelPosition.getX());
-            int y = (int) Math.floor(pixelPosition.getY());
-            if (x >= 0 && x < product.getSceneRasterWidth()
-                    && y >= 0 && y < product.getSceneRasterHeight()) {
-                numTransectPixels++;
-            }
-        }
-        return numTransectPixels;
-    }
-
-
     static class TransectExporter {
 
         private final boolean mustCreateHeader;
@@ -309,13 +295,14 @@ public class ExportTransectPixelsAction extends AbstractAction implements HelpCt
          *
          * @param out     the data output writer
          * @param product the product providing the pixel values
+         * @param sampler the sampler providing the transect points
          * @return <code>true</code> for success, <code>false</code> if export has been terminated (by user)
+         * @throws IOException if an I/O error occurs
          */
         private boolean exportTransectPixels(final PrintWriter out,
                                              final Product product,
-                                             final TransectProfileData transectProfileData,
-                                             final int numTransectPixels,
-                                             ProgressMonitor pm) {
+                                             final TransectSampler sampler,
+                                             ProgressMonitor pm) throws IOException {
 
             final Band[] bands = product.getBands();
             final TiePointGrid[] tiePointGrids = product.getTiePointGrids();
@@ -324,16 +311,24 @@ public class ExportTransectPixelsAction extends AbstractAction implements HelpCt
                 writeFileHeader(out, bands);
             }
             writeTableHeader(out, geoCoding, bands, mustExportTiePoints, tiePointGrids, mustExportWavelengthsAndSF);
-            final Point2D[] pixelPositions = transectProfileData.getPixelPositions();
 
-            pm.beginTask("Writing pixel data...", numTransectPixels);
+            final RasterDataNode[] rasters = getExportedRasters(bands, tiePointGrids);
+            final double[][] values = new double[rasters.length][];
+            final boolean[][] valid = new boolean[rasters.length][sampler.getNumPoints()];
+
+            pm.beginTask("Writing pixel data...", rasters.length + sampler.getNumValidPoints());
             try {
-                for (Point2D pixelPosition : pixelPositions) {
-                    int x = (int) Math.floor(pixelPosition.getX());
-                    int y = (int) Math.floor(pixelPosition.getY());
-                    if (x >= 0 && x < product.getSceneRasterWidth()
-                            && y >= 0 && y < product.getSceneRasterHeight()) {
-                        writeDataLine(out, geoCoding, bands, mustExportTiePoints, tiePointGrids, x, y);
+                for (int i = 0; i < rasters.length; i++) {
+                    values[i] = sampler.sample(rasters[i], null, valid[i]);
+                    pm.worked(1);
+                    if (pm.isCanceled()) {
+                        return false;
+                    }
+                }
+                final DataLineWriter lineWriter = new DataLineWriter(out, geoCoding, rasters, values, valid);
+                for (int i = 0; i < sampler.getNumPoints(); i++) {
+                    if (sampler.isInBounds(i)) {
+                        lineWriter.writeDataLine(i, sampler.getPixelX(i), sampler.getPixelY(i));
                         pm.worked(1);
                         if (pm.isCanceled()) {
                             return false;
@@ -347,6 +342,14 @@ public class ExportTransectPixelsAction extends AbstractAction implements HelpCt
             return true;
         }
 
+        private RasterDataNode[] getExportedRasters(Band[] bands, TiePointGrid[] tiePointGrids) {
+            final int numTiePointGrids = mustExportTiePoints ? tiePointGrids.length : 0;
+            final RasterDataNode[] rasters = new RasterDataNode[bands.length + numTiePointGrids];
+            System.arraycopy(bands, 0, rasters, 0, bands.length);
+            System.arraycopy(tiePointGrids, 0, rasters, bands.length, numTiePointGrids);
+            return rasters;
+        }
+
         private void writeFileHeader(PrintWriter out, Band[] bands) {
 
             ProductData.UTC utc = ProductData.UTC.create(new Date(), 0);
@@ -404,48 +407,61 @@ public class ExportTransectPixelsAction extends AbstractAction implements HelpCt
             out.print("\n");
         }
 
+    }
+
+    /**
+     * Writes the data lines of the transect. Each line is formatted into a reused buffer, so that no string
+     * is created for the single values.
+     */
+    private static class DataLineWriter {
+
+        private final TextLineWriter lineWriter;
+        private final GeoCoding geoCoding;
+        private final RasterDataNode[] rasters;
+        private final double[][] values;
+        private final boolean[][] valid;
+        private final Formatter formatter;
+        private final PixelPos pixelPos;
+        private final GeoPos geoPos;
+
+        DataLineWriter(Writer out, GeoCoding geoCoding, RasterDataNode[] rasters, double[][] values,
+                       boolean[][] valid) {
+            this.lineWriter = new TextLineWriter(out);
+            this.geoCoding = geoCoding;
+            this.rasters = rasters;
+            this.values = values;
+            this.valid = valid;
+            this.formatter = TransectSampler.createFormatter(lineWriter.getLine());
+            this.pixelPos = new PixelPos();
+            this.geoPos = new GeoPos();
+        }
+
         /**
-         * Writes a data line of the dataset to be exported for the given pixel position.
+         * Writes a data line of the dataset to be exported for the given transect point.
          *
-         * @param out                 the data output writer
-         * @param geoCoding           the product's geo-coding
-         * @param bands               the array of bands that provide pixel values
-         * @param mustExportTiePoints if tie-points shall be exported
-         * @param tiePointGrids       the array of tie-points that provide pixel values
-         * @param x                   the current pixel's X coordinate
-         * @param y                   the current pixel's Y coordinate
+         * @param index the index of the transect point
+         * @param x     the current pixel's X coordinate
+         * @param y     the current pixel's Y coordinate
          */
-        private void writeDataLine(final PrintWriter out,
-                                   final GeoCoding geoCoding,
-                                   final Band[] bands,
-                                   boolean mustExportTiePoints,
-                                   TiePointGrid[] tiePointGrids,
-                                   int x, int y) {
-            final PixelPos pixelPos = new PixelPos(x + 0.5f, y + 0.5f);
-
-            out.print(String.valueOf(pixelPos.x));
-            out.print("\t");
-            out.print(String.valueOf(pixelPos.y));
+        void writeDataLine(int index, int x, int y) throws IOException {
+            pixelPos.setLocation(x + 0.5f, y + 0.5f);
+
+            final StringBuilder line = lineWriter.beginLine();
+            line.append(pixelPos.x);
+            line.append('\t');
+            line.append(pixelPos.y);
             if (geoCoding != null) {
-                out.print("\t");
-                final GeoPos geoPos = geoCoding.getGeoPos(pixelPos, null);
-                out.print(String.valueOf(geoPos.lon));
-                out.print("\t");
-                out.print(String.valueOf(geoPos.lat));
-            }
-            for (final Band band : bands) {
-                out.print("\t");
-                final String pixelString = band.getPixelString(x, y);
-                out.print(pixelString);
+                geoCoding.getGeoPos(pixelPos, geoPos);
+                line.append('\t');
+                line.append(geoPos.lon);
+                line.append('\t');
+                line.append(geoPos.lat);
             }
-            if (mustExportTiePoints) {
-                for (final TiePointGrid grid : tiePointGrids) {
-                    out.print("\t");
-                    out.print(grid.getPixelString(x, y));
-                }
+            for (int i = 0; i < rasters.length; i++) {
+                line.append('\t');
+                TransectSampler.appendPixelString(formatter, line, rasters[i], values[i][index], valid[i][index]);
             }
-
-            out.print("\n");
+            lineWriter.endLine();
         }
     }
 
@@ -0,0 +1,467 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.actions.file.export;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.GeoCoding;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.datamodel.TiePointGrid;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the pixels of a product within a mask, tile by tile.
+ * <p>
+ * For every tile of the mask image containing at least one mask pixel, the values of all bands, their valid masks
+ * and the tie-point grids are read from the corresponding tiles. The tile is processed in strips of rows: the values of the mask
+ * pixels of a strip are collected into column buffers which are handed to an {@link Output} as one block. The strip
+ * height is chosen so that a block holds at most {@link #MAX_BLOCK_SAMPLES} values, so the block memory is bounded
+ * independent of the number of mask pixels and of the number of bands.
+ * <p>
+ * Two outputs are available: {@link TextOutput} writes the tab-separated text format used by the
+ * "Export Mask Pixels" action, {@link BinaryOutput} a compact columnar binary format.
+ */
+class MaskPixelExporter {
+
+    /**
+     * The maximum number of values held by a block, i.e. 8 MB.
+     */
+    static final int MAX_BLOCK_SAMPLES = 1024 * 1024;
+
+    private final RenderedImage maskImage;
+    private final Rectangle imageRect;
+    private final GeoCoding geoCoding;
+    private final Band[] bands;
+    private final TiePointGrid[] tiePointGrids;
+    private final Column[] columns;
+    private final int maxBlockSamples;
+
+    /**
+     * @param product            the product providing the pixel values
+     * @param maskImage          the mask image
+     * @param exportTiePointGrids if the tie-point grids shall be exported as well
+     */
+    MaskPixelExporter(Product product, RenderedImage maskImage, boolean exportTiePointGrids) {
+        this(product, maskImage, exportTiePointGrids, MAX_BLOCK_SAMPLES);
+    }
+
+    MaskPixelExporter(Product product, RenderedImage maskImage, boolean exportTiePointGrids, int maxBlockSamples) {
+        this.maskImage = maskImage;
+        this.maxBlockSamples = maxBlockSamples;
+        this.imageRect = new Rectangle(0, 0, product.getSceneRasterWidth(), product.getSceneRasterHeight());
+        this.geoCoding = product.getGeoCoding();
+        this.bands = product.getBands();
+        this.tiePointGrids = exportTiePointGrids ? product.getTiePointGrids() : new TiePointGrid[0];
+
+        final List<Column> columnList = new ArrayList<>();
+        columnList.add(new Column("Pixel-X", Column.TYPE_FLOAT));
+        columnList.add(new Column("Pixel-Y", Column.TYPE_FLOAT));
+        if (geoCoding != null) {
+            columnList.add(new Column("Longitude", Column.TYPE_DOUBLE));
+            columnList.add(new Column("Latitude", Column.TYPE_DOUBLE));
+        }
+        for (Band band : bands) {
+            columnList.add(new Column(band.getName(), band.isFloatingPointType() ? Column.TYPE_FLOAT : Column.TYPE_INT));
+        }
+        for (TiePointGrid grid : tiePointGrids) {
+            columnList.add(new Column(grid.getName(), Column.TYPE_FLOAT));
+        }
+        this.columns = columnList.toArray(new Column[columnList.size()]);
+    }
+
+    Column[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Writes all mask pixels to the given output.
+     *
+     * @param output the output
+     * @param pm     a progress monitor
+     * @return {@code true} for success, {@code false} if the export has been cancelled
+     * @throws IOException if an I/O error occurs
+     */
+    boolean export(Output output, ProgressMonitor pm) throws IOException {
+        final int minTileX = maskImage.getMinTileX();
+        final int minTileY = maskImage.getMinTileY();
+        final int numXTiles = maskImage.getNumXTiles();
+        final int numYTiles = maskImage.getNumYTiles();
+
+        final int tileWidth = maskImage.getTileWidth();
+        final int stripHeight = Math.max(1, Math.min(maskImage.getTileHeight(),
+                                                     maxBlockSamples / (columns.length * tileWidth)));
+        final Block block = new Block(columns.length, tileWidth * stripHeight);
+        pm.beginTask("Writing pixel data...", numXTiles * numYTiles + 1);
+        try {
+            output.begin(columns);
+            pm.worked(1);
+            // tiles are visited column by column, as the mask pixels have always been exported in that order
+            for (int tileX = minTileX; tileX < minTileX + numXTiles; ++tileX) {
+                for (int tileY = minTileY; tileY < minTileY + numYTiles; ++tileY) {
+                    if (pm.isCanceled()) {
+                        return false;
+                    }
+                    final Rectangle tileRect = new Rectangle(maskImage.getTileGridXOffset() + tileX * maskImage.getTileWidth(),
+                                                             maskImage.getTileGridYOffset() + tileY * maskImage.getTileHeight(),
+                                                             maskImage.getTileWidth(), maskImage.getTileHeight());
+                    final Rectangle rect = imageRect.intersection(tileRect);
+                    if (!rect.isEmpty()) {
+                        final Raster maskTile = maskImage.getTile(tileX, tileY);
+                        for (int y = rect.y; y < rect.y + rect.height; y += stripHeight) {
+                            final Rectangle strip = new Rectangle(rect.x, y, rect.width,
+                                                                  Math.min(stripHeight, rect.y + rect.height - y));
+                            if (collectPixels(maskTile, strip, block)) {
+                                readColumns(strip, block);
+                                output.writeBlock(block);
+                            }
+                        }
+                    }
+                    pm.worked(1);
+                }
+            }
+            output.end();
+        } finally {
+            pm.done();
+        }
+        return true;
+    }
+
+    /**
+     * Computes the total number of pixels within the mask.
+     */
+    long getNumMaskPixels() {
+        final int minTileX = maskImage.getMinTileX();
+        final int minTileY = maskImage.getMinTileY();
+        final int numXTiles = maskImage.getNumXTiles();
+        final int numYTiles = maskImage.getNumYTiles();
+        int[] samples = new int[0];
+        long numMaskPixels = 0;
+        for (int tileY = minTileY; tileY < minTileY + numYTiles; ++tileY) {
+            for (int tileX = minTileX; tileX < minTileX + numXTiles; ++tileX) {
+                final Rectangle tileRect = new Rectangle(maskImage.getTileGridXOffset() + tileX * maskImage.getTileWidth(),
+                                                         maskImage.getTileGridYOffset() + tileY * maskImage.getTileHeight(),
+                                                         maskImage.getTileWidth(), maskImage.getTileHeight());
+                final Rectangle r = imageRect.intersection(tileRect);
+                if (!r.isEmpty()) {
+                    final int numPixels = r.width * r.height;
+                    if (samples.length < numPixels) {
+                        samples = new int[numPixels];
+                    }
+                    maskImage.getTile(tileX, tileY).getSamples(r.x, r.y, r.width, r.height, 0, samples);
+                    for (int i = 0; i < numPixels; i++) {
+                        if (samples[i] != 0) {
+                            numMaskPixels++;
+                        }
+                    }
+                }
+            }
+        }
+        return numMaskPixels;
+    }
+
+    /*
+     * Stores the rectangle-relative indexes of all mask pixels of the given rectangle in the block.
+     */
+    private static boolean collectPixels(Raster maskTile, Rectangle rect, Block block) {
+        final int[] samples = block.samples(rect.width * rect.height);
+        maskTile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, samples);
+        int count = 0;
+        for (int i = 0; i < rect.width * rect.height; i++) {
+            if (samples[i] != 0) {
+                block.pixelIndexes[count++] = i;
+            }
+        }
+        block.size = count;
+        return count > 0;
+    }
+
+    private void readColumns(Rectangle rect, Block block) {
+        final int size = block.size;
+        final int[] pixelIndexes = block.pixelIndexes;
+        int column = 0;
+
+        final double[] pixelX = block.values[column++];
+        final double[] pixelY = block.values[column++];
+        for (int i = 0; i < size; i++) {
+            pixelX[i] = rect.x + pixelIndexes[i] % rect.width + 0.5f;
+            pixelY[i] = rect.y + pixelIndexes[i] / rect.width + 0.5f;
+        }
+        if (geoCoding != null) {
+            final double[] lon = block.values[column++];
+            final double[] lat = block.values[column++];
+            final PixelPos pixelPos = new PixelPos();
+            final GeoPos geoPos = new GeoPos();
+            for (int i = 0; i < size; i++) {
+                pixelPos.setLocation(pixelX[i], pixelY[i]);
+                geoCoding.getGeoPos(pixelPos, geoPos);
+                lon[i] = geoPos.lon;
+                lat[i] = geoPos.lat;
+            }
+        }
+        for (Band band : bands) {
+            readColumn(band, rect, block, block.values[column++], true);
+        }
+        // tie-point grids have always been exported without a validity check
+        for (TiePointGrid grid : tiePointGrids) {
+            readColumn(grid, rect, block, block.values[column++], false);
+        }
+    }
+
+    /*
+     * Reads the values of the mask pixels from the geophysical image of the raster. If the valid mask is checked,
+     * invalid pixels become NaN. Values are rounded the way RasterDataNode.readPixels() does it for float or int
+     * buffers respectively.
+     */
+    private static void readColumn(RasterDataNode raster, Rectangle rect, Block block, double[] values,
+                                   boolean checkValidMask) {
+        final int numPixels = rect.width * rect.height;
+        final double[] samples = block.tileValues(numPixels);
+        getTileData(raster.getGeophysicalImage(), rect).getSamples(rect.x, rect.y, rect.width, rect.height, 0, samples);
+        int[] valid = null;
+        if (checkValidMask && raster.isValidMaskUsed()) {
+            valid = block.validSamples(numPixels);
+            getTileData(raster.getValidMaskImage(), rect).getSamples(rect.x, rect.y, rect.width, rect.height, 0, valid);
+        }
+        final boolean floatingPoint = raster.isFloatingPointType();
+        final boolean signedByte = !raster.isScalingApplied() && raster.getDataType() == ProductData.TYPE_INT8;
+        for (int i = 0; i < block.size; i++) {
+            final int pixelIndex = block.pixelIndexes[i];
+            if (valid != null && valid[pixelIndex] == 0) {
+                values[i] = Double.NaN;
+            } else if (floatingPoint) {
+                values[i] = (float) samples[pixelIndex];
+            } else if (signedByte) {
+                values[i] = (byte) samples[pixelIndex];
+            } else {
+                values[i] = (int) samples[pixelIndex];
+            }
+        }
+    }
+
+    /*
+     * Returns the tile covering the given rectangle, or a copy of the data if the image uses a different tiling.
+     */
+    private static Raster getTileData(RenderedImage image, Rectangle rect) {
+        final int tileX = Math.floorDiv(rect.x - image.getTileGridXOffset(), image.getTileWidth());
+        final int tileY = Math.floorDiv(rect.y - image.getTileGridYOffset(), image.getTileHeight());
+        final Raster tile = image.getTile(tileX, tileY);
+        if (tile.getBounds().contains(rect)) {
+            return tile;
+        }
+        return image.getData(rect);
+    }
+
+    /**
+     * An exported column.
+     */
+    static final class Column {
+
+        static final int TYPE_INT = 0;
+        static final int TYPE_FLOAT = 1;
+        static final int TYPE_DOUBLE = 2;
+
+        final String name;
+        final int type;
+
+        Column(String name, int type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    /**
+     * The values of the mask pixels of a strip of a tile, stored column-wise. Instances are reused from strip to
+     * strip.
+     */
+    static final class Block {
+
+        final double[][] values;
+        final int[] pixelIndexes;
+        int size;
+        private int[] samples;
+        private double[] tileValues;
+        private int[] validSamples;
+
+        Block(int numColumns, int capacity) {
+            values = new double[numColumns][capacity];
+            pixelIndexes = new int[capacity];
+            samples = new int[capacity];
+            tileValues = new double[capacity];
+            validSamples = new int[capacity];
+        }
+
+        private int[] samples(int length) {
+            return samples.length >= length ? samples : (samples = new int[length]);
+        }
+
+        private double[] tileValues(int length) {
+            return tileValues.length >= length ? tileValues : (tileValues = new double[length]);
+        }
+
+        private int[] validSamples(int length) {
+            return validSamples.length >= length ? validSamples : (validSamples = new int[length]);
+        }
+    }
+
+    /**
+     * Receives the exported pixels block by block.
+     */
+    interface Output {
+
+        void begin(Column[] columns) throws IOException;
+
+        void writeBlock(Block block) throws IOException;
+
+        void end() throws IOException;
+    }
+
+    /**
+     * Writes one tab-separated line per pixel. Integer columns are written as integers, invalid values as "NaN".
+     * The lines are formatted into a reused character buffer, so no strings are created per value.
+     */
+    static class TextOutput implements Output {
+
+        private final TextLineWriter lineWriter;
+        private Column[] columns;
+
+        TextOutput(Writer writer) {
+            this.lineWriter = new TextLineWriter(writer);
+        }
+
+        @Override
+        public void begin(Column[] columns) throws IOException {
+            this.columns = columns;
+            final StringBuilder line = lineWriter.beginLine();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    line.append('\t');
+                }
+                line.append(columns[i].name);
+            }
+            lineWriter.endLine();
+        }
+
+        @Override
+        public void writeBlock(Block block) throws IOException {
+            for (int row = 0; row < block.size; row++) {
+                final StringBuilder line = lineWriter.beginLine();
+                for (int i = 0; i < columns.length; i++) {
+                    if (i > 0) {
+                        line.append('\t');
+                    }
+                    final double value = block.values[i][row];
+                    if (Double.isNaN(value)) {
+                        line.append("NaN");
+                    } else if (columns[i].type == Column.TYPE_INT) {
+                        line.append((int) value);
+                    } else if (columns[i].type == Column.TYPE_FLOAT) {
+                        line.append((float) value);
+                    } else {
+                        line.append(value);
+                    }
+                }
+                lineWriter.endLine();
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            lineWriter.flush();
+        }
+    }
+
+    /**
+     * Writes the pixels in a simple, streamable, columnar binary format. All numbers are big-endian.
+     * <pre>
+     *     file   := MAGIC header block* end
+     *     header := UTF(metadata) INT32(numColumns) column*
+     *     column := UTF(name) BYTE(type)                 type is 'F' for float32, 'D' for float64
+     *     block  := INT32(numRows) values*               numRows &gt; 0, then numRows values of each column
+     *     end    := INT32(0)
+     * </pre>
+     * Integer band values are stored as float64, so that they are exact and invalid pixels can be stored as NaN.
+     * Geographical coordinates are stored as float64 as well, all other columns as float32, which is the precision
+     * of the text format.
+     */
+    static class BinaryOutput implements Output {
+
+        static final byte[] MAGIC = {'S', 'N', 'A', 'P', 'M', 'P', 'X', '1'};
+        static final byte TYPE_FLOAT32 = 'F';
+        static final byte TYPE_FLOAT64 = 'D';
+
+        private final DataOutputStream stream;
+        private final String metadata;
+        private Column[] columns;
+
+        /**
+         * @param stream   the output stream, should be buffered
+         * @param metadata a free text written to the header, e.g. the product name
+         */
+        BinaryOutput(OutputStream stream, String metadata) {
+            this.stream = new DataOutputStream(stream);
+            this.metadata = metadata;
+        }
+
+        @Override
+        public void begin(Column[] columns) throws IOException {
+            this.columns = columns;
+            stream.write(MAGIC);
+            stream.writeUTF(metadata);
+            stream.writeInt(columns.length);
+            for (Column column : columns) {
+                stream.writeUTF(column.name);
+                stream.writeByte(column.type == Column.TYPE_FLOAT ? TYPE_FLOAT32 : TYPE_FLOAT64);
+            }
+        }
+
+        @Override
+        public void writeBlock(Block block) throws IOException {
+            stream.writeInt(block.size);
+            for (int i = 0; i < columns.length; i++) {
+                final double[] values = block.values[i];
+                if (columns[i].type == Column.TYPE_FLOAT) {
+                    for (int row = 0; row < block.size; row++) {
+                        stream.writeFloat((float) values[row]);
+                    }
+                } else {
+                    for (int row = 0; row < block.size; row++) {
+                        stream.writeDouble(values[row]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            stream.writeInt(0);
+            stream.flush();
+        }
+    }
+}
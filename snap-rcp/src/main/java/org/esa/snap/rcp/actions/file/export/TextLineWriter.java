@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.actions.file.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes text lines which are formatted into a reused buffer, so that no strings are created per line or value.
+ * <p>
+ * A line is started with {@link #beginLine()}, appended to the returned builder and written by {@link #endLine()}.
+ */
+class TextLineWriter {
+
+    private final Writer writer;
+    private final StringBuilder line;
+    private char[] chars;
+
+    TextLineWriter(Writer writer) {
+        this.writer = writer;
+        this.line = new StringBuilder(256);
+        this.chars = new char[256];
+    }
+
+    /**
+     * @return the buffer of the current line, it is the same instance for all lines
+     */
+    StringBuilder getLine() {
+        return line;
+    }
+
+    /**
+     * Starts a new line.
+     *
+     * @return the cleared line buffer
+     */
+    StringBuilder beginLine() {
+        line.setLength(0);
+        return line;
+    }
+
+    /**
+     * Terminates the current line with a line feed and writes it.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void endLine() throws IOException {
+        line.append('\n');
+        final int length = line.length();
+        if (chars.length < length) {
+            chars = new char[2 * length];
+        }
+        line.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+}
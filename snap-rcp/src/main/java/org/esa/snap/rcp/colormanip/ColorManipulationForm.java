@@ -66,7 +66,9 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -107,6 +109,7 @@ class ColorManipulationForm implements SelectionSupport.Handler<ProductSceneView
     private SceneViewImageInfoChangeListener sceneViewChangeListener;
     private String titlePrefix;
     private ColorManipulationChildForm emptyForm;
+    private final StxPreparation stxPreparation;
 
     public ColorManipulationForm(TopComponent colorManipulationToolView, FormModel formModel) {
         Assert.notNull(colorManipulationToolView);
@@ -117,6 +120,7 @@ class ColorManipulationForm implements SelectionSupport.Handler<ProductSceneView
         sceneViewChangeListener = new SceneViewImageInfoChangeListener();
         titlePrefix = this.formModel.getTitlePrefix();
         emptyForm = new EmptyImageInfoForm(this);
+        stxPreparation = new StxPreparation();
     }
 
     public FormModel getFormModel() {
@@ -169,6 +173,12 @@ class ColorManipulationForm implements SelectionSupport.Handler<ProductSceneView
             getFormModel().setModifiedImageInfo(getFormModel().getOriginalImageInfo());
         }
 
+        // started first, so that the child form finds the statistics being prepared
+        if (getFormModel().isValid()) {
+            stxPreparation.prepare(getFormModel().getRasters());
+        } else {
+            stxPreparation.cancel();
+        }
         installChildForm();
 
         updateTitle();
@@ -641,8 +651,21 @@ class ColorManipulationForm implements SelectionSupport.Handler<ProductSceneView
         }
     }
 
+    /**
+     * Returns the statistics of the given raster without computing them from the full resolution image.
+     * If the raster has no statistics yet, approximate ones from its lowest resolution level are returned and
+     * the accurate ones are prepared in the background; the child form is updated when they are set.
+     */
     Stx getStx(RasterDataNode raster) {
-        return raster.getStx(false, ProgressMonitor.NULL);
+        if (raster.isStxSet()) {
+            return raster.getStx();
+        }
+        if (!stxPreparation.isPreparing(raster)) {
+            final Set<RasterDataNode> rasters = new LinkedHashSet<>(Arrays.asList(getFormModel().getRasters()));
+            rasters.add(raster);
+            stxPreparation.prepare(rasters.toArray(new RasterDataNode[rasters.size()]));
+        }
+        return StxPreparation.getApproximateStx(raster, ProgressMonitor.NULL);
     }
 
     private class ColorManipulationPNL extends ProductNodeListenerAdapter {
@@ -670,7 +693,7 @@ class ColorManipulationForm implements SelectionSupport.Handler<ProductSceneView
                 } else if (RasterDataNode.PROPERTY_NAME_STX.equalsIgnoreCase(propertyName)) {
                     childForm.handleRasterPropertyChange(event, raster);
                 } else if (RasterDataNode.isValidMaskProperty(propertyName)) {
-                    getStx(raster);
+                    stxPreparation.prepare(rasters);
                 }
             }
         }
@@ -23,8 +23,8 @@ import org.esa.snap.framework.datamodel.ProductNodeEvent;
 import org.esa.snap.framework.datamodel.RasterDataNode;
 import org.esa.snap.framework.datamodel.Scaling;
 import org.esa.snap.framework.datamodel.Stx;
-import org.esa.snap.framework.datamodel.StxFactory;
 import org.esa.snap.framework.ui.ImageInfoEditorModel;
+import org.esa.snap.rcp.statistics.StxCache;
 
 import javax.swing.AbstractButton;
 import javax.swing.JPanel;
@@ -140,7 +140,10 @@ class Continuous1BandGraphicalForm implements ColorManipulationChildForm {
         final ImageInfoEditorModel model = imageInfoEditor.getModel();
         if (model != null) {
             if (event.getPropertyName().equals(RasterDataNode.PROPERTY_NAME_STX)) {
-                updateFormModel(parentForm.getFormModel());
+                // reset statistics are being prepared in the background, keep the current ones until then
+                if (raster.isStxSet()) {
+                    updateFormModel(parentForm.getFormModel());
+                }
             } else {
                 setLogarithmicDisplay(raster, model.getImageInfo().isLogScaled());
             }
@@ -159,16 +162,18 @@ class Continuous1BandGraphicalForm implements ColorManipulationChildForm {
 
     private void setLogarithmicDisplay(final RasterDataNode raster, final boolean logarithmicDisplay) {
         final ImageInfoEditorModel model = imageInfoEditor.getModel();
+        // approximate until the statistics prepared in the background have been set
+        final Stx rasterStx = parentForm.getStx(raster);
         if (logarithmicDisplay) {
-            final StxFactory stxFactory = new StxFactory();
-            final Stx stx = stxFactory
-                        .withHistogramBinCount(raster.getStx().getHistogramBinCount())
-                        .withLogHistogram(logarithmicDisplay)
-                        .withResolutionLevel(raster.getSourceImage().getModel().getLevelCount() - 1)
-                        .create(raster, ProgressMonitor.NULL);
+            // computed once from the lowest resolution level, cached until the raster changes
+            final Stx stx = StxCache.getDefault().getStx(raster, null,
+                                                         rasterStx.getHistogramBinCount(),
+                                                         logarithmicDisplay,
+                                                         raster.getSourceImage().getModel().getLevelCount() - 1,
+                                                         ProgressMonitor.NULL);
             model.setDisplayProperties(raster.getName(), raster.getUnit(), stx, POW10_SCALING);
         } else {
-            model.setDisplayProperties(raster.getName(), raster.getUnit(), raster.getStx(), Scaling.IDENTITY);
+            model.setDisplayProperties(raster.getName(), raster.getUnit(), rasterStx, Scaling.IDENTITY);
         }
         model.getImageInfo().setLogScaled(logarithmicDisplay);
     }
@@ -192,8 +197,8 @@ class Continuous1BandGraphicalForm implements ColorManipulationChildForm {
         };
     }
 
-    static void setDisplayProperties(ImageInfoEditorModel model, RasterDataNode raster) {
-        model.setDisplayProperties(raster.getName(), raster.getUnit(), raster.getStx(),
+    static void setDisplayProperties(ImageInfoEditorModel model, RasterDataNode raster, Stx stx) {
+        model.setDisplayProperties(raster.getName(), raster.getUnit(), stx,
                                    raster.isLog10Scaled() ? POW10_SCALING : Scaling.IDENTITY);
     }
 
@@ -27,7 +27,6 @@ import org.esa.snap.framework.datamodel.ImageInfo;
 import org.esa.snap.framework.datamodel.ProductNodeEvent;
 import org.esa.snap.framework.datamodel.RasterDataNode;
 import org.esa.snap.framework.datamodel.Stx;
-import org.esa.snap.framework.ui.ImageInfoEditorModel;
 
 import javax.swing.AbstractButton;
 import javax.swing.ButtonGroup;
@@ -180,7 +179,8 @@ class Continuous3BandGraphicalForm implements ColorManipulationChildForm {
         for (int i = 0; i < models.length; i++) {
             ImageInfoEditorModel3B oldModel = models[i];
             models[i] = new ImageInfoEditorModel3B(parentForm.getFormModel().getModifiedImageInfo(), i);
-            Continuous1BandGraphicalForm.setDisplayProperties(models[i], currentChannelSources[i]);
+            Continuous1BandGraphicalForm.setDisplayProperties(models[i], currentChannelSources[i],
+                                                              parentForm.getStx(currentChannelSources[i]));
             if (oldModel != null) {
                 models[i].setHistogramViewGain(oldModel.getHistogramViewGain());
                 models[i].setMinHistogramViewSample(oldModel.getMinHistogramViewSample());
@@ -213,9 +213,14 @@ class Continuous3BandGraphicalForm implements ColorManipulationChildForm {
 
     @Override
     public void handleRasterPropertyChange(ProductNodeEvent event, RasterDataNode raster) {
-        ImageInfoEditorModel model = imageInfoEditor.getModel();
-        if (model != null) {
-            Continuous1BandGraphicalForm.setDisplayProperties(model, raster);
+        if (event.getPropertyName().equals(RasterDataNode.PROPERTY_NAME_STX) && !raster.isStxSet()) {
+            // reset statistics are being prepared in the background, keep the current ones until then
+            return;
+        }
+        for (int i = 0; i < models.length; i++) {
+            if (models[i] != null && currentChannelSources[i] == raster) {
+                Continuous1BandGraphicalForm.setDisplayProperties(models[i], raster, parentForm.getStx(raster));
+            }
         }
         if (event.getPropertyName().equals(RasterDataNode.PROPERTY_NAME_STX)) {
             acknowledgeChannel();
@@ -248,7 +253,7 @@ class Continuous3BandGraphicalForm implements ColorManipulationChildForm {
     private void acknowledgeChannel() {
         RasterDataNode channelSource = currentChannelSources[channel];
         final ImageInfoEditorModel3B model = models[channel];
-        Continuous1BandGraphicalForm.setDisplayProperties(model, channelSource);
+        Continuous1BandGraphicalForm.setDisplayProperties(model, channelSource, parentForm.getStx(channelSource));
         imageInfoEditor.setModel(model);
         moreOptionsForm.getBindingContext().getBinding(CHANNEL_SOURCE_NAME_PROPERTY).setPropertyValue(channelSource.getName());
         moreOptionsForm.getBindingContext().getBinding(GAMMA_PROPERTY).setPropertyValue(model.getGamma());
@@ -288,7 +293,7 @@ class Continuous3BandGraphicalForm implements ColorManipulationChildForm {
                     imageInfo.getRgbChannelDef().setMaxDisplaySample(channel, def.getMaxDisplaySample());
                 }
                 models[channel] = new ImageInfoEditorModel3B(imageInfo, channel);
-                Continuous1BandGraphicalForm.setDisplayProperties(models[channel], newChannelSource);
+                Continuous1BandGraphicalForm.setDisplayProperties(models[channel], newChannelSource, stx);
                 acknowledgeChannel();
                 parentForm.applyChanges();
             } else {
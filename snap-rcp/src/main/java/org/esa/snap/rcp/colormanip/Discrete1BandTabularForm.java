@@ -83,7 +83,6 @@ class Discrete1BandTabularForm implements ColorManipulationChildForm {
 
     @Override
     public void updateFormModel(FormModel formModel) {
-        parentForm.getStx(formModel.getRaster());
         tableModel.fireTableDataChanged();
     }
 
@@ -94,6 +93,9 @@ class Discrete1BandTabularForm implements ColorManipulationChildForm {
 
     @Override
     public void handleRasterPropertyChange(ProductNodeEvent event, RasterDataNode raster) {
+        if (RasterDataNode.PROPERTY_NAME_STX.equals(event.getPropertyName())) {
+            tableModel.fireTableDataChanged();
+        }
     }
 
     @Override
@@ -177,6 +179,10 @@ class Discrete1BandTabularForm implements ColorManipulationChildForm {
                 return Double.isNaN(point.getSample()) ? "Uncoded" : (int) point.getSample();
             } else if (columnIndex == 3) {
                 final RasterDataNode raster = parentForm.getFormModel().getRaster();
+                if (!raster.isStxSet()) {
+                    // the statistics are being prepared
+                    return null;
+                }
                 final Stx stx = raster.getStx();
                 Assert.notNull(stx, "stx");
                 final int[] frequencies = stx.getHistogramBins();
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.colormanip;
+
+import com.bc.ceres.core.NullProgressMonitor;
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.datamodel.Stx;
+import org.esa.snap.framework.datamodel.StxFactory;
+import org.esa.snap.rcp.statistics.StxCache;
+import org.esa.snap.util.SystemUtils;
+
+import javax.swing.SwingWorker;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+
+/**
+ * Prepares the statistics of the rasters shown by the colour manipulation tool window in the background.
+ * <p>
+ * Rasters without statistics first get approximate statistics computed from their lowest resolution level, so
+ * that a histogram can be shown quickly. Then accurate statistics are computed from level 0 for all rasters
+ * having approximate statistics only. The statistics are set on the rasters on the event dispatch thread, hence
+ * the forms are updated by the resulting {@link RasterDataNode#PROPERTY_NAME_STX} events.
+ * A preparation is cancelled as soon as another one is started, e.g. when the selected view changes.
+ */
+class StxPreparation {
+
+    private Worker worker;
+
+    /**
+     * Cancels the current preparation and starts preparing the statistics of the given rasters.
+     * Must be called on the event dispatch thread.
+     */
+    void prepare(RasterDataNode... rasters) {
+        cancel();
+        worker = new Worker(rasters);
+        worker.execute();
+    }
+
+    /**
+     * @return {@code true} if the statistics of the given raster are being prepared
+     */
+    boolean isPreparing(RasterDataNode raster) {
+        return worker != null && !worker.isDone() && Arrays.asList(worker.rasters).contains(raster);
+    }
+
+    /**
+     * Cancels the current preparation. Must be called on the event dispatch thread.
+     */
+    void cancel() {
+        if (worker != null) {
+            worker.cancel(true);
+            worker = null;
+        }
+    }
+
+    private static boolean isAccurate(RasterDataNode raster) {
+        return raster.isStxSet() && raster.getStx().getResolutionLevel() == 0;
+    }
+
+    /**
+     * Returns approximate statistics of the given raster, computed from its lowest resolution level. They are
+     * shared through the {@link StxCache}, so they are computed once, whether by a preparation or by a form
+     * needing them before the preparation has delivered them.
+     */
+    static Stx getApproximateStx(RasterDataNode raster, ProgressMonitor pm) {
+        final int level = getLowestLevel(raster);
+        if (level == 0) {
+            // the image has a single level, it is small
+            return new StxFactory().withResolutionLevel(0).create(raster, pm);
+        }
+        return StxCache.getDefault().getStx(raster, null, Stx.DEFAULT_BIN_COUNT, false, level, pm);
+    }
+
+    private static int getLowestLevel(RasterDataNode raster) {
+        return raster.getSourceImage().getModel().getLevelCount() - 1;
+    }
+
+    private static final class RasterStx {
+
+        private final RasterDataNode raster;
+        private final Stx stx;
+
+        private RasterStx(RasterDataNode raster, Stx stx) {
+            this.raster = raster;
+            this.stx = stx;
+        }
+    }
+
+    private class Worker extends SwingWorker<Void, RasterStx> {
+
+        private final RasterDataNode[] rasters;
+        private final ProgressMonitor pm = new NullProgressMonitor() {
+            @Override
+            public boolean isCanceled() {
+                return isCancelled();
+            }
+        };
+
+        private Worker(RasterDataNode[] rasters) {
+            this.rasters = rasters.clone();
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            final boolean[] accurate = new boolean[rasters.length];
+            for (int i = 0; i < rasters.length && !isCancelled(); i++) {
+                final RasterDataNode raster = rasters[i];
+                accurate[i] = isAccurate(raster);
+                if (!raster.isStxSet()) {
+                    publish(new RasterStx(raster, getApproximateStx(raster, pm)));
+                    accurate[i] = getLowestLevel(raster) == 0;
+                }
+            }
+            for (int i = 0; i < rasters.length && !isCancelled(); i++) {
+                if (!accurate[i] && !isAccurate(rasters[i])) {
+                    publish(new RasterStx(rasters[i], new StxFactory().withResolutionLevel(0).create(rasters[i], pm)));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        protected void process(List<RasterStx> chunks) {
+            if (isCancelled()) {
+                return;
+            }
+            for (RasterStx rasterStx : chunks) {
+                final RasterDataNode raster = rasterStx.raster;
+                // never replace statistics which have been computed meanwhile by other means
+                final boolean approximate = rasterStx.stx.getResolutionLevel() > 0;
+                if (approximate ? !raster.isStxSet() : !isAccurate(raster)) {
+                    raster.setStx(rasterStx.stx);
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            try {
+                get();
+            } catch (CancellationException | InterruptedException ignored) {
+                // the selected view has changed
+            } catch (ExecutionException e) {
+                if (!isCancelled()) {
+                    SystemUtils.LOG.log(Level.WARNING, "Failed to compute statistics", e.getCause());
+                }
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.sun.media.jai.util.SunTileCache;
 import org.esa.snap.jai.RasterDataNodeOpImage;
 import org.esa.snap.jai.SingleBandedOpImage;
 import org.esa.snap.jai.VirtualBandOpImage;
+import org.esa.snap.rcp.statistics.StxCache;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.DateAxis;
@@ -272,6 +273,25 @@ public class TileCacheMonitor {
                 sb.append(sunTileCache.getCacheTileCount());
                 sb.append("\n");
             }
+
+            final StxCache stxCache = StxCache.getDefault();
+            sb.append("stxCache.memoryUsed: \t");
+            sb.append(stxCache.getMemoryUsed() / 1024);
+            sb.append(" KB of ");
+            sb.append(stxCache.getMaxMemory() / 1024);
+            sb.append(" KB\n");
+
+            sb.append("stxCache.hitCount: \t");
+            sb.append(stxCache.getHitCount());
+            sb.append("\n");
+
+            sb.append("stxCache.missCount: \t");
+            sb.append(stxCache.getMissCount());
+            sb.append("\n");
+
+            sb.append("stxCache.entryCount: \t");
+            sb.append(stxCache.getEntryCount());
+            sb.append("\n");
             textarea.setText(sb.toString());
         }
     }
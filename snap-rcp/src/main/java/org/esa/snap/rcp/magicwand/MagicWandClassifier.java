@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.magicwand;
+
+import org.esa.snap.rcp.magicwand.MagicWandModel.SpectrumTransform;
+
+import java.util.Arrays;
+
+/**
+ * Decides whether a pixel spectrum is selected by the magic wand.
+ * <p>
+ * A classifier is the compiled form of the mask expression created by {@link MagicWandModel#createMaskExpression()}:
+ * a pixel is selected if it passes the test of the plus spectra and does not pass the test of the minus spectra.
+ * The reference spectra are transformed once when the classifier is created, the pixel spectrum is transformed
+ * once per pixel and shared by all tests. The tests are evaluated like the band maths functions used by the
+ * expression, i.e. {@code distance}, {@code distance_deriv}, {@code distance_integ}, {@code inrange},
+ * {@code inrange_deriv} and {@code inrange_integ}.
+ * <p>
+ * Instances are immutable and may be used by multiple threads.
+ *
+ * @see MagicWandModel#createClassifier()
+ */
+final class MagicWandClassifier {
+
+    private final int bandCount;
+    private final SpectrumTransform spectrumTransform;
+    private final boolean normalize;
+    private final SpectrumTest plusTest;
+    private final SpectrumTest minusTest;
+
+    /**
+     * @param bandCount         the number of bands of a spectrum
+     * @param spectrumTransform the transformation applied to the spectra before testing them
+     * @param normalize         whether pixel spectra are normalized by their first value
+     * @param plusTest          the test of the plus spectra, or {@code null} if there are none
+     * @param minusTest         the test of the minus spectra, or {@code null} if there are none
+     */
+    MagicWandClassifier(int bandCount, SpectrumTransform spectrumTransform, boolean normalize,
+                        SpectrumTest plusTest, SpectrumTest minusTest) {
+        this.bandCount = bandCount;
+        this.spectrumTransform = spectrumTransform;
+        this.normalize = normalize;
+        this.plusTest = plusTest;
+        this.minusTest = minusTest;
+    }
+
+    int getBandCount() {
+        return bandCount;
+    }
+
+    /**
+     * @return {@code true} if no pixel can be selected, i.e. there are no spectra
+     */
+    boolean isEmpty() {
+        return plusTest == null && minusTest == null;
+    }
+
+    /**
+     * @param spectrum the geophysical values of the bands at the pixel
+     * @param buffer   an array of length {@link #getBandCount()} receiving the transformed spectrum
+     * @return {@code true} if the pixel is selected
+     */
+    boolean isSelected(double[] spectrum, double[] buffer) {
+        if (isEmpty()) {
+            return false;
+        }
+        final int length = transform(spectrum, buffer);
+        if (plusTest != null && !plusTest.accept(buffer, length)) {
+            return false;
+        }
+        return minusTest == null || !minusTest.accept(buffer, length);
+    }
+
+    private int transform(double[] spectrum, double[] buffer) {
+        for (int i = 0; i < bandCount; i++) {
+            buffer[i] = normalize ? spectrum[i] / spectrum[0] : spectrum[i];
+        }
+        return transformInPlace(spectrumTransform, buffer, bandCount);
+    }
+
+    /*
+     * Transforms the first n values of the given spectrum in place and returns the length of the result.
+     */
+    private static int transformInPlace(SpectrumTransform spectrumTransform, double[] values, int n) {
+        if (spectrumTransform == SpectrumTransform.IDENTITY) {
+            return n;
+        } else if (spectrumTransform == SpectrumTransform.DERIVATIVE) {
+            for (int i = 0; i < n - 1; i++) {
+                values[i] = values[i + 1] - values[i];
+            }
+            return Math.max(n - 1, 0);
+        } else if (spectrumTransform == SpectrumTransform.INTEGRAL) {
+            for (int i = 1; i < n; i++) {
+                values[i] += values[i - 1];
+            }
+            return n;
+        } else {
+            throw new IllegalStateException("unhandled operator " + spectrumTransform);
+        }
+    }
+
+    private static double[] transform(SpectrumTransform spectrumTransform, double[] spectrum) {
+        final double[] values = spectrum.clone();
+        final int length = transformInPlace(spectrumTransform, values, values.length);
+        return length == values.length ? values : Arrays.copyOf(values, length);
+    }
+
+    /**
+     * Creates a test accepting spectra whose mean distance to one of the given reference spectra is below
+     * the tolerance.
+     *
+     * @param spectrumTransform the transformation applied to the spectra
+     * @param spectra           the (normalized) reference spectra
+     * @param tolerance         the tolerance
+     */
+    static SpectrumTest createDistanceTest(SpectrumTransform spectrumTransform, double[][] spectra, double tolerance) {
+        if (spectra.length == 0 || spectra[0].length == 0) {
+            return (values, length) -> false;
+        }
+        final int bandCount = spectra[0].length;
+        final double[][] references = new double[spectra.length][];
+        for (int i = 0; i < spectra.length; i++) {
+            references[i] = transform(spectrumTransform, spectra[i]);
+        }
+        return (values, length) -> {
+            for (double[] reference : references) {
+                double sqrSum = 0.0;
+                for (int i = 0; i < length; i++) {
+                    final double d = values[i] - reference[i];
+                    sqrSum += d * d;
+                }
+                if (Math.sqrt(sqrSum) / bandCount < tolerance) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Creates a test accepting spectra lying within the given limits.
+     *
+     * @param spectrumTransform the transformation applied to the spectra
+     * @param minSpectrum       the (normalized) lower limits, including the tolerance
+     * @param maxSpectrum       the (normalized) upper limits, including the tolerance
+     */
+    static SpectrumTest createLimitsTest(SpectrumTransform spectrumTransform, double[] minSpectrum, double[] maxSpectrum) {
+        if (minSpectrum.length == 0) {
+            return (values, length) -> false;
+        }
+        final double[] min = transform(spectrumTransform, minSpectrum);
+        final double[] max = transform(spectrumTransform, maxSpectrum);
+        return (values, length) -> {
+            for (int i = 0; i < length; i++) {
+                if (values[i] < min[i] || values[i] > max[i]) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Tests a transformed spectrum.
+     */
+    interface SpectrumTest {
+        /**
+         * @param values the transformed spectrum
+         * @param length the number of valid elements in {@code values}
+         */
+        boolean accept(double[] values, int length);
+    }
+}
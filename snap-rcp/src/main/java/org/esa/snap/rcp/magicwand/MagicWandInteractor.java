@@ -16,10 +16,14 @@
 
 package org.esa.snap.rcp.magicwand;
 
+import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.glayer.Layer;
 import com.bc.ceres.glayer.LayerType;
 import com.bc.ceres.glayer.support.AbstractLayerListener;
+import com.bc.ceres.glayer.swing.LayerCanvas;
+import com.bc.ceres.grender.Rendering;
 import com.bc.ceres.swing.figure.ViewportInteractor;
+import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
 import com.bc.ceres.swing.undo.UndoContext;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.Mask;
@@ -37,19 +41,24 @@ import javax.swing.JDialog;
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.Window;
 import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
-import java.io.IOException;
+import java.awt.geom.Rectangle2D;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * An interactor that lets users create masks using a "magic wand".
  * The mask comprises all pixels in the image that are "spectrally" close to the pixel that
- * has been selected using the magic wand.
+ * has been selected using the magic wand. By dragging the mouse, the mean spectrum of a pixel
+ * region is selected.
  *
  * @author Norman Fomferra
  * @since BEAM 4.10
@@ -66,6 +75,8 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
     private MagicWandForm form;
 
     private boolean modelModified;
+    private RegionOverlay regionOverlay;
+    private SpectrumPicker spectrumPicker;
 
     public MagicWandInteractor() {
         layerListener = new MyLayerListener();
@@ -107,25 +118,6 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
         return optionsWindow;
     }
 
-    static double[] getSpectrum(List<Band> bands, int pixelX, int pixelY) throws IOException {
-        final double[] pixel = new double[1];
-        final double[] spectrum = new double[bands.size()];
-
-        for (int i = 0; i < bands.size(); i++) {
-            final Band band = bands.get(i);
-            band.readPixels(pixelX, pixelY, 1, 1, pixel, com.bc.ceres.core.ProgressMonitor.NULL);
-            final double value;
-            if (band.isPixelValid(pixelX, pixelY)) {
-                value = pixel[0];
-            } else {
-                value = Double.NaN;
-            }
-            spectrum[i] = value;
-        }
-
-        return spectrum;
-    }
-
     @Override
     public boolean activate() {
         if (optionsWindow == null) {
@@ -157,12 +149,71 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
 
     @Override
     public void mouseClicked(MouseEvent event) {
-
         final ProductSceneView view = SnapApp.getDefault().getSelectedProductSceneView();
         if (view == null) {
             return;
         }
 
+        Point pixelPos = getPixelPos(view.getProduct(), event);
+        if (pixelPos == null) {
+            return;
+        }
+
+        pickSpectrum(view, new Rectangle(pixelPos.x, pixelPos.y, 1, 1));
+    }
+
+    @Override
+    public void mousePressed(MouseEvent event) {
+        final ProductSceneView view = SnapApp.getDefault().getSelectedProductSceneView();
+        if (view != null) {
+            regionOverlay = new RegionOverlay(view, toModelPoint(event));
+            view.getLayerCanvas().addOverlay(regionOverlay);
+        }
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent event) {
+        if (regionOverlay != null) {
+            regionOverlay.setEndPoint(toModelPoint(event));
+        }
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent event) {
+        if (regionOverlay == null) {
+            return;
+        }
+        final RegionOverlay overlay = regionOverlay;
+        regionOverlay = null;
+        overlay.view.getLayerCanvas().removeOverlay(overlay);
+        if (overlay.endPoint == null) {
+            // not dragged, see mouseClicked()
+            return;
+        }
+
+        final Product product = overlay.view.getProduct();
+        final Point2D p1 = getImagePos(product, overlay.startPoint);
+        final Point2D p2 = getImagePos(product, toModelPoint(event));
+        if (p1 == null || p2 == null) {
+            return;
+        }
+        final int x1 = (int) Math.floor(Math.min(p1.getX(), p2.getX()));
+        final int y1 = (int) Math.floor(Math.min(p1.getY(), p2.getY()));
+        final int x2 = (int) Math.floor(Math.max(p1.getX(), p2.getX()));
+        final int y2 = (int) Math.floor(Math.max(p1.getY(), p2.getY()));
+        final Rectangle region = new Rectangle(x1, y1, x2 - x1 + 1, y2 - y1 + 1).intersection(
+                new Rectangle(product.getSceneRasterWidth(), product.getSceneRasterHeight()));
+        if (region.isEmpty()) {
+            return;
+        }
+
+        pickSpectrum(overlay.view, region);
+    }
+
+    /*
+     * Adds the spectrum of the given pixel region, i.e. the mean values of its valid pixels.
+     */
+    private void pickSpectrum(ProductSceneView view, Rectangle region) {
         final Product product = view.getProduct();
         if (!ensureBandNamesSet(view, product)) {
             return;
@@ -180,25 +231,12 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
             }
         }
 
-        Point pixelPos = getPixelPos(product, event);
-        if (pixelPos == null) {
+        if (spectrumPicker != null && !spectrumPicker.isDone()) {
+            // the previous spectrum is still being read
             return;
         }
-
-        final double[] spectrum;
-        try {
-            spectrum = getSpectrum(bands, pixelPos.x, pixelPos.y);
-        } catch (IOException e1) {
-            return;
-        }
-
-        MagicWandModel oldModel = getModel().clone();
-        getModel().addSpectrum(spectrum);
-        MagicWandModel newModel = getModel().clone();
-
-        ensureMaskVisible(view);
-
-        undoContext.postEdit(new MyUndoableEdit(oldModel, newModel));
+        spectrumPicker = new SpectrumPicker(view, bands, region);
+        spectrumPicker.execute();
     }
 
     void clearSpectra() {
@@ -237,18 +275,9 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
     }
 
     Point getPixelPos(Product product, MouseEvent event) {
-        final Point2D mp = toModelPoint(event);
-        final Point2D ip;
-        if (product.getGeoCoding() != null) {
-            AffineTransform transform = ImageManager.getImageToModelTransform(product.getGeoCoding());
-            try {
-                ip = transform.inverseTransform(mp, null);
-            } catch (NoninvertibleTransformException e) {
-                SnapDialogs.showError(DIALOG_TITLE, "A geographic transformation problem occurred:\n" + e.getMessage());
-                return null;
-            }
-        } else {
-            ip = mp;
+        final Point2D ip = getImagePos(product, toModelPoint(event));
+        if (ip == null) {
+            return null;
         }
 
         final int pixelX = (int) ip.getX();
@@ -263,6 +292,20 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
         return new Point(pixelX, pixelY);
     }
 
+    private static Point2D getImagePos(Product product, Point2D mp) {
+        if (product.getGeoCoding() != null) {
+            AffineTransform transform = ImageManager.getImageToModelTransform(product.getGeoCoding());
+            try {
+                return transform.inverseTransform(mp, null);
+            } catch (NoninvertibleTransformException e) {
+                SnapDialogs.showError(DIALOG_TITLE, "A geographic transformation problem occurred:\n" + e.getMessage());
+                return null;
+            }
+        } else {
+            return mp;
+        }
+    }
+
     private boolean ensureBandNamesSet(ProductSceneView view, Product product) {
         if (model.getBandCount() == 0) {
             model.setSpectralBandNames(product);
@@ -287,7 +330,7 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
     }
 
     private void updateMagicWandMask(Product product) {
-        MagicWandModel.setMagicWandMask(product, getModel().createMaskExpression());
+        MagicWandModel.setMagicWandMask(product, getModel());
     }
 
     private JDialog createOptionsWindow() {
@@ -330,6 +373,88 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
         }
     }
 
+    /**
+     * Shows the pixel region being picked by dragging the mouse.
+     */
+    private static class RegionOverlay implements LayerCanvas.Overlay {
+
+        private final ProductSceneView view;
+        private final Point2D startPoint;
+        private Point2D endPoint;
+
+        RegionOverlay(ProductSceneView view, Point2D startPoint) {
+            this.view = view;
+            this.startPoint = startPoint;
+        }
+
+        void setEndPoint(Point2D endPoint) {
+            this.endPoint = endPoint;
+            view.getLayerCanvas().repaint();
+        }
+
+        @Override
+        public void paintOverlay(LayerCanvas canvas, Rendering rendering) {
+            if (endPoint == null) {
+                return;
+            }
+            final AffineTransform m2v = canvas.getViewport().getModelToViewTransform();
+            final Point2D p1 = m2v.transform(startPoint, null);
+            final Point2D p2 = m2v.transform(endPoint, null);
+            final Graphics2D g2d = rendering.getGraphics();
+            final Color colorOld = g2d.getColor();
+            g2d.setColor(Color.RED);
+            g2d.draw(new Rectangle2D.Double(Math.min(p1.getX(), p2.getX()), Math.min(p1.getY(), p2.getY()),
+                                            Math.abs(p2.getX() - p1.getX()), Math.abs(p2.getY() - p1.getY())));
+            g2d.setColor(colorOld);
+        }
+    }
+
+    /**
+     * Reads a picked spectrum in the background and adds it to the model when done.
+     */
+    private class SpectrumPicker extends ProgressMonitorSwingWorker<double[], Void> {
+
+        private final ProductSceneView view;
+        private final List<Band> bands;
+        private final Rectangle region;
+
+        private SpectrumPicker(ProductSceneView view, List<Band> bands, Rectangle region) {
+            super(view, DIALOG_TITLE);
+            this.view = view;
+            this.bands = bands;
+            this.region = region;
+        }
+
+        @Override
+        protected double[] doInBackground(ProgressMonitor pm) throws Exception {
+            return SpectrumReader.readSpectrum(bands, region, pm);
+        }
+
+        @Override
+        protected void done() {
+            final double[] spectrum;
+            try {
+                spectrum = get();
+            } catch (InterruptedException | ExecutionException e) {
+                final Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                SnapDialogs.showError(DIALOG_TITLE, "Failed to read the spectrum:\n" + cause.getMessage());
+                return;
+            }
+            if (spectrum == null) {
+                // canceled
+                return;
+            }
+
+            MagicWandModel oldModel = getModel().clone();
+            getModel().addSpectrum(spectrum);
+            MagicWandModel newModel = getModel().clone();
+
+            ensureMaskVisible(view);
+
+            undoContext.postEdit(new MyUndoableEdit(oldModel, newModel));
+        }
+    }
+
     private class MyUndoableEdit extends AbstractUndoableEdit {
         private final MagicWandModel oldModel;
         private final MagicWandModel newModel;
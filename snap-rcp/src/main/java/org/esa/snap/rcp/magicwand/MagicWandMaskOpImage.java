@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.magicwand;
+
+import com.bc.ceres.glevel.MultiLevelImage;
+import com.bc.ceres.glevel.support.AbstractMultiLevelSource;
+import com.bc.ceres.glevel.support.DefaultMultiLevelImage;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.jai.ImageManager;
+import org.esa.snap.jai.ResolutionLevel;
+import org.esa.snap.jai.SingleBandedOpImage;
+
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The image of the magic wand mask, computed by a {@link MagicWandClassifier} directly from the geophysical
+ * images of the bands, instead of evaluating the equivalent band maths expression pixel by pixel.
+ * <p>
+ * A tile is computed in strips of rows. The samples of all bands and their valid masks are fetched once per strip
+ * and shared by all spectrum tests. Tiles are computed independently, hence in parallel by the JAI tile scheduler.
+ */
+class MagicWandMaskOpImage extends SingleBandedOpImage {
+
+    // the maximum number of band samples fetched at once, i.e. 8 MB
+    private static final int MAX_STRIP_SAMPLES = 1024 * 1024;
+
+    private final MagicWandClassifier classifier;
+    private final RenderedImage[] dataImages;
+    private final RenderedImage[] validMaskImages;
+
+    /**
+     * Creates the multi-level image of the given magic wand mask.
+     * <p>
+     * The image is only used while the mask's expression equals the given one. If the expression has been changed
+     * meanwhile, e.g. by the mask manager, the levels are created from the expression again.
+     *
+     * @param mask       the magic wand mask
+     * @param expression the expression equivalent to the classifier
+     * @param bands      the bands, in the order of the spectra of the classifier
+     * @param classifier the classifier
+     */
+    static MultiLevelImage createMaskImage(final Mask mask, final String expression,
+                                           final List<Band> bands, final MagicWandClassifier classifier) {
+        return new DefaultMultiLevelImage(new AbstractMultiLevelSource(ImageManager.getMultiLevelModel(mask)) {
+            @Override
+            protected RenderedImage createImage(int level) {
+                if (!expression.equals(mask.getImageConfig().getValue("expression"))) {
+                    return mask.getImageType().createImage(mask).getImage(level);
+                }
+                return new MagicWandMaskOpImage(mask, bands, classifier, ResolutionLevel.create(getModel(), level));
+            }
+        });
+    }
+
+    private MagicWandMaskOpImage(Mask mask, List<Band> bands, MagicWandClassifier classifier, ResolutionLevel level) {
+        super(DataBuffer.TYPE_BYTE,
+              mask.getSceneRasterWidth(),
+              mask.getSceneRasterHeight(),
+              ImageManager.getPreferredTileSize(mask.getProduct()),
+              null,
+              level);
+        this.classifier = classifier;
+        dataImages = new RenderedImage[bands.size()];
+        validMaskImages = new RenderedImage[bands.size()];
+        for (int i = 0; i < bands.size(); i++) {
+            final Band band = bands.get(i);
+            dataImages[i] = band.getGeophysicalImage().getImage(level.getIndex());
+            final MultiLevelImage validMaskImage = band.getValidMaskImage();
+            validMaskImages[i] = validMaskImage != null ? validMaskImage.getImage(level.getIndex()) : null;
+        }
+    }
+
+    @Override
+    protected void computeRect(PlanarImage[] sourceImages, WritableRaster tile, Rectangle destRect) {
+        final int bandCount = dataImages.length;
+        final int width = destRect.width;
+        if (classifier.isEmpty()) {
+            tile.setSamples(destRect.x, destRect.y, width, destRect.height, 0, new int[width * destRect.height]);
+            return;
+        }
+
+        final int stripHeight = Math.max(1, Math.min(destRect.height, MAX_STRIP_SAMPLES / Math.max(1, width * bandCount)));
+        final double[][] samples = new double[bandCount][width * stripHeight];
+        final int[] valid = new int[width * stripHeight];
+        final int[] validMaskSamples = new int[width * stripHeight];
+        final int[] maskSamples = new int[width * stripHeight];
+        final double[] spectrum = new double[bandCount];
+        final double[] buffer = new double[bandCount];
+
+        for (int y = destRect.y; y < destRect.y + destRect.height; y += stripHeight) {
+            final Rectangle strip = new Rectangle(destRect.x, y, width, Math.min(stripHeight, destRect.y + destRect.height - y));
+            final int n = strip.width * strip.height;
+            Arrays.fill(valid, 0, n, 1);
+            for (RenderedImage validMaskImage : validMaskImages) {
+                if (validMaskImage != null) {
+                    validMaskImage.getData(strip).getSamples(strip.x, strip.y, strip.width, strip.height, 0, validMaskSamples);
+                    for (int i = 0; i < n; i++) {
+                        valid[i] &= validMaskSamples[i] != 0 ? 1 : 0;
+                    }
+                }
+            }
+            for (int b = 0; b < bandCount; b++) {
+                dataImages[b].getData(strip).getSamples(strip.x, strip.y, strip.width, strip.height, 0, samples[b]);
+            }
+            for (int i = 0; i < n; i++) {
+                boolean selected = false;
+                if (valid[i] != 0) {
+                    for (int b = 0; b < bandCount; b++) {
+                        spectrum[b] = samples[b][i];
+                    }
+                    selected = classifier.isSelected(spectrum, buffer);
+                }
+                maskSamples[i] = selected ? 255 : 0;
+            }
+            tile.setSamples(strip.x, strip.y, strip.width, strip.height, 0, maskSamples);
+        }
+    }
+}
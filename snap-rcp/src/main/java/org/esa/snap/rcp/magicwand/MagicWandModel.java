@@ -282,7 +282,22 @@ public class MagicWandModel implements Cloneable {
         return bands;
     }
 
-    static void setMagicWandMask(Product product, String expression) {
+    /**
+     * Sets the magic wand mask of the given product according to the given model. The mask is stored with the
+     * expression created by {@link #createMaskExpression()}, while its image is computed by the classifier
+     * created by {@link #createClassifier()}.
+     */
+    static void setMagicWandMask(Product product, MagicWandModel model) {
+        final String expression = setMagicWandMask(product, model.createMaskExpression());
+        final List<Band> bands = model.getBands(product);
+        if (bands != null) {
+            final Mask magicWandMask = product.getMaskGroup().get(MAGIC_WAND_MASK_NAME);
+            magicWandMask.setSourceImage(MagicWandMaskOpImage.createMaskImage(magicWandMask, expression, bands,
+                                                                              model.createClassifier()));
+        }
+    }
+
+    private static String setMagicWandMask(Product product, String expression) {
 
         String validMaskExpression;
         try {
@@ -303,6 +318,7 @@ public class MagicWandModel implements Cloneable {
                             expression, "Magic wand mask",
                             Color.RED, 0.5);
         }
+        return expression;
     }
 
     String createMaskExpression() {
@@ -331,6 +347,33 @@ public class MagicWandModel implements Cloneable {
         }
     }
 
+    MagicWandClassifier createClassifier() {
+        return new MagicWandClassifier(bandNames.size(), spectrumTransform, normalize,
+                                       createSpectrumTest(plusSpectra), createSpectrumTest(minusSpectra));
+    }
+
+    private MagicWandClassifier.SpectrumTest createSpectrumTest(List<double[]> spectra) {
+        if (spectra.isEmpty()) {
+            return null;
+        }
+        if (getPixelTest() == PixelTest.DISTANCE) {
+            final double[][] normSpectra = new double[spectra.size()][];
+            for (int i = 0; i < spectra.size(); i++) {
+                normSpectra[i] = getSpectrum(spectra.get(i), normalize);
+            }
+            return MagicWandClassifier.createDistanceTest(spectrumTransform, normSpectra, tolerance);
+        } else if (getPixelTest() == PixelTest.AVERAGE) {
+            final double[] avgSpectrum = getAvgSpectrum(bandNames.size(), spectra, normalize);
+            return MagicWandClassifier.createDistanceTest(spectrumTransform, new double[][]{avgSpectrum}, tolerance);
+        } else if (getPixelTest() == PixelTest.LIMITS) {
+            final double[] minSpectrum = getMinSpectrum(bandNames.size(), spectra, tolerance, normalize);
+            final double[] maxSpectrum = getMaxSpectrum(bandNames.size(), spectra, tolerance, normalize);
+            return MagicWandClassifier.createLimitsTest(spectrumTransform, minSpectrum, maxSpectrum);
+        } else {
+            throw new IllegalStateException("Unhandled method " + getPixelTest());
+        }
+    }
+
     private static String getDistancePart(List<String> bandNames, SpectrumTransform spectrumTransform, List<double[]> spectra, double tolerance, boolean normalize) {
         if (spectra.isEmpty()) {
             return null;
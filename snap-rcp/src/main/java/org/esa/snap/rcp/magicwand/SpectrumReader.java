@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.magicwand;
+
+import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.glevel.MultiLevelImage;
+import org.esa.snap.framework.datamodel.Band;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reads the spectrum picked by the magic wand, i.e. the geophysical values of the spectral bands at a pixel
+ * or averaged over a region of pixels.
+ * <p>
+ * The bands are read in parallel. The valid pixels of a band are summed up tile by tile, so the memory needed
+ * does not depend on the size of the region. The tiles read stay in the tile cache and are reused by subsequent
+ * picks and by the computation of the magic wand mask.
+ * <p>
+ * Reading a large region may take a while, hence it should not be done on the event dispatch thread.
+ */
+class SpectrumReader {
+
+    private static final ExecutorService bandReader = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                final Thread thread = new Thread(runnable, "Magic wand spectrum reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private SpectrumReader() {
+    }
+
+    /**
+     * @return the mean values of the valid pixels of the bands within the given region,
+     * {@code Double.NaN} if there are no valid pixels in a band, or {@code null} if reading has been canceled
+     * @throws IOException if a band could not be read
+     */
+    static double[] readSpectrum(List<Band> bands, Rectangle region, ProgressMonitor pm) throws IOException {
+        final List<Future<Double>> futures = new ArrayList<>(bands.size());
+        pm.beginTask("Reading spectrum...", bands.size());
+        try {
+            for (Band band : bands) {
+                futures.add(bandReader.submit(() -> readMean(band, region)));
+            }
+            final double[] spectrum = new double[bands.size()];
+            for (int i = 0; i < spectrum.length; i++) {
+                while (true) {
+                    if (pm.isCanceled()) {
+                        return null;
+                    }
+                    try {
+                        spectrum[i] = futures.get(i).get(100, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException ignored) {
+                        // check for cancellation again
+                    }
+                }
+                pm.worked(1);
+            }
+            return spectrum;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reading of spectrum interrupted.");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<Double> future : futures) {
+                future.cancel(true);
+            }
+            pm.done();
+        }
+    }
+
+    /*
+     * Returns the mean of the valid samples of the band within the region, summed up tile by tile.
+     * Returns NaN if the thread has been interrupted, the result is not used then.
+     */
+    static double readMean(Band band, Rectangle region) {
+        final MultiLevelImage image = band.getGeophysicalImage();
+        final MultiLevelImage validMaskImage = band.getValidMaskImage();
+        final boolean sameTiling = validMaskImage != null
+                                   && validMaskImage.getTileWidth() == image.getTileWidth()
+                                   && validMaskImage.getTileHeight() == image.getTileHeight()
+                                   && validMaskImage.getTileGridXOffset() == image.getTileGridXOffset()
+                                   && validMaskImage.getTileGridYOffset() == image.getTileGridYOffset();
+        final double[] samples = new double[image.getTileWidth()];
+        final int[] valid = new int[image.getTileWidth()];
+        double sum = 0.0;
+        long count = 0;
+        for (int tileY = image.YToTileY(region.y); tileY <= image.YToTileY(region.y + region.height - 1); tileY++) {
+            for (int tileX = image.XToTileX(region.x); tileX <= image.XToTileX(region.x + region.width - 1); tileX++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return Double.NaN;
+                }
+                final Raster tile = image.getTile(tileX, tileY);
+                final Rectangle part = tile.getBounds().intersection(region);
+                if (part.isEmpty()) {
+                    continue;
+                }
+                final Raster validTile;
+                if (validMaskImage == null) {
+                    validTile = null;
+                } else if (sameTiling) {
+                    validTile = validMaskImage.getTile(tileX, tileY);
+                } else {
+                    // a copy of the part of the valid mask, at most of the size of a tile
+                    validTile = validMaskImage.getData(part);
+                }
+                for (int y = part.y; y < part.y + part.height; y++) {
+                    tile.getSamples(part.x, y, part.width, 1, 0, samples);
+                    if (validTile != null) {
+                        validTile.getSamples(part.x, y, part.width, 1, 0, valid);
+                    }
+                    for (int i = 0; i < part.width; i++) {
+                        if (validTile == null || valid[i] != 0) {
+                            sum += samples[i];
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count > 0 ? sum / count : Double.NaN;
+    }
+}
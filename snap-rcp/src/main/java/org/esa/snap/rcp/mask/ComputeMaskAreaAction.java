@@ -16,13 +16,9 @@
 package org.esa.snap.rcp.mask;
 
 import com.bc.ceres.core.ProgressMonitor;
-import com.bc.ceres.glevel.MultiLevelImage;
 import com.bc.ceres.swing.progress.DialogProgressMonitor;
 import org.esa.snap.framework.datamodel.Band;
-import org.esa.snap.framework.datamodel.GeoCoding;
-import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.framework.datamodel.Mask;
-import org.esa.snap.framework.datamodel.PixelPos;
 import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.framework.datamodel.ProductNodeGroup;
 import org.esa.snap.framework.datamodel.RasterDataNode;
@@ -33,9 +29,9 @@ import org.esa.snap.framework.ui.ModalDialog;
 import org.esa.snap.framework.ui.product.ProductSceneView;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
+import org.esa.snap.rcp.mask.MaskAreaComputer.MaskAreaStatistics;
 import org.esa.snap.util.Debug;
 import org.esa.snap.util.math.MathUtils;
-import org.esa.snap.util.math.RsMathUtils;
 import org.openide.awt.ActionID;
 import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
@@ -50,17 +46,17 @@ import org.openide.util.WeakListeners;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
-import javax.swing.BoxLayout;
-import javax.swing.JComboBox;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
 import javax.swing.SwingWorker;
+import java.awt.BorderLayout;
 import java.awt.Dialog;
 import java.awt.GridBagConstraints;
-import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
-import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -136,36 +132,42 @@ public class ComputeMaskAreaAction extends AbstractAction implements LookupListe
             }
         }
         String[] maskNames = maskNameList.toArray(new String[maskNameList.size()]);
-        String maskName;
+        final List<String> selectedMaskNames;
         if (maskNames.length == 1) {
-            maskName = maskNames[0];
+            selectedMaskNames = maskNameList;
         } else {
-            JPanel panel = new JPanel();
-            BoxLayout boxLayout = new BoxLayout(panel, BoxLayout.X_AXIS);
-            panel.setLayout(boxLayout);
-            panel.add(new JLabel("Select Mask: "));
-            JComboBox<String> maskCombo = new JComboBox<>(maskNames);
-            panel.add(maskCombo);
+            JPanel panel = new JPanel(new BorderLayout(4, 4));
+            panel.add(new JLabel("Select Masks: "), BorderLayout.NORTH);
+            JList<String> maskList = new JList<>(maskNames);
+            maskList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+            maskList.setVisibleRowCount(Math.min(maskNames.length, 10));
+            if (maskNames.length > 0) {
+                maskList.setSelectedIndex(0);
+            }
+            panel.add(new JScrollPane(maskList), BorderLayout.CENTER);
             ModalDialog modalDialog = new ModalDialog(SnapApp.getDefault().getMainFrame(),
                                                       Bundle.CTL_ComputeMaskAreaAction_DialogTitle(), panel,
                                                       ModalDialog.ID_OK_CANCEL | ModalDialog.ID_HELP,
                                                       getHelpCtx().getHelpID());
-            if (modalDialog.show() == AbstractDialog.ID_OK) {
-                maskName = (String) maskCombo.getSelectedItem();
+            if (modalDialog.show() == AbstractDialog.ID_OK && !maskList.isSelectionEmpty()) {
+                selectedMaskNames = maskList.getSelectedValuesList();
             } else {
                 return;
             }
         }
-        final Mask mask = maskGroup.get(maskName);
-
-        RenderedImage maskImage = mask.getSourceImage();
-        if (maskImage == null) {
-            SnapDialogs.showError(Bundle.CTL_ComputeMaskAreaAction_DialogTitle(),
-                                  errMsgBase + "No Mask image available.");
-            return;
+        final List<Mask> masks = new ArrayList<>(selectedMaskNames.size());
+        for (String maskName : selectedMaskNames) {
+            final Mask mask = maskGroup.get(maskName);
+            RenderedImage maskImage = mask.getSourceImage();
+            if (maskImage == null) {
+                SnapDialogs.showError(Bundle.CTL_ComputeMaskAreaAction_DialogTitle(),
+                                      errMsgBase + "No Mask image available.");
+                return;
+            }
+            masks.add(mask);
         }
 
-        final SwingWorker<MaskAreaStatistics, Object> swingWorker = new MaskAreaSwingWorker(mask, errMsgBase);
+        final SwingWorker<MaskAreaStatistics[], Object> swingWorker = new MaskAreaSwingWorker(masks, errMsgBase);
         swingWorker.execute();
     }
 
@@ -187,161 +189,36 @@ public class ComputeMaskAreaAction extends AbstractAction implements LookupListe
     }
 
 
-    private static class MaskAreaStatistics {
-
-        private double earthRadius;
-        private double maskArea;
-        private double pixelAreaMin;
-        private double pixelAreaMax;
-        private int numPixels;
-
-        private MaskAreaStatistics(double earthRadius) {
-            this.earthRadius = earthRadius;
-            maskArea = 0.0;
-            pixelAreaMax = Double.NEGATIVE_INFINITY;
-            pixelAreaMin = Double.POSITIVE_INFINITY;
-            numPixels = 0;
-        }
-
-        public double getEarthRadius() {
-            return earthRadius;
-        }
-
-        public double getMaskArea() {
-            return maskArea;
-        }
+    private class MaskAreaSwingWorker extends SwingWorker<MaskAreaStatistics[], Object> {
 
-        public void setMaskArea(double maskArea) {
-            this.maskArea = maskArea;
-        }
-
-        public double getPixelAreaMin() {
-            return pixelAreaMin;
-        }
-
-        public void setPixelAreaMin(double pixelAreaMin) {
-            this.pixelAreaMin = pixelAreaMin;
-        }
-
-        public double getPixelAreaMax() {
-            return pixelAreaMax;
-        }
-
-        public void setPixelAreaMax(double pixelAreaMax) {
-            this.pixelAreaMax = pixelAreaMax;
-        }
-
-        public int getNumPixels() {
-            return numPixels;
-        }
-
-        public void setNumPixels(int numPixels) {
-            this.numPixels = numPixels;
-        }
-    }
-
-    private class MaskAreaSwingWorker extends SwingWorker<MaskAreaStatistics, Object> {
-
-        private final RasterDataNode mask;
+        private final List<Mask> masks;
         private final String errMsgBase;
 
-        private MaskAreaSwingWorker(RasterDataNode mask, String errMsgBase) {
-            this.mask = mask;
+        private MaskAreaSwingWorker(List<Mask> masks, String errMsgBase) {
+            this.masks = masks;
             this.errMsgBase = errMsgBase;
         }
 
         @Override
-        protected MaskAreaStatistics doInBackground() throws Exception {
+        protected MaskAreaStatistics[] doInBackground() throws Exception {
             ProgressMonitor pm = new DialogProgressMonitor(SnapApp.getDefault().getMainFrame(), "Computing Mask area",
                                                            Dialog.ModalityType.APPLICATION_MODAL);
-            return computeMaskAreaStatistics(pm);
-        }
-
-        private MaskAreaStatistics computeMaskAreaStatistics(ProgressMonitor pm) {
-            final MultiLevelImage maskImage = mask.getSourceImage();
-
-            final int minTileX = maskImage.getMinTileX();
-            final int minTileY = maskImage.getMinTileY();
-
-            final int numXTiles = maskImage.getNumXTiles();
-            final int numYTiles = maskImage.getNumYTiles();
-
-            final int w = mask.getSceneRasterWidth();
-            final int h = mask.getSceneRasterHeight();
-            final Rectangle imageRect = new Rectangle(0, 0, w, h);
-
-            final PixelPos[] pixelPoints = new PixelPos[5];
-            final GeoPos[] geoPoints = new GeoPos[5];
-            for (int i = 0; i < geoPoints.length; i++) {
-                pixelPoints[i] = new PixelPos();
-                geoPoints[i] = new GeoPos();
-            }
-
-            MaskAreaStatistics areaStatistics = new MaskAreaStatistics(RsMathUtils.MEAN_EARTH_RADIUS / 1000.0);
-            GeoCoding geoCoding = mask.getGeoCoding();
-
-            pm.beginTask("Computing Mask area...", numXTiles * numYTiles);
-            try {
-                for (int tileX = minTileX; tileX < minTileX + numXTiles; ++tileX) {
-                    for (int tileY = minTileY; tileY < minTileY + numYTiles; ++tileY) {
-                        if (pm.isCanceled()) {
-                            break;
-                        }
-                        final Rectangle tileRectangle = new Rectangle(
-                                maskImage.getTileGridXOffset() + tileX * maskImage.getTileWidth(),
-                                maskImage.getTileGridYOffset() + tileY * maskImage.getTileHeight(),
-                                maskImage.getTileWidth(), maskImage.getTileHeight());
-
-                        final Rectangle r = imageRect.intersection(tileRectangle);
-                        if (!r.isEmpty()) {
-                            Raster maskTile = maskImage.getTile(tileX, tileY);
-                            for (int y = r.y; y < r.y + r.height; y++) {
-                                for (int x = r.x; x < r.x + r.width; x++) {
-                                    if (maskTile.getSample(x, y, 0) != 0) {
-                                        // 0: pixel center point
-                                        pixelPoints[0].setLocation(x + 0.5f, y + 0.5f);
-                                        // 1 --> 2 : parallel (geogr. hor. line) crossing pixel center point
-                                        pixelPoints[1].setLocation(x + 0.0f, y + 0.5f);
-                                        pixelPoints[2].setLocation(x + 1.0f, y + 0.5f);
-                                        // 3 --> 4 : meridian (geogr. ver. line) crossing pixel center point
-                                        pixelPoints[3].setLocation(x + 0.5f, y + 0.0f);
-                                        pixelPoints[4].setLocation(x + 0.5f, y + 1.0f);
-
-                                        for (int i = 0; i < geoPoints.length; i++) {
-                                            geoCoding.getGeoPos(pixelPoints[i], geoPoints[i]);
-                                        }
-                                        double deltaLon = Math.abs(geoPoints[2].getLon() - geoPoints[1].getLon());
-                                        double deltaLat = Math.abs(geoPoints[4].getLat() - geoPoints[3].getLat());
-                                        double r2 = areaStatistics.getEarthRadius() * Math.cos(
-                                                geoPoints[0].getLat() * MathUtils.DTOR);
-                                        double a = r2 * deltaLon * MathUtils.DTOR;
-                                        double b = areaStatistics.getEarthRadius() * deltaLat * MathUtils.DTOR;
-                                        double pixelArea = a * b;
-                                        areaStatistics.setPixelAreaMin(
-                                                Math.min(areaStatistics.getPixelAreaMin(), pixelArea));
-                                        areaStatistics.setPixelAreaMax(
-                                                Math.max(areaStatistics.getPixelAreaMax(), pixelArea));
-                                        areaStatistics.setMaskArea(areaStatistics.getMaskArea() + a * b);
-                                        areaStatistics.setNumPixels(areaStatistics.getNumPixels() + 1);
-                                    }
-                                }
-                            }
-                        }
-                        pm.worked(1);
-                    }
-                }
-            } finally {
-                pm.done();
-            }
-            return areaStatistics;
+            return new MaskAreaComputer(masks).compute(pm);
         }
 
-
         @Override
         public void done() {
             try {
-                final MaskAreaStatistics areaStatistics = get();
-                if (areaStatistics.getNumPixels() == 0) {
+                final MaskAreaStatistics[] areaStatistics = get();
+                if (areaStatistics == null) {
+                    // canceled
+                    return;
+                }
+                int numPixels = 0;
+                for (MaskAreaStatistics statistics : areaStatistics) {
+                    numPixels += statistics.getNumPixels();
+                }
+                if (numPixels == 0) {
                     final String message = MessageFormat.format("{0}Mask is empty.", errMsgBase);
                     SnapDialogs.showError(Bundle.CTL_ComputeMaskAreaAction_DialogTitle(), message);
                 } else {
@@ -354,13 +231,8 @@ public class ComputeMaskAreaAction extends AbstractAction implements LookupListe
             }
         }
 
-        private void showResults(MaskAreaStatistics areaStatistics) {
+        private void showResults(MaskAreaStatistics[] areaStatistics) {
             final double roundFactor = 10000.0;
-            final double maskAreaR = MathUtils.round(areaStatistics.getMaskArea(), roundFactor);
-            final double meanPixelAreaR = MathUtils.round(areaStatistics.getMaskArea() / areaStatistics.getNumPixels(),
-                                                          roundFactor);
-            final double pixelAreaMinR = MathUtils.round(areaStatistics.getPixelAreaMin(), roundFactor);
-            final double pixelAreaMaxR = MathUtils.round(areaStatistics.getPixelAreaMax(), roundFactor);
 
             final JPanel content = GridBagUtils.createPanel();
             final GridBagConstraints gbc = new GridBagConstraints();
@@ -370,16 +242,34 @@ public class ComputeMaskAreaAction extends AbstractAction implements LookupListe
             gbc.gridy = 0;
             gbc.weightx = 0;
 
-            gbc.insets.top = 2;
-            addField(content, gbc, "Number of Mask pixels:", String.format("%15d", areaStatistics.getNumPixels()), "");
-            addField(content, gbc, "Mask area:", String.format("%15.3f", maskAreaR), "km^2");
-            addField(content, gbc, "Mean pixel area:", String.format("%15.3f", meanPixelAreaR), "km^2");
-            addField(content, gbc, "Minimum pixel area:", String.format("%15.3f", pixelAreaMinR), "km^2");
-            addField(content, gbc, "Maximum pixel area:", String.format("%15.3f", pixelAreaMaxR), "km^2");
+            for (int i = 0; i < areaStatistics.length; i++) {
+                final MaskAreaStatistics statistics = areaStatistics[i];
+                final boolean empty = statistics.getNumPixels() == 0;
+                final double maskAreaR = MathUtils.round(statistics.getMaskArea(), roundFactor);
+                final double meanPixelAreaR = empty ? 0.0 : MathUtils.round(statistics.getMaskArea() / statistics.getNumPixels(),
+                                                                            roundFactor);
+                final double pixelAreaMinR = empty ? 0.0 : MathUtils.round(statistics.getPixelAreaMin(), roundFactor);
+                final double pixelAreaMaxR = empty ? 0.0 : MathUtils.round(statistics.getPixelAreaMax(), roundFactor);
+
+                if (areaStatistics.length > 1) {
+                    gbc.insets.top = i > 0 ? 8 : 2;
+                    gbc.gridwidth = 3;
+                    content.add(new JLabel(masks.get(i).getDisplayName()), gbc);
+                    gbc.gridwidth = 1;
+                    gbc.gridy++;
+                }
+                gbc.insets.top = 2;
+                addField(content, gbc, "Number of Mask pixels:", String.format("%15d", statistics.getNumPixels()), "");
+                addField(content, gbc, "Mask area:", String.format("%15.3f", maskAreaR), "km^2");
+                addField(content, gbc, "Mean pixel area:", String.format("%15.3f", meanPixelAreaR), "km^2");
+                addField(content, gbc, "Minimum pixel area:", String.format("%15.3f", pixelAreaMinR), "km^2");
+                addField(content, gbc, "Maximum pixel area:", String.format("%15.3f", pixelAreaMaxR), "km^2");
+            }
             gbc.insets.top = 8;
-            addField(content, gbc, "Mean earth radius:", String.format("%15.3f", areaStatistics.getEarthRadius()), "km");
+            addField(content, gbc, "Mean earth radius:", String.format("%15.3f", areaStatistics[0].getEarthRadius()), "km");
+            final String title = masks.size() == 1 ? masks.get(0).getDisplayName() : masks.size() + " Masks";
             final ModalDialog dialog = new ModalDialog(SnapApp.getDefault().getMainFrame(),
-                                                       Bundle.CTL_ComputeMaskAreaAction_DialogTitle() + " - " + mask.getDisplayName(),
+                                                       Bundle.CTL_ComputeMaskAreaAction_DialogTitle() + " - " + title,
                                                        content,
                                                        ModalDialog.ID_OK | ModalDialog.ID_HELP,
                                                        getHelpCtx().getHelpID());
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.mask;
+
+import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.glevel.MultiLevelImage;
+import org.esa.snap.framework.datamodel.CrsGeoCoding;
+import org.esa.snap.framework.datamodel.GeoCoding;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.util.math.MathUtils;
+import org.esa.snap.util.math.RsMathUtils;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the spatial area of one or more masks of the same size in a single pass over their tiles.
+ * <p>
+ * The tiles are processed in parallel on a fork-join pool, the partial statistics of the tiles are merged.
+ * The area of a pixel is computed from the geo-positions of the centres of its edges. It is computed once per
+ * pixel for all masks, and only for the pixels contained in any mask. The geo-positions of the pixel edges are
+ * shared by adjacent mask pixels of a row and of consecutive rows. If the geo-coding is an axis-parallel
+ * geographic grid, the pixel area only depends on the row and is looked up in a table computed in advance.
+ */
+class MaskAreaComputer {
+
+    static final double EARTH_RADIUS = RsMathUtils.MEAN_EARTH_RADIUS / 1000.0;
+
+    private final RasterDataNode[] masks;
+    private final GeoCoding geoCoding;
+    private final int width;
+    private final int height;
+    // the pixel area by row, null if the area varies along a row
+    private double[] rowAreas;
+
+    /**
+     * @param masks the masks, all of the same size and with the same geo-coding
+     */
+    MaskAreaComputer(List<? extends RasterDataNode> masks) {
+        this.masks = masks.toArray(new RasterDataNode[masks.size()]);
+        geoCoding = this.masks[0].getGeoCoding();
+        width = this.masks[0].getSceneRasterWidth();
+        height = this.masks[0].getSceneRasterHeight();
+    }
+
+    /**
+     * @return the statistics of the masks, in the order given, or {@code null} if the computation has been canceled
+     * @throws InterruptedException if the thread has been interrupted
+     * @throws ExecutionException   if a tile could not be computed
+     */
+    MaskAreaStatistics[] compute(ProgressMonitor pm) throws InterruptedException, ExecutionException {
+        final MultiLevelImage maskImage = masks[0].getSourceImage();
+        final int minTileX = maskImage.getMinTileX();
+        final int minTileY = maskImage.getMinTileY();
+        final int numXTiles = maskImage.getNumXTiles();
+        final int numYTiles = maskImage.getNumYTiles();
+
+        final MaskAreaStatistics[] statistics = createStatistics();
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        final CompletionService<MaskAreaStatistics[]> completionService = new ExecutorCompletionService<>(pool);
+        final List<Future<MaskAreaStatistics[]>> futures = new ArrayList<>(numXTiles * numYTiles);
+        pm.beginTask("Computing Mask area...", numXTiles * numYTiles + 1);
+        try {
+            if (isAreaConstantAlongRows(geoCoding)) {
+                rowAreas = computeRowAreas();
+            }
+            pm.worked(1);
+            for (int tileY = minTileY; tileY < minTileY + numYTiles; ++tileY) {
+                for (int tileX = minTileX; tileX < minTileX + numXTiles; ++tileX) {
+                    final int tx = tileX;
+                    final int ty = tileY;
+                    futures.add(completionService.submit(() -> computeTile(tx, ty)));
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                if (pm.isCanceled()) {
+                    return null;
+                }
+                final MaskAreaStatistics[] tileStatistics = completionService.take().get();
+                for (int m = 0; m < statistics.length; m++) {
+                    statistics[m].add(tileStatistics[m]);
+                }
+                pm.worked(1);
+            }
+        } finally {
+            for (Future<MaskAreaStatistics[]> future : futures) {
+                future.cancel(true);
+            }
+            pool.shutdownNow();
+            pm.done();
+        }
+        return statistics;
+    }
+
+    private MaskAreaStatistics[] createStatistics() {
+        final MaskAreaStatistics[] statistics = new MaskAreaStatistics[masks.length];
+        for (int m = 0; m < masks.length; m++) {
+            statistics[m] = new MaskAreaStatistics(EARTH_RADIUS);
+        }
+        return statistics;
+    }
+
+    private MaskAreaStatistics[] computeTile(int tileX, int tileY) {
+        final MaskAreaStatistics[] statistics = createStatistics();
+        final MultiLevelImage maskImage = masks[0].getSourceImage();
+        final Rectangle tileRectangle = new Rectangle(
+                maskImage.getTileGridXOffset() + tileX * maskImage.getTileWidth(),
+                maskImage.getTileGridYOffset() + tileY * maskImage.getTileHeight(),
+                maskImage.getTileWidth(), maskImage.getTileHeight());
+        final Rectangle r = new Rectangle(0, 0, width, height).intersection(tileRectangle);
+        if (r.isEmpty()) {
+            return statistics;
+        }
+
+        final Raster[] maskTiles = new Raster[masks.length];
+        for (int m = 0; m < masks.length; m++) {
+            maskTiles[m] = getMaskData(masks[m].getSourceImage(), maskImage, tileX, tileY, r);
+        }
+        final int[][] samples = new int[masks.length][r.width];
+        final boolean[] masked = new boolean[r.width];
+        final PixelAreaRow areaRow = rowAreas == null ? new PixelAreaRow(r.x, r.width) : null;
+        for (int y = r.y; y < r.y + r.height; y++) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            boolean rowMasked = false;
+            Arrays.fill(masked, false);
+            for (int m = 0; m < masks.length; m++) {
+                maskTiles[m].getSamples(r.x, y, r.width, 1, 0, samples[m]);
+                for (int i = 0; i < r.width; i++) {
+                    if (samples[m][i] != 0) {
+                        masked[i] = true;
+                        rowMasked = true;
+                    }
+                }
+            }
+            if (!rowMasked) {
+                continue;
+            }
+            final double[] areas = areaRow != null ? areaRow.compute(y, masked) : null;
+            for (int m = 0; m < masks.length; m++) {
+                for (int i = 0; i < r.width; i++) {
+                    if (samples[m][i] != 0) {
+                        statistics[m].add(areas != null ? areas[i] : rowAreas[y]);
+                    }
+                }
+            }
+        }
+        return statistics;
+    }
+
+    /*
+     * Returns the tile of a mask image, or a copy of its data if the image is tiled differently than the first one.
+     */
+    private static Raster getMaskData(MultiLevelImage image, MultiLevelImage firstImage, int tileX, int tileY, Rectangle r) {
+        if (image.getTileWidth() == firstImage.getTileWidth() && image.getTileHeight() == firstImage.getTileHeight()
+            && image.getTileGridXOffset() == firstImage.getTileGridXOffset()
+            && image.getTileGridYOffset() == firstImage.getTileGridYOffset()) {
+            return image.getTile(tileX, tileY);
+        }
+        return image.getData(r);
+    }
+
+    private static boolean isAreaConstantAlongRows(GeoCoding geoCoding) {
+        if (!(geoCoding instanceof CrsGeoCoding) || !(geoCoding.getMapCRS() instanceof GeographicCRS)) {
+            return false;
+        }
+        final MathTransform imageToMap = geoCoding.getImageToMapTransform();
+        return imageToMap instanceof AffineTransform
+               && ((AffineTransform) imageToMap).getShearX() == 0.0
+               && ((AffineTransform) imageToMap).getShearY() == 0.0;
+    }
+
+    private double[] computeRowAreas() {
+        final double[] areas = new double[height];
+        final PixelAreaRow areaRow = new PixelAreaRow(0, 1);
+        final boolean[] masked = {true};
+        for (int y = 0; y < height; y++) {
+            areas[y] = areaRow.compute(y, masked)[0];
+        }
+        return areas;
+    }
+
+    /**
+     * Computes the areas of the masked pixels of a row segment. The geo-positions of the vertical pixel edges are
+     * computed once for adjacent pixels, those of the lower pixel edges are kept for the following row.
+     */
+    private class PixelAreaRow {
+
+        private final int x0;
+        private final double[] areas;
+        private final double[] lons;
+        private final double[] lowerLats;
+        // the row of the longitudes and the row below the lower latitudes, by pixel
+        private final int[] lonRows;
+        private final int[] lowerLatRows;
+        private final PixelPos pixelPos = new PixelPos();
+        private final GeoPos geoPos = new GeoPos();
+
+        PixelAreaRow(int x0, int width) {
+            this.x0 = x0;
+            areas = new double[width];
+            lons = new double[width + 1];
+            lowerLats = new double[width];
+            lonRows = new int[width + 1];
+            lowerLatRows = new int[width];
+            Arrays.fill(lonRows, Integer.MIN_VALUE);
+            Arrays.fill(lowerLatRows, Integer.MIN_VALUE);
+        }
+
+        /**
+         * @param masked whether a pixel is masked, the areas of the other pixels are not computed
+         * @return the areas of the pixels, valid for the masked pixels only
+         */
+        double[] compute(int y, boolean[] masked) {
+            for (int i = 0; i < areas.length; i++) {
+                if (!masked[i]) {
+                    continue;
+                }
+                // 1 --> 2 : parallel (geogr. hor. line) crossing pixel center point
+                final double deltaLon = Math.abs(getLon(i + 1, y) - getLon(i, y));
+                // 3 --> 4 : meridian (geogr. ver. line) crossing pixel center point
+                final double upperLat = lowerLatRows[i] == y ? lowerLats[i] : getGeoPos(x0 + i + 0.5, y).getLat();
+                lowerLats[i] = getGeoPos(x0 + i + 0.5, y + 1.0).getLat();
+                lowerLatRows[i] = y + 1;
+                final double deltaLat = Math.abs(lowerLats[i] - upperLat);
+                // 0: pixel center point
+                final double centerLat = getGeoPos(x0 + i + 0.5, y + 0.5).getLat();
+                final double a = EARTH_RADIUS * Math.cos(centerLat * MathUtils.DTOR) * deltaLon * MathUtils.DTOR;
+                final double b = EARTH_RADIUS * deltaLat * MathUtils.DTOR;
+                areas[i] = a * b;
+            }
+            return areas;
+        }
+
+        private double getLon(int i, int y) {
+            if (lonRows[i] != y) {
+                lons[i] = getGeoPos(x0 + i, y + 0.5).getLon();
+                lonRows[i] = y;
+            }
+            return lons[i];
+        }
+
+        private GeoPos getGeoPos(double x, double y) {
+            pixelPos.setLocation(x, y);
+            return geoCoding.getGeoPos(pixelPos, geoPos);
+        }
+    }
+
+    static class MaskAreaStatistics {
+
+        private final double earthRadius;
+        private double maskArea;
+        private double pixelAreaMin;
+        private double pixelAreaMax;
+        private int numPixels;
+
+        MaskAreaStatistics(double earthRadius) {
+            this.earthRadius = earthRadius;
+            maskArea = 0.0;
+            pixelAreaMax = Double.NEGATIVE_INFINITY;
+            pixelAreaMin = Double.POSITIVE_INFINITY;
+            numPixels = 0;
+        }
+
+        public double getEarthRadius() {
+            return earthRadius;
+        }
+
+        public double getMaskArea() {
+            return maskArea;
+        }
+
+        public double getPixelAreaMin() {
+            return pixelAreaMin;
+        }
+
+        public double getPixelAreaMax() {
+            return pixelAreaMax;
+        }
+
+        public int getNumPixels() {
+            return numPixels;
+        }
+
+        void add(double pixelArea) {
+            pixelAreaMin = Math.min(pixelAreaMin, pixelArea);
+            pixelAreaMax = Math.max(pixelAreaMax, pixelArea);
+            maskArea += pixelArea;
+            numPixels++;
+        }
+
+        void add(MaskAreaStatistics other) {
+            pixelAreaMin = Math.min(pixelAreaMin, other.pixelAreaMin);
+            pixelAreaMax = Math.max(pixelAreaMax, other.pixelAreaMax);
+            maskArea += other.maskArea;
+            numPixels += other.numPixels;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.esa.snap.rcp.metadata;
 
 import org.esa.snap.framework.datamodel.MetadataElement;
+import org.esa.snap.framework.ui.product.metadata.MetadataSearchIndex;
 import org.esa.snap.framework.ui.product.metadata.MetadataTableInnerElement;
 import org.esa.snap.netbeans.docwin.DocumentTopComponent;
 import org.esa.snap.netbeans.docwin.WindowUtilities;
@@ -8,9 +9,27 @@ import org.netbeans.swing.outline.Outline;
 import org.openide.explorer.ExplorerManager;
 import org.openide.explorer.view.OutlineView;
 import org.openide.nodes.Node;
+import org.openide.util.Exceptions;
 
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.TableColumnModel;
 import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.beans.PropertyVetoException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class MetadataViewTopComponent extends DocumentTopComponent<MetadataElement, OutlineView> implements ExplorerManager.Provider {
 
@@ -32,6 +51,14 @@ public class MetadataViewTopComponent extends DocumentTopComponent<MetadataEleme
     private static final String nodesColumnName = "Name";
     private ExplorerManager em = new ExplorerManager();
     private OutlineView outlineView;
+    private JTextField searchField;
+    private JLabel hitLabel;
+    private Timer searchTimer;
+    // created on the first search
+    private MetadataSearchIndex searchIndex;
+    private boolean indexing;
+    private List<MetadataSearchIndex.Hit> hits = Collections.emptyList();
+    private int hitIndex;
 
     public MetadataViewTopComponent(MetadataElement element) {
         super(element);
@@ -61,6 +88,97 @@ public class MetadataViewTopComponent extends DocumentTopComponent<MetadataEleme
             columnModel.getColumn(i).setPreferredWidth(columnWidths[i]);
         }
         add(outlineView, BorderLayout.CENTER);
+        add(createSearchPanel(), BorderLayout.NORTH);
+    }
+
+    private JPanel createSearchPanel() {
+        searchField = new JTextField(24);
+        searchField.setToolTipText("Find attributes by name or value. Press Enter for the next hit, Shift+Enter for the previous one.");
+        hitLabel = new JLabel();
+        searchTimer = new Timer(300, e -> search());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        searchField.addActionListener(e -> showNextHit(1));
+        // not bound by the text field, the look and feel may bind it to another action or to none
+        searchField.getInputMap().put(KeyStroke.getKeyStroke("shift ENTER"), "showPreviousHit");
+        searchField.getActionMap().put("showPreviousHit", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showNextHit(-1);
+            }
+        });
+        final JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEADING, 4, 2));
+        searchPanel.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
+        searchPanel.add(new JLabel("Search:"));
+        searchPanel.add(searchField);
+        searchPanel.add(hitLabel);
+        return searchPanel;
+    }
+
+    private void showNextHit(int step) {
+        if (searchTimer.isRunning()) {
+            searchTimer.stop();
+            search();
+        } else if (!hits.isEmpty()) {
+            showHit((hitIndex + step + hits.size()) % hits.size());
+        }
+    }
+
+    private void search() {
+        if (searchIndex == null) {
+            if (!indexing) {
+                indexing = true;
+                hitLabel.setText("Indexing...");
+                new IndexWorker().execute();
+            }
+            return;
+        }
+        hits = searchIndex.search(searchField.getText());
+        if (hits.isEmpty()) {
+            hitLabel.setText(searchField.getText().trim().isEmpty() ? "" : "No attribute found");
+        } else {
+            showHit(0);
+        }
+    }
+
+    /*
+     * Expands the tree along the path of the hit and selects its node.
+     */
+    private void showHit(int index) {
+        hitIndex = index;
+        hitLabel.setText(String.format("%d of %d", index + 1, hits.size()));
+        final Node rootNode = em.getRootContext();
+        final Node node = MetadataSearchIndex.findNode(rootNode, hits.get(index));
+        if (node == null) {
+            return;
+        }
+        final List<Node> ancestors = new ArrayList<>();
+        for (Node parent = node.getParentNode(); parent != null && parent != rootNode; parent = parent.getParentNode()) {
+            ancestors.add(0, parent);
+        }
+        for (Node ancestor : ancestors) {
+            outlineView.expandNode(ancestor);
+        }
+        try {
+            em.setSelectedNodes(new Node[]{node});
+        } catch (PropertyVetoException e) {
+            Exceptions.printStackTrace(e);
+        }
     }
 
     private void updateDisplayName() {
@@ -73,5 +191,24 @@ public class MetadataViewTopComponent extends DocumentTopComponent<MetadataEleme
         return em;
     }
 
+    private class IndexWorker extends SwingWorker<MetadataSearchIndex, Void> {
+
+        @Override
+        protected MetadataSearchIndex doInBackground() throws Exception {
+            return MetadataSearchIndex.create(getDocument());
+        }
+
+        @Override
+        protected void done() {
+            indexing = false;
+            try {
+                searchIndex = get();
+                search();
+            } catch (InterruptedException | ExecutionException e) {
+                hitLabel.setText("Search failed");
+                Exceptions.printStackTrace(e);
+            }
+        }
+    }
 
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.pixelinfo;
+
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.jai.ImageManager;
+
+import javax.media.jai.PlanarImage;
+import java.awt.image.Raster;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Samples the rasters of a product at a single pixel position.
+ * <p>
+ * The tile covering the pixel is fetched only once per image and is kept as long as the pixel stays within
+ * the same tile. So a refresh of the pixel info view touches every source and valid-mask image at most once,
+ * and moving the cursor within a tile does not fetch any tile at all.
+ * <p>
+ * Instances are not thread-safe. They are meant to be used by the single thread running the pixel info updates.
+ */
+class PixelInfoSampler {
+
+    private final Map<PlanarImage, Raster> tileCache;
+    private int pixelX;
+    private int pixelY;
+    private int level;
+    private int tileX;
+    private int tileY;
+    private int tileWidth;
+    private int tileHeight;
+
+    PixelInfoSampler() {
+        tileCache = new IdentityHashMap<>();
+        level = -1;
+    }
+
+    /**
+     * Sets the pixel position for the subsequent sample requests. Cached tiles are kept if
+     * the new position is located within the same tile as the previous one.
+     *
+     * @param pixelX the pixel X-coordinate at the given level
+     * @param pixelY the pixel Y-coordinate at the given level
+     * @param level  the resolution level
+     */
+    void setPixelPos(int pixelX, int pixelY, int level) {
+        if (level != this.level || !isInCurrentTile(pixelX, pixelY)) {
+            tileCache.clear();
+            this.level = level;
+            tileWidth = 0;
+            tileHeight = 0;
+        }
+        this.pixelX = pixelX;
+        this.pixelY = pixelY;
+    }
+
+    /**
+     * Forgets all cached tiles, e.g. because the data of a raster has changed.
+     */
+    void invalidate() {
+        tileCache.clear();
+        level = -1;
+        tileWidth = 0;
+        tileHeight = 0;
+    }
+
+    int getNumCachedTiles() {
+        return tileCache.size();
+    }
+
+    boolean isPixelValid(RasterDataNode raster) {
+        if (!raster.isValidMaskUsed()) {
+            return true;
+        }
+        final Raster data = getTile(ImageManager.getInstance().getValidMaskImage(raster, level));
+        return data != null && data.getSample(pixelX, pixelY, 0) != 0;
+    }
+
+    double getGeophysicalSampleAsDouble(RasterDataNode raster) {
+        final Raster data = getTile(ImageManager.getInstance().getSourceImage(raster, level));
+        if (data == null) {
+            return Double.NaN;
+        }
+        final double sample;
+        final int dataType = raster.getDataType();
+        if (dataType == ProductData.TYPE_INT8) {
+            sample = (byte) data.getSample(pixelX, pixelY, 0);
+        } else if (dataType == ProductData.TYPE_UINT32) {
+            sample = data.getSample(pixelX, pixelY, 0) & 0xFFFFFFFFL;
+        } else {
+            sample = data.getSampleDouble(pixelX, pixelY, 0);
+        }
+        return raster.isScalingApplied() ? raster.scale(sample) : sample;
+    }
+
+    long getGeophysicalSampleAsLong(RasterDataNode raster) {
+        final Raster data = getTile(ImageManager.getInstance().getSourceImage(raster, level));
+        if (data == null) {
+            return 0L;
+        }
+        final long sample;
+        final int dataType = raster.getDataType();
+        if (dataType == ProductData.TYPE_INT8) {
+            sample = (byte) data.getSample(pixelX, pixelY, 0);
+        } else if (dataType == ProductData.TYPE_UINT32) {
+            sample = data.getSample(pixelX, pixelY, 0) & 0xFFFFFFFFL;
+        } else {
+            sample = data.getSample(pixelX, pixelY, 0);
+        }
+        return raster.isScalingApplied() ? (long) raster.scale(sample) : sample;
+    }
+
+    /**
+     * Returns the geophysical value of the given raster at the current pixel position, formatted
+     * the same way as {@link RasterDataNode#getPixelString(int, int)} does.
+     *
+     * @param raster the raster
+     * @return the pixel value text
+     */
+    String getPixelString(RasterDataNode raster) {
+        if (!isPixelValid(raster)) {
+            return RasterDataNode.NO_DATA_TEXT;
+        }
+        if (raster.isScalingApplied() || ProductData.isFloatingPointType(raster.getDataType())) {
+            final int dataType = raster.getGeophysicalDataType();
+            if (dataType == ProductData.TYPE_FLOAT64) {
+                return String.format("%.10f", getGeophysicalSampleAsDouble(raster));
+            } else if (dataType == ProductData.TYPE_FLOAT32) {
+                return String.format("%.5f", getGeophysicalSampleAsDouble(raster));
+            }
+        }
+        return String.valueOf(getGeophysicalSampleAsLong(raster));
+    }
+
+    private Raster getTile(PlanarImage image) {
+        Raster tile = tileCache.get(image);
+        if (tile == null && !tileCache.containsKey(image)) {
+            tile = image.getTile(image.XToTileX(pixelX), image.YToTileY(pixelY));
+            tileCache.put(image, tile);
+            if (tile != null) {
+                narrowCurrentTile(tile);
+            }
+        }
+        return tile;
+    }
+
+    private boolean isInCurrentTile(int pixelX, int pixelY) {
+        return tileWidth > 0 && tileHeight > 0
+               && pixelX >= tileX && pixelX < tileX + tileWidth
+               && pixelY >= tileY && pixelY < tileY + tileHeight;
+    }
+
+    /*
+     * Images of one product may have different tilings. The cached tiles are only reused
+     * as long as the pixel is within the intersection of all of them.
+     */
+    private void narrowCurrentTile(Raster tile) {
+        final int minX = tile.getMinX();
+        final int minY = tile.getMinY();
+        final int maxX = minX + tile.getWidth();
+        final int maxY = minY + tile.getHeight();
+        if (tileWidth <= 0 || tileHeight <= 0) {
+            tileX = minX;
+            tileY = minY;
+            tileWidth = maxX - minX;
+            tileHeight = maxY - minY;
+        } else {
+            final int x1 = Math.max(tileX, minX);
+            final int y1 = Math.max(tileY, minY);
+            final int x2 = Math.min(tileX + tileWidth, maxX);
+            final int y2 = Math.min(tileY + tileHeight, maxY);
+            tileX = x1;
+            tileY = y1;
+            tileWidth = Math.max(0, x2 - x1);
+            tileHeight = Math.max(0, y2 - y1);
+        }
+    }
+}
@@ -17,12 +17,17 @@ package org.esa.snap.rcp.pixelinfo;
 
 import org.esa.snap.framework.ui.product.ProductSceneView;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
+ * Runs the updates of the pixel info view on a background thread.
+ * <p>
+ * Updates are event-driven: a new state is only processed if it differs from the last one or if an update
+ * has been explicitly requested. Pending states are coalesced, so if several states arrive while an update
+ * is running only the latest one is processed afterwards, and the running update is cancelled as soon as
+ * it is superseded. If nothing changes, no work is done at all.
+ *
  * @author Marco Zuehlke
  * @version $Revision$ $Date$
  * @since BEAM 4.5.2
@@ -30,16 +35,15 @@ import java.util.concurrent.TimeUnit;
 public class PixelInfoUpdateService {
 
     private final PixelInfoViewModelUpdater modelUpdater;
-    private final ScheduledExecutorService scheduledExecutorService;
-    private ScheduledFuture<?> updaterFuture;
+    private final ExecutorService executorService;
+    private final Runnable updaterRunnable;
     private PixelInfoState state;
-    private boolean needUpdate;
-    private int numUnchangedStates;
-    private Runnable updaterRunnable;
+    private volatile PixelInfoState pendingState;
+    private boolean updaterActive;
 
     public PixelInfoUpdateService(PixelInfoViewModelUpdater modelUpdater) {
         this.modelUpdater = modelUpdater;
-        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        this.executorService = Executors.newSingleThreadExecutor();
         state = PixelInfoState.INVALID;
         updaterRunnable = new UpdaterRunnable();
     }
@@ -47,8 +51,7 @@ public class PixelInfoUpdateService {
     synchronized void updateState(ProductSceneView view, int pixelX, int pixelY, int level, boolean pixelPosValid) {
         if (!state.equals(view, pixelX, pixelY, level, pixelPosValid)) {
             state = new PixelInfoState(view, pixelX, pixelY, level, pixelPosValid);
-            needUpdate = true;
-            assertTimerStarted();
+            scheduleUpdate();
         }
     }
 
@@ -56,48 +59,45 @@ public class PixelInfoUpdateService {
         if (state == PixelInfoState.INVALID) {
             return;
         }
-        needUpdate = true;
-        assertTimerStarted();
+        scheduleUpdate();
     }
 
     synchronized void clearState() {
         state = PixelInfoState.INVALID;
+        pendingState = null;
     }
 
-
-    private void assertTimerStarted() {
-        if (updaterFuture == null) {
-            updaterFuture = scheduledExecutorService.scheduleAtFixedRate(updaterRunnable, 100, 100, TimeUnit.MILLISECONDS);
+    private void scheduleUpdate() {
+        pendingState = state;
+        if (!updaterActive) {
+            updaterActive = true;
+            executorService.execute(updaterRunnable);
         }
     }
 
-    private synchronized void stopTimer() {
-        if (updaterFuture != null) {
-            updaterFuture.cancel(true);
-            updaterFuture = null;
+    private synchronized PixelInfoState takePendingState() {
+        final PixelInfoState nextState = pendingState;
+        pendingState = null;
+        if (nextState == null) {
+            updaterActive = false;
         }
-        clearState();
+        return nextState;
+    }
+
+    private boolean isSuperseded() {
+        return pendingState != null;
     }
 
     private class UpdaterRunnable implements Runnable {
         @Override
         public void run() {
-            if (state == PixelInfoState.INVALID) {
-                return;
-            }
-            if (needUpdate) {
-                numUnchangedStates = 0;
-                needUpdate = false;
+            PixelInfoState nextState;
+            while ((nextState = takePendingState()) != null) {
                 try {
-                    modelUpdater.update(state);
+                    modelUpdater.update(nextState, PixelInfoUpdateService.this::isSuperseded);
                 } catch (Throwable ignored) {
 
                 }
-            } else {
-                numUnchangedStates++;
-                if (numUnchangedStates > 100) {
-                    stopTimer();
-                }
             }
         }
     }
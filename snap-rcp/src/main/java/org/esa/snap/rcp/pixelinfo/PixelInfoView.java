@@ -162,6 +162,7 @@ public class PixelInfoView extends JPanel {
         return new ProductNodeListenerAdapter() {
             @Override
             public void nodeChanged(ProductNodeEvent event) {
+                modelUpdater.invalidateSamples();
                 updateService.requestUpdate();
             }
 
@@ -31,23 +31,26 @@ import org.esa.snap.framework.datamodel.RasterDataNode;
 import org.esa.snap.framework.datamodel.TiePointGrid;
 import org.esa.snap.framework.dataop.maptransf.MapTransform;
 import org.esa.snap.framework.ui.product.ProductSceneView;
-import org.esa.snap.jai.ImageManager;
 import org.esa.snap.util.Guardian;
 import org.esa.snap.util.ProductUtils;
+import org.esa.snap.util.SystemUtils;
 import org.esa.snap.util.math.MathUtils;
 import org.geotools.geometry.DirectPosition2D;
 import org.opengis.geometry.DirectPosition;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
 
-import javax.media.jai.PlanarImage;
 import javax.swing.SwingUtilities;
 import java.awt.Dimension;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
-import java.awt.image.Raster;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
 
 /**
  * @author Marco Zuehlke
@@ -68,10 +71,15 @@ public class PixelInfoViewModelUpdater {
     private volatile RasterDataNode currentRaster;
     private volatile ProductSceneView currentView;
     private Band[] currentFlagBands;
+    private final List<RasterDataNode> bandRowRasters;
+    private final List<RasterDataNode> tiePointRowRasters;
+    private final PixelInfoSampler sampler;
+    private volatile boolean samplerInvalid;
+    private volatile long updateCount;
+    private volatile long lastUpdateLatencyNanos;
+    private boolean clearRasterTableSelectionPending;
+    private BooleanSupplier cancelled = () -> false;
 
-    private int pixelX;
-    private int pixelY;
-    private int level;
     private int levelZeroX;
     private int levelZeroY;
     private boolean pixelPosValid;
@@ -90,6 +98,9 @@ public class PixelInfoViewModelUpdater {
         this.bandModel = bandModel;
         this.tiePointModel = tiePointModel;
         this.flagModel = flagModel;
+        this.bandRowRasters = new ArrayList<>();
+        this.tiePointRowRasters = new ArrayList<>();
+        this.sampler = new PixelInfoSampler();
     }
 
     Product getCurrentProduct() {
@@ -100,13 +111,60 @@ public class PixelInfoViewModelUpdater {
         return currentRaster;
     }
 
+    /**
+     * @return the number of refreshes performed so far
+     */
+    long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * @return the time in milliseconds the last refresh took
+     */
+    double getLastUpdateLatencyMillis() {
+        return lastUpdateLatencyNanos / 1.0e6;
+    }
+
+    /**
+     * Makes the next refresh fetch all pixel data again, e.g. because raster data has changed.
+     */
+    void invalidateSamples() {
+        samplerInvalid = true;
+    }
+
     void update(PixelInfoState state) {
         update(state.view, state.pixelX, state.pixelY, state.level, state.pixelPosValid);
     }
 
+    /**
+     * Updates the table models for the given state. The update is abandoned as soon as the given
+     * condition becomes true, in which case the table models are not fired.
+     *
+     * @param state     the pixel info state
+     * @param cancelled tells whether the update has been superseded by a newer one
+     */
+    void update(PixelInfoState state, BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+        try {
+            update(state);
+        } finally {
+            this.cancelled = () -> false;
+        }
+    }
+
     void update(ProductSceneView view, int pixelX, int pixelY, int level, boolean pixelPosValid) {
+        final long t0 = System.nanoTime();
+        updateImpl(view, pixelX, pixelY, level, pixelPosValid);
+        lastUpdateLatencyNanos = System.nanoTime() - t0;
+        updateCount++;
+        if (SystemUtils.LOG.isLoggable(Level.FINE)) {
+            SystemUtils.LOG.fine(String.format("Pixel info refresh #%d took %d ms",
+                                               updateCount, TimeUnit.NANOSECONDS.toMillis(lastUpdateLatencyNanos)));
+        }
+    }
+
+    private void updateImpl(ProductSceneView view, int pixelX, int pixelY, int level, boolean pixelPosValid) {
         Guardian.assertNotNull("view", view);
-        boolean clearRasterTableSelection = false;
         RasterDataNode raster = view.getRaster();
         final Product product = raster.getProduct();
         if (product == currentProduct && view.isRGB()) {
@@ -119,9 +177,11 @@ public class PixelInfoViewModelUpdater {
             }
             product.addProductNodeListener(productNodeListener);
             currentProduct = product;
+            samplerInvalid = true;
         }
         if (raster != currentRaster) {
             currentRaster = raster;
+            samplerInvalid = true;
             registerFlagDatasets();
             resetTableModels();
         }
@@ -131,11 +191,8 @@ public class PixelInfoViewModelUpdater {
         if (view != currentView) {
             currentView = view;
             resetTableModels();
-            clearRasterTableSelection = true;
+            clearRasterTableSelectionPending = true;
         }
-        this.pixelX = pixelX;
-        this.pixelY = pixelY;
-        this.level = level;
         this.pixelPosValid = pixelPosValid;
         AffineTransform i2mTransform = currentView.getBaseImageLayer().getImageToModelTransform(level);
         Point2D modelP = i2mTransform.transform(new Point2D.Double(pixelX + 0.5, pixelY + 0.5), null);
@@ -144,7 +201,12 @@ public class PixelInfoViewModelUpdater {
         levelZeroX = (int) Math.floor(levelZeroP.getX());
         levelZeroY = (int) Math.floor(levelZeroP.getY());
 
-        updateDataDisplay(clearRasterTableSelection);
+        if (samplerInvalid) {
+            samplerInvalid = false;
+            sampler.invalidate();
+        }
+        sampler.setPixelPos(pixelX, pixelY, level);
+        updateDataDisplay();
     }
 
     private void resetTableModels() {
@@ -168,7 +230,7 @@ public class PixelInfoViewModelUpdater {
         });
     }
 
-    private void updateDataDisplay(boolean clearRasterTableSelection) {
+    private void updateDataDisplay() {
         if (currentRaster == null) {
             return;
         }
@@ -187,7 +249,11 @@ public class PixelInfoViewModelUpdater {
         if (pixelInfoView.isCollapsiblePaneVisible(PixelInfoView.FLAGS_INDEX)) {
             updateFlagPixelValues();
         }
-        fireTableChanged(clearRasterTableSelection);
+        if (cancelled.getAsBoolean()) {
+            return;
+        }
+        fireTableChanged(clearRasterTableSelectionPending);
+        clearRasterTableSelectionPending = false;
     }
 
     private void resetPositionTableModel() {
@@ -307,21 +373,27 @@ public class PixelInfoViewModelUpdater {
 
     private void resetBandTableModel() {
         bandModel.clear();
+        bandRowRasters.clear();
         if (currentRaster != null) {
             final int numBands = currentProduct.getNumBands();
             for (int i = 0; i < numBands; i++) {
                 final Band band = currentProduct.getBandAt(i);
                 if (shouldDisplayBand(band)) {
                     bandModel.addRow(band.getName(), "", band.getUnit());
+                    bandRowRasters.add(band);
                 }
             }
         }
     }
 
     private void updateBandPixelValues() {
-        for (int i = 0; i < bandModel.getRowCount(); i++) {
-            final String bandName = (String) bandModel.getValueAt(i, 0);
-            bandModel.updateValue(getPixelString(currentProduct.getBand(bandName)), i);
+        updateRasterPixelValues(bandModel, bandRowRasters);
+    }
+
+    private void updateRasterPixelValues(PixelInfoViewTableModel model, List<RasterDataNode> rowRasters) {
+        final int rowCount = Math.min(model.getRowCount(), rowRasters.size());
+        for (int i = 0; i < rowCount && !cancelled.getAsBoolean(); i++) {
+            model.updateValue(getPixelString(rowRasters.get(i)), i);
         }
     }
 
@@ -362,22 +434,21 @@ public class PixelInfoViewModelUpdater {
 
     private void resetTiePointGridTableModel() {
         tiePointModel.clear();
+        tiePointRowRasters.clear();
         if (currentRaster != null) {
             final int numTiePointGrids = currentProduct.getNumTiePointGrids();
             for (int i = 0; i < numTiePointGrids; i++) {
                 final TiePointGrid tiePointGrid = currentProduct.getTiePointGridAt(i);
                 if (equalsViewRasterSize(tiePointGrid.getSceneRasterSize())) {
                     tiePointModel.addRow(tiePointGrid.getName(), "", tiePointGrid.getUnit());
+                    tiePointRowRasters.add(tiePointGrid);
                 }
             }
         }
     }
 
     private void updateTiePointGridPixelValues() {
-        for (int i = 0; i < tiePointModel.getRowCount(); i++) {
-            final TiePointGrid grid = currentProduct.getTiePointGrid((String) tiePointModel.getValueAt(i, 0));
-            tiePointModel.updateValue(getPixelString(grid), i);
-        }
+        updateRasterPixelValues(tiePointModel, tiePointRowRasters);
     }
 
     private void resetFlagTableModel() {
@@ -403,7 +474,7 @@ public class PixelInfoViewModelUpdater {
         }
         int rowIndex = 0;
         for (Band band : currentFlagBands) {
-            long pixelValue = available ? ProductUtils.getGeophysicalSampleAsLong(band, pixelX, pixelY, level) : 0;
+            long pixelValue = available ? sampler.getGeophysicalSampleAsLong(band) : 0;
 
             for (int j = 0; j < band.getFlagCoding().getNumAttributes(); j++) {
                 if (available) {
@@ -448,37 +519,7 @@ public class PixelInfoViewModelUpdater {
         if (!pixelPosValid) {
             return RasterDataNode.INVALID_POS_TEXT;
         }
-        if (isPixelValid(raster, pixelX, pixelY, level)) {
-            if (raster.isScalingApplied() || ProductData.isFloatingPointType(raster.getDataType())) {
-                int dataType = raster.getGeophysicalDataType();
-                if (dataType == ProductData.TYPE_FLOAT64) {
-                    double pixel = ProductUtils.getGeophysicalSampleAsDouble(raster, pixelX, pixelY, level);
-                    return String.format("%.10f", pixel);
-                } else if (dataType == ProductData.TYPE_FLOAT32) {
-                    double pixel = ProductUtils.getGeophysicalSampleAsDouble(raster, pixelX, pixelY, level);
-                    return String.format("%.5f", pixel);
-                }
-            }
-            return String.valueOf(ProductUtils.getGeophysicalSampleAsLong(raster, pixelX, pixelY, level));
-        } else {
-            return RasterDataNode.NO_DATA_TEXT;
-        }
-    }
-
-    private boolean isPixelValid(RasterDataNode raster, int pixelX, int pixelY, int level) {
-        if (raster.isValidMaskUsed()) {
-            PlanarImage image = ImageManager.getInstance().getValidMaskImage(raster, level);
-            Raster data = getRasterTile(image, pixelX, pixelY);
-            return data.getSample(pixelX, pixelY, 0) != 0;
-        } else {
-            return true;
-        }
-    }
-
-    private Raster getRasterTile(PlanarImage image, int pixelX, int pixelY) {
-        final int tileX = image.XToTileX(pixelX);
-        final int tileY = image.YToTileY(pixelY);
-        return image.getTile(tileX, tileY);
+        return sampler.getPixelString(raster);
     }
 
 
@@ -496,5 +537,8 @@ public class PixelInfoViewModelUpdater {
         currentRaster = null;
         currentView = null;
         currentFlagBands = new Band[0];
+        bandRowRasters.clear();
+        tiePointRowRasters.clear();
+        samplerInvalid = true;
     }
 }
@@ -11,10 +11,12 @@ public class CursorSpectrumPixelPositionListener implements PixelPositionListene
     private final SpectrumTopComponent topComponent;
     private final WorkerChain workerChain;
     private final WorkerChainSupport support;
+    // incremented for every cursor event, workers created for an older event are stale
+    private volatile int latestEvent;
 
     public CursorSpectrumPixelPositionListener(SpectrumTopComponent topComponent) {
         this.topComponent = topComponent;
-        workerChain = new WorkerChain();
+        workerChain = topComponent.getWorkerChain();
         support = new WorkerChainSupport() {
             @Override
             public void removeWorkerAndStartNext(SwingWorker worker) {
@@ -30,12 +32,14 @@ public class CursorSpectrumPixelPositionListener implements PixelPositionListene
                                 int currentLevel,
                                 boolean pixelPosValid,
                                 MouseEvent e) {
-        CursorSpectraUpdater worker = new CursorSpectraUpdater(pixelPosValid, pixelX, pixelY, currentLevel, e.isShiftDown(), support);
+        CursorSpectraUpdater worker = new CursorSpectraUpdater(++latestEvent, pixelPosValid, pixelX, pixelY, currentLevel,
+                                                               e.isShiftDown(), support);
         workerChain.setOrExecuteNextWorker(worker, false);
     }
 
     @Override
     public void pixelPosNotAvailable() {
+        latestEvent++;
         CursorSpectraRemover worker = new CursorSpectraRemover(support);
         workerChain.setOrExecuteNextWorker(worker, false);
     }
@@ -69,6 +73,7 @@ public class CursorSpectrumPixelPositionListener implements PixelPositionListene
 
     private class CursorSpectraUpdater extends SwingWorker<Void, Void> {
 
+        private final int event;
         private final boolean pixelPosValid;
         private final int pixelX;
         private final int pixelY;
@@ -76,8 +81,9 @@ public class CursorSpectrumPixelPositionListener implements PixelPositionListene
         private final boolean adjustAxes;
         private final WorkerChainSupport support;
 
-        CursorSpectraUpdater(boolean pixelPosValid, int pixelX, int pixelY, int currentLevel, boolean adjustAxes,
+        CursorSpectraUpdater(int event, boolean pixelPosValid, int pixelX, int pixelY, int currentLevel, boolean adjustAxes,
                              WorkerChainSupport support) {
+            this.event = event;
             this.pixelPosValid = pixelPosValid;
             this.pixelX = pixelX;
             this.pixelY = pixelY;
@@ -88,6 +94,10 @@ public class CursorSpectrumPixelPositionListener implements PixelPositionListene
 
         @Override
         protected Void doInBackground() throws Exception {
+            if (isStale()) {
+                // the cursor has already moved on, the worker of the latest event is waiting in the chain
+                return null;
+            }
             if (pixelPosValid) {
                 if (shouldUpdateCursorPosition()) {
                     Waiter waiter = new Waiter();
@@ -101,10 +111,16 @@ public class CursorSpectrumPixelPositionListener implements PixelPositionListene
             return null;
         }
 
+        private boolean isStale() {
+            return event != latestEvent;
+        }
+
         @Override
         protected void done() {
             try {
-                topComponent.updateChart(adjustAxes);
+                if (!isStale()) {
+                    topComponent.updateChart(adjustAxes);
+                }
             } finally {
                 support.removeWorkerAndStartNext(this);
             }
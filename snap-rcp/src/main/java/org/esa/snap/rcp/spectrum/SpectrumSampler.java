@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.spectrum;
+
+import com.bc.ceres.glevel.MultiLevelModel;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.jai.ImageManager;
+
+import javax.media.jai.PlanarImage;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Samples the geophysical values of many spectral bands at one or more pixel positions.
+ * <p>
+ * For every band, the requested positions are grouped by the tiles they fall into, so that each tile is looked up
+ * only once per request. The tiles are kept in a small cache of recently touched tiles, hence moving the cursor
+ * within a tile or re-reading pin spectra does not fetch the tiles again. The cache is limited by the memory
+ * occupied by its tiles.
+ * <p>
+ * Invalid pixels and positions outside the image are returned as {@code NaN}.
+ * <p>
+ * Instances are thread-safe, but are meant to be used by the single worker thread updating the spectrum chart.
+ */
+class SpectrumSampler {
+
+    static final long DEFAULT_MAX_CACHE_SIZE = 64L * 1024L * 1024L;
+
+    private final long maxCacheSize;
+    private final LinkedHashMap<TileKey, Raster> tileCache;
+    private long cacheSize;
+
+    SpectrumSampler() {
+        this(DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    SpectrumSampler(long maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        tileCache = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * Samples the given bands at a single pixel position.
+     *
+     * @param bands  the bands
+     * @param pixelX the pixel X-coordinate at the given level
+     * @param pixelY the pixel Y-coordinate at the given level
+     * @param level  the resolution level
+     * @return the values, one for each band
+     */
+    double[] sample(RasterDataNode[] bands, int pixelX, int pixelY, int level) {
+        final double[] values = new double[bands.length];
+        final int[] xs = {pixelX};
+        final int[] ys = {pixelY};
+        final double[] value = new double[1];
+        for (int i = 0; i < bands.length; i++) {
+            sample(bands[i], xs, ys, level, value);
+            values[i] = value[0];
+        }
+        return values;
+    }
+
+    /**
+     * Samples the given bands at many pixel positions, e.g. the positions of pins.
+     *
+     * @param bands          the bands
+     * @param pixelPositions the pixel positions in level zero image coordinates
+     * @param level          the resolution level
+     * @return the values, indexed by position and band
+     */
+    double[][] sample(RasterDataNode[] bands, Point2D[] pixelPositions, int level) {
+        final double[][] values = new double[pixelPositions.length][bands.length];
+        final int[] xs = new int[pixelPositions.length];
+        final int[] ys = new int[pixelPositions.length];
+        final double[] bandValues = new double[pixelPositions.length];
+        final Point2D point = new Point2D.Double();
+        for (int b = 0; b < bands.length; b++) {
+            final RasterDataNode band = bands[b];
+            // the pixel positions are given in image (L0) coordinates, they have to be transformed to the level
+            final MultiLevelModel multiLevelModel = ImageManager.getMultiLevelModel(band);
+            final AffineTransform transform = new AffineTransform(multiLevelModel.getModelToImageTransform(level));
+            transform.concatenate(multiLevelModel.getImageToModelTransform(0));
+            for (int p = 0; p < pixelPositions.length; p++) {
+                transform.transform(pixelPositions[p], point);
+                xs[p] = (int) Math.floor(point.getX());
+                ys[p] = (int) Math.floor(point.getY());
+            }
+            sample(band, xs, ys, level, bandValues);
+            for (int p = 0; p < pixelPositions.length; p++) {
+                values[p][b] = bandValues[p];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Forgets all cached tiles.
+     */
+    synchronized void invalidate() {
+        tileCache.clear();
+        cacheSize = 0;
+    }
+
+    /**
+     * Forgets the cached tiles of the given raster, e.g. because its data has changed.
+     *
+     * @param raster the raster
+     */
+    synchronized void invalidate(RasterDataNode raster) {
+        final Iterator<Map.Entry<TileKey, Raster>> iterator = tileCache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<TileKey, Raster> entry = iterator.next();
+            if (entry.getKey().raster == raster) {
+                cacheSize -= getSize(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized int getNumCachedTiles() {
+        return tileCache.size();
+    }
+
+    synchronized long getCacheSize() {
+        return cacheSize;
+    }
+
+    private void sample(RasterDataNode band, int[] xs, int[] ys, int level, double[] values) {
+        final int numPoints = xs.length;
+        Arrays.fill(values, 0, numPoints, Double.NaN);
+        final PlanarImage image = ImageManager.getInstance().getSourceImage(band, level);
+        final PlanarImage validImage = band.isValidMaskUsed() ? ImageManager.getInstance().getValidMaskImage(band, level) : null;
+        final boolean scaled = band.isScalingApplied();
+        final int dataType = band.getDataType();
+
+        final long[] tilePoints = new long[numPoints];
+        int n = 0;
+        for (int i = 0; i < numPoints; i++) {
+            final int x = xs[i];
+            final int y = ys[i];
+            if (x >= image.getMinX() && x < image.getMinX() + image.getWidth()
+                && y >= image.getMinY() && y < image.getMinY() + image.getHeight()) {
+                final long tileIndex = (long) (image.YToTileY(y) - image.getMinTileY()) * image.getNumXTiles()
+                                       + (image.XToTileX(x) - image.getMinTileX());
+                tilePoints[n++] = (tileIndex << 32) | i;
+            }
+        }
+        Arrays.sort(tilePoints, 0, n);
+
+        Raster validTile = null;
+        int start = 0;
+        while (start < n) {
+            final long tileIndex = tilePoints[start] >>> 32;
+            int end = start + 1;
+            while (end < n && (tilePoints[end] >>> 32) == tileIndex) {
+                end++;
+            }
+            final int tileX = image.getMinTileX() + (int) (tileIndex % image.getNumXTiles());
+            final int tileY = image.getMinTileY() + (int) (tileIndex / image.getNumXTiles());
+            final Raster tile = getTile(band, image, tileX, tileY);
+            for (int j = start; j < end; j++) {
+                final int i = (int) tilePoints[j];
+                final int x = xs[i];
+                final int y = ys[i];
+                if (validImage != null) {
+                    // the valid mask image may have a different tiling
+                    if (validTile == null || !validTile.getBounds().contains(x, y)) {
+                        validTile = getTile(band, validImage, validImage.XToTileX(x), validImage.YToTileY(y));
+                    }
+                    if (validTile.getSample(x, y, 0) == 0) {
+                        continue;
+                    }
+                }
+                final double sample;
+                if (dataType == ProductData.TYPE_INT8) {
+                    sample = (byte) tile.getSample(x, y, 0);
+                } else if (dataType == ProductData.TYPE_UINT32) {
+                    sample = tile.getSample(x, y, 0) & 0xFFFFFFFFL;
+                } else {
+                    sample = tile.getSampleDouble(x, y, 0);
+                }
+                values[i] = scaled ? band.scale(sample) : sample;
+            }
+            start = end;
+        }
+    }
+
+    private Raster getTile(RasterDataNode raster, PlanarImage image, int tileX, int tileY) {
+        final TileKey key = new TileKey(raster, image, tileX, tileY);
+        synchronized (this) {
+            final Raster tile = tileCache.get(key);
+            if (tile != null) {
+                return tile;
+            }
+        }
+        // fetch the tile outside the lock, computing it may take a while
+        final Raster tile = image.getTile(tileX, tileY);
+        synchronized (this) {
+            final Raster oldTile = tileCache.put(key, tile);
+            if (oldTile != null) {
+                cacheSize -= getSize(oldTile);
+            }
+            cacheSize += getSize(tile);
+            trimCache();
+        }
+        return tile;
+    }
+
+    private void trimCache() {
+        final Iterator<Raster> iterator = tileCache.values().iterator();
+        // the most recently touched tile is always kept
+        while (cacheSize > maxCacheSize && tileCache.size() > 1) {
+            cacheSize -= getSize(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static long getSize(Raster tile) {
+        final DataBuffer dataBuffer = tile.getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+    }
+
+    private static final class TileKey {
+
+        private final RasterDataNode raster;
+        private final PlanarImage image;
+        private final int tileX;
+        private final int tileY;
+
+        private TileKey(RasterDataNode raster, PlanarImage image, int tileX, int tileY) {
+            this.raster = raster;
+            this.image = image;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            final TileKey other = (TileKey) o;
+            return image == other.image && tileX == other.tileX && tileY == other.tileY;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(image) + tileX) + tileY;
+        }
+    }
+}
@@ -15,7 +15,6 @@
  */
 package org.esa.snap.rcp.spectrum;
 
-import com.bc.ceres.glevel.MultiLevelModel;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.DataNode;
 import org.esa.snap.framework.datamodel.Placemark;
@@ -37,14 +36,12 @@ import org.esa.snap.framework.ui.product.spectrum.SpectrumChooser;
 import org.esa.snap.framework.ui.product.spectrum.SpectrumShapeProvider;
 import org.esa.snap.framework.ui.product.spectrum.SpectrumStrokeProvider;
 import org.esa.snap.framework.ui.tool.ToolButtonFactory;
-import org.esa.snap.jai.ImageManager;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.rcp.actions.help.HelpAction;
 import org.esa.snap.rcp.placemark.PlacemarkUtils;
 import org.esa.snap.rcp.statistics.XYPlotMarker;
 import org.esa.snap.rcp.windows.ToolTopComponent;
-import org.esa.snap.util.ProductUtils;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -81,6 +78,7 @@ import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.border.BevelBorder;
 import java.awt.BasicStroke;
 import java.awt.BorderLayout;
@@ -90,16 +88,19 @@ import java.awt.GridBagConstraints;
 import java.awt.Paint;
 import java.awt.Shape;
 import java.awt.Stroke;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @TopComponent.Description(preferredID = "SpectrumTopComponent", iconBase = "org/esa/snap/rcp/icons/Spectrum.gif" )
 @TopComponent.Registration(mode = "properties", openAtStartup = false, position = 80 )
@@ -126,6 +127,7 @@ public class SpectrumTopComponent extends ToolTopComponent {
     private final ProductNodeListenerAdapter productNodeHandler;
     private final PinSelectionChangeListener pinSelectionChangeListener;
     private final PixelPositionListener pixelPositionListener;
+    private final WorkerChain workerChain;
 
     private AbstractButton filterButton;
     private AbstractButton showSpectrumForCursorButton;
@@ -149,6 +151,7 @@ public class SpectrumTopComponent extends ToolTopComponent {
         pinSelectionChangeListener = new PinSelectionChangeListener();
         rasterToSpectraMap = new HashMap<>();
         rasterToSpectralBandsMap = new HashMap<>();
+        workerChain = new WorkerChain();
         pixelPositionListener = new CursorSpectrumPixelPositionListener(this);
         initUI();
     }
@@ -195,6 +198,7 @@ public class SpectrumTopComponent extends ToolTopComponent {
             if (currentProduct == null) {
                 chartHandler.setEmptyPlot();
             }
+            chartHandler.invalidateSampledData();
             updateUIState();
         }
     }
@@ -214,6 +218,13 @@ public class SpectrumTopComponent extends ToolTopComponent {
         chartHandler.setGridVisible(showGridButton.isSelected());
     }
 
+    /**
+     * @return the chain running the workers which update the chart data
+     */
+    WorkerChain getWorkerChain() {
+        return workerChain;
+    }
+
     void setPrepareForUpdateMessage() {
         chartHandler.setCollectingSpectralInformationMessage();
     }
@@ -474,10 +485,8 @@ public class SpectrumTopComponent extends ToolTopComponent {
     }
 
     private void recreateChart() {
-        chartHandler.updateData();
-        chartHandler.updateChart();
-        chartPanel.repaint();
-        updateUIState();
+        // chained, so that it is neither dropped nor run concurrently with the cursor spectra updates
+        workerChain.setOrExecuteNextWorker(new ChartRecreator(), true);
     }
 
     Placemark[] getDisplayedPins() {
@@ -738,6 +747,11 @@ public class SpectrumTopComponent extends ToolTopComponent {
 
         private void removeBandInformation(Band band) {
             chartUpdater.removeBandinformation(band);
+            chartUpdater.invalidateSampledData(band);
+        }
+
+        private void invalidateSampledData() {
+            chartUpdater.invalidateSampledData();
         }
 
         private void setPlotMessage(String messageText) {
@@ -772,6 +786,7 @@ public class SpectrumTopComponent extends ToolTopComponent {
         private final static double relativePlotInset = 0.05;
 
         private final Map<Placemark, Map<Band, Double>> pinToEnergies;
+        private final SpectrumSampler sampler;
         private int pixelX;
         private int pixelY;
         private int level;
@@ -779,7 +794,9 @@ public class SpectrumTopComponent extends ToolTopComponent {
         private XYSeriesCollection dataset;
 
         private ChartUpdater() {
-            pinToEnergies = new HashMap<>();
+            // pin information is removed by the product node handler while the data is updated by the worker chain
+            pinToEnergies = new ConcurrentHashMap<>();
+            sampler = new SpectrumSampler();
             plotBounds = new Range[2];
             invalidatePlotBounds();
         }
@@ -874,13 +891,11 @@ public class SpectrumTopComponent extends ToolTopComponent {
                 for (DisplayableSpectrum spectrum : spectra) {
                     XYSeries series = new XYSeries(spectrum.getName());
                     final Band[] spectralBands = spectrum.getSelectedBands();
-                    for (Band spectralBand : spectralBands) {
-                        final float wavelength = spectralBand.getSpectralWavelength();
-                        if (spectralBand.isPixelValid(pixelX, pixelY)) {
-                            final double energy = ProductUtils.getGeophysicalSampleAsDouble(spectralBand, pixelX, pixelY, level);
-                            if (energy != spectralBand.getGeophysicalNoDataValue()) {
-                                series.add(wavelength, energy);
-                            }
+                    final double[] energies = sampler.sample(spectralBands, pixelX, pixelY, level);
+                    for (int i = 0; i < spectralBands.length; i++) {
+                        final Band spectralBand = spectralBands[i];
+                        if (isValidEnergy(energies[i], spectralBand)) {
+                            series.add(spectralBand.getSpectralWavelength(), energies[i]);
                         }
                     }
                     updateRenderer(dataset.getSeriesCount(), Color.BLACK, spectrum, chart);
@@ -891,6 +906,7 @@ public class SpectrumTopComponent extends ToolTopComponent {
 
         private void fillDatasetWithPinSeries(List<DisplayableSpectrum> spectra, XYSeriesCollection dataset, JFreeChart chart) {
             Placemark[] pins = getDisplayedPins();
+            readMissingEnergies(pins, spectra);
             for (Placemark pin : pins) {
                 List<XYSeries> pinSeries = createXYSeriesFromPin(pin, dataset.getSeriesCount(), spectra, chart);
                 pinSeries.forEach(dataset::addSeries);
@@ -903,24 +919,11 @@ public class SpectrumTopComponent extends ToolTopComponent {
             for (DisplayableSpectrum spectrum : spectra) {
                 XYSeries series = new XYSeries(spectrum.getName() + "_" + pin.getLabel());
                 final Band[] spectralBands = spectrum.getSelectedBands();
-                Map<Band, Double> bandToEnergy;
-                if (pinToEnergies.containsKey(pin)) {
-                    bandToEnergy = pinToEnergies.get(pin);
-                } else {
-                    bandToEnergy = new HashMap<>();
-                    pinToEnergies.put(pin, bandToEnergy);
-                }
+                final Map<Band, Double> bandToEnergy = pinToEnergies.getOrDefault(pin, Collections.emptyMap());
                 for (Band spectralBand : spectralBands) {
-                    double energy;
-                    if (bandToEnergy.containsKey(spectralBand)) {
-                        energy = bandToEnergy.get(spectralBand);
-                    } else {
-                        energy = readEnergy(pin, spectralBand);
-                        bandToEnergy.put(spectralBand, energy);
-                    }
-                    final float wavelength = spectralBand.getSpectralWavelength();
-                    if (energy != spectralBand.getGeophysicalNoDataValue()) {
-                        series.add(wavelength, energy);
+                    final Double energy = bandToEnergy.get(spectralBand);
+                    if (energy != null && isValidEnergy(energy, spectralBand)) {
+                        series.add(spectralBand.getSpectralWavelength(), energy);
                     }
                 }
                 updateRenderer(seriesIndex++, pinColor, spectrum, chart);
@@ -939,18 +942,58 @@ public class SpectrumTopComponent extends ToolTopComponent {
             renderer.setSeriesShape(seriesIndex, symbol);
         }
 
-        private double readEnergy(Placemark pin, Band spectralBand) {
-            final MultiLevelModel multiLevelModel = ImageManager.getMultiLevelModel(spectralBand);
-            final AffineTransform i2mTransform = multiLevelModel.getImageToModelTransform(0);
-            final AffineTransform m2iTransform = multiLevelModel.getModelToImageTransform(level);
-            final Point2D modelPixel = i2mTransform.transform(pin.getPixelPos(), null);
-            final Point2D imagePixel = m2iTransform.transform(modelPixel, null);
-            int pinPixelX = (int) Math.floor(imagePixel.getX());
-            int pinPixelY = (int) Math.floor(imagePixel.getY());
-            if (spectralBand.isPixelValid(pinPixelX, pinPixelY)) {
-                return ProductUtils.getGeophysicalSampleAsDouble(spectralBand, pinPixelX, pinPixelY, level);
+        /*
+         * Reads the energies of all bands which are not known yet for the given pins. The pins and bands
+         * are sampled in a single batch, so that every tile is fetched only once.
+         */
+        private void readMissingEnergies(Placemark[] pins, List<DisplayableSpectrum> spectra) {
+            final Set<Band> missingBands = new LinkedHashSet<>();
+            final List<Placemark> missingPins = new ArrayList<>();
+            for (Placemark pin : pins) {
+                final Map<Band, Double> bandToEnergy = pinToEnergies.get(pin);
+                boolean pinIsMissing = false;
+                for (DisplayableSpectrum spectrum : spectra) {
+                    for (Band spectralBand : spectrum.getSelectedBands()) {
+                        if (bandToEnergy == null || !bandToEnergy.containsKey(spectralBand)) {
+                            missingBands.add(spectralBand);
+                            pinIsMissing = true;
+                        }
+                    }
+                }
+                if (pinIsMissing) {
+                    missingPins.add(pin);
+                }
             }
-            return spectralBand.getGeophysicalNoDataValue();
+            if (missingPins.isEmpty()) {
+                return;
+            }
+
+            final Band[] bands = missingBands.toArray(new Band[missingBands.size()]);
+            final Point2D[] pixelPositions = new Point2D[missingPins.size()];
+            for (int i = 0; i < pixelPositions.length; i++) {
+                pixelPositions[i] = missingPins.get(i).getPixelPos();
+            }
+            final double[][] energies = sampler.sample(bands, pixelPositions, level);
+            for (int i = 0; i < pixelPositions.length; i++) {
+                final Map<Band, Double> bandToEnergy = pinToEnergies.computeIfAbsent(missingPins.get(i),
+                                                                                    pin -> new ConcurrentHashMap<>());
+                for (int j = 0; j < bands.length; j++) {
+                    bandToEnergy.putIfAbsent(bands[j], energies[i][j]);
+                }
+            }
+        }
+
+        private boolean isValidEnergy(double energy, Band spectralBand) {
+            return !Double.isNaN(energy) && energy != spectralBand.getGeophysicalNoDataValue();
+        }
+
+        private void invalidateSampledData() {
+            pinToEnergies.clear();
+            sampler.invalidate();
+        }
+
+        private void invalidateSampledData(RasterDataNode raster) {
+            sampler.invalidate(raster);
         }
 
         private void removePinInformation(Placemark pin) {
@@ -958,11 +1001,8 @@ public class SpectrumTopComponent extends ToolTopComponent {
         }
 
         private void removeBandinformation(Band band) {
-            for (Placemark pin : pinToEnergies.keySet()) {
-                Map<Band, Double> bandToEnergiesMap = pinToEnergies.get(pin);
-                if (bandToEnergiesMap.containsKey(band)) {
-                    bandToEnergiesMap.remove(band);
-                }
+            for (Map<Band, Double> bandToEnergiesMap : pinToEnergies.values()) {
+                bandToEnergiesMap.remove(band);
             }
         }
 
@@ -989,6 +1029,26 @@ public class SpectrumTopComponent extends ToolTopComponent {
 
     }
 
+    private class ChartRecreator extends SwingWorker<Void, Void> {
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            chartHandler.updateData();
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            try {
+                chartHandler.updateChart();
+                chartPanel.repaint();
+                updateUIState();
+            } finally {
+                workerChain.removeCurrentWorkerAndExecuteNext(this);
+            }
+        }
+    }
+
     private class SpectrumLegendItemSource implements LegendItemSource {
 
         @Override
@@ -1062,6 +1122,13 @@ public class SpectrumTopComponent extends ToolTopComponent {
             }
         }
 
+        @Override
+        public void nodeDataChanged(ProductNodeEvent event) {
+            if (event.getSourceNode() instanceof Band) {
+                chartHandler.removeBandInformation((Band) event.getSourceNode());
+            }
+        }
+
         @Override
         public void nodeAdded(final ProductNodeEvent event) {
             if (!isActive()) {
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Accumulates the 2D histogram (the bin counts) of a density plot of two rasters.
+ * <p>
+ * The tiles of the rasters are binned in parallel on the common fork-join pool. They are processed in batches of
+ * growing size and in an order which spreads each batch over the whole scene, so a coarse but representative plot
+ * is available after the first batch and is refined by every following one. Bin counts are kept in a primitive
+ * array together with the number of non-empty bins.
+ */
+class DensityPlotAccumulator {
+
+    /**
+     * Notified after every batch of tiles has been accumulated.
+     */
+    interface Listener {
+
+        /**
+         * @param accumulator   the accumulator
+         * @param numTilesDone  the number of tiles accumulated so far
+         * @param numTilesTotal the total number of tiles
+         */
+        void batchAccumulated(DensityPlotAccumulator accumulator, int numTilesDone, int numTilesTotal);
+    }
+
+    private static final int INITIAL_BATCH_DIVISOR = 64;
+
+    private final RasterDataNode rasterX;
+    private final RasterDataNode rasterY;
+    private final Mask roiMask;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    private final int width;
+    private final int height;
+
+    private final int[] binCounts;
+    private int numNonEmptyBins;
+    private volatile boolean canceled;
+
+    /**
+     * @param rasterX the raster providing the X values
+     * @param minX    the minimum X value
+     * @param maxX    the maximum X value
+     * @param rasterY the raster providing the Y values, must have the same size as {@code rasterX}
+     * @param minY    the minimum Y value
+     * @param maxY    the maximum Y value
+     * @param roiMask an optional ROI mask, may be {@code null}
+     * @param width   the number of bins in X direction
+     * @param height  the number of bins in Y direction
+     */
+    DensityPlotAccumulator(RasterDataNode rasterX, double minX, double maxX,
+                           RasterDataNode rasterY, double minY, double maxY,
+                           Mask roiMask, int width, int height) {
+        this.rasterX = rasterX;
+        this.rasterY = rasterY;
+        this.roiMask = roiMask;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.width = width;
+        this.height = height;
+        binCounts = new int[width * height];
+    }
+
+    /**
+     * Accumulates all tiles of the rasters.
+     *
+     * @param pm       a monitor used to report progress in units of tiles and to cancel the computation
+     * @param listener an optional listener notified after each batch of tiles, may be {@code null}
+     * @throws CancellationException if the computation has been cancelled
+     */
+    void accumulate(ProgressMonitor pm, Listener listener) {
+        final PlanarImage imageX = rasterX.getGeophysicalImage();
+        final PlanarImage imageY = rasterY.getGeophysicalImage();
+        final PlanarImage validImageX = rasterX.isValidMaskUsed() ? rasterX.getValidMaskImage() : null;
+        final PlanarImage validImageY = rasterY.isValidMaskUsed() ? rasterY.getValidMaskImage() : null;
+        final PlanarImage maskImage = roiMask != null ? roiMask.getSourceImage() : null;
+        final Images images = new Images(imageX, imageY, validImageX, validImageY, maskImage);
+
+        final int[] tileOrder = createTileOrder(imageX.getNumXTiles() * imageX.getNumYTiles());
+        final ProgressMonitor monitor = new SynchronizedProgressMonitor(pm);
+        monitor.beginTask("Computing density plot", tileOrder.length);
+        try {
+            int batchStart = 0;
+            int batchSize = Math.max(1, tileOrder.length / INITIAL_BATCH_DIVISOR);
+            while (batchStart < tileOrder.length) {
+                final int batchEnd = Math.min(tileOrder.length, batchStart + batchSize);
+                new TileTask(images, tileOrder, batchStart, batchEnd, monitor).invoke();
+                if (isCanceled() || monitor.isCanceled()) {
+                    throw new CancellationException();
+                }
+                if (listener != null) {
+                    listener.batchAccumulated(this, batchEnd, tileOrder.length);
+                }
+                batchStart = batchEnd;
+                batchSize *= 2;
+            }
+        } finally {
+            monitor.done();
+        }
+    }
+
+    /**
+     * Cancels an ongoing computation. The bins accumulated so far remain valid.
+     */
+    void cancel() {
+        canceled = true;
+    }
+
+    boolean isCanceled() {
+        return canceled;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of bins containing at least one pixel
+     */
+    synchronized int getNumNonEmptyBins() {
+        return numNonEmptyBins;
+    }
+
+    /**
+     * @param binX the bin X-index
+     * @param binY the bin Y-index, counted from the maximum Y value downwards as in the plot image
+     * @return the number of pixels in the bin
+     */
+    synchronized int getBinCount(int binX, int binY) {
+        return binCounts[binY * width + binX];
+    }
+
+    /**
+     * Creates an image of the bin counts accumulated so far. Counts are cropped at 255.
+     *
+     * @param colorModel the colour model of the image, index 0 is used for empty bins
+     * @return a new image
+     */
+    BufferedImage createImage(IndexColorModel colorModel) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        final byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        synchronized (this) {
+            for (int i = 0; i < binCounts.length; i++) {
+                pixels[i] = (byte) Math.min(binCounts[i], 255);
+            }
+        }
+        return image;
+    }
+
+    /*
+     * Orders the tile indexes by their bit-reversed value, so that consecutive ranges of the order are
+     * spread evenly over the scene.
+     */
+    static int[] createTileOrder(int numTiles) {
+        final int[] order = new int[numTiles];
+        if (numTiles == 0) {
+            return order;
+        }
+        final int numBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, numTiles - 1));
+        int n = 0;
+        for (int k = 0; k < (1 << numBits) && n < numTiles; k++) {
+            final int index = Integer.reverse(k) >>> (32 - numBits);
+            if (index < numTiles) {
+                order[n++] = index;
+            }
+        }
+        return order;
+    }
+
+    private static int toBin(double value, double min, double max, int numBins) {
+        if (!(value >= min && value <= max)) {
+            return -1;
+        }
+        if (max == min) {
+            return 0;
+        }
+        final int bin = (int) ((value - min) * numBins / (max - min));
+        return bin < numBins ? bin : numBins - 1;
+    }
+
+    private void accumulateTile(Images images, int tileIndex, Buffers buffers) {
+        final PlanarImage imageX = images.imageX;
+        final int tileX = imageX.getMinTileX() + tileIndex % imageX.getNumXTiles();
+        final int tileY = imageX.getMinTileY() + tileIndex / imageX.getNumXTiles();
+        final Rectangle rect = imageX.getTileRect(tileX, tileY);
+        if (rect.isEmpty()) {
+            return;
+        }
+        final int numPixels = rect.width * rect.height;
+
+        final double[] valuesX = buffers.valuesX(numPixels);
+        final double[] valuesY = buffers.valuesY(numPixels);
+        StatisticsUtils.getGeophysicalSamples(rasterX, imageX.getTile(tileX, tileY), rect, valuesX);
+        StatisticsUtils.getGeophysicalSamples(rasterY, StatisticsUtils.getAlignedTile(images.imageY, imageX, tileX, tileY), rect, valuesY);
+        final int[] validX = getMaskSamples(images.validImageX, imageX, tileX, tileY, rect, buffers.validX(numPixels));
+        final int[] validY = getMaskSamples(images.validImageY, imageX, tileX, tileY, rect, buffers.validY(numPixels));
+        final int[] mask = getMaskSamples(images.maskImage, imageX, tileX, tileY, rect, buffers.mask(numPixels));
+
+        final int[] binIndexes = buffers.binIndexes(numPixels);
+        int numBinned = 0;
+        for (int i = 0; i < numPixels; i++) {
+            if ((validX == null || validX[i] != 0)
+                && (validY == null || validY[i] != 0)
+                && (mask == null || mask[i] != 0)) {
+                final int binX = toBin(valuesX[i], minX, maxX, width);
+                final int binY = toBin(valuesY[i], minY, maxY, height);
+                if (binX >= 0 && binY >= 0) {
+                    binIndexes[numBinned++] = (height - 1 - binY) * width + binX;
+                }
+            }
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < numBinned; i++) {
+                if (binCounts[binIndexes[i]]++ == 0) {
+                    numNonEmptyBins++;
+                }
+            }
+        }
+    }
+
+    private static int[] getMaskSamples(PlanarImage image, PlanarImage referenceImage, int tileX, int tileY, Rectangle rect, int[] buffer) {
+        final Raster tile = StatisticsUtils.getAlignedTile(image, referenceImage, tileX, tileY);
+        return tile != null ? tile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, buffer) : null;
+    }
+
+    private static class Images {
+
+        final PlanarImage imageX;
+        final PlanarImage imageY;
+        final PlanarImage validImageX;
+        final PlanarImage validImageY;
+        final PlanarImage maskImage;
+
+        Images(PlanarImage imageX, PlanarImage imageY, PlanarImage validImageX, PlanarImage validImageY, PlanarImage maskImage) {
+            this.imageX = imageX;
+            this.imageY = imageY;
+            this.validImageX = validImageX;
+            this.validImageY = validImageY;
+            this.maskImage = maskImage;
+        }
+    }
+
+    private class TileTask extends RecursiveAction {
+
+        private final Images images;
+        private final int[] tileOrder;
+        private final int start;
+        private final int end;
+        private final ProgressMonitor monitor;
+
+        TileTask(Images images, int[] tileOrder, int start, int end, ProgressMonitor monitor) {
+            this.images = images;
+            this.tileOrder = tileOrder;
+            this.start = start;
+            this.end = end;
+            this.monitor = monitor;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                final int mid = (start + end) >>> 1;
+                invokeAll(new TileTask(images, tileOrder, start, mid, monitor),
+                          new TileTask(images, tileOrder, mid, end, monitor));
+                return;
+            }
+            if (isCanceled() || monitor.isCanceled()) {
+                return;
+            }
+            accumulateTile(images, tileOrder[start], BUFFERS.get());
+            monitor.worked(1);
+        }
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Per-thread sample buffers, grown on demand and reused across tiles and computations.
+     */
+    private static class Buffers {
+
+        private double[] valuesX = new double[0];
+        private double[] valuesY = new double[0];
+        private int[] validX = new int[0];
+        private int[] validY = new int[0];
+        private int[] mask = new int[0];
+        private int[] binIndexes = new int[0];
+
+        double[] valuesX(int length) {
+            return valuesX.length < length ? (valuesX = new double[length]) : valuesX;
+        }
+
+        double[] valuesY(int length) {
+            return valuesY.length < length ? (valuesY = new double[length]) : valuesY;
+        }
+
+        int[] validX(int length) {
+            return validX.length < length ? (validX = new int[length]) : validX;
+        }
+
+        int[] validY(int length) {
+            return validY.length < length ? (validY = new int[length]) : validY;
+        }
+
+        int[] mask(int length) {
+            return mask.length < length ? (mask = new int[length]) : mask;
+        }
+
+        int[] binIndexes(int length) {
+            return binIndexes.length < length ? (binIndexes = new int[length]) : binIndexes;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.bc.ceres.binding.PropertyContainer;
 import com.bc.ceres.binding.ValidationException;
 import com.bc.ceres.binding.ValueSet;
 import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.core.ProgressMonitorWrapper;
 import com.bc.ceres.core.SubProgressMonitor;
 import com.bc.ceres.swing.binding.BindingContext;
 import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
@@ -31,13 +32,11 @@ import org.esa.snap.framework.datamodel.ProductNode;
 import org.esa.snap.framework.datamodel.ProductNodeEvent;
 import org.esa.snap.framework.datamodel.RasterDataNode;
 import org.esa.snap.framework.datamodel.Stx;
-import org.esa.snap.framework.datamodel.StxFactory;
 import org.esa.snap.framework.dataop.barithm.BandArithmetic;
 import org.esa.snap.framework.ui.GridBagUtils;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.util.Debug;
-import org.esa.snap.util.ProductUtils;
 import org.esa.snap.util.math.MathUtils;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -54,6 +53,7 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JSeparator;
 import javax.swing.ListCellRenderer;
+import javax.swing.SwingWorker;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
@@ -123,6 +123,8 @@ class DensityPlotPanel extends ChartPagePanel {
     private static final Color backgroundColor = new Color(255, 255, 255, 0);
     private boolean plotColorsInverted;
     private JCheckBox toggleColorCheckBox;
+    private DensityPlotAccumulator densityPlotAccumulator;
+    private SwingWorker<BufferedImage, BufferedImage> densityPlotWorker;
 
     DensityPlotPanel(TopComponent parentComponent, String helpId) {
         super(parentComponent, helpId, CHART_TITLE, true);
@@ -146,6 +148,20 @@ class DensityPlotPanel extends ChartPagePanel {
                                                                                   PROPERTY_NAME_MAX);
         axisRangeControls[X_VAR].getBindingContext().addPropertyChangeListener(rangeControlActionEnabler);
         axisRangeControls[Y_VAR].getBindingContext().addPropertyChangeListener(rangeControlActionEnabler);
+        bindingContext.addPropertyChangeListener(evt -> {
+            final String propertyName = evt.getPropertyName();
+            if (PROPERTY_NAME_X_BAND.equals(propertyName) || PROPERTY_NAME_Y_BAND.equals(propertyName)
+                || PROPERTY_NAME_ROI_MASK.equals(propertyName) || PROPERTY_NAME_USE_ROI_MASK.equals(propertyName)) {
+                cancelComputation();
+            }
+        });
+    }
+
+    private void cancelComputation() {
+        if (densityPlotWorker != null && !densityPlotWorker.isDone()) {
+            densityPlotWorker.cancel(false);
+        }
+        densityPlotWorker = null;
     }
 
     @Override
@@ -172,6 +188,8 @@ class DensityPlotPanel extends ChartPagePanel {
     protected void updateComponents() {
         super.updateComponents();
         if (isRasterChanged() || isProductChanged()) {
+            cancelComputation();
+            densityPlotAccumulator = null;
             plot.setImage(null);
             plot.setDataset(null);
             if (isProductChanged()) {
@@ -481,38 +499,65 @@ class DensityPlotPanel extends ChartPagePanel {
             return;
         }
 
-        ProgressMonitorSwingWorker<BufferedImage, Object> swingWorker = new ProgressMonitorSwingWorker<BufferedImage, Object>(
+        cancelComputation();
+        final Mask roiMask = dataSourceConfig.useRoiMask ? dataSourceConfig.roiMask : null;
+        ProgressMonitorSwingWorker<BufferedImage, BufferedImage> swingWorker = new ProgressMonitorSwingWorker<BufferedImage, BufferedImage>(
                 this, "Computing scatter plot") {
 
+            private volatile Rectangle2D imageDataBounds;
+            private volatile DensityPlotAccumulator accumulator;
+
             @Override
             protected BufferedImage doInBackground(ProgressMonitor pm) throws Exception {
                 pm.beginTask("Computing scatter plot...", 100);
                 try {
                     checkBandsForRange();
-                    setRange(X_VAR, rasterX, dataSourceConfig.useRoiMask ? dataSourceConfig.roiMask : null, SubProgressMonitor.create(pm, 15));
-                    setRange(Y_VAR, rasterY, dataSourceConfig.useRoiMask ? dataSourceConfig.roiMask : null, SubProgressMonitor.create(pm, 15));
-                    final BufferedImage densityPlotImage = ProductUtils.createDensityPlotImage(rasterX,
-                                                                                               axisRangeControls[X_VAR].getMin().floatValue(),
-                                                                                               axisRangeControls[X_VAR].getMax().floatValue(),
-                                                                                               rasterY,
-                                                                                               axisRangeControls[Y_VAR].getMin().floatValue(),
-                                                                                               axisRangeControls[Y_VAR].getMax().floatValue(),
-                                                                                               dataSourceConfig.useRoiMask ? dataSourceConfig.roiMask : null,
-                                                                                               512,
-                                                                                               512,
-                                                                                               backgroundColor,
-                                                                                               null,
-                                                                                               SubProgressMonitor.create(pm, 70));
+                    setRange(X_VAR, rasterX, roiMask, SubProgressMonitor.create(pm, 15));
+                    setRange(Y_VAR, rasterY, roiMask, SubProgressMonitor.create(pm, 15));
+                    final double minX = axisRangeControls[X_VAR].getMin();
+                    final double maxX = axisRangeControls[X_VAR].getMax();
+                    final double minY = axisRangeControls[Y_VAR].getMin();
+                    final double maxY = axisRangeControls[Y_VAR].getMax();
+                    imageDataBounds = createImageDataBounds(minX, maxX, minY, maxY);
+                    accumulator = new DensityPlotAccumulator(rasterX, (float) minX, (float) maxX,
+                                                             rasterY, (float) minY, (float) maxY,
+                                                             roiMask, 512, 512);
+                    final ProgressMonitor accumulatorPm = new ProgressMonitorWrapper(SubProgressMonitor.create(pm, 70)) {
+                        @Override
+                        public boolean isCanceled() {
+                            return super.isCanceled() || isCancelled();
+                        }
+                    };
+                    accumulator.accumulate(accumulatorPm, (acc, numTilesDone, numTilesTotal) -> {
+                        if (numTilesDone < numTilesTotal) {
+                            publish(acc.createImage(toggledColorModel));
+                        }
+                    });
                     toggleColorCheckBox.setSelected(false);
                     plotColorsInverted = false;
-                    return densityPlotImage;
+                    return accumulator.createImage(toggledColorModel);
                 } finally {
                     pm.done();
                 }
             }
 
+            @Override
+            protected void process(List<BufferedImage> partialImages) {
+                if (densityPlotWorker != this || imageDataBounds == null || partialImages.isEmpty()) {
+                    return;
+                }
+                densityPlotAccumulator = accumulator;
+                plot.setImage(partialImages.get(partialImages.size() - 1));
+                plot.setImageDataBounds(imageDataBounds);
+            }
+
             @Override
             public void done() {
+                if (densityPlotWorker != this) {
+                    // superseded by another computation
+                    return;
+                }
+                densityPlotWorker = null;
                 try {
                     checkBandsForRange();
                     final BufferedImage densityPlotImage = get();
@@ -532,18 +577,12 @@ class DensityPlotPanel extends ChartPagePanel {
 
                     }
 
-                    if (MathUtils.equalValues(minX, maxX, 1.0e-4)) {
-                        minX = Math.floor(minX);
-                        maxX = Math.ceil(maxX);
-                    }
-                    if (MathUtils.equalValues(minY, maxY, 1.0e-4)) {
-                        minY = Math.floor(minY);
-                        maxY = Math.ceil(maxY);
-                    }
+                    final Rectangle2D bounds = createImageDataBounds(minX, maxX, minY, maxY);
+                    densityPlotAccumulator = accumulator;
                     plot.setImage(densityPlotImage);
-                    plot.setImageDataBounds(new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY));
-                    axisRangeControls[X_VAR].adjustComponents(minX, maxX, NUM_DECIMALS);
-                    axisRangeControls[Y_VAR].adjustComponents(minY, maxY, NUM_DECIMALS);
+                    plot.setImageDataBounds(bounds);
+                    axisRangeControls[X_VAR].adjustComponents(bounds.getMinX(), bounds.getMaxX(), NUM_DECIMALS);
+                    axisRangeControls[Y_VAR].adjustComponents(bounds.getMinY(), bounds.getMaxY(), NUM_DECIMALS);
                     plot.getDomainAxis().setLabel(StatisticChartStyling.getAxisLabel(getRaster(X_VAR), "X", false));
                     plot.getRangeAxis().setLabel(StatisticChartStyling.getAxisLabel(getRaster(Y_VAR), "Y", false));
                     toggleColorCheckBox.setEnabled(true);
@@ -557,27 +596,43 @@ class DensityPlotPanel extends ChartPagePanel {
                     );
                 } catch (ExecutionException | IllegalArgumentException e) {
                     e.printStackTrace();
+                    final String reason = e.getCause() instanceof CancellationException
+                                          ? "Calculation canceled."
+                                          : "An error occurred:\n" + e.getCause().getMessage();
                     SnapDialogs.showMessage(CHART_TITLE,
-                                            "Failed to compute scatter plot.\n" +
-                                                    "An error occurred:\n" +
-                                                    e.getCause().getMessage(),
+                                            "Failed to compute scatter plot.\n" + reason,
                                             JOptionPane.ERROR_MESSAGE,
                                             null
                     );
                 }
             }
         };
+        densityPlotWorker = swingWorker;
         swingWorker.execute();
     }
 
+    private static Rectangle2D createImageDataBounds(double minX, double maxX, double minY, double maxY) {
+        if (MathUtils.equalValues(minX, maxX, 1.0e-4)) {
+            minX = Math.floor(minX);
+            maxX = Math.ceil(maxX);
+        }
+        if (MathUtils.equalValues(minY, maxY, 1.0e-4)) {
+            minY = Math.floor(minY);
+            maxY = Math.ceil(maxY);
+        }
+        return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+    }
+
     private static void setRange(int varIndex, RasterDataNode raster, Mask mask, ProgressMonitor pm) throws IOException {
         final AxisRangeControl axisRangeControl = axisRangeControls[varIndex];
         if (axisRangeControl.isAutoMinMax()) {
-            Stx stx;
+            final Stx stx;
             if (mask == null) {
-                stx = raster.getStx(false, pm);
+                // approximate statistics are sufficient for the axis range
+                stx = raster.isStxSet() ? raster.getStx() : StxCache.getDefault().getStx(
+                        raster, null, Stx.DEFAULT_BIN_COUNT, false, raster.getSourceImage().getModel().getLevelCount() - 1, pm);
             } else {
-                stx = new StxFactory().withRoiMask(mask).create(raster, pm);
+                stx = StxCache.getDefault().getStx(raster, mask, Stx.DEFAULT_BIN_COUNT, false, 0, pm);
             }
             axisRangeControl.adjustComponents(stx.getMinimum(), stx.getMaximum(), NUM_DECIMALS);
         }
@@ -644,25 +699,18 @@ class DensityPlotPanel extends ChartPagePanel {
     private static byte[] getValidData(BufferedImage image) {
         if (image != null &&
                 image.getColorModel() instanceof IndexColorModel &&
-                image.getData().getDataBuffer() instanceof DataBufferByte) {
-            return ((DataBufferByte) image.getData().getDataBuffer()).getData();
+                image.getRaster().getDataBuffer() instanceof DataBufferByte) {
+            return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
         }
         return null;
     }
 
     protected int getNumNonEmptyBins() {
-        final byte[] data = getValidData(plot.getImage());
-        int n = 0;
-        if (data != null) {
-            int b;
-            for (byte aData : data) {
-                b = aData & 0xff;
-                if (b != 0) {
-                    n++;
-                }
-            }
+        final DensityPlotAccumulator accumulator = densityPlotAccumulator;
+        if (accumulator == null || plot.getImage() == null) {
+            return 0;
         }
-        return n;
+        return accumulator.getNumNonEmptyBins();
     }
 
     @Override
@@ -559,7 +559,11 @@ class HistogramPanel extends ChartPagePanel {
             if (!compute) {
                 return null;
             }
-            if (histogramPlotConfig.useRoiMask || histogramPlotConfig.numBins != Stx.DEFAULT_BIN_COUNT || histogramPlotConfig.histogramLogScaled || min != null || max != null) {
+            if (min == null && max == null) {
+                final Mask roiMask = histogramPlotConfig.useRoiMask ? histogramPlotConfig.roiMask : null;
+                stx = StxCache.getDefault().getStx(getRaster(), roiMask, histogramPlotConfig.numBins,
+                                                   histogramPlotConfig.histogramLogScaled, 0, pm);
+            } else {
                 final StxFactory factory = new StxFactory();
                 if (histogramPlotConfig.useRoiMask) {
                     /*if(histogramPlotConfig.roiMask.getValidShape() == null){
@@ -585,8 +589,6 @@ class HistogramPanel extends ChartPagePanel {
                     }
                 }
                 stx = factory.create(getRaster(), pm);
-            } else {
-                stx = getRaster().getStx(true, pm);
             }
             if (getRaster() != config.raster) {
                 return null;
@@ -0,0 +1,414 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.core.SubProgressMonitor;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.datamodel.Stx;
+import org.esa.snap.framework.datamodel.StxFactory;
+
+import javax.media.jai.Histogram;
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the statistics of a raster for many ROI masks at once.
+ * <p>
+ * Instead of running one {@link StxFactory} pass per mask, every tile of the raster is read once per pass and
+ * the values are accumulated for all masks together. Like {@link StxFactory}, two passes are needed: the first
+ * one determines the minimum, maximum and mean of every mask, the second one the histogram and the central moments.
+ * The tiles are processed in parallel on the common fork-join pool.
+ * <p>
+ * The second pass visits the tiles row by row. The statistics of a mask are reported to the {@link Listener}
+ * as soon as the last tile containing pixels of that mask has been processed, so results for small masks
+ * arrive early.
+ */
+class MultiMaskStxAccumulator {
+
+    /**
+     * Receives the statistics of the single masks.
+     */
+    interface Listener {
+
+        /**
+         * Called from the thread running {@link #accumulate} when the statistics of a mask are complete.
+         *
+         * @param maskIndex the index of the mask
+         * @param stx       the statistics
+         */
+        void stxComputed(int maskIndex, Stx stx);
+    }
+
+    private static final int TILES_PER_TASK = 2;
+
+    private final RasterDataNode raster;
+    private final Mask[] masks;
+    private final int binCount;
+    private final boolean intHistogram;
+
+    /**
+     * @param raster   the raster
+     * @param masks    the ROI masks, a {@code null} element stands for the whole raster
+     * @param binCount the number of histogram bins
+     */
+    MultiMaskStxAccumulator(RasterDataNode raster, Mask[] masks, int binCount) {
+        this.raster = raster;
+        this.masks = masks;
+        this.binCount = binCount;
+        this.intHistogram = !ProductData.isFloatingPointType(raster.getGeophysicalDataType());
+    }
+
+    /**
+     * Computes the statistics of all masks.
+     *
+     * @param pm       a monitor used to report progress and to cancel the computation
+     * @param listener receives the statistics of every mask as soon as they are complete
+     * @throws CancellationException if the computation has been cancelled using the progress monitor
+     */
+    void accumulate(ProgressMonitor pm, Listener listener) {
+        final PlanarImage dataImage = raster.getGeophysicalImage();
+        final PlanarImage validImage = raster.isValidMaskUsed() ? raster.getValidMaskImage() : null;
+        final PlanarImage[] maskImages = new PlanarImage[masks.length];
+        for (int i = 0; i < masks.length; i++) {
+            maskImages[i] = masks[i] != null ? masks[i].getSourceImage() : null;
+        }
+        final int numTiles = dataImage.getNumXTiles() * dataImage.getNumYTiles();
+        final MaskAccumulator[] accumulators = new MaskAccumulator[masks.length];
+        for (int i = 0; i < masks.length; i++) {
+            accumulators[i] = new MaskAccumulator();
+        }
+        final Context context = new Context(dataImage, validImage, maskImages, accumulators);
+
+        pm.beginTask("Computing statistics", 3 * numTiles + masks.length);
+        try {
+            context.monitor = new SynchronizedProgressMonitor(SubProgressMonitor.create(pm, numTiles));
+            context.monitor.beginTask("Computing minimum, maximum and mean", numTiles);
+            try {
+                new TileTask(context, 0, numTiles, false).invoke();
+            } finally {
+                context.monitor.done();
+            }
+            checkCanceled(pm);
+
+            for (int i = 0; i < masks.length; i++) {
+                final MaskAccumulator accumulator = accumulators[i];
+                if (accumulator.count == 0) {
+                    // let the factory deal with empty masks the way it always did
+                    final Stx stx = new StxFactory()
+                            .withRoiMask(masks[i])
+                            .withHistogramBinCount(binCount)
+                            .create(raster, SubProgressMonitor.create(pm, 1));
+                    accumulator.done = true;
+                    listener.stxComputed(i, stx);
+                } else {
+                    accumulator.initHistogram();
+                    pm.worked(1);
+                }
+            }
+
+            context.monitor = new SynchronizedProgressMonitor(SubProgressMonitor.create(pm, 2 * numTiles));
+            context.monitor.beginTask("Computing histograms", numTiles);
+            try {
+                final int tilesPerBatch = dataImage.getNumXTiles();
+                for (int tileStart = 0; tileStart < numTiles; tileStart += tilesPerBatch) {
+                    final int tileEnd = Math.min(tileStart + tilesPerBatch, numTiles);
+                    new TileTask(context, tileStart, tileEnd, true).invoke();
+                    checkCanceled(context.monitor);
+                    for (int i = 0; i < masks.length; i++) {
+                        final MaskAccumulator accumulator = accumulators[i];
+                        if (!accumulator.done && accumulator.lastTile < tileEnd) {
+                            accumulator.done = true;
+                            listener.stxComputed(i, accumulator.createStx());
+                        }
+                    }
+                }
+            } finally {
+                context.monitor.done();
+            }
+        } finally {
+            pm.done();
+        }
+    }
+
+    private static void checkCanceled(ProgressMonitor pm) {
+        if (pm.isCanceled()) {
+            throw new CancellationException();
+        }
+    }
+
+    private static class Context {
+
+        final PlanarImage dataImage;
+        final PlanarImage validImage;
+        final PlanarImage[] maskImages;
+        final MaskAccumulator[] accumulators;
+        ProgressMonitor monitor;
+
+        Context(PlanarImage dataImage, PlanarImage validImage, PlanarImage[] maskImages, MaskAccumulator[] accumulators) {
+            this.dataImage = dataImage;
+            this.validImage = validImage;
+            this.maskImages = maskImages;
+            this.accumulators = accumulators;
+        }
+    }
+
+    private class TileTask extends RecursiveAction {
+
+        private final Context context;
+        private final int tileStart;
+        private final int tileEnd;
+        private final boolean histogramPass;
+
+        TileTask(Context context, int tileStart, int tileEnd, boolean histogramPass) {
+            this.context = context;
+            this.tileStart = tileStart;
+            this.tileEnd = tileEnd;
+            this.histogramPass = histogramPass;
+        }
+
+        @Override
+        protected void compute() {
+            if (tileEnd - tileStart > TILES_PER_TASK) {
+                final int mid = (tileStart + tileEnd) >>> 1;
+                invokeAll(new TileTask(context, tileStart, mid, histogramPass),
+                          new TileTask(context, mid, tileEnd, histogramPass));
+                return;
+            }
+            final Buffers buffers = BUFFERS.get();
+            for (int tileIndex = tileStart; tileIndex < tileEnd; tileIndex++) {
+                if (context.monitor.isCanceled()) {
+                    return;
+                }
+                accumulateTile(context, tileIndex, histogramPass, buffers);
+                context.monitor.worked(1);
+            }
+        }
+    }
+
+    private void accumulateTile(Context context, int tileIndex, boolean histogramPass, Buffers buffers) {
+        final MaskAccumulator[] accumulators = context.accumulators;
+        if (histogramPass && !isTileNeeded(accumulators, tileIndex)) {
+            return;
+        }
+        final PlanarImage dataImage = context.dataImage;
+        final int tileX = dataImage.getMinTileX() + tileIndex % dataImage.getNumXTiles();
+        final int tileY = dataImage.getMinTileY() + tileIndex / dataImage.getNumXTiles();
+        final Rectangle rect = dataImage.getTileRect(tileX, tileY);
+        if (rect.isEmpty()) {
+            return;
+        }
+        final int numPixels = rect.width * rect.height;
+        final double[] values = buffers.values(numPixels);
+        StatisticsUtils.getGeophysicalSamples(raster, dataImage.getTile(tileX, tileY), rect, values);
+        final Raster validTile = StatisticsUtils.getAlignedTile(context.validImage, dataImage, tileX, tileY);
+        final int[] valid = validTile != null ? validTile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, buffers.valid(numPixels)) : null;
+
+        for (int maskIndex = 0; maskIndex < accumulators.length; maskIndex++) {
+            final MaskAccumulator accumulator = accumulators[maskIndex];
+            if (histogramPass && (accumulator.done || tileIndex < accumulator.firstTile || tileIndex > accumulator.lastTile)) {
+                continue;
+            }
+            final Raster maskTile = StatisticsUtils.getAlignedTile(context.maskImages[maskIndex], dataImage, tileX, tileY);
+            final int[] mask = maskTile != null ? maskTile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, buffers.mask(numPixels)) : null;
+            if (histogramPass) {
+                accumulateHistogram(accumulator, values, valid, mask, numPixels, buffers);
+            } else {
+                accumulateSummary(accumulator, tileIndex, values, valid, mask, numPixels);
+            }
+        }
+    }
+
+    private static boolean isTileNeeded(MaskAccumulator[] accumulators, int tileIndex) {
+        for (MaskAccumulator accumulator : accumulators) {
+            if (!accumulator.done && tileIndex >= accumulator.firstTile && tileIndex <= accumulator.lastTile) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void accumulateSummary(MaskAccumulator accumulator, int tileIndex,
+                                          double[] values, int[] valid, int[] mask, int numPixels) {
+        long count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0.0;
+        for (int i = 0; i < numPixels; i++) {
+            final double value = values[i];
+            if (isSelected(valid, mask, i, value)) {
+                if (value < min) {
+                    min = value;
+                }
+                if (value > max) {
+                    max = value;
+                }
+                sum += value;
+                count++;
+            }
+        }
+        if (count > 0) {
+            accumulator.addSummary(tileIndex, count, min, max, sum);
+        }
+    }
+
+    private void accumulateHistogram(MaskAccumulator accumulator, double[] values, int[] valid, int[] mask,
+                                     int numPixels, Buffers buffers) {
+        final int[] binIndexes = buffers.binIndexes(numPixels);
+        final double mean = accumulator.mean;
+        final double low = accumulator.histogramLow;
+        final double binScale = binCount / (accumulator.histogramHigh - low);
+        int count = 0;
+        double m2 = 0.0;
+        double m3 = 0.0;
+        double m4 = 0.0;
+        for (int i = 0; i < numPixels; i++) {
+            final double value = values[i];
+            if (isSelected(valid, mask, i, value)) {
+                final double d = value - mean;
+                final double d2 = d * d;
+                m2 += d2;
+                m3 += d2 * d;
+                m4 += d2 * d2;
+                final int binIndex = (int) ((value - low) * binScale);
+                binIndexes[count++] = binIndex < binCount ? binIndex : binCount - 1;
+            }
+        }
+        if (count > 0) {
+            accumulator.addHistogram(binIndexes, count, m2, m3, m4);
+        }
+    }
+
+    private static boolean isSelected(int[] valid, int[] mask, int i, double value) {
+        return (valid == null || valid[i] != 0)
+               && (mask == null || mask[i] != 0)
+               && !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    /**
+     * The statistics of a single mask. Tiles add their partial results while holding the accumulator's lock.
+     */
+    private class MaskAccumulator {
+
+        // first pass
+        long count;
+        double minimum = Double.POSITIVE_INFINITY;
+        double maximum = Double.NEGATIVE_INFINITY;
+        double sum;
+        int firstTile = Integer.MAX_VALUE;
+        int lastTile = -1;
+
+        // second pass
+        double mean;
+        double histogramLow;
+        double histogramHigh;
+        int[] bins;
+        double m2;
+        double m3;
+        double m4;
+        volatile boolean done;
+
+        synchronized void addSummary(int tileIndex, long count, double min, double max, double sum) {
+            this.count += count;
+            this.minimum = Math.min(this.minimum, min);
+            this.maximum = Math.max(this.maximum, max);
+            this.sum += sum;
+            this.firstTile = Math.min(this.firstTile, tileIndex);
+            this.lastTile = Math.max(this.lastTile, tileIndex);
+        }
+
+        void initHistogram() {
+            mean = sum / count;
+            histogramLow = minimum;
+            if (intHistogram) {
+                // integer values shall fall into the middle of their bins, as with the StxFactory
+                histogramHigh = maximum + 1.0;
+            } else if (maximum > minimum) {
+                histogramHigh = maximum;
+            } else {
+                histogramHigh = minimum + 1.0e-10 * Math.max(1.0, Math.abs(minimum));
+            }
+            bins = new int[binCount];
+        }
+
+        synchronized void addHistogram(int[] binIndexes, int n, double m2, double m3, double m4) {
+            for (int i = 0; i < n; i++) {
+                bins[binIndexes[i]]++;
+            }
+            this.m2 += m2;
+            this.m3 += m3;
+            this.m4 += m4;
+        }
+
+        synchronized Stx createStx() {
+            final double variance = m2 / count;
+            final double stdDev = count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+            final double skewness = variance > 0.0 ? (m3 / count) / Math.pow(variance, 1.5) : 0.0;
+            final double kurtosis = variance > 0.0 ? (m4 / count) / (variance * variance) - 3.0 : 0.0;
+            final Histogram histogram = new Histogram(binCount, histogramLow, histogramHigh, 1);
+            System.arraycopy(bins, 0, histogram.getBins(0), 0, binCount);
+            return new Stx(minimum, maximum, mean, stdDev, skewness, kurtosis,
+                           false, intHistogram, histogram, 0);
+        }
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Per-thread sample buffers, grown on demand and reused across tiles and computations.
+     */
+    private static class Buffers {
+
+        private double[] values = new double[0];
+        private int[] valid = new int[0];
+        private int[] mask = new int[0];
+        private int[] binIndexes = new int[0];
+
+        double[] values(int length) {
+            if (values.length < length) {
+                values = new double[length];
+            }
+            return values;
+        }
+
+        int[] valid(int length) {
+            if (valid.length < length) {
+                valid = new int[length];
+            }
+            return valid;
+        }
+
+        int[] mask(int length) {
+            if (mask.length < length) {
+                mask = new int[length];
+            }
+            return mask;
+        }
+
+        int[] binIndexes(int length) {
+            if (binIndexes.length < length) {
+                binIndexes = new int[length];
+            }
+            return binIndexes;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the mean and standard deviation of raster values within many small boxes, e.g. the boxes around the
+ * in-situ points of a correlative plot.
+ * <p>
+ * Instead of reading the pixels of every box separately, the boxes are grouped by the tiles they intersect.
+ * Each tile of the raster, its valid mask and the optional ROI mask is then fetched only once and all boxes
+ * intersecting it are accumulated in one go. Tiles are processed in parallel on the common fork-join pool;
+ * boxes spanning several tiles receive one partial sum per tile which are reduced at the end.
+ */
+class ScatterPlotAccumulator {
+
+    private static final int TILES_PER_TASK = 4;
+
+    private final RasterDataNode raster;
+    private final Mask roiMask;
+    private final Rectangle[] boxes;
+
+    private final int[] counts;
+    private final double[] sums;
+    private final double[] sumSqrs;
+    private final boolean[] centerMasked;
+
+    /**
+     * @param raster  the raster to be sampled
+     * @param roiMask an optional ROI mask, may be {@code null}
+     * @param boxes   the boxes in pixel coordinates, must be located within the raster bounds
+     */
+    ScatterPlotAccumulator(RasterDataNode raster, Mask roiMask, Rectangle[] boxes) {
+        this.raster = raster;
+        this.roiMask = roiMask;
+        this.boxes = boxes;
+        counts = new int[boxes.length];
+        sums = new double[boxes.length];
+        sumSqrs = new double[boxes.length];
+        centerMasked = new boolean[boxes.length];
+    }
+
+    /**
+     * Accumulates the values of all boxes.
+     *
+     * @param pm a monitor used to report progress in units of tiles and to cancel the computation
+     * @throws CancellationException if the computation has been cancelled using the progress monitor
+     */
+    void accumulate(ProgressMonitor pm) {
+        Arrays.fill(counts, 0);
+        Arrays.fill(sums, 0.0);
+        Arrays.fill(sumSqrs, 0.0);
+        Arrays.fill(centerMasked, false);
+
+        final PlanarImage dataImage = raster.getGeophysicalImage();
+        final PlanarImage validImage = raster.isValidMaskUsed() ? raster.getValidMaskImage() : null;
+        final PlanarImage maskImage = roiMask != null ? roiMask.getSourceImage() : null;
+
+        final long[] tileBoxPairs = createTileBoxPairs(dataImage);
+        final int[] groupStarts = findGroupStarts(tileBoxPairs);
+        final int numGroups = groupStarts.length - 1;
+
+        final int[] pairCounts = new int[tileBoxPairs.length];
+        final double[] pairSums = new double[tileBoxPairs.length];
+        final double[] pairSumSqrs = new double[tileBoxPairs.length];
+
+        final ProgressMonitor monitor = new SynchronizedProgressMonitor(pm);
+        monitor.beginTask("Accumulating pixel values", numGroups);
+        try {
+            final Context context = new Context(dataImage, validImage, maskImage, tileBoxPairs, groupStarts,
+                                                pairCounts, pairSums, pairSumSqrs, monitor);
+            new TileGroupTask(context, 0, numGroups).invoke();
+            if (monitor.isCanceled()) {
+                throw new CancellationException();
+            }
+        } finally {
+            monitor.done();
+        }
+
+        for (int i = 0; i < tileBoxPairs.length; i++) {
+            final int boxIndex = (int) tileBoxPairs[i];
+            counts[boxIndex] += pairCounts[i];
+            sums[boxIndex] += pairSums[i];
+            sumSqrs[boxIndex] += pairSumSqrs[i];
+        }
+    }
+
+    int getNumBoxes() {
+        return boxes.length;
+    }
+
+    /**
+     * @return the number of valid pixels in the given box
+     */
+    int getCount(int boxIndex) {
+        return counts[boxIndex];
+    }
+
+    /**
+     * @return {@code true}, if the center pixel of the box is excluded by the ROI mask
+     */
+    boolean isCenterMasked(int boxIndex) {
+        return centerMasked[boxIndex];
+    }
+
+    double getMean(int boxIndex) {
+        final int n = counts[boxIndex];
+        return n > 0 ? sums[boxIndex] / n : Double.NaN;
+    }
+
+    double getSigma(int boxIndex) {
+        final int n = counts[boxIndex];
+        if (n > 1) {
+            final double sum = sums[boxIndex];
+            return Math.sqrt((sumSqrs[boxIndex] - (sum * sum) / n) / (n - 1));
+        }
+        return n == 1 ? 0.0 : Double.NaN;
+    }
+
+    /*
+     * Creates one entry for each tile/box intersection. The upper 32 bits hold the linear tile index,
+     * the lower 32 bits the box index. Sorting groups the entries by tile.
+     */
+    private long[] createTileBoxPairs(PlanarImage image) {
+        int numPairs = 0;
+        for (Rectangle box : boxes) {
+            numPairs += getNumTilesX(image, box) * getNumTilesY(image, box);
+        }
+        final long[] pairs = new long[numPairs];
+        int pairIndex = 0;
+        for (int boxIndex = 0; boxIndex < boxes.length; boxIndex++) {
+            final Rectangle box = boxes[boxIndex];
+            final int tileX0 = image.XToTileX(box.x);
+            final int tileY0 = image.YToTileY(box.y);
+            final int numTilesX = getNumTilesX(image, box);
+            final int numTilesY = getNumTilesY(image, box);
+            for (int tileY = tileY0; tileY < tileY0 + numTilesY; tileY++) {
+                for (int tileX = tileX0; tileX < tileX0 + numTilesX; tileX++) {
+                    final long tileIndex = (long) (tileY - image.getMinTileY()) * image.getNumXTiles() + (tileX - image.getMinTileX());
+                    pairs[pairIndex++] = (tileIndex << 32) | boxIndex;
+                }
+            }
+        }
+        Arrays.sort(pairs);
+        return pairs;
+    }
+
+    private static int getNumTilesX(PlanarImage image, Rectangle box) {
+        return box.isEmpty() ? 0 : image.XToTileX(box.x + box.width - 1) - image.XToTileX(box.x) + 1;
+    }
+
+    private static int getNumTilesY(PlanarImage image, Rectangle box) {
+        return box.isEmpty() ? 0 : image.YToTileY(box.y + box.height - 1) - image.YToTileY(box.y) + 1;
+    }
+
+    private static int[] findGroupStarts(long[] pairs) {
+        final int[] starts = new int[pairs.length + 1];
+        int numGroups = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            if (i == 0 || (pairs[i] >>> 32) != (pairs[i - 1] >>> 32)) {
+                starts[numGroups++] = i;
+            }
+        }
+        starts[numGroups] = pairs.length;
+        return Arrays.copyOf(starts, numGroups + 1);
+    }
+
+    private static class Context {
+
+        final PlanarImage dataImage;
+        final PlanarImage validImage;
+        final PlanarImage maskImage;
+        final long[] tileBoxPairs;
+        final int[] groupStarts;
+        final int[] pairCounts;
+        final double[] pairSums;
+        final double[] pairSumSqrs;
+        final ProgressMonitor monitor;
+
+        Context(PlanarImage dataImage, PlanarImage validImage, PlanarImage maskImage,
+                long[] tileBoxPairs, int[] groupStarts,
+                int[] pairCounts, double[] pairSums, double[] pairSumSqrs,
+                ProgressMonitor monitor) {
+            this.dataImage = dataImage;
+            this.validImage = validImage;
+            this.maskImage = maskImage;
+            this.tileBoxPairs = tileBoxPairs;
+            this.groupStarts = groupStarts;
+            this.pairCounts = pairCounts;
+            this.pairSums = pairSums;
+            this.pairSumSqrs = pairSumSqrs;
+            this.monitor = monitor;
+        }
+    }
+
+    private class TileGroupTask extends RecursiveAction {
+
+        private final Context context;
+        private final int groupStart;
+        private final int groupEnd;
+
+        TileGroupTask(Context context, int groupStart, int groupEnd) {
+            this.context = context;
+            this.groupStart = groupStart;
+            this.groupEnd = groupEnd;
+        }
+
+        @Override
+        protected void compute() {
+            if (groupEnd - groupStart > TILES_PER_TASK) {
+                final int mid = (groupStart + groupEnd) >>> 1;
+                invokeAll(new TileGroupTask(context, groupStart, mid),
+                          new TileGroupTask(context, mid, groupEnd));
+                return;
+            }
+            final Buffers buffers = BUFFERS.get();
+            for (int group = groupStart; group < groupEnd; group++) {
+                if (context.monitor.isCanceled()) {
+                    return;
+                }
+                accumulateTile(context, group, buffers);
+                context.monitor.worked(1);
+            }
+        }
+    }
+
+    private void accumulateTile(Context context, int group, Buffers buffers) {
+        final PlanarImage dataImage = context.dataImage;
+        final int start = context.groupStarts[group];
+        final int end = context.groupStarts[group + 1];
+        final int tileIndex = (int) (context.tileBoxPairs[start] >>> 32);
+        final int tileX = dataImage.getMinTileX() + tileIndex % dataImage.getNumXTiles();
+        final int tileY = dataImage.getMinTileY() + tileIndex / dataImage.getNumXTiles();
+        final Rectangle tileRect = dataImage.getTileRect(tileX, tileY);
+
+        final Raster dataTile = dataImage.getTile(tileX, tileY);
+        final Raster validTile = StatisticsUtils.getAlignedTile(context.validImage, dataImage, tileX, tileY);
+        final Raster maskTile = StatisticsUtils.getAlignedTile(context.maskImage, dataImage, tileX, tileY);
+
+        for (int pair = start; pair < end; pair++) {
+            final int boxIndex = (int) context.tileBoxPairs[pair];
+            final Rectangle box = boxes[boxIndex];
+            final Rectangle rect = box.intersection(tileRect);
+            if (rect.isEmpty()) {
+                continue;
+            }
+            final int numPixels = rect.width * rect.height;
+            final double[] values = buffers.values(numPixels);
+            StatisticsUtils.getGeophysicalSamples(raster, dataTile, rect, values);
+            final int[] valid = validTile != null ? validTile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, buffers.valid(numPixels)) : null;
+            final int[] mask = maskTile != null ? maskTile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, buffers.mask(numPixels)) : null;
+
+            final int centerX = box.x + box.width / 2;
+            final int centerY = box.y + box.height / 2;
+            if (mask != null && rect.contains(centerX, centerY)) {
+                centerMasked[boxIndex] = mask[(centerY - rect.y) * rect.width + (centerX - rect.x)] == 0;
+            }
+
+            int n = 0;
+            double sum = 0.0;
+            double sumSqr = 0.0;
+            for (int i = 0; i < numPixels; i++) {
+                if ((valid == null || valid[i] != 0) && (mask == null || mask[i] != 0)) {
+                    final double value = values[i];
+                    sum += value;
+                    sumSqr += value * value;
+                    n++;
+                }
+            }
+            context.pairCounts[pair] = n;
+            context.pairSums[pair] = sum;
+            context.pairSumSqrs[pair] = sumSqr;
+        }
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Per-thread sample buffers, grown on demand and reused across tiles and computations.
+     */
+    private static class Buffers {
+
+        private double[] values = new double[0];
+        private int[] valid = new int[0];
+        private int[] mask = new int[0];
+
+        double[] values(int length) {
+            if (values.length < length) {
+                values = new double[length];
+            }
+            return values;
+        }
+
+        int[] valid(int length) {
+            if (valid.length < length) {
+                valid = new int[length];
+            }
+            return valid;
+        }
+
+        int[] mask(int length) {
+            if (mask.length < length) {
+                mask = new int[length];
+            }
+            return mask;
+        }
+    }
+}
@@ -20,7 +20,9 @@ import com.bc.ceres.binding.PropertyContainer;
 import com.bc.ceres.binding.PropertyDescriptor;
 import com.bc.ceres.binding.ValidationException;
 import com.bc.ceres.binding.ValueRange;
+import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.swing.binding.BindingContext;
+import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
 import com.vividsolutions.jts.geom.Point;
 import org.esa.snap.framework.datamodel.GeoCoding;
 import org.esa.snap.framework.datamodel.GeoPos;
@@ -95,7 +97,6 @@ import java.awt.geom.Rectangle2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -627,14 +628,12 @@ class ScatterPlotPanel extends ChartPagePanel {
             return;
         }
 
-        SwingWorker<ComputedData[], Object> swingWorker = new SwingWorker<ComputedData[], Object>() {
+        SwingWorker<ComputedData[], Object> swingWorker = new ProgressMonitorSwingWorker<ComputedData[], Object>(this, CHART_TITLE) {
 
             @Override
-            protected ComputedData[] doInBackground() throws Exception {
+            protected ComputedData[] doInBackground(ProgressMonitor pm) throws Exception {
                 SystemUtils.LOG.finest("start computing scatter plot data");
 
-                final List<ComputedData> computedDataList = new ArrayList<>();
-
                 final FeatureCollection<SimpleFeatureType, SimpleFeature> collection = scatterPlotModel.pointDataSource.getFeatureCollection();
                 final SimpleFeature[] features = collection.toArray(new SimpleFeature[collection.size()]);
 
@@ -645,6 +644,10 @@ class ScatterPlotPanel extends ChartPagePanel {
                 final GeoCoding geoCoding = raster.getGeoCoding();
                 final AffineTransform imageToModelTransform;
                 imageToModelTransform = ImageManager.getImageToModelTransform(geoCoding);
+
+                final List<SimpleFeature> boxFeatures = new ArrayList<>(features.length);
+                final List<Point2D> boxImagePositions = new ArrayList<>(features.length);
+                final List<Rectangle> boxes = new ArrayList<>(features.length);
                 for (SimpleFeature feature : features) {
                     final Point point = (Point) feature.getDefaultGeometryProperty().getValue();
                     Point2D modelPos = new Point2D.Float((float) point.getX(), (float) point.getY());
@@ -661,52 +664,33 @@ class ScatterPlotPanel extends ChartPagePanel {
                     if (imageRect.isEmpty()) {
                         continue;
                     }
-                    final double[] rasterValues = new double[imageRect.width * imageRect.height];
-                    raster.readPixels(imageRect.x, imageRect.y, imageRect.width, imageRect.height, rasterValues);
-
-                    final int[] maskBuffer = new int[imageRect.width * imageRect.height];
-                    Arrays.fill(maskBuffer, 1);
-                    if (selectedMask != null) {
-                        selectedMask.readPixels(imageRect.x, imageRect.y, imageRect.width, imageRect.height,
-                                                maskBuffer);
-                    }
-
-                    final int centerIndex = imageRect.width * (imageRect.height / 2) + (imageRect.width / 2);
-                    if (maskBuffer[centerIndex] == 0) {
-                        continue;
-                    }
+                    boxFeatures.add(feature);
+                    boxImagePositions.add(imagePos);
+                    boxes.add(imageRect);
+                }
 
-                    double sum = 0;
-                    double sumSqr = 0;
-                    int n = 0;
-                    boolean valid = false;
-
-                    for (int y = 0; y < imageRect.height; y++) {
-                        for (int x = 0; x < imageRect.width; x++) {
-                            final int index = y * imageRect.height + x;
-                            if (raster.isPixelValid(x + imageRect.x, y + imageRect.y) && maskBuffer[index] != 0) {
-                                final double rasterValue = rasterValues[index];
-                                sum += rasterValue;
-                                sumSqr += rasterValue * rasterValue;
-                                n++;
-                                valid = true;
-                            }
-                        }
-                    }
+                final ScatterPlotAccumulator accumulator = new ScatterPlotAccumulator(raster, selectedMask,
+                                                                                      boxes.toArray(new Rectangle[boxes.size()]));
+                accumulator.accumulate(pm);
 
-                    if (!valid) {
+                final List<ComputedData> computedDataList = new ArrayList<>();
+                for (int i = 0; i < accumulator.getNumBoxes(); i++) {
+                    if (accumulator.isCenterMasked(i) || accumulator.getCount(i) == 0) {
                         continue;
                     }
 
-                    double rasterMean = sum / n;
-                    double rasterSigma = n > 1 ? Math.sqrt((sumSqr - (sum * sum) / n) / (n - 1)) : 0.0;
+                    final double rasterMean = accumulator.getMean(i);
+                    final double rasterSigma = accumulator.getSigma(i);
 
+                    final SimpleFeature feature = boxFeatures.get(i);
                     String localName = dataField.getLocalName();
                     Number attribute = (Number) feature.getAttribute(localName);
 
                     final Collection<org.opengis.feature.Property> featureProperties = feature.getProperties();
 
                     final float correlativeData = attribute.floatValue();
+                    final float imagePosX = (float) boxImagePositions.get(i).getX();
+                    final float imagePosY = (float) boxImagePositions.get(i).getY();
                     final GeoPos geoPos = new GeoPos();
                     if (geoCoding.canGetGeoPos()) {
                         final PixelPos pixelPos = new PixelPos(imagePosX, imagePosY);
@@ -786,9 +770,11 @@ class ScatterPlotPanel extends ChartPagePanel {
                                             JOptionPane.ERROR_MESSAGE, null);
                 } catch (ExecutionException e) {
                     SystemUtils.LOG.log(Level.WARNING, "Failed to compute correlative plot.", e);
+                    final String reason = e.getCause() instanceof CancellationException
+                                          ? "Calculation canceled."
+                                          : "An error occurred:\n" + e.getCause().getMessage();
                     SnapDialogs.showMessage(CHART_TITLE,
-                                            "Failed to compute correlative plot.\n" +
-                                            "An error occurred:\n" + e.getCause().getMessage(),
+                                            "Failed to compute correlative plot.\n" + reason,
                                             JOptionPane.ERROR_MESSAGE, null);
                 }
             }
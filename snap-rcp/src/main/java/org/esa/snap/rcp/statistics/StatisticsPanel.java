@@ -21,14 +21,12 @@ import com.bc.ceres.binding.PropertyDescriptor;
 import com.bc.ceres.binding.ValueRange;
 import com.bc.ceres.binding.validators.IntervalValidator;
 import com.bc.ceres.core.ProgressMonitor;
-import com.bc.ceres.core.SubProgressMonitor;
 import com.bc.ceres.swing.binding.BindingContext;
 import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
 import org.esa.snap.framework.datamodel.Mask;
 import org.esa.snap.framework.datamodel.ProductNodeGroup;
 import org.esa.snap.framework.datamodel.RasterDataNode;
 import org.esa.snap.framework.datamodel.Stx;
-import org.esa.snap.framework.datamodel.StxFactory;
 import org.esa.snap.framework.datamodel.VectorDataNode;
 import org.esa.snap.framework.ui.GridBagUtils;
 import org.esa.snap.framework.ui.UIUtils;
@@ -84,7 +82,10 @@ import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * A general pane within the statistics window.
@@ -270,10 +271,12 @@ class StatisticsPanel extends PagePanel implements MultipleRoiComputePanel.Compu
 
         final Stx stx;
         final Mask mask;
+        final int maskIndex;
 
-        ComputeResult(Stx stx, Mask mask) {
+        ComputeResult(Stx stx, Mask mask, int maskIndex) {
             this.stx = stx;
             this.mask = mask;
+            this.maskIndex = maskIndex;
         }
     }
 
@@ -283,35 +286,46 @@ class StatisticsPanel extends PagePanel implements MultipleRoiComputePanel.Compu
         final String title = "Computing Statistics";
         SwingWorker<Object, ComputeResult> swingWorker = new ProgressMonitorSwingWorker<Object, ComputeResult>(this, title) {
 
+            private final ComputeResult[] results = new ComputeResult[selectedMasks.length];
+
             @Override
             protected Object doInBackground(ProgressMonitor pm) {
-                pm.beginTask(title, selectedMasks.length);
-                try {
-                    final int binCount = Util.computeBinCount(accuracyModel.accuracy);
-                    for (int i = 0; i < selectedMasks.length; i++) {
-                        final Mask mask = selectedMasks[i];
-                        final Stx stx;
-                        ProgressMonitor subPm = SubProgressMonitor.create(pm, 1);
-                        if (mask == null) {
-                            stx = new StxFactory()
-                                    .withHistogramBinCount(binCount)
-                                    .create(getRaster(), subPm);
-                            getRaster().setStx(stx);
-                        } else {
-                            stx = new StxFactory()
-                                    .withHistogramBinCount(binCount)
-                                    .withRoiMask(mask)
-                                    .create(getRaster(), subPm);
+                final RasterDataNode raster = getRaster();
+                final int binCount = Util.computeBinCount(accuracyModel.accuracy);
+                final StxCache stxCache = StxCache.getDefault();
+                final List<Mask> pendingMasks = new ArrayList<>();
+                final List<Integer> pendingIndexes = new ArrayList<>();
+                for (int i = 0; i < selectedMasks.length; i++) {
+                    final Stx stx = stxCache.getCachedStx(raster, selectedMasks[i], binCount, false, 0);
+                    if (stx != null) {
+                        if (selectedMasks[i] == null && (!raster.isStxSet() || raster.getStx() != stx)) {
+                            raster.setStx(stx);
                         }
-                        histograms[i] = stx.getHistogram();
-                        publish(new ComputeResult(stx, mask));
+                        publishStx(i, stx);
+                    } else {
+                        pendingMasks.add(selectedMasks[i]);
+                        pendingIndexes.add(i);
                     }
-                } finally {
-                    pm.done();
+                }
+                if (!pendingMasks.isEmpty()) {
+                    final Mask[] masks = pendingMasks.toArray(new Mask[pendingMasks.size()]);
+                    new MultiMaskStxAccumulator(raster, masks, binCount).accumulate(pm, (maskIndex, stx) -> {
+                        final Mask mask = masks[maskIndex];
+                        stxCache.putStx(raster, mask, binCount, false, 0, stx);
+                        if (mask == null) {
+                            raster.setStx(stx);
+                        }
+                        publishStx(pendingIndexes.get(maskIndex), stx);
+                    });
                 }
                 return null;
             }
 
+            private void publishStx(int maskIndex, Stx stx) {
+                histograms[maskIndex] = stx.getHistogram();
+                publish(new ComputeResult(stx, selectedMasks[maskIndex], maskIndex));
+            }
+
             @Override
             protected void process(List<ComputeResult> chunks) {
 
@@ -320,16 +334,30 @@ class StatisticsPanel extends PagePanel implements MultipleRoiComputePanel.Compu
                     final Stx stx = result.stx;
                     final Mask mask = result.mask;
 
-                    if (resultText.length() > 0) {
-                        resultText.append("\n");
+                    // results arrive in the order of completion, but are shown in the order of the masks
+                    int position = 0;
+                    for (int i = 0; i < result.maskIndex; i++) {
+                        if (results[i] != null) {
+                            position++;
+                        }
                     }
-                    resultText.append(createText(stx, mask));
+                    results[result.maskIndex] = result;
 
                     JPanel statPanel = createStatPanel(stx, mask);
-                    contentPanel.add(statPanel);
+                    contentPanel.add(statPanel, position);
                     contentPanel.revalidate();
                     contentPanel.repaint();
                 }
+
+                resultText.setLength(0);
+                for (ComputeResult result : results) {
+                    if (result != null) {
+                        if (resultText.length() > 0) {
+                            resultText.append("\n");
+                        }
+                        resultText.append(createText(result.stx, result.mask));
+                    }
+                }
             }
 
             @Override
@@ -345,6 +373,15 @@ class StatisticsPanel extends PagePanel implements MultipleRoiComputePanel.Compu
                     }
                     putStatisticsIntoVectorDataAction.setSelectedMasks(selectedMasks);
                     exportButton.setEnabled(true);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        return;
+                    }
+                    e.printStackTrace();
+                    SnapDialogs.showMessage("<html>Statistics",
+                                            "Failed to compute statistics.<br/>An error occurred:"
+                                                    + e.getCause().getMessage() + "</html>",
+                                            JOptionPane.ERROR_MESSAGE, null);
                 } catch (Exception e) {
                     e.printStackTrace();
                     SnapDialogs.showMessage("<html>Statistics",
@@ -20,6 +20,7 @@ import com.bc.ceres.swing.figure.Figure;
 import com.bc.ceres.swing.figure.ShapeFigure;
 import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
 import org.esa.snap.framework.datamodel.RasterDataNode;
 import org.esa.snap.framework.datamodel.TransectProfileData;
 import org.esa.snap.framework.ui.product.ProductSceneView;
@@ -27,8 +28,11 @@ import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.util.StringUtils;
 import org.esa.snap.util.math.MathUtils;
 
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.Point2D;
+import java.awt.image.Raster;
 import java.io.IOException;
 
 
@@ -55,6 +59,57 @@ public class StatisticsUtils {
         return MathUtils.round(x, v);
     }
 
+    /**
+     * Returns the data of the given image covering the given tile of a reference image. Images derived from the same
+     * raster, like valid masks and ROI masks, usually share the tiling of the reference image, so the tile can be used
+     * directly. Otherwise the data is copied.
+     *
+     * @param image          the image, may be {@code null}
+     * @param referenceImage the image defining the tiling
+     * @param tileX          the tile X-index in the reference image
+     * @param tileY          the tile Y-index in the reference image
+     * @return the data, or {@code null} if {@code image} is {@code null}
+     */
+    static Raster getAlignedTile(PlanarImage image, PlanarImage referenceImage, int tileX, int tileY) {
+        if (image == null) {
+            return null;
+        }
+        if (image.getTileWidth() == referenceImage.getTileWidth()
+            && image.getTileHeight() == referenceImage.getTileHeight()
+            && image.getTileGridXOffset() == referenceImage.getTileGridXOffset()
+            && image.getTileGridYOffset() == referenceImage.getTileGridYOffset()) {
+            return image.getTile(tileX, tileY);
+        }
+        return image.getData(referenceImage.getTileRect(tileX, tileY));
+    }
+
+    /**
+     * Reads the geophysical samples of a raster from a tile of its geophysical image. Signed bytes and unsigned
+     * integers, which are not represented correctly by the tile itself, are converted.
+     *
+     * @param raster the raster the tile belongs to
+     * @param tile   a tile of the raster's geophysical image
+     * @param rect   the region to be read, must be contained in the tile
+     * @param values the buffer receiving the samples, must have at least {@code rect.width * rect.height} elements
+     */
+    static void getGeophysicalSamples(RasterDataNode raster, Raster tile, Rectangle rect, double[] values) {
+        tile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, values);
+        if (!raster.isScalingApplied()) {
+            final int numValues = rect.width * rect.height;
+            if (raster.getDataType() == ProductData.TYPE_INT8) {
+                for (int i = 0; i < numValues; i++) {
+                    values[i] = (byte) values[i];
+                }
+            } else if (raster.getDataType() == ProductData.TYPE_UINT32) {
+                for (int i = 0; i < numValues; i++) {
+                    if (values[i] < 0.0) {
+                        values[i] += 4294967296.0;
+                    }
+                }
+            }
+        }
+    }
+
     public static String getDiagramLabel(final RasterDataNode raster) {
         final StringBuilder sb = new StringBuilder();
         sb.append(raster.getName());
@@ -116,9 +171,12 @@ public class StatisticsUtils {
         static String createTransectProfileText(RasterDataNode raster, TransectProfileData data) {
             final Point2D[] pixelPositions = data.getPixelPositions();
             final GeoPos[] geoPositions = data.getGeoPositions();
-            final float[] sampleValues = data.getSampleValues();
+            // the path is taken from the profile data, the values are sampled tile by tile
+            final TransectSampler sampler = new TransectSampler(raster.getSceneRasterWidth(),
+                                                                raster.getSceneRasterHeight(), pixelPositions);
+            final double[] sampleValues = sampler.sample(raster, null);
 
-            final StringBuilder sb = new StringBuilder(1024);
+            final StringBuilder sb = new StringBuilder(1024 + 64 * pixelPositions.length);
             final String formatString = "%1$-10s\t";
 
             sb.append(String.format(formatString, "Index"));
@@ -131,21 +189,38 @@ public class StatisticsUtils {
             sb.append(String.format(formatString, getDiagramLabel(raster)));
             sb.append("\n");
 
+            // the columns are padded in place instead of using String.format(), as transects may be long
             for (int i = 0; i < pixelPositions.length; i++) {
                 final Point2D pixelPos = pixelPositions[i];
-                sb.append(String.format(formatString, String.valueOf(i)));
-                sb.append(String.format(formatString, String.valueOf(pixelPos.getX())));
-                sb.append(String.format(formatString, String.valueOf(pixelPos.getY())));
+                int start = sb.length();
+                padColumn(sb.append(i), start);
+                start = sb.length();
+                padColumn(sb.append(pixelPos.getX()), start);
+                start = sb.length();
+                padColumn(sb.append(pixelPos.getY()), start);
                 if (geoPositions.length > 0) {
                     final GeoPos geoPos = geoPositions[i];
-                    sb.append(String.format(formatString, String.valueOf(geoPos.lat)));
-                    sb.append(String.format(formatString, String.valueOf(geoPos.lon)));
+                    start = sb.length();
+                    padColumn(sb.append(geoPos.lat), start);
+                    start = sb.length();
+                    padColumn(sb.append(geoPos.lon), start);
                 }
-                sb.append(String.format(formatString, String.valueOf(sampleValues[i])));
+                start = sb.length();
+                padColumn(sb.append((float) sampleValues[i]), start);
                 sb.append(" \n");
             }
 
             return sb.toString();
         }
+
+        /*
+         * Equivalent to appending String.format("%1$-10s\t", value) if the value has been appended at start.
+         */
+        private static void padColumn(StringBuilder sb, int start) {
+            for (int n = sb.length() - start; n < 10; n++) {
+                sb.append(' ');
+            }
+            sb.append('\t');
+        }
     }
 }
@@ -0,0 +1,506 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductManager;
+import org.esa.snap.framework.datamodel.ProductNode;
+import org.esa.snap.framework.datamodel.ProductNodeEvent;
+import org.esa.snap.framework.datamodel.ProductNodeListener;
+import org.esa.snap.framework.datamodel.ProductNodeListenerAdapter;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.datamodel.Stx;
+import org.esa.snap.framework.datamodel.StxFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A cache for the statistics ({@link Stx}) shown by the statistics, histogram and density plot tool windows,
+ * so that switching between them does not scan the same raster several times.
+ * <p>
+ * Entries are keyed by raster, ROI mask, histogram bin count, histogram log-scaling and resolution level.
+ * The cache is bounded by the estimated memory used by its entries; the least recently used entries are evicted
+ * first. Entries are invalidated as soon as their raster or ROI mask changes or is removed from its product.
+ * All entries of a product are removed as soon as the product is removed from its {@link ProductManager}, so that
+ * the cache does not keep closed products alive. Statistics whose raster or ROI mask changes while they are computed
+ * are returned, but not cached.
+ */
+public class StxCache {
+
+    private static final long DEFAULT_MAX_MEMORY = 16L * 1024 * 1024;
+    private static final Set<String> IRRELEVANT_PROPERTIES = new HashSet<>(Arrays.asList(
+            RasterDataNode.PROPERTY_NAME_STX,
+            RasterDataNode.PROPERTY_NAME_IMAGE_INFO,
+            ProductNode.PROPERTY_NAME_NAME,
+            ProductNode.PROPERTY_NAME_DESCRIPTION
+    ));
+
+    private static final StxCache instance = new StxCache(DEFAULT_MAX_MEMORY);
+
+    private final long maxMemory;
+    private final LinkedHashMap<Key, Stx> entries;
+    private final Map<Product, TrackedProduct> trackedProducts;
+    private final Set<Computation> computations;
+    private final ProductNodeListener invalidationListener;
+    private final Map<ProductManager, Integer> productManagerCounts;
+    // managers without tracked products, whose listener could not be removed while they notified it
+    private final Set<ProductManager> unusedProductManagers;
+    private final ProductManager.Listener productRemovedListener;
+    private ProductManager notifyingProductManager;
+    private long memoryUsed;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * @return the cache shared by the statistics tool windows
+     */
+    public static StxCache getDefault() {
+        return instance;
+    }
+
+    StxCache(long maxMemory) {
+        this.maxMemory = maxMemory;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true);
+        this.trackedProducts = new HashMap<>();
+        this.computations = new HashSet<>();
+        this.invalidationListener = new InvalidationListener();
+        this.productManagerCounts = new HashMap<>();
+        this.unusedProductManagers = new HashSet<>();
+        this.productRemovedListener = new ProductRemovedListener();
+    }
+
+    /**
+     * Returns the statistics for the given parameters, either from the cache or newly computed.
+     *
+     * @param raster          the raster
+     * @param roiMask         the ROI mask, may be {@code null}
+     * @param binCount        the number of histogram bins
+     * @param logHistogram    whether the histogram bins are log-scaled
+     * @param resolutionLevel the resolution level
+     * @param pm              a progress monitor, only used if the statistics need to be computed
+     * @return the statistics
+     */
+    public Stx getStx(RasterDataNode raster, Mask roiMask, int binCount, boolean logHistogram, int resolutionLevel, ProgressMonitor pm) {
+        Stx stx = getCachedStx(raster, roiMask, binCount, logHistogram, resolutionLevel);
+        if (stx != null) {
+            return stx;
+        }
+        final Key key = new Key(raster, roiMask, binCount, logHistogram, resolutionLevel);
+        // the statistics are computed outside of the lock, changes meanwhile mark the computation as stale
+        final Computation computation = beginComputation(key);
+        try {
+            if (!raster.isStxSet() && key.isRasterDefault()) {
+                // share the statistics with the raster itself, e.g. with the colour manipulation tool window
+                stx = raster.getStx(true, pm);
+            } else {
+                stx = new StxFactory()
+                        .withRoiMask(roiMask)
+                        .withHistogramBinCount(binCount)
+                        .withLogHistogram(logHistogram)
+                        .withResolutionLevel(resolutionLevel)
+                        .create(raster, pm);
+            }
+        } finally {
+            endComputation(computation, stx);
+        }
+        return stx;
+    }
+
+    /**
+     * Returns the cached statistics for the given parameters. The statistics set on the raster itself are
+     * returned as well, if they have been computed with the given parameters. Other than {@link #getStx}, this method
+     * never computes statistics; clients computing them on their own may add them using {@link #putStx}.
+     *
+     * @return the cached statistics or {@code null}
+     */
+    public synchronized Stx getCachedStx(RasterDataNode raster, Mask roiMask, int binCount, boolean logHistogram, int resolutionLevel) {
+        final Key key = new Key(raster, roiMask, binCount, logHistogram, resolutionLevel);
+        Stx stx = entries.get(key);
+        if (stx == null && raster.isStxSet() && key.matches(raster.getStx())) {
+            stx = raster.getStx();
+            put(key, stx);
+        }
+        if (stx != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return stx;
+    }
+
+    /**
+     * Adds statistics computed by the client to the cache.
+     */
+    public void putStx(RasterDataNode raster, Mask roiMask, int binCount, boolean logHistogram, int resolutionLevel, Stx stx) {
+        put(new Key(raster, roiMask, binCount, logHistogram, resolutionLevel), stx);
+    }
+
+    /**
+     * Removes all entries referring to the given raster, either as the source raster or as the ROI mask.
+     *
+     * @param node the raster or mask
+     */
+    public synchronized void invalidate(RasterDataNode node) {
+        for (Computation computation : computations) {
+            if (computation.key.raster == node || computation.key.roiMask == node) {
+                computation.stale = true;
+            }
+        }
+        final Iterator<Map.Entry<Key, Stx>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Key, Stx> entry = iterator.next();
+            if (entry.getKey().raster == node || entry.getKey().roiMask == node) {
+                iterator.remove();
+                removed(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Removes all entries of the given product.
+     *
+     * @param product the product
+     */
+    public synchronized void invalidate(Product product) {
+        for (Computation computation : computations) {
+            if (computation.product == product) {
+                computation.stale = true;
+            }
+        }
+        final Iterator<Map.Entry<Key, Stx>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Key, Stx> entry = iterator.next();
+            if (entry.getKey().getProduct() == product) {
+                iterator.remove();
+                removed(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        for (Computation computation : computations) {
+            computation.stale = true;
+        }
+        for (Map.Entry<Product, TrackedProduct> entry : trackedProducts.entrySet()) {
+            untrack(entry.getKey(), entry.getValue());
+        }
+        trackedProducts.clear();
+        removeUnusedProductManagerListeners();
+        entries.clear();
+        memoryUsed = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated memory used by the cached statistics in bytes
+     */
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    private synchronized Computation beginComputation(Key key) {
+        final Product product = key.getProduct();
+        final Computation computation = new Computation(key, product, product != null ? track(product) : null);
+        computations.add(computation);
+        return computation;
+    }
+
+    /*
+     * Caches the computed statistics, unless their raster or ROI mask has changed during the computation.
+     */
+    private synchronized void endComputation(Computation computation, Stx stx) {
+        computations.remove(computation);
+        if (stx != null && !computation.stale) {
+            put(computation.key, stx);
+        }
+        if (computation.trackedProduct != null) {
+            release(computation.product, computation.trackedProduct);
+        }
+    }
+
+    private synchronized void put(Key key, Stx stx) {
+        final Stx oldStx = entries.put(key, stx);
+        if (oldStx != null) {
+            memoryUsed -= estimateMemory(oldStx);
+        } else {
+            final Product product = key.getProduct();
+            if (product != null) {
+                track(product);
+            }
+        }
+        memoryUsed += estimateMemory(stx);
+        final Iterator<Map.Entry<Key, Stx>> iterator = entries.entrySet().iterator();
+        while (memoryUsed > maxMemory && iterator.hasNext()) {
+            final Map.Entry<Key, Stx> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                break;
+            }
+            iterator.remove();
+            removed(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void removed(Key key, Stx stx) {
+        memoryUsed -= estimateMemory(stx);
+        final Product product = key.getProduct();
+        if (product != null) {
+            release(product, trackedProducts.get(product));
+        }
+    }
+
+    /*
+     * Adds a reference to the product, listening to its changes and to its removal from its manager
+     * as long as it is referenced by an entry or a computation.
+     */
+    private TrackedProduct track(Product product) {
+        TrackedProduct trackedProduct = trackedProducts.get(product);
+        if (trackedProduct == null) {
+            removeUnusedProductManagerListeners();
+            trackedProduct = new TrackedProduct(product.getProductManager());
+            trackedProducts.put(product, trackedProduct);
+            product.addProductNodeListener(invalidationListener);
+            final ProductManager productManager = trackedProduct.productManager;
+            if (productManager != null) {
+                final Integer count = productManagerCounts.get(productManager);
+                if (count != null) {
+                    productManagerCounts.put(productManager, count + 1);
+                } else {
+                    if (!unusedProductManagers.remove(productManager)) {
+                        productManager.addListener(productRemovedListener);
+                    }
+                    productManagerCounts.put(productManager, 1);
+                }
+            }
+        }
+        trackedProduct.referenceCount++;
+        return trackedProduct;
+    }
+
+    private void release(Product product, TrackedProduct trackedProduct) {
+        // the product may have been released by clear() meanwhile
+        if (trackedProduct == null || trackedProducts.get(product) != trackedProduct) {
+            return;
+        }
+        if (--trackedProduct.referenceCount == 0) {
+            trackedProducts.remove(product);
+            untrack(product, trackedProduct);
+        }
+    }
+
+    private void untrack(Product product, TrackedProduct trackedProduct) {
+        product.removeProductNodeListener(invalidationListener);
+        final ProductManager productManager = trackedProduct.productManager;
+        if (productManager != null) {
+            final Integer count = productManagerCounts.get(productManager);
+            if (count != null && count > 1) {
+                productManagerCounts.put(productManager, count - 1);
+            } else {
+                productManagerCounts.remove(productManager);
+                if (productManager == notifyingProductManager) {
+                    unusedProductManagers.add(productManager);
+                } else {
+                    productManager.removeListener(productRemovedListener);
+                }
+            }
+        }
+    }
+
+    private void removeUnusedProductManagerListeners() {
+        for (ProductManager productManager : unusedProductManagers) {
+            productManager.removeListener(productRemovedListener);
+        }
+        unusedProductManagers.clear();
+    }
+
+    private synchronized void productRemoved(Product product) {
+        final TrackedProduct trackedProduct = trackedProducts.get(product);
+        if (trackedProduct == null) {
+            return;
+        }
+        // the listener must not be removed from the manager while the manager notifies its listeners
+        notifyingProductManager = trackedProduct.productManager;
+        try {
+            invalidate(product);
+        } finally {
+            notifyingProductManager = null;
+        }
+    }
+
+    private static long estimateMemory(Stx stx) {
+        // the histogram bins plus a rough guess for the object overhead
+        return 4L * stx.getHistogramBinCount() + 512L;
+    }
+
+    private class ProductRemovedListener implements ProductManager.Listener {
+
+        @Override
+        public void productAdded(ProductManager.Event event) {
+            //do nothing
+        }
+
+        @Override
+        public void productRemoved(ProductManager.Event event) {
+            StxCache.this.productRemoved(event.getProduct());
+        }
+    }
+
+    private class InvalidationListener extends ProductNodeListenerAdapter {
+
+        @Override
+        public void nodeChanged(ProductNodeEvent event) {
+            if (!IRRELEVANT_PROPERTIES.contains(event.getPropertyName())) {
+                invalidateNode(event.getSourceNode());
+            }
+        }
+
+        @Override
+        public void nodeDataChanged(ProductNodeEvent event) {
+            invalidateNode(event.getSourceNode());
+        }
+
+        @Override
+        public void nodeRemoved(ProductNodeEvent event) {
+            invalidateNode(event.getSourceNode());
+        }
+
+        private void invalidateNode(ProductNode node) {
+            if (node instanceof RasterDataNode) {
+                invalidate((RasterDataNode) node);
+            }
+        }
+    }
+
+    /*
+     * A product referenced by cache entries or computations.
+     */
+    private static final class TrackedProduct {
+
+        final ProductManager productManager;
+        int referenceCount;
+
+        TrackedProduct(ProductManager productManager) {
+            this.productManager = productManager;
+        }
+    }
+
+    /*
+     * Statistics being computed. Instances are compared by identity.
+     */
+    private static final class Computation {
+
+        final Key key;
+        final Product product;
+        final TrackedProduct trackedProduct;
+        boolean stale;
+
+        Computation(Key key, Product product, TrackedProduct trackedProduct) {
+            this.key = key;
+            this.product = product;
+            this.trackedProduct = trackedProduct;
+        }
+    }
+
+    /**
+     * The key of a cache entry. Rasters and masks are compared by identity.
+     */
+    static final class Key {
+
+        final RasterDataNode raster;
+        final Mask roiMask;
+        final int binCount;
+        final boolean logHistogram;
+        final int resolutionLevel;
+
+        Key(RasterDataNode raster, Mask roiMask, int binCount, boolean logHistogram, int resolutionLevel) {
+            this.raster = raster;
+            this.roiMask = roiMask;
+            this.binCount = binCount;
+            this.logHistogram = logHistogram;
+            this.resolutionLevel = resolutionLevel;
+        }
+
+        Product getProduct() {
+            return raster.getProduct();
+        }
+
+        /*
+         * Whether the key describes the statistics a raster computes for itself with getStx(true, pm).
+         */
+        boolean isRasterDefault() {
+            return roiMask == null && binCount == Stx.DEFAULT_BIN_COUNT && !logHistogram && resolutionLevel == 0;
+        }
+
+        /*
+         * Whether the given statistics of the raster itself have been computed with the parameters of this key.
+         */
+        boolean matches(Stx rasterStx) {
+            return roiMask == null
+                   && binCount == rasterStx.getHistogramBinCount()
+                   && logHistogram == rasterStx.isLogHistogram()
+                   && resolutionLevel == rasterStx.getResolutionLevel();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return raster == key.raster
+                   && roiMask == key.roiMask
+                   && binCount == key.binCount
+                   && logHistogram == key.logHistogram
+                   && resolutionLevel == key.resolutionLevel;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(raster);
+            result = 31 * result + System.identityHashCode(roiMask);
+            result = 31 * result + binCount;
+            result = 31 * result + (logHistogram ? 1 : 0);
+            result = 31 * result + resolutionLevel;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+
+/**
+ * Serializes the calls from several worker threads to a progress monitor which is not necessarily thread-safe.
+ */
+class SynchronizedProgressMonitor implements ProgressMonitor {
+
+    private final ProgressMonitor delegate;
+
+    SynchronizedProgressMonitor(ProgressMonitor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void beginTask(String taskName, int totalWork) {
+        delegate.beginTask(taskName, totalWork);
+    }
+
+    @Override
+    public synchronized void done() {
+        delegate.done();
+    }
+
+    @Override
+    public synchronized void internalWorked(double work) {
+        delegate.internalWorked(work);
+    }
+
+    @Override
+    public synchronized boolean isCanceled() {
+        return delegate.isCanceled();
+    }
+
+    @Override
+    public synchronized void setCanceled(boolean canceled) {
+        delegate.setCanceled(canceled);
+    }
+
+    @Override
+    public synchronized void setTaskName(String taskName) {
+        delegate.setTaskName(taskName);
+    }
+
+    @Override
+    public synchronized void setSubTaskName(String subTaskName) {
+        delegate.setSubTaskName(subTaskName);
+    }
+
+    @Override
+    public synchronized void worked(int work) {
+        delegate.worked(work);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+
+import javax.media.jai.PlanarImage;
+import java.awt.geom.Point2D;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Samples rasters along a transect, e.g. the pixel path of a {@link org.esa.snap.framework.datamodel.TransectProfileData}.
+ * <p>
+ * The pixel coordinates of the path are computed once. For every raster, the path points are grouped by the tiles
+ * they fall into, so that each tile is fetched only once, and the values are written into a primitive array.
+ * The sampled values are the geophysical values; invalid pixels and points outside the raster are {@code NaN}.
+ * As valid pixels may be {@code NaN} too, the validity of the points can be sampled along with the values.
+ */
+public class TransectSampler {
+
+    private final int width;
+    private final int height;
+    private final int[] pixelX;
+    private final int[] pixelY;
+    private final int numValidPoints;
+
+    /**
+     * @param width          the width of the rasters to be sampled
+     * @param height         the height of the rasters to be sampled
+     * @param pixelPositions the pixel positions of the path
+     */
+    public TransectSampler(int width, int height, Point2D[] pixelPositions) {
+        this.width = width;
+        this.height = height;
+        pixelX = new int[pixelPositions.length];
+        pixelY = new int[pixelPositions.length];
+        int count = 0;
+        for (int i = 0; i < pixelPositions.length; i++) {
+            pixelX[i] = (int) Math.floor(pixelPositions[i].getX());
+            pixelY[i] = (int) Math.floor(pixelPositions[i].getY());
+            if (isInBounds(i)) {
+                count++;
+            }
+        }
+        numValidPoints = count;
+    }
+
+    public int getNumPoints() {
+        return pixelX.length;
+    }
+
+    /**
+     * @return the number of path points located within the raster bounds
+     */
+    public int getNumValidPoints() {
+        return numValidPoints;
+    }
+
+    public boolean isInBounds(int index) {
+        final int x = pixelX[index];
+        final int y = pixelY[index];
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public int getPixelX(int index) {
+        return pixelX[index];
+    }
+
+    public int getPixelY(int index) {
+        return pixelY[index];
+    }
+
+    /**
+     * Samples the geophysical values of the given raster at all path points.
+     *
+     * @param raster the raster
+     * @param values the array receiving the values, may be {@code null}
+     * @return the values, one for each path point
+     */
+    public double[] sample(RasterDataNode raster, double[] values) {
+        return sample(raster, values, null);
+    }
+
+    /**
+     * Samples the geophysical values of the given raster and their validity at all path points.
+     *
+     * @param raster the raster
+     * @param values the array receiving the values, may be {@code null}
+     * @param valid  the array receiving whether a point is within the bounds and a valid pixel of the raster,
+     *               may be {@code null}; its length must not be less than the number of points
+     * @return the values, one for each path point
+     */
+    public double[] sample(RasterDataNode raster, double[] values, boolean[] valid) {
+        if (values == null || values.length < pixelX.length) {
+            values = new double[pixelX.length];
+        }
+        Arrays.fill(values, 0, pixelX.length, Double.NaN);
+        if (valid != null) {
+            Arrays.fill(valid, 0, pixelX.length, false);
+        }
+
+        final PlanarImage image = raster.getGeophysicalImage();
+        final PlanarImage validImage = raster.isValidMaskUsed() ? raster.getValidMaskImage() : null;
+        final long[] tilePoints = createTilePoints(image);
+        final boolean signedByte = !raster.isScalingApplied() && raster.getDataType() == ProductData.TYPE_INT8;
+        final boolean unsignedInt = !raster.isScalingApplied() && raster.getDataType() == ProductData.TYPE_UINT32;
+
+        int start = 0;
+        while (start < tilePoints.length) {
+            final long tileIndex = tilePoints[start] >>> 32;
+            int end = start + 1;
+            while (end < tilePoints.length && (tilePoints[end] >>> 32) == tileIndex) {
+                end++;
+            }
+            final int tileX = image.getMinTileX() + (int) (tileIndex % image.getNumXTiles());
+            final int tileY = image.getMinTileY() + (int) (tileIndex / image.getNumXTiles());
+            final Raster tile = image.getTile(tileX, tileY);
+            final Raster validTile = StatisticsUtils.getAlignedTile(validImage, image, tileX, tileY);
+            for (int j = start; j < end; j++) {
+                final int i = (int) tilePoints[j];
+                final int x = pixelX[i];
+                final int y = pixelY[i];
+                if (validTile != null && validTile.getSample(x, y, 0) == 0) {
+                    continue;
+                }
+                double value = tile.getSampleDouble(x, y, 0);
+                if (signedByte) {
+                    value = (byte) value;
+                } else if (unsignedInt && value < 0.0) {
+                    value += 4294967296.0;
+                }
+                values[i] = value;
+                if (valid != null) {
+                    valid[i] = true;
+                }
+            }
+            start = end;
+        }
+        return values;
+    }
+
+    /*
+     * Creates one entry per path point within the bounds. The upper 32 bits hold the linear tile index,
+     * the lower 32 bits the point index. Sorting groups the points by tile and keeps the path order within a tile.
+     */
+    private long[] createTilePoints(PlanarImage image) {
+        final long[] tilePoints = new long[numValidPoints];
+        int n = 0;
+        for (int i = 0; i < pixelX.length; i++) {
+            if (isInBounds(i)) {
+                final long tileIndex = (long) (image.YToTileY(pixelY[i]) - image.getMinTileY()) * image.getNumXTiles()
+                                       + (image.XToTileX(pixelX[i]) - image.getMinTileX());
+                tilePoints[n++] = (tileIndex << 32) | i;
+            }
+        }
+        Arrays.sort(tilePoints);
+        return tilePoints;
+    }
+
+    /**
+     * Appends a sampled value to the given text the same way {@link RasterDataNode#getPixelString(int, int)}
+     * formats it, without creating an intermediate string.
+     *
+     * @param formatter a formatter writing to {@code text}
+     * @param text      the text
+     * @param raster    the raster the value has been sampled from
+     * @param value     the value as returned by {@link #sample}
+     * @param valid     the validity of the value as returned by {@link #sample(RasterDataNode, double[], boolean[])}
+     */
+    public static void appendPixelString(Formatter formatter, StringBuilder text, RasterDataNode raster, double value,
+                                         boolean valid) {
+        if (!valid) {
+            text.append(RasterDataNode.NO_DATA_TEXT);
+        } else if (raster.isScalingApplied() || ProductData.isFloatingPointType(raster.getDataType())) {
+            final int dataType = raster.getGeophysicalDataType();
+            if (dataType == ProductData.TYPE_FLOAT64) {
+                formatter.format("%.10f", value);
+            } else if (dataType == ProductData.TYPE_FLOAT32) {
+                formatter.format("%.5f", value);
+            } else {
+                text.append((long) value);
+            }
+        } else {
+            text.append((long) value);
+        }
+    }
+
+    /**
+     * Creates a formatter for {@link #appendPixelString}, using the same locale as {@link String#format}.
+     */
+    public static Formatter createFormatter(StringBuilder text) {
+        return new Formatter(text, Locale.getDefault(Locale.Category.FORMAT));
+    }
+}
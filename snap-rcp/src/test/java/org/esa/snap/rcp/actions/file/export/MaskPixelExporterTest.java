@@ -0,0 +1,103 @@
+package org.esa.snap.rcp.actions.file.export;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class MaskPixelExporterTest {
+
+    private Product product;
+    private Mask mask;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("p", "t", 3000, 2000);
+        product.addBand("fx", "X", ProductData.TYPE_FLOAT32);
+        final Band iy = product.addBand("iy", "Y", ProductData.TYPE_INT16);
+        iy.setNoDataValue(1);
+        iy.setNoDataValueUsed(true);
+        mask = Mask.BandMathsType.create("m", null, 3000, 2000, "(X < 2 && Y < 2) || (X > 2998 && Y > 1998)", Color.RED, 0.5);
+        product.getMaskGroup().add(mask);
+    }
+
+    @Test
+    public void testTextOutput() throws Exception {
+        final MaskPixelExporter exporter = new MaskPixelExporter(product, mask.getSourceImage(), false);
+        assertEquals(5, exporter.getNumMaskPixels());
+
+        final StringWriter writer = new StringWriter();
+        assertTrue(exporter.export(new MaskPixelExporter.TextOutput(writer), ProgressMonitor.NULL));
+        assertEquals("Pixel-X\tPixel-Y\tfx\tiy\n" +
+                     "0.5\t0.5\t0.5\t0\n" +
+                     "1.5\t0.5\t1.5\t0\n" +
+                     "0.5\t1.5\t0.5\tNaN\n" +
+                     "1.5\t1.5\t1.5\tNaN\n" +
+                     "2999.5\t1999.5\t2999.5\t1999\n", writer.toString());
+    }
+
+    @Test
+    public void testTextOutputInStrips() throws Exception {
+        // a single row per block
+        final MaskPixelExporter exporter = new MaskPixelExporter(product, mask.getSourceImage(), false, 1);
+
+        final StringWriter writer = new StringWriter();
+        assertTrue(exporter.export(new MaskPixelExporter.TextOutput(writer), ProgressMonitor.NULL));
+        assertEquals("Pixel-X\tPixel-Y\tfx\tiy\n" +
+                     "0.5\t0.5\t0.5\t0\n" +
+                     "1.5\t0.5\t1.5\t0\n" +
+                     "0.5\t1.5\t0.5\tNaN\n" +
+                     "1.5\t1.5\t1.5\tNaN\n" +
+                     "2999.5\t1999.5\t2999.5\t1999\n", writer.toString());
+    }
+
+    @Test
+    public void testBinaryOutput() throws Exception {
+        final MaskPixelExporter exporter = new MaskPixelExporter(product, mask.getSourceImage(), false);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        assertTrue(exporter.export(new MaskPixelExporter.BinaryOutput(stream, "meta"), ProgressMonitor.NULL));
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(stream.toByteArray()));
+        final byte[] magic = new byte[MaskPixelExporter.BinaryOutput.MAGIC.length];
+        in.readFully(magic);
+        assertArrayEquals(MaskPixelExporter.BinaryOutput.MAGIC, magic);
+        assertEquals("meta", in.readUTF());
+        assertEquals(4, in.readInt());
+        assertEquals("Pixel-X", in.readUTF());
+        assertEquals('F', in.readByte());
+        assertEquals("Pixel-Y", in.readUTF());
+        assertEquals('F', in.readByte());
+        assertEquals("fx", in.readUTF());
+        assertEquals('F', in.readByte());
+        assertEquals("iy", in.readUTF());
+        assertEquals('D', in.readByte());
+
+        int numRows = 0;
+        float lastFx = Float.NaN;
+        double lastIy = Double.NaN;
+        for (int n = in.readInt(); n > 0; n = in.readInt()) {
+            numRows += n;
+            for (int i = 0; i < 3 * n; i++) {
+                lastFx = in.readFloat();
+            }
+            for (int i = 0; i < n; i++) {
+                lastIy = in.readDouble();
+            }
+        }
+        assertEquals(5, numRows);
+        assertEquals(2999.5F, lastFx, 0.0F);
+        assertEquals(1999.0, lastIy, 0.0);
+        assertEquals(0, in.available());
+    }
+}
@@ -0,0 +1,103 @@
+package org.esa.snap.rcp.magicwand;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MagicWandClassifierTest {
+
+    private MagicWandModel model;
+
+    @Before
+    public void setUp() throws Exception {
+        model = new MagicWandModel();
+        model.setBandNames("b1", "b2", "b3");
+        model.setTolerance(0.1);
+    }
+
+    @Test
+    public void testNoSpectra() throws Exception {
+        MagicWandClassifier classifier = model.createClassifier();
+        assertTrue(classifier.isEmpty());
+        assertFalse(isSelected(classifier, 1.0, 2.0, 3.0));
+    }
+
+    @Test
+    public void testDistance() throws Exception {
+        model.addSpectrum(1.0, 2.0, 3.0);
+        MagicWandClassifier classifier = model.createClassifier();
+        assertFalse(classifier.isEmpty());
+        assertTrue(isSelected(classifier, 1.0, 2.0, 3.0));
+        assertTrue(isSelected(classifier, 1.0, 2.0, 3.2));
+        assertFalse(isSelected(classifier, 1.0, 2.0, 3.5));
+        assertFalse(isSelected(classifier, 1.0, 2.0, Double.NaN));
+    }
+
+    @Test
+    public void testDistanceWithMinusSpectra() throws Exception {
+        model.setPickMode(MagicWandModel.PickMode.PLUS);
+        model.addSpectrum(1.0, 2.0, 3.0);
+        model.addSpectrum(5.0, 6.0, 7.0);
+        model.setPickMode(MagicWandModel.PickMode.MINUS);
+        model.addSpectrum(5.0, 6.0, 7.1);
+        MagicWandClassifier classifier = model.createClassifier();
+        assertTrue(isSelected(classifier, 1.0, 2.0, 3.0));
+        assertFalse(isSelected(classifier, 5.0, 6.0, 7.0));
+    }
+
+    @Test
+    public void testAverage() throws Exception {
+        model.setPixelTest(MagicWandModel.PixelTest.AVERAGE);
+        model.setPickMode(MagicWandModel.PickMode.PLUS);
+        model.addSpectrum(1.0, 2.0, 3.0);
+        model.addSpectrum(3.0, 4.0, 5.0);
+        MagicWandClassifier classifier = model.createClassifier();
+        assertTrue(isSelected(classifier, 2.0, 3.0, 4.0));
+        assertFalse(isSelected(classifier, 1.0, 2.0, 3.0));
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        model.setPixelTest(MagicWandModel.PixelTest.LIMITS);
+        model.setPickMode(MagicWandModel.PickMode.PLUS);
+        model.setTolerance(0.5);
+        model.addSpectrum(1.0, 2.0, 3.0);
+        model.addSpectrum(3.0, 4.0, 5.0);
+        MagicWandClassifier classifier = model.createClassifier();
+        assertTrue(isSelected(classifier, 0.5, 4.5, 3.0));
+        assertFalse(isSelected(classifier, 0.4, 4.5, 3.0));
+        assertFalse(isSelected(classifier, 2.0, 3.0, 5.6));
+    }
+
+    @Test
+    public void testDerivative() throws Exception {
+        model.setSpectrumTransform(MagicWandModel.SpectrumTransform.DERIVATIVE);
+        model.addSpectrum(1.0, 2.0, 4.0);
+        MagicWandClassifier classifier = model.createClassifier();
+        assertTrue(isSelected(classifier, 11.0, 12.0, 14.0));
+        assertFalse(isSelected(classifier, 11.0, 12.0, 13.0));
+    }
+
+    @Test
+    public void testIntegral() throws Exception {
+        model.setSpectrumTransform(MagicWandModel.SpectrumTransform.INTEGRAL);
+        model.addSpectrum(1.0, 2.0, 4.0);
+        MagicWandClassifier classifier = model.createClassifier();
+        assertTrue(isSelected(classifier, 1.0, 2.0, 4.2));
+        assertFalse(isSelected(classifier, 1.2, 2.0, 4.0));
+    }
+
+    @Test
+    public void testNormalize() throws Exception {
+        model.setNormalize(true);
+        model.addSpectrum(2.0, 4.0, 6.0);
+        MagicWandClassifier classifier = model.createClassifier();
+        assertTrue(isSelected(classifier, 1.0, 2.0, 3.0));
+        assertFalse(isSelected(classifier, 1.0, 3.0, 3.0));
+    }
+
+    private static boolean isSelected(MagicWandClassifier classifier, double... spectrum) {
+        return classifier.isSelected(spectrum, new double[classifier.getBandCount()]);
+    }
+}
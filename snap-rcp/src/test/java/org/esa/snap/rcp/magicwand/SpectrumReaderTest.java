@@ -0,0 +1,67 @@
+package org.esa.snap.rcp.magicwand;
+
+import com.bc.ceres.core.NullProgressMonitor;
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SpectrumReaderTest {
+
+    private Product product;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("test", "test", 64, 64);
+        // small tiles, so that the regions read span several tiles
+        product.setPreferredTileSize(16, 16);
+    }
+
+    @Test
+    public void testPixel() throws Exception {
+        Band x = product.addBand("x", "X");
+        Band xy = product.addBand("xy", "X + 10 * Y");
+
+        double[] spectrum = SpectrumReader.readSpectrum(Arrays.asList(x, xy), new Rectangle(3, 4, 1, 1), ProgressMonitor.NULL);
+
+        assertArrayEquals(new double[]{3.5, 48.5}, spectrum, 1.0e-6);
+    }
+
+    @Test
+    public void testRegionSpanningTiles() throws Exception {
+        Band x = product.addBand("x", "X");
+        Band y = product.addBand("y", "Y");
+
+        double[] spectrum = SpectrumReader.readSpectrum(Arrays.asList(x, y), new Rectangle(10, 5, 20, 40), ProgressMonitor.NULL);
+
+        assertArrayEquals(new double[]{20.0, 25.0}, spectrum, 1.0e-6);
+    }
+
+    @Test
+    public void testInvalidPixelsAreIgnored() throws Exception {
+        Band x = product.addBand("x", "X");
+        x.setValidPixelExpression("X < 15");
+        Band none = product.addBand("none", "X");
+        none.setValidPixelExpression("false");
+
+        double[] spectrum = SpectrumReader.readSpectrum(Arrays.asList(x, none), new Rectangle(10, 10, 20, 20), ProgressMonitor.NULL);
+
+        assertEquals(12.5, spectrum[0], 1.0e-6);
+        assertTrue(Double.isNaN(spectrum[1]));
+    }
+
+    @Test
+    public void testCanceled() throws Exception {
+        Band x = product.addBand("x", "X");
+        ProgressMonitor pm = new NullProgressMonitor();
+        pm.setCanceled(true);
+
+        assertNull(SpectrumReader.readSpectrum(Arrays.asList(x), new Rectangle(0, 0, 64, 64), pm));
+    }
+}
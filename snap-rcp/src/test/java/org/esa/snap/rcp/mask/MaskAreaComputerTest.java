@@ -0,0 +1,105 @@
+package org.esa.snap.rcp.mask;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.CrsGeoCoding;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.TiePointGeoCoding;
+import org.esa.snap.framework.datamodel.TiePointGrid;
+import org.esa.snap.rcp.mask.MaskAreaComputer.MaskAreaStatistics;
+import org.esa.snap.util.math.MathUtils;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MaskAreaComputerTest {
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 50;
+
+    @Test
+    public void testGeographicGrid() throws Exception {
+        Product product = new Product("test", "test", WIDTH, HEIGHT);
+        product.setGeoCoding(new CrsGeoCoding(DefaultGeographicCRS.WGS84, WIDTH, HEIGHT, 0.0, 10.0, 0.1, 0.1));
+        Mask column = product.addMask("column", "X < 10", "", Color.RED, 0.5);
+        Mask row = product.addMask("row", "Y < 1", "", Color.RED, 0.5);
+        Mask none = product.addMask("none", "false", "", Color.RED, 0.5);
+
+        MaskAreaStatistics[] statistics = new MaskAreaComputer(Arrays.asList(column, row, none)).compute(ProgressMonitor.NULL);
+
+        assertEquals(3, statistics.length);
+        assertEquals(10 * HEIGHT, statistics[0].getNumPixels());
+        assertEquals(WIDTH, statistics[1].getNumPixels());
+        assertEquals(0, statistics[2].getNumPixels());
+        assertEquals(0.0, statistics[2].getMaskArea(), 0.0);
+
+        // the pixel centre of the first row is at 10 degrees north
+        double pixelArea = getPixelArea(10.0);
+        assertEquals(pixelArea, statistics[1].getPixelAreaMin(), 1.0e-6);
+        assertEquals(pixelArea, statistics[1].getPixelAreaMax(), 1.0e-6);
+        assertEquals(WIDTH * pixelArea, statistics[1].getMaskArea(), 1.0e-4);
+        assertEquals(getPixelArea(10.0), statistics[0].getPixelAreaMin(), 1.0e-6);
+        assertEquals(getPixelArea(10.0 - 0.1 * (HEIGHT - 1)), statistics[0].getPixelAreaMax(), 1.0e-6);
+    }
+
+    @Test
+    public void testTiePointGeoCodingGivesSameAreas() throws Exception {
+        Product product = createTiePointProduct();
+        Mask column = product.addMask("column", "X < 10", "", Color.RED, 0.5);
+
+        MaskAreaStatistics[] statistics = new MaskAreaComputer(Arrays.asList(column)).compute(ProgressMonitor.NULL);
+
+        assertEquals(1, statistics.length);
+        assertEquals(10 * HEIGHT, statistics[0].getNumPixels());
+        assertEquals(getPixelArea(10.0 - 0.05), statistics[0].getPixelAreaMin(), 1.0e-2);
+        assertEquals(getPixelArea(10.0 - 0.1 * HEIGHT + 0.05), statistics[0].getPixelAreaMax(), 1.0e-2);
+    }
+
+    @Test
+    public void testSparseMaskWithTiePointGeoCoding() throws Exception {
+        Product product = createTiePointProduct();
+        Mask sparse = product.addMask("sparse", "X % 7 == 0 && Y % 3 != 1", "", Color.RED, 0.5);
+
+        MaskAreaStatistics[] statistics = new MaskAreaComputer(Arrays.asList(sparse)).compute(ProgressMonitor.NULL);
+
+        double expectedArea = 0.0;
+        int expectedNumPixels = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (x % 7 == 0 && y % 3 != 1) {
+                    expectedArea += getPixelArea(10.0 - 0.1 * (y + 0.5));
+                    expectedNumPixels++;
+                }
+            }
+        }
+        assertEquals(expectedNumPixels, statistics[0].getNumPixels());
+        assertEquals(expectedArea, statistics[0].getMaskArea(), 1.0e-2 * expectedNumPixels);
+    }
+
+    private static Product createTiePointProduct() {
+        Product product = new Product("test", "test", WIDTH, HEIGHT);
+        float[] lats = new float[WIDTH * HEIGHT];
+        float[] lons = new float[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                lats[y * WIDTH + x] = (float) (10.0 - 0.1 * (y + 0.5));
+                lons[y * WIDTH + x] = (float) (0.1 * (x + 0.5));
+            }
+        }
+        TiePointGrid latGrid = new TiePointGrid("lat", WIDTH, HEIGHT, 0.5, 0.5, 1, 1, lats);
+        TiePointGrid lonGrid = new TiePointGrid("lon", WIDTH, HEIGHT, 0.5, 0.5, 1, 1, lons);
+        product.addTiePointGrid(latGrid);
+        product.addTiePointGrid(lonGrid);
+        product.setGeoCoding(new TiePointGeoCoding(latGrid, lonGrid));
+        return product;
+    }
+
+    private static double getPixelArea(double lat) {
+        double r = MaskAreaComputer.EARTH_RADIUS;
+        return r * Math.cos(lat * MathUtils.DTOR) * 0.1 * MathUtils.DTOR * r * 0.1 * MathUtils.DTOR;
+    }
+}
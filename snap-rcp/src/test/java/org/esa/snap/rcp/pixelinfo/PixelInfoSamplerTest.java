@@ -0,0 +1,79 @@
+package org.esa.snap.rcp.pixelinfo;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PixelInfoSamplerTest {
+
+    private Product product;
+    private Band xBand;
+    private Band yBand;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("p", "t", 4000, 4000);
+        xBand = product.addBand("x", "X", ProductData.TYPE_FLOAT32);
+        yBand = product.addBand("y", "Y", ProductData.TYPE_FLOAT32);
+    }
+
+    @Test
+    public void testSampleValues() throws Exception {
+        final PixelInfoSampler sampler = new PixelInfoSampler();
+        sampler.setPixelPos(10, 20, 0);
+        assertEquals(10.5, sampler.getGeophysicalSampleAsDouble(xBand), 1.0e-6);
+        assertEquals(20.5, sampler.getGeophysicalSampleAsDouble(yBand), 1.0e-6);
+        assertEquals("10.50000", sampler.getPixelString(xBand));
+        assertEquals(20L, sampler.getGeophysicalSampleAsLong(yBand));
+    }
+
+    @Test
+    public void testNoDataPixel() throws Exception {
+        xBand.setNoDataValue(10.5);
+        xBand.setNoDataValueUsed(true);
+        final PixelInfoSampler sampler = new PixelInfoSampler();
+        sampler.setPixelPos(10, 20, 0);
+        assertEquals(RasterDataNode.NO_DATA_TEXT, sampler.getPixelString(xBand));
+        sampler.setPixelPos(11, 20, 0);
+        assertEquals("11.50000", sampler.getPixelString(xBand));
+    }
+
+    @Test
+    public void testTilesAreReusedWithinTile() throws Exception {
+        final PixelInfoSampler sampler = new PixelInfoSampler();
+        sampler.setPixelPos(1, 1, 0);
+        sampler.getGeophysicalSampleAsDouble(xBand);
+        sampler.getGeophysicalSampleAsDouble(yBand);
+        assertEquals(2, sampler.getNumCachedTiles());
+
+        sampler.setPixelPos(2, 3, 0);
+        assertEquals(2, sampler.getNumCachedTiles());
+        assertEquals(2.5, sampler.getGeophysicalSampleAsDouble(xBand), 1.0e-6);
+        assertEquals(3.5, sampler.getGeophysicalSampleAsDouble(yBand), 1.0e-6);
+        assertEquals(2, sampler.getNumCachedTiles());
+
+        sampler.setPixelPos(1, 1, 1);
+        assertEquals(0, sampler.getNumCachedTiles());
+
+        sampler.getGeophysicalSampleAsDouble(xBand);
+        sampler.invalidate();
+        assertEquals(0, sampler.getNumCachedTiles());
+    }
+
+    @Test
+    public void testTilesAreDroppedOutsideTile() throws Exception {
+        final PixelInfoSampler sampler = new PixelInfoSampler();
+        sampler.setPixelPos(0, 0, 0);
+        sampler.getGeophysicalSampleAsDouble(xBand);
+        assertEquals(1, sampler.getNumCachedTiles());
+
+        sampler.setPixelPos(3999, 3999, 0);
+        assertEquals(0, sampler.getNumCachedTiles());
+        assertEquals(3999.5, sampler.getGeophysicalSampleAsDouble(xBand), 1.0e-6);
+    }
+}
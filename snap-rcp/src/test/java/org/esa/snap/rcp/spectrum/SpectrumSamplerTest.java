@@ -0,0 +1,78 @@
+package org.esa.snap.rcp.spectrum;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+
+import static org.junit.Assert.*;
+
+public class SpectrumSamplerTest {
+
+    private Band[] bands;
+
+    @Before
+    public void setUp() throws Exception {
+        final Product product = new Product("p", "t", 4000, 4000);
+        bands = new Band[]{
+                product.addBand("b1", "X", ProductData.TYPE_FLOAT32),
+                product.addBand("b2", "Y", ProductData.TYPE_FLOAT32),
+                product.addBand("b3", "X + Y", ProductData.TYPE_FLOAT32),
+        };
+        bands[2].setNoDataValue(3.0);
+        bands[2].setNoDataValueUsed(true);
+    }
+
+    @Test
+    public void testSamplePixel() throws Exception {
+        final SpectrumSampler sampler = new SpectrumSampler();
+        assertArrayEquals(new double[]{10.5, 20.5, 31.0}, sampler.sample(bands, 10, 20, 0), 1.0e-6);
+        assertArrayEquals(new double[]{1.5, 1.5, Double.NaN}, sampler.sample(bands, 1, 1, 0), 1.0e-6);
+        assertArrayEquals(new double[]{Double.NaN, Double.NaN, Double.NaN}, sampler.sample(bands, 4000, 1, 0), 1.0e-6);
+    }
+
+    @Test
+    public void testSamplePositions() throws Exception {
+        final SpectrumSampler sampler = new SpectrumSampler();
+        final Point2D[] positions = {
+                new Point2D.Double(10.5, 20.5),
+                new Point2D.Double(3000.5, 3500.5),
+                new Point2D.Double(-1.0, 20.5),
+                new Point2D.Double(11.5, 20.5),
+        };
+        final double[][] values = sampler.sample(bands, positions, 0);
+        assertEquals(4, values.length);
+        assertArrayEquals(new double[]{10.5, 20.5, 31.0}, values[0], 1.0e-6);
+        assertArrayEquals(new double[]{3000.5, 3500.5, 6501.0}, values[1], 1.0e-6);
+        assertArrayEquals(new double[]{Double.NaN, Double.NaN, Double.NaN}, values[2], 1.0e-6);
+        assertArrayEquals(new double[]{11.5, 20.5, 32.0}, values[3], 1.0e-6);
+    }
+
+    @Test
+    public void testTilesAreCached() throws Exception {
+        final SpectrumSampler sampler = new SpectrumSampler();
+        sampler.sample(bands, 1, 1, 0);
+        final int numTiles = sampler.getNumCachedTiles();
+        assertTrue(numTiles >= bands.length);
+
+        sampler.sample(bands, 2, 3, 0);
+        assertEquals(numTiles, sampler.getNumCachedTiles());
+
+        sampler.invalidate(bands[0]);
+        assertTrue(sampler.getNumCachedTiles() < numTiles);
+        sampler.invalidate();
+        assertEquals(0, sampler.getNumCachedTiles());
+        assertEquals(0L, sampler.getCacheSize());
+    }
+
+    @Test
+    public void testCacheSizeIsLimited() throws Exception {
+        final SpectrumSampler sampler = new SpectrumSampler(1L);
+        sampler.sample(new RasterDataNode[]{bands[0], bands[1]}, 1, 1, 0);
+        assertEquals(1, sampler.getNumCachedTiles());
+    }
+}
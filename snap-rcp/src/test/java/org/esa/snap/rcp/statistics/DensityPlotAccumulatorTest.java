@@ -0,0 +1,65 @@
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Test;
+
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+public class DensityPlotAccumulatorTest {
+
+    @Test
+    public void testTileOrderIsPermutation() throws Exception {
+        for (int numTiles : new int[]{0, 1, 2, 5, 16, 37}) {
+            final int[] order = DensityPlotAccumulator.createTileOrder(numTiles);
+            final int[] sorted = order.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < numTiles; i++) {
+                assertEquals(i, sorted[i]);
+            }
+        }
+        assertArrayEquals(new int[]{0, 4, 2, 1, 3}, DensityPlotAccumulator.createTileOrder(5));
+    }
+
+    @Test
+    public void testBinCounts() throws Exception {
+        final Product product = new Product("p", "t", 1000, 1000);
+        final Band bandX = product.addBand("x", "X < 500 ? 0.25 : 0.75", ProductData.TYPE_FLOAT32);
+        final Band bandY = product.addBand("y", "Y < 250 ? 0.0 : 1.0", ProductData.TYPE_FLOAT32);
+
+        final int[] numBatches = new int[1];
+        final DensityPlotAccumulator accumulator = new DensityPlotAccumulator(bandX, 0.0, 1.0, bandY, 0.0, 1.0, null, 4, 4);
+        accumulator.accumulate(ProgressMonitor.NULL, (acc, numTilesDone, numTilesTotal) -> numBatches[0]++);
+
+        assertTrue(numBatches[0] >= 1);
+        assertEquals(4, accumulator.getNumNonEmptyBins());
+        // Y = 0.0 is in the lowest bin, which is the last image row
+        assertEquals(500 * 250, accumulator.getBinCount(1, 3));
+        assertEquals(500 * 250, accumulator.getBinCount(3, 3));
+        // Y = 1.0 is the maximum and goes into the highest bin
+        assertEquals(500 * 750, accumulator.getBinCount(1, 0));
+        assertEquals(500 * 750, accumulator.getBinCount(3, 0));
+        assertEquals(0, accumulator.getBinCount(0, 0));
+
+        final byte[] pixels = ((DataBufferByte) accumulator.createImage(
+                new IndexColorModel(8, 256, new byte[256], new byte[256], new byte[256])).getRaster().getDataBuffer()).getData();
+        assertEquals(255, pixels[3 * 4 + 1] & 0xff);
+        assertEquals(0, pixels[0]);
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancel() throws Exception {
+        final Product product = new Product("p", "t", 100, 100);
+        final Band band = product.addBand("x", "X", ProductData.TYPE_FLOAT32);
+        final DensityPlotAccumulator accumulator = new DensityPlotAccumulator(band, 0.0, 100.0, band, 0.0, 100.0, null, 8, 8);
+        accumulator.cancel();
+        accumulator.accumulate(ProgressMonitor.NULL, null);
+    }
+}
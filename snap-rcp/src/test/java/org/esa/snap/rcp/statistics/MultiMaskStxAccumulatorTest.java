@@ -0,0 +1,71 @@
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.Stx;
+import org.esa.snap.framework.datamodel.StxFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MultiMaskStxAccumulatorTest {
+
+    private Product product;
+    private Band band;
+    private Mask[] masks;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("p", "t", 4000, 4000);
+        band = product.addBand("v", "X + 2 * Y", ProductData.TYPE_FLOAT32);
+        masks = new Mask[]{
+                null,
+                createMask("left", "X < 500"),
+                createMask("top", "Y < 20"),
+                createMask("square", "X > 1000 && X < 1200 && Y > 600 && Y < 700"),
+        };
+    }
+
+    @Test
+    public void testStatisticsMatchFactory() throws Exception {
+        final Stx[] stxs = new Stx[masks.length];
+        new MultiMaskStxAccumulator(band, masks, 500).accumulate(ProgressMonitor.NULL, (maskIndex, stx) -> stxs[maskIndex] = stx);
+
+        for (int i = 0; i < masks.length; i++) {
+            final Stx expected = new StxFactory().withRoiMask(masks[i]).withHistogramBinCount(500).create(band, ProgressMonitor.NULL);
+            final Stx actual = stxs[i];
+            assertNotNull(actual);
+            assertEquals(expected.getMinimum(), actual.getMinimum(), 1.0e-6);
+            assertEquals(expected.getMaximum(), actual.getMaximum(), 1.0e-6);
+            assertEquals(expected.getMean(), actual.getMean(), 1.0e-3);
+            assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), 1.0e-3 * expected.getStandardDeviation());
+            assertEquals(expected.getHistogram().getTotals()[0], actual.getHistogram().getTotals()[0]);
+            assertEquals(500, actual.getHistogramBinCount());
+        }
+    }
+
+    @Test
+    public void testSmallMasksAreReportedEarly() throws Exception {
+        final List<Integer> order = new ArrayList<>();
+        new MultiMaskStxAccumulator(band, masks, 100).accumulate(ProgressMonitor.NULL, (maskIndex, stx) -> order.add(maskIndex));
+
+        assertEquals(masks.length, order.size());
+        assertEquals(2, order.get(0).intValue());
+        assertTrue(order.indexOf(3) < order.indexOf(0));
+        assertTrue(order.indexOf(3) < order.indexOf(1));
+    }
+
+    private Mask createMask(String name, String expression) {
+        final Mask mask = Mask.BandMathsType.create(name, null, 4000, 4000, expression, Color.RED, 0.5);
+        product.getMaskGroup().add(mask);
+        return mask;
+    }
+}
@@ -0,0 +1,89 @@
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the tile-streaming {@link ScatterPlotAccumulator} with the former per-box read path of the
+ * correlative plot. Not a unit test; run the main method manually.
+ */
+public class ScatterPlotAccumulatorBenchmark {
+
+    private static final int SCENE_SIZE = 8192;
+    private static final int BOX_SIZE = 3;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        final Product product = new Product("p", "t", SCENE_SIZE, SCENE_SIZE);
+        final Band band = product.addBand("b", "sin(X / 100) * cos(Y / 100)", ProductData.TYPE_FLOAT32);
+        band.setValidPixelExpression("b > -0.9");
+
+        for (int numPoints : new int[]{10000, 100000}) {
+            final Rectangle[] boxes = createBoxes(numPoints);
+            final double perBoxMillis = measure(() -> readPerBox(band, boxes));
+            final double accumulatorMillis = measure(() -> new ScatterPlotAccumulator(band, null, boxes).accumulate(ProgressMonitor.NULL));
+            System.out.printf("%d points: per-box read %.1f ms, tile-streaming accumulator %.1f ms (%.1fx)%n",
+                              numPoints, perBoxMillis, accumulatorMillis, perBoxMillis / accumulatorMillis);
+        }
+    }
+
+    private static Rectangle[] createBoxes(int numPoints) {
+        final Random random = new Random(5489);
+        final Rectangle[] boxes = new Rectangle[numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            boxes[i] = new Rectangle(random.nextInt(SCENE_SIZE - BOX_SIZE), random.nextInt(SCENE_SIZE - BOX_SIZE), BOX_SIZE, BOX_SIZE);
+        }
+        return boxes;
+    }
+
+    /*
+     * The computation as formerly done by ScatterPlotPanel.
+     */
+    private static void readPerBox(RasterDataNode raster, Rectangle[] boxes) throws IOException {
+        for (Rectangle box : boxes) {
+            final double[] values = new double[box.width * box.height];
+            raster.readPixels(box.x, box.y, box.width, box.height, values);
+            final int[] maskBuffer = new int[box.width * box.height];
+            Arrays.fill(maskBuffer, 1);
+            double sum = 0;
+            int n = 0;
+            for (int y = 0; y < box.height; y++) {
+                for (int x = 0; x < box.width; x++) {
+                    final int index = y * box.width + x;
+                    if (raster.isPixelValid(x + box.x, y + box.y) && maskBuffer[index] != 0) {
+                        sum += values[index];
+                        n++;
+                    }
+                }
+            }
+            if (n > 0 && Double.isNaN(sum)) {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    private static double measure(Task task) throws IOException {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            task.run();
+        }
+        final long t0 = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - t0) / 1.0e6 / MEASURED_RUNS;
+    }
+
+    private interface Task {
+
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,99 @@
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.NullProgressMonitor;
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+public class ScatterPlotAccumulatorTest {
+
+    private Product product;
+    private Band band;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("p", "t", 2048, 2048);
+        band = product.addBand("b", "X + Y", ProductData.TYPE_FLOAT32);
+    }
+
+    @Test
+    public void testSingleTileBox() throws Exception {
+        final ScatterPlotAccumulator accumulator = new ScatterPlotAccumulator(band, null, new Rectangle[]{
+                new Rectangle(10, 20, 3, 3)
+        });
+        accumulator.accumulate(ProgressMonitor.NULL);
+
+        assertEquals(9, accumulator.getCount(0));
+        assertEquals(10.5 + 1 + 20.5 + 1, accumulator.getMean(0), 1.0e-6);
+        assertEquals(Math.sqrt(1.5), accumulator.getSigma(0), 1.0e-6);
+        assertFalse(accumulator.isCenterMasked(0));
+    }
+
+    @Test
+    public void testBoxesAcrossTilesMatchSequentialRead() throws Exception {
+        final Rectangle[] boxes = new Rectangle[]{
+                new Rectangle(0, 0, 5, 5),
+                new Rectangle(509, 509, 7, 7),
+                new Rectangle(1020, 300, 9, 9),
+                new Rectangle(2040, 2040, 8, 8),
+        };
+        final ScatterPlotAccumulator accumulator = new ScatterPlotAccumulator(band, null, boxes);
+        accumulator.accumulate(ProgressMonitor.NULL);
+
+        for (int i = 0; i < boxes.length; i++) {
+            final Rectangle box = boxes[i];
+            final double[] values = band.readPixels(box.x, box.y, box.width, box.height, (double[]) null);
+            double sum = 0.0;
+            for (double value : values) {
+                sum += value;
+            }
+            assertEquals(values.length, accumulator.getCount(i));
+            assertEquals(sum / values.length, accumulator.getMean(i), 1.0e-6);
+        }
+    }
+
+    @Test
+    public void testRoiMaskAndValidMask() throws Exception {
+        band.setValidPixelExpression("X > 11");
+        final Mask mask = Mask.BandMathsType.create("roi", null, 2048, 2048, "Y < 21", Color.RED, 0.5);
+        product.getMaskGroup().add(mask);
+
+        final ScatterPlotAccumulator accumulator = new ScatterPlotAccumulator(band, mask, new Rectangle[]{
+                new Rectangle(10, 20, 3, 3),
+                new Rectangle(10, 19, 3, 3),
+        });
+        accumulator.accumulate(ProgressMonitor.NULL);
+
+        assertTrue(accumulator.isCenterMasked(0));
+        assertEquals(2, accumulator.getCount(0));
+        assertFalse(accumulator.isCenterMasked(1));
+        assertEquals(4, accumulator.getCount(1));
+        assertEquals(12.0 + 20.0, accumulator.getMean(1), 1.0e-6);
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancel() throws Exception {
+        final ScatterPlotAccumulator accumulator = new ScatterPlotAccumulator(band, null, new Rectangle[]{
+                new Rectangle(10, 20, 3, 3)
+        });
+        accumulator.accumulate(new CanceledProgressMonitor());
+    }
+
+    private static class CanceledProgressMonitor extends NullProgressMonitor {
+
+        @Override
+        public boolean isCanceled() {
+            return true;
+        }
+    }
+}
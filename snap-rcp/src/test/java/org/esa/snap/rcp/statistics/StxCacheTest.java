@@ -0,0 +1,126 @@
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.NullProgressMonitor;
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.ProductManager;
+import org.esa.snap.framework.datamodel.Stx;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static org.junit.Assert.*;
+
+public class StxCacheTest {
+
+    private Product product;
+    private Band band;
+    private Mask mask;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("p", "t", 100, 100);
+        band = product.addBand("x", "X", ProductData.TYPE_FLOAT32);
+        mask = Mask.BandMathsType.create("m", null, 100, 100, "X < 50", Color.RED, 0.5);
+        product.getMaskGroup().add(mask);
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        final StxCache cache = new StxCache(1024 * 1024);
+        final Stx stx1 = cache.getStx(band, mask, 100, false, 0, ProgressMonitor.NULL);
+        assertEquals(49.5, stx1.getMaximum(), 1.0e-6);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        assertSame(stx1, cache.getStx(band, mask, 100, false, 0, ProgressMonitor.NULL));
+        assertEquals(1, cache.getHitCount());
+
+        final Stx stx2 = cache.getStx(band, null, 100, false, 0, ProgressMonitor.NULL);
+        assertNotSame(stx1, stx2);
+        assertEquals(99.5, stx2.getMaximum(), 1.0e-6);
+        assertNotSame(stx2, cache.getStx(band, null, 200, false, 0, ProgressMonitor.NULL));
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.getEntryCount());
+    }
+
+    @Test
+    public void testRasterStxIsShared() throws Exception {
+        final StxCache cache = new StxCache(1024 * 1024);
+        final Stx stx = cache.getStx(band, null, Stx.DEFAULT_BIN_COUNT, false, 0, ProgressMonitor.NULL);
+        assertTrue(band.isStxSet());
+        assertSame(band.getStx(), stx);
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        final StxCache cache = new StxCache(1024 * 1024);
+        cache.getStx(band, mask, 100, false, 0, ProgressMonitor.NULL);
+        cache.getStx(band, null, 100, false, 0, ProgressMonitor.NULL);
+        assertEquals(2, cache.getEntryCount());
+
+        mask.setDescription("irrelevant");
+        assertEquals(2, cache.getEntryCount());
+
+        mask.getImageConfig().setValue("expression", "X < 20");
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(19.5, cache.getStx(band, mask, 100, false, 0, ProgressMonitor.NULL).getMaximum(), 1.0e-6);
+
+        cache.invalidate(product);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getMemoryUsed());
+    }
+
+    @Test
+    public void testStxInvalidatedDuringComputationIsNotCached() throws Exception {
+        final StxCache cache = new StxCache(1024 * 1024);
+        final ProgressMonitor pm = new NullProgressMonitor() {
+            @Override
+            public void beginTask(String taskName, int totalWork) {
+                cache.invalidate(mask);
+            }
+        };
+        assertNotNull(cache.getStx(band, mask, 100, false, 0, pm));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getMemoryUsed());
+
+        cache.getStx(band, mask, 100, false, 0, ProgressMonitor.NULL);
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testRemovedProductIsReleased() throws Exception {
+        final ProductManager productManager = new ProductManager();
+        productManager.addProduct(product);
+        final StxCache cache = new StxCache(1024 * 1024);
+        cache.getStx(band, mask, 100, false, 0, ProgressMonitor.NULL);
+        assertEquals(1, cache.getEntryCount());
+
+        productManager.removeProduct(product);
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        final StxCache cache = new StxCache(3 * (4 * 100 + 512));
+        final Stx stx1 = cache.getStx(band, null, 100, false, 0, ProgressMonitor.NULL);
+        cache.getStx(band, mask, 100, false, 0, ProgressMonitor.NULL);
+        cache.getStx(band, null, 100, true, 0, ProgressMonitor.NULL);
+        assertEquals(3, cache.getEntryCount());
+
+        assertSame(stx1, cache.getStx(band, null, 100, false, 0, ProgressMonitor.NULL));
+        cache.getStx(band, mask, 100, true, 0, ProgressMonitor.NULL);
+        assertEquals(3, cache.getEntryCount());
+        assertTrue(cache.getMemoryUsed() <= cache.getMaxMemory());
+
+        final long hitCount = cache.getHitCount();
+        assertSame(stx1, cache.getStx(band, null, 100, false, 0, ProgressMonitor.NULL));
+        assertEquals(hitCount + 1, cache.getHitCount());
+        cache.getStx(band, mask, 100, false, 0, ProgressMonitor.NULL);
+        assertEquals(hitCount + 1, cache.getHitCount());
+    }
+}
@@ -0,0 +1,89 @@
+package org.esa.snap.rcp.statistics;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.util.Formatter;
+
+import static org.junit.Assert.*;
+
+public class TransectSamplerTest {
+
+    @Test
+    public void testSample() throws Exception {
+        final Product product = new Product("p", "t", 4000, 4000);
+        final Band x = product.addBand("x", "X", ProductData.TYPE_FLOAT32);
+        final Band y = product.addBand("y", "Y < 1000 ? NaN : Y", ProductData.TYPE_FLOAT32);
+
+        final Point2D[] path = {
+                new Point2D.Double(3999.5, 10.5),
+                new Point2D.Double(-0.5, 10.5),
+                new Point2D.Double(10.5, 3000.5),
+                new Point2D.Double(2000.2, 2000.7),
+                new Point2D.Double(11.5, 3000.5),
+                new Point2D.Double(10.5, 4000.0),
+        };
+        final TransectSampler sampler = new TransectSampler(4000, 4000, path);
+        assertEquals(6, sampler.getNumPoints());
+        assertEquals(4, sampler.getNumValidPoints());
+        assertFalse(sampler.isInBounds(1));
+        assertFalse(sampler.isInBounds(5));
+        assertEquals(2000, sampler.getPixelX(3));
+        assertEquals(2000, sampler.getPixelY(3));
+
+        final double[] xValues = sampler.sample(x, null);
+        assertArrayEquals(new double[]{3999.5, Double.NaN, 10.5, 2000.5, 11.5, Double.NaN}, xValues, 1.0e-6);
+
+        final double[] yValues = sampler.sample(y, xValues);
+        assertSame(xValues, yValues);
+        assertArrayEquals(new double[]{Double.NaN, Double.NaN, 3000.5, 2000.5, 3000.5, Double.NaN}, yValues, 1.0e-6);
+    }
+
+    @Test
+    public void testSampleValidity() throws Exception {
+        final Product product = new Product("p", "t", 100, 100);
+        final Band nan = product.addBand("nan", "X < 50 ? NaN : X", ProductData.TYPE_FLOAT32);
+        final Band masked = product.addBand("masked", "X", ProductData.TYPE_FLOAT32);
+        masked.setValidPixelExpression("X < 50");
+
+        final Point2D[] path = {
+                new Point2D.Double(10.5, 10.5),
+                new Point2D.Double(60.5, 10.5),
+                new Point2D.Double(-1.0, 10.5),
+        };
+        final TransectSampler sampler = new TransectSampler(100, 100, path);
+        final boolean[] valid = new boolean[3];
+
+        final double[] nanValues = sampler.sample(nan, null, valid);
+        assertArrayEquals(new double[]{Double.NaN, 60.5, Double.NaN}, nanValues, 1.0e-6);
+        // NaN is a valid value of the band
+        assertArrayEquals(new boolean[]{true, true, false}, valid);
+
+        final double[] maskedValues = sampler.sample(masked, null, valid);
+        assertArrayEquals(new double[]{10.5, Double.NaN, Double.NaN}, maskedValues, 1.0e-6);
+        assertArrayEquals(new boolean[]{true, false, false}, valid);
+    }
+
+    @Test
+    public void testAppendPixelString() throws Exception {
+        final Product product = new Product("p", "t", 2, 2);
+        final Band f = product.addBand("f", ProductData.TYPE_FLOAT32);
+        final Band i = product.addBand("i", ProductData.TYPE_INT16);
+
+        final StringBuilder text = new StringBuilder();
+        final Formatter formatter = TransectSampler.createFormatter(text);
+        TransectSampler.appendPixelString(formatter, text, f, 1.25, true);
+        text.append('|');
+        TransectSampler.appendPixelString(formatter, text, i, 7.0, true);
+        text.append('|');
+        TransectSampler.appendPixelString(formatter, text, i, Double.NaN, false);
+        text.append('|');
+        TransectSampler.appendPixelString(formatter, text, f, Double.NaN, true);
+        assertEquals(String.format("%.5f", 1.25) + "|7|" + RasterDataNode.NO_DATA_TEXT + "|" + String.format("%.5f", Double.NaN),
+                     text.toString());
+    }
+}
@@ -20,6 +20,7 @@ import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.timeseries.core.timeseries.datamodel.AbstractTimeSeries;
 import org.esa.snap.timeseries.core.timeseries.datamodel.ProductLocation;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
@@ -36,6 +37,7 @@ import java.util.WeakHashMap;
 public class TimeSeriesMapper {
 
     private final Map<Product, AbstractTimeSeries> map = new WeakHashMap<>();
+    private final Map<AbstractTimeSeries, TimeSeriesPixelExtractor> extractorMap = new HashMap<>();
 
     private TimeSeriesMapper() {
     }
@@ -59,6 +61,13 @@ public class TimeSeriesMapper {
     public void remove(Product product) {
         AbstractTimeSeries timeSeries = map.remove(product);
         if (timeSeries != null) {
+            final TimeSeriesPixelExtractor extractor;
+            synchronized (extractorMap) {
+                extractor = extractorMap.remove(timeSeries);
+            }
+            if (extractor != null) {
+                extractor.dispose();
+            }
             List<ProductLocation> locationList = timeSeries.getProductLocations();
             for (ProductLocation productLocation : locationList) {
                 productLocation.closeProducts();
@@ -71,5 +80,16 @@ public class TimeSeriesMapper {
         return map.get(product);
     }
 
+    /**
+     * @param timeSeries a time series
+     * @return the pixel extractor of the time series, which is created on first use and disposed together with
+     * the time series
+     */
+    public TimeSeriesPixelExtractor getPixelExtractor(AbstractTimeSeries timeSeries) {
+        synchronized (extractorMap) {
+            return extractorMap.computeIfAbsent(timeSeries, TimeSeriesPixelExtractor::new);
+        }
+    }
+
 }
 
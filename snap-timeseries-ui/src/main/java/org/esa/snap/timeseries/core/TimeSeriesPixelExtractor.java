@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.timeseries.core;
+
+import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.glevel.MultiLevelImage;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductNodeEvent;
+import org.esa.snap.framework.datamodel.ProductNodeListenerAdapter;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.timeseries.core.timeseries.datamodel.AbstractTimeSeries;
+
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Extracts the values of the bands of a time series at single pixels, e.g. at the pins or at the cursor position.
+ * <p>
+ * The requests are grouped by band, i.e. by the source product of a date, and by tile, so that every tile is
+ * fetched once for all pixels it contains. The bands are read in parallel. The values read are cached as a vector
+ * per pixel, holding a value per band. If product locations are added to the time series, only the values of the
+ * new bands are read by the next request; the values of removed bands are dropped. Whether a pixel is valid is
+ * extracted along with its value, as a valid pixel may have the value {@code NaN}.
+ *
+ * <p><i>Note that this class is not yet public API. Interface may change in future releases.</i></p>
+ */
+public class TimeSeriesPixelExtractor {
+
+    private static final int MAX_CACHED_PIXELS = 256;
+
+    private static final ExecutorService bandReader = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                final Thread thread = new Thread(runnable, "Time series pixel reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Product tsProduct;
+    private final BandListener bandListener;
+    // the samples read at a pixel, by band
+    private final Map<Pixel, Map<Band, Sample>> valueCache = new LinkedHashMap<Pixel, Map<Band, Sample>>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Pixel, Map<Band, Sample>> eldest) {
+            return size() > MAX_CACHED_PIXELS;
+        }
+    };
+
+    public TimeSeriesPixelExtractor(AbstractTimeSeries timeSeries) {
+        this(timeSeries.getTsProduct());
+    }
+
+    /**
+     * @param tsProduct the product of the time series, whose bands are extracted
+     */
+    TimeSeriesPixelExtractor(Product tsProduct) {
+        this.tsProduct = tsProduct;
+        bandListener = new BandListener();
+        tsProduct.addProductNodeListener(bandListener);
+    }
+
+    /**
+     * Returns the geophysical values of the given bands at the given pixels.
+     *
+     * @param pixels the pixels
+     * @param bands  the bands of the time series
+     * @param pm     the progress monitor, worked once per band read
+     * @return the values of the bands at the pixels
+     * @throws CancellationException if the progress monitor has been canceled or the thread has been interrupted
+     */
+    public PixelValues getValues(List<Pixel> pixels, List<Band> bands, ProgressMonitor pm) {
+        final Sample[][] samples = new Sample[pixels.size()][bands.size()];
+        final PixelValues values = new PixelValues(samples);
+        // the pixels whose values are not cached, by index of band
+        final Map<Integer, List<Integer>> missingPixels = new LinkedHashMap<>();
+        synchronized (valueCache) {
+            for (int i = 0; i < pixels.size(); i++) {
+                final Map<Band, Sample> cachedSamples = valueCache.get(pixels.get(i));
+                for (int j = 0; j < bands.size(); j++) {
+                    final Sample sample = cachedSamples != null ? cachedSamples.get(bands.get(j)) : null;
+                    if (sample != null) {
+                        samples[i][j] = sample;
+                    } else {
+                        missingPixels.computeIfAbsent(j, index -> new ArrayList<>()).add(i);
+                    }
+                }
+            }
+        }
+        if (missingPixels.isEmpty()) {
+            return values;
+        }
+
+        pm.beginTask("Extracting time series pixel values...", missingPixels.size());
+        final CompletionService<Sample[]> completionService = new ExecutorCompletionService<>(bandReader);
+        final Map<Future<Sample[]>, Integer> bandIndices = new HashMap<>();
+        try {
+            for (Map.Entry<Integer, List<Integer>> entry : missingPixels.entrySet()) {
+                final Band band = bands.get(entry.getKey());
+                final List<Pixel> bandPixels = new ArrayList<>(entry.getValue().size());
+                for (int pixelIndex : entry.getValue()) {
+                    bandPixels.add(pixels.get(pixelIndex));
+                }
+                bandIndices.put(completionService.submit(() -> readValues(band, bandPixels)), entry.getKey());
+            }
+            for (int n = 0; n < bandIndices.size(); n++) {
+                if (pm.isCanceled()) {
+                    throw new CancellationException("Extraction of pixel values canceled.");
+                }
+                final Future<Sample[]> future = completionService.take();
+                final int bandIndex = bandIndices.get(future);
+                final Band band = bands.get(bandIndex);
+                final List<Integer> pixelIndices = missingPixels.get(bandIndex);
+                final Sample[] bandSamples = getResult(future);
+                synchronized (valueCache) {
+                    for (int k = 0; k < bandSamples.length; k++) {
+                        final int pixelIndex = pixelIndices.get(k);
+                        samples[pixelIndex][bandIndex] = bandSamples[k];
+                        valueCache.computeIfAbsent(pixels.get(pixelIndex), pixel -> new HashMap<>()).put(band, bandSamples[k]);
+                    }
+                }
+                pm.worked(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Extraction of pixel values interrupted.");
+        } finally {
+            for (Future<Sample[]> future : bandIndices.keySet()) {
+                future.cancel(true);
+            }
+            pm.done();
+        }
+        return values;
+    }
+
+    /**
+     * Drops all cached values and stops listening to the time series.
+     */
+    public void dispose() {
+        tsProduct.removeProductNodeListener(bandListener);
+        synchronized (valueCache) {
+            valueCache.clear();
+        }
+    }
+
+    private void removeValues(Band band) {
+        synchronized (valueCache) {
+            for (Map<Band, Sample> pixelValues : valueCache.values()) {
+                pixelValues.remove(band);
+            }
+        }
+    }
+
+    private static Sample[] getResult(Future<Sample[]> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /*
+     * Reads the values of a band at the given pixels, fetching every tile once.
+     */
+    private static Sample[] readValues(Band band, List<Pixel> pixels) {
+        final Sample[] values = new Sample[pixels.size()];
+        Arrays.fill(values, Sample.INVALID);
+        final MultiLevelImage geophysicalImage = band.getGeophysicalImage();
+        final MultiLevelImage validMaskImage = band.getValidMaskImage();
+
+        // visit the pixels ordered by level and tile
+        final Integer[] order = new Integer[pixels.size()];
+        final long[] tileKeys = new long[pixels.size()];
+        for (int i = 0; i < order.length; i++) {
+            final Pixel pixel = pixels.get(i);
+            final RenderedImage image = geophysicalImage.getImage(pixel.level);
+            final long tileX = Math.floorDiv(pixel.x - image.getTileGridXOffset(), image.getTileWidth());
+            final long tileY = Math.floorDiv(pixel.y - image.getTileGridYOffset(), image.getTileHeight());
+            tileKeys[i] = ((long) pixel.level << 56) ^ (tileY << 28) ^ (tileX & 0xfffffffL);
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> Long.compare(tileKeys[i1], tileKeys[i2]));
+
+        TileReader dataReader = null;
+        TileReader maskReader = null;
+        for (int i : order) {
+            final Pixel pixel = pixels.get(i);
+            if (dataReader == null || dataReader.level != pixel.level) {
+                dataReader = new TileReader(geophysicalImage.getImage(pixel.level), pixel.level);
+                maskReader = validMaskImage != null ? new TileReader(validMaskImage.getImage(pixel.level), pixel.level) : null;
+            }
+            final Raster dataTile = dataReader.getTile(pixel.x, pixel.y);
+            if (dataTile == null) {
+                continue;
+            }
+            final Raster maskTile = maskReader != null ? maskReader.getTile(pixel.x, pixel.y) : null;
+            if (maskReader == null || maskTile != null && maskTile.getSample(pixel.x, pixel.y, 0) > 0) {
+                values[i] = new Sample(dataTile.getSampleDouble(pixel.x, pixel.y, 0));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * The values of bands at pixels, as returned by {@link #getValues}.
+     */
+    public static final class PixelValues {
+
+        private final Sample[][] samples;
+
+        private PixelValues(Sample[][] samples) {
+            this.samples = samples;
+        }
+
+        /**
+         * @return whether the pixel at the given index is valid in the band at the given index, i.e. whether it is
+         * inside of the band and not masked by its valid-pixel expression or no-data value
+         */
+        public boolean isValid(int pixelIndex, int bandIndex) {
+            return samples[pixelIndex][bandIndex].valid;
+        }
+
+        /**
+         * @return the geophysical value of the band at the given index at the pixel at the given index,
+         * {@code Double.NaN} if the pixel is not valid
+         */
+        public double getValue(int pixelIndex, int bandIndex) {
+            return samples[pixelIndex][bandIndex].value;
+        }
+    }
+
+    private static final class Sample {
+
+        private static final Sample INVALID = new Sample(Double.NaN, false);
+
+        private final double value;
+        private final boolean valid;
+
+        private Sample(double value) {
+            this(value, true);
+        }
+
+        private Sample(double value, boolean valid) {
+            this.value = value;
+            this.valid = valid;
+        }
+    }
+
+    /**
+     * A pixel at a resolution level of the time series product.
+     */
+    public static final class Pixel {
+
+        private final int x;
+        private final int y;
+        private final int level;
+
+        public Pixel(int x, int y, int level) {
+            this.x = x;
+            this.y = y;
+            this.level = level;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Pixel)) {
+                return false;
+            }
+            final Pixel pixel = (Pixel) o;
+            return x == pixel.x && y == pixel.y && level == pixel.level;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * x + y) + level;
+        }
+    }
+
+    /*
+     * Keeps the tile fetched last of an image.
+     */
+    private static final class TileReader {
+
+        private final RenderedImage image;
+        private final int level;
+        private int tileX;
+        private int tileY;
+        private Raster tile;
+
+        private TileReader(RenderedImage image, int level) {
+            this.image = image;
+            this.level = level;
+        }
+
+        private Raster getTile(int x, int y) {
+            if (x < image.getMinX() || y < image.getMinY() ||
+                x >= image.getMinX() + image.getWidth() || y >= image.getMinY() + image.getHeight()) {
+                return null;
+            }
+            final int tileX = Math.floorDiv(x - image.getTileGridXOffset(), image.getTileWidth());
+            final int tileY = Math.floorDiv(y - image.getTileGridYOffset(), image.getTileHeight());
+            if (tile == null || tileX != this.tileX || tileY != this.tileY) {
+                tile = image.getTile(tileX, tileY);
+                this.tileX = tileX;
+                this.tileY = tileY;
+            }
+            return tile;
+        }
+    }
+
+    private class BandListener extends ProductNodeListenerAdapter {
+
+        @Override
+        public void nodeChanged(ProductNodeEvent event) {
+            final String propertyName = event.getPropertyName();
+            if (event.getSourceNode() instanceof Band &&
+                !RasterDataNode.PROPERTY_NAME_IMAGE_INFO.equals(propertyName) &&
+                !RasterDataNode.PROPERTY_NAME_STX.equals(propertyName)) {
+                removeValues((Band) event.getSourceNode());
+            }
+        }
+
+        @Override
+        public void nodeRemoved(ProductNodeEvent event) {
+            if (event.getSourceNode() instanceof Band) {
+                removeValues((Band) event.getSourceNode());
+            }
+        }
+    }
+}
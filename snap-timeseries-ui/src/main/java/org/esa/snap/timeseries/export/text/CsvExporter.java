@@ -17,12 +17,7 @@
 package org.esa.snap.timeseries.export.text;
 
 import com.bc.ceres.core.ProgressMonitor;
-import com.bc.ceres.glevel.MultiLevelImage;
-import org.esa.snap.framework.datamodel.RasterDataNode;
 
-import java.awt.Rectangle;
-import java.awt.image.Raster;
-import java.awt.image.RenderedImage;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
@@ -80,23 +75,4 @@ abstract class CsvExporter {
     abstract void setUpRows(ProgressMonitor pm);
 
     abstract String getSeparator();
-
-    static double getValue(RasterDataNode raster, int pixelX, int pixelY, int currentLevel) {
-        final RenderedImage image = raster.getGeophysicalImage().getImage(currentLevel);
-        final Rectangle pixelRect = new Rectangle(pixelX, pixelY, 1, 1);
-        final Raster data = image.getData(pixelRect);
-        final MultiLevelImage validMaskImage = raster.getValidMaskImage();
-        Raster validMaskData = null;
-        if (validMaskImage != null) {
-            final RenderedImage validMask = validMaskImage.getImage(currentLevel);
-            validMaskData = validMask.getData(pixelRect);
-        }
-        final double value;
-        if (validMaskData == null || validMaskData.getSample(pixelX, pixelY, 0) > 0) {
-            value = data.getSampleDouble(pixelX, pixelY, 0);
-        } else {
-            value = Double.NaN;
-        }
-        return value;
-    }
 }
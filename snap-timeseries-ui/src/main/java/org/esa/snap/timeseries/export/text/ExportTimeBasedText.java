@@ -26,6 +26,8 @@ import org.esa.snap.framework.help.HelpSys;
 import org.esa.snap.framework.ui.SelectExportMethodDialog;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
+import org.esa.snap.timeseries.core.TimeSeriesMapper;
+import org.esa.snap.timeseries.core.TimeSeriesPixelExtractor;
 import org.esa.snap.timeseries.core.timeseries.datamodel.AbstractTimeSeries;
 import org.esa.snap.timeseries.export.util.TimeSeriesExportHelper;
 import org.esa.snap.util.SystemUtils;
@@ -79,7 +81,8 @@ public class ExportTimeBasedText extends ProgressMonitorSwingWorker<String, Void
         for (ProductNode placemark : placemarkArray) {
             placemarks.add((Placemark) placemark);
         }
-        CsvExporter exporter = new TimeCsvExporter(bandList, placemarks, writer);
+        final TimeSeriesPixelExtractor extractor = TimeSeriesMapper.getInstance().getPixelExtractor(timeSeries);
+        CsvExporter exporter = new TimeCsvExporter(bandList, placemarks, extractor, writer);
         exporter.exportCsv(pm);
         return null;
     }
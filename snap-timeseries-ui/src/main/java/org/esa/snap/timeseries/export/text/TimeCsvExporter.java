@@ -17,6 +17,7 @@
 package org.esa.snap.timeseries.export.text;
 
 import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.core.SubProgressMonitor;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.framework.datamodel.PixelPos;
@@ -24,6 +25,7 @@ import org.esa.snap.framework.datamodel.Placemark;
 import org.esa.snap.framework.ui.product.ProductSceneView;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.timeseries.core.TimeSeriesMapper;
+import org.esa.snap.timeseries.core.TimeSeriesPixelExtractor;
 import org.esa.snap.timeseries.core.timeseries.datamodel.AbstractTimeSeries;
 import org.esa.snap.timeseries.core.timeseries.datamodel.TimeCoding;
 
@@ -42,15 +44,18 @@ class TimeCsvExporter extends CsvExporter {
 
     private final List<List<Band>> variablesList;
     private final List<Placemark> pins;
+    private final TimeSeriesPixelExtractor extractor;
     private final int level;
     private final boolean exportImageCoords = true;
     private final boolean exportLonLat = true;
     private final boolean exportUnit = true;
 
-    TimeCsvExporter(List<List<Band>> rasterList, List<Placemark> pins, PrintWriter writer) {
+    TimeCsvExporter(List<List<Band>> rasterList, List<Placemark> pins, TimeSeriesPixelExtractor extractor,
+                    PrintWriter writer) {
         super(writer);
         this.variablesList = new ArrayList<>(rasterList);
         this.pins = new ArrayList<>(pins);
+        this.extractor = extractor;
         this.level = 0;
     }
 
@@ -112,19 +117,32 @@ class TimeCsvExporter extends CsvExporter {
 
     @Override
     void setUpRows(ProgressMonitor pm) {
-        pm.beginTask("Exporting pin data as csv-file...", pins.size());
-        for (Placemark pin : pins) {
+        pm.beginTask("Exporting pin data as csv-file...", variablesList.size());
+        try {
+            final List<TimeSeriesPixelExtractor.Pixel> pixels = new ArrayList<>(pins.size());
+            for (Placemark pin : pins) {
+                final PixelPos pixelPos = pin.getPixelPos();
+                pixels.add(new TimeSeriesPixelExtractor.Pixel((int) pixelPos.x, (int) pixelPos.y, level));
+            }
+            // the values of all pins are extracted at once per variable
+            final List<TimeSeriesPixelExtractor.PixelValues> variableValues = new ArrayList<>(variablesList.size());
             for (List<Band> bandList : variablesList) {
-                if (!bandList.isEmpty()) {
-                    rows.add(setUpRow(pin, bandList));
+                variableValues.add(extractor.getValues(pixels, bandList, new SubProgressMonitor(pm, 1)));
+            }
+            for (int i = 0; i < pins.size(); i++) {
+                for (int j = 0; j < variablesList.size(); j++) {
+                    final List<Band> bandList = variablesList.get(j);
+                    if (!bandList.isEmpty()) {
+                        rows.add(setUpRow(pins.get(i), bandList, variableValues.get(j), i));
+                    }
                 }
             }
-            pm.worked(1);
+        } finally {
+            pm.done();
         }
-        pm.done();
     }
 
-    private String setUpRow(Placemark pin, List<Band> bandList) {
+    private String setUpRow(Placemark pin, List<Band> bandList, TimeSeriesPixelExtractor.PixelValues values, int pinIndex) {
         Band refBand = bandList.get(0);
         final StringBuilder row = new StringBuilder();
         row.append(pin.getLabel());
@@ -143,8 +161,8 @@ class TimeCsvExporter extends CsvExporter {
             row.append(getSeparator());
         }
         for (int i = 0; i < bandList.size(); i++) {
-            Band band = bandList.get(i);
-            row.append(getValue(band, (int) pixelPos.x, (int) pixelPos.y, level));
+            // invalid pixels are exported as NaN
+            row.append(values.getValue(pinIndex, i));
             if (i < bandList.size() - 1) {
                 row.append(getSeparator());
             }
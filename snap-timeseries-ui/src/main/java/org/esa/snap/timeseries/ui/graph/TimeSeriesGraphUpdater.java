@@ -1,27 +1,28 @@
 package org.esa.snap.timeseries.ui.graph;
 
+import com.bc.ceres.core.ProgressMonitor;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.framework.datamodel.Placemark;
 import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.timeseries.core.TimeSeriesMapper;
+import org.esa.snap.timeseries.core.TimeSeriesPixelExtractor;
 import org.esa.snap.timeseries.core.insitu.InsituSource;
 import org.esa.snap.timeseries.core.insitu.csv.InsituRecord;
 import org.esa.snap.timeseries.core.timeseries.datamodel.AbstractTimeSeries;
 import org.esa.snap.timeseries.core.timeseries.datamodel.AxisMapping;
 import org.esa.snap.timeseries.core.timeseries.datamodel.TimeCoding;
-import org.esa.snap.util.ProductUtils;
 import org.jfree.data.time.Millisecond;
 import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesDataItem;
 
 import javax.swing.SwingWorker;
-import java.awt.Rectangle;
-import java.awt.image.Raster;
-import java.awt.image.RenderedImage;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
@@ -96,17 +97,33 @@ class TimeSeriesGraphUpdater extends SwingWorker<List<TimeSeries>, Void> {
             positionNames.add("");
         }
 
+        final List<TimeSeriesPixelExtractor.Pixel> pixels = new ArrayList<>(positionsToDisplay.size());
+        for (Position position : positionsToDisplay) {
+            pixels.add(new TimeSeriesPixelExtractor.Pixel(position.pixelX, position.pixelY, position.currentLevel));
+        }
+        final TimeSeriesPixelExtractor extractor = TimeSeriesMapper.getInstance().getPixelExtractor(timeSeries);
+
+        // the values of all positions are extracted at once per raster
         final Set<String> aliasNames = displayAxisMapping.getAliasNames();
-        final List<TimeSeries> rasterTimeSeries = new ArrayList<>();
+        final Map<String, List<Band>> rasterBands = new HashMap<>();
+        final Map<String, TimeSeriesPixelExtractor.PixelValues> rasterValues = new HashMap<>();
+        for (String aliasName : aliasNames) {
+            for (String rasterName : displayAxisMapping.getRasterNames(aliasName)) {
+                if (!rasterValues.containsKey(rasterName)) {
+                    final List<Band> bandsForVariable = timeSeries.getBandsForVariable(rasterName);
+                    rasterBands.put(rasterName, bandsForVariable);
+                    rasterValues.put(rasterName, extractor.getValues(pixels, bandsForVariable, ProgressMonitor.NULL));
+                }
+            }
+        }
 
+        final List<TimeSeries> rasterTimeSeries = new ArrayList<>();
         for (int i = 0, positionsToDisplaySize = positionsToDisplay.size(); i < positionsToDisplaySize; i++) {
-            final Position position = positionsToDisplay.get(i);
             final String positionName = positionNames.get(i);
             for (String aliasName : aliasNames) {
                 final List<String> rasterNames = displayAxisMapping.getRasterNames(aliasName);
                 for (String rasterName : rasterNames) {
-                    final List<Band> bandsForVariable = timeSeries.getBandsForVariable(rasterName);
-                    final TimeSeries timeSeries = computeSingleTimeSeries(bandsForVariable, position.pixelX, position.pixelY, position.currentLevel, positionName);
+                    final TimeSeries timeSeries = computeSingleTimeSeries(rasterBands.get(rasterName), rasterValues.get(rasterName), i, positionName);
                     rasterTimeSeries.add(dataHandler.getValidatedTimeSeries(timeSeries, rasterName, type));
                 }
             }
@@ -150,42 +167,30 @@ class TimeSeriesGraphUpdater extends SwingWorker<List<TimeSeries>, Void> {
         return timeSeries;
     }
 
-    private TimeSeries computeSingleTimeSeries(final List<Band> bandList, int pixelX, int pixelY, int currentLevel, String positionName) {
+    private TimeSeries computeSingleTimeSeries(final List<Band> bandList, TimeSeriesPixelExtractor.PixelValues values,
+                                               int positionIndex, String positionName) {
         final Band firstBand = bandList.get(0);
         final String firstBandName = firstBand.getName();
         final int lastUnderscore = firstBandName.lastIndexOf("_");
         final String suffix = positionName.isEmpty()?positionName: "_" + positionName;
         final String timeSeriesName = firstBandName.substring(0, lastUnderscore);
         final TimeSeries timeSeries = new TimeSeries(timeSeriesName + suffix);
-        for (Band band : bandList) {
+        for (int i = 0; i < bandList.size(); i++) {
+            final Band band = bandList.get(i);
             final TimeCoding timeCoding = this.timeSeries.getRasterTimeMap().get(band);
             if (timeCoding != null) {
                 final ProductData.UTC startTime = timeCoding.getStartTime();
                 final Millisecond timePeriod = new Millisecond(startTime.getAsDate(),
                                                                ProductData.UTC.UTC_TIME_ZONE,
                                                                Locale.getDefault());
-                final double value = getValue(band, pixelX, pixelY, currentLevel);
+                // invalid pixels are shown as no-data value
+                final double value = values.isValid(positionIndex, i) ? values.getValue(positionIndex, i) : band.getNoDataValue();
                 timeSeries.add(new TimeSeriesDataItem(timePeriod, value));
             }
         }
         return timeSeries;
     }
 
-    private static double getValue(Band band, int pixelX, int pixelY, int currentLevel) {
-        final Rectangle pixelRect = new Rectangle(pixelX, pixelY, 1, 1);
-        if (band.getValidMaskImage() != null) {
-            final RenderedImage validMask = band.getValidMaskImage().getImage(currentLevel);
-            final Raster validMaskData = validMask.getData(pixelRect);
-            if (validMaskData.getSample(pixelX, pixelY, 0) > 0) {
-                return ProductUtils.getGeophysicalSampleDouble(band, pixelX, pixelY, currentLevel);
-            } else {
-                return band.getNoDataValue();
-            }
-        } else {
-            return ProductUtils.getGeophysicalSampleDouble(band, pixelX, pixelY, currentLevel);
-        }
-    }
-
     static class Position {
 
         private final int pixelX;
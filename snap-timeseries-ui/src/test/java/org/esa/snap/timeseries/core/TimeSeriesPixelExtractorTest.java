@@ -0,0 +1,126 @@
+package org.esa.snap.timeseries.core;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.timeseries.core.TimeSeriesPixelExtractor.Pixel;
+import org.esa.snap.timeseries.core.TimeSeriesPixelExtractor.PixelValues;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TimeSeriesPixelExtractorTest {
+
+    private static final int SIZE = 64;
+    private static final int TILE_SIZE = 16;
+
+    private Product product;
+    private Band band;
+    private AtomicInteger tileCount;
+    private TimeSeriesPixelExtractor extractor;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("ts", "ts", SIZE, SIZE);
+        product.setPreferredTileSize(TILE_SIZE, TILE_SIZE);
+        tileCount = new AtomicInteger();
+        final TiledImage image = new TiledImage(0, 0, SIZE, SIZE, 0, 0,
+                                                RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT, TILE_SIZE, TILE_SIZE, 1),
+                                                null) {
+            @Override
+            public Raster getTile(int tileX, int tileY) {
+                tileCount.incrementAndGet();
+                return super.getTile(tileX, tileY);
+            }
+        };
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                image.setSample(x, y, 0, x + 100.0 * y);
+            }
+        }
+        band = new Band("chl_2015-01-01", ProductData.TYPE_FLOAT32, SIZE, SIZE);
+        product.addBand(band);
+        band.setSourceImage(image);
+        tileCount.set(0);
+        extractor = new TimeSeriesPixelExtractor(product);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        extractor.dispose();
+    }
+
+    @Test
+    public void testEachTileIsFetchedOnce() throws Exception {
+        final List<Pixel> pixels = Arrays.asList(new Pixel(1, 1, 0), new Pixel(16, 0, 0), new Pixel(40, 40, 0),
+                                                 new Pixel(15, 15, 0), new Pixel(30, 10, 0), new Pixel(2, 3, 0));
+
+        final PixelValues values = extractor.getValues(pixels, Collections.singletonList(band), ProgressMonitor.NULL);
+
+        assertEquals(3, tileCount.get());
+        for (int i = 0; i < pixels.size(); i++) {
+            final Pixel pixel = pixels.get(i);
+            assertTrue(values.isValid(i, 0));
+            assertEquals(pixel.getX() + 100.0 * pixel.getY(), values.getValue(i, 0), 1.0e-6);
+        }
+    }
+
+    @Test
+    public void testValuesAreCached() throws Exception {
+        final List<Band> bands = Collections.singletonList(band);
+        extractor.getValues(Arrays.asList(new Pixel(1, 1, 0), new Pixel(20, 1, 0)), bands, ProgressMonitor.NULL);
+        assertEquals(2, tileCount.get());
+
+        final PixelValues values = extractor.getValues(Arrays.asList(new Pixel(20, 1, 0), new Pixel(1, 1, 0)),
+                                                       bands, ProgressMonitor.NULL);
+        assertEquals(2, tileCount.get());
+        assertEquals(120.0, values.getValue(0, 0), 1.0e-6);
+        assertEquals(101.0, values.getValue(1, 0), 1.0e-6);
+
+        extractor.getValues(Arrays.asList(new Pixel(1, 1, 0), new Pixel(40, 1, 0)), bands, ProgressMonitor.NULL);
+        assertEquals(3, tileCount.get());
+    }
+
+    @Test
+    public void testChangedBandIsReadAgain() throws Exception {
+        final List<Pixel> pixels = Collections.singletonList(new Pixel(1, 1, 0));
+        final List<Band> bands = Collections.singletonList(band);
+        extractor.getValues(pixels, bands, ProgressMonitor.NULL);
+        assertEquals(1, tileCount.get());
+
+        band.setDescription("changed");
+        extractor.getValues(pixels, bands, ProgressMonitor.NULL);
+        assertEquals(2, tileCount.get());
+    }
+
+    @Test
+    public void testValidity() throws Exception {
+        final Band masked = product.addBand("masked_2015-01-02", "X");
+        masked.setValidPixelExpression("X < 40");
+        final List<Pixel> pixels = Arrays.asList(new Pixel(3, 4, 0), new Pixel(50, 4, 0), new Pixel(SIZE + 6, 4, 0));
+
+        final PixelValues values = extractor.getValues(pixels, Arrays.asList(band, masked), ProgressMonitor.NULL);
+
+        assertTrue(values.isValid(0, 0));
+        assertTrue(values.isValid(0, 1));
+        assertEquals(3.5, values.getValue(0, 1), 1.0e-6);
+        assertTrue(values.isValid(1, 0));
+        assertFalse(values.isValid(1, 1));
+        assertTrue(Double.isNaN(values.getValue(1, 1)));
+        // outside of the bands
+        assertFalse(values.isValid(2, 0));
+        assertFalse(values.isValid(2, 1));
+    }
+}
@@ -2,17 +2,24 @@ package org.esa.snap.framework.ui;
 
 import com.bc.ceres.glayer.swing.LayerCanvas;
 import com.bc.ceres.grender.Rendering;
+import com.bc.ceres.grender.Viewport;
 import org.esa.snap.framework.datamodel.GeoCoding;
 import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.framework.datamodel.PixelPos;
 import org.esa.snap.framework.datamodel.Product;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class is an overlay that draws products from a {@link WorldMapPaneDataModel} and lets client decide how to
@@ -25,10 +32,19 @@ import java.awt.geom.Point2D;
 public abstract class BoundaryOverlay implements LayerCanvas.Overlay {
 
     private final WorldMapPaneDataModel dataModel;
+    private final ProductFootprintCache footprintCache;
     private LayerCanvas layerCanvas;
 
+    // the footprints of the products which are not selected are drawn into an image, which is reused while
+    // panning by less than its margin
+    private BufferedImage footprintImage;
+    private AffineTransform footprintImageTransform;
+    private Rectangle footprintImageViewBounds;
+    private Object[] footprintImageState;
+
     protected BoundaryOverlay(WorldMapPaneDataModel dataModel) {
         this.dataModel = dataModel;
+        footprintCache = new ProductFootprintCache();
     }
 
     @Override
@@ -39,11 +55,7 @@ public abstract class BoundaryOverlay implements LayerCanvas.Overlay {
         }
 
         final Product selectedProduct = dataModel.getSelectedProduct();
-        for (final Product product : dataModel.getProducts()) {
-            if (selectedProduct != product) {
-                drawProduct(rendering.getGraphics(), product, false);
-            }
-        }
+        drawProducts(rendering.getGraphics(), selectedProduct);
 
         handleSelectedProduct(rendering, selectedProduct);
 
@@ -57,21 +69,99 @@ public abstract class BoundaryOverlay implements LayerCanvas.Overlay {
             return;
         }
 
-        GeneralPath[] boundaryPaths = WorldMapPane.getGeoBoundaryPaths(product);
-        final String text = String.valueOf(product.getRefNo());
-        final PixelPos textCenter = getProductCenter(product);
-        drawGeoBoundary(g2d, boundaryPaths, isCurrent, text, textCenter);
+        final AffineTransform transform = layerCanvas.getViewport().getModelToViewTransform();
+        drawProduct(g2d, product, isCurrent, transform, layerCanvas.getViewport().getZoomFactor());
     }
 
-    private void drawGeoBoundary(final Graphics2D g2d, final GeneralPath[] boundaryPaths, final boolean isCurrent,
-                                 final String text, final PixelPos textCenter) {
-        final AffineTransform transform = layerCanvas.getViewport().getModelToViewTransform();
+    private void drawProduct(final Graphics2D g2d, final Product product, final boolean isCurrent,
+                             final AffineTransform transform, final double zoomFactor) {
+        final GeneralPath[] boundaryPaths = footprintCache.getPaths(product, zoomFactor);
+        final String text = String.valueOf(product.getRefNo());
+        final GeoPos center = footprintCache.getCenter(product);
+        final Point2D textCenter = transform.transform(new Point2D.Double(center.getLon(), center.getLat()), null);
         for (GeneralPath boundaryPath : boundaryPaths) {
-            boundaryPath.transform(transform);
-            drawPath(isCurrent, g2d, boundaryPath, 0.0f);
+            drawPath(isCurrent, g2d, transform.createTransformedShape(boundaryPath), 0.0f);
         }
 
-        drawText(g2d, text, textCenter, 0.0f);
+        drawText(g2d, text, new PixelPos(textCenter.getX(), textCenter.getY()), 0.0f);
+    }
+
+    /*
+     * Draws the products which are not selected. The image is drawn again only if the products, the scale or
+     * the size of the view have changed, or the view has been panned beyond the margin of the image.
+     */
+    private void drawProducts(final Graphics2D g2d, final Product selectedProduct) {
+        final List<Object> state = new ArrayList<>();
+        for (final Product product : dataModel.getProducts()) {
+            if (product != selectedProduct && product.getGeoCoding() != null) {
+                state.add(product);
+                state.add(product.getGeoCoding());
+            }
+        }
+        if (state.isEmpty()) {
+            footprintImage = null;
+            return;
+        }
+
+        final Viewport viewport = layerCanvas.getViewport();
+        final AffineTransform transform = viewport.getModelToViewTransform();
+        final Rectangle viewBounds = viewport.getViewBounds();
+        final Object[] stateArray = state.toArray();
+        if (footprintImage == null || !isSameState(stateArray) || !viewBounds.equals(footprintImageViewBounds)
+            || transform.getScaleX() != footprintImageTransform.getScaleX()
+            || transform.getScaleY() != footprintImageTransform.getScaleY()
+            || transform.getShearX() != footprintImageTransform.getShearX()
+            || transform.getShearY() != footprintImageTransform.getShearY()
+            || Math.abs(transform.getTranslateX() - footprintImageTransform.getTranslateX()) > viewBounds.width / 2
+            || Math.abs(transform.getTranslateY() - footprintImageTransform.getTranslateY()) > viewBounds.height / 2) {
+            renderFootprintImage(g2d, stateArray, transform, viewBounds, viewport.getZoomFactor());
+        }
+
+        final double x = transform.getTranslateX() - footprintImageTransform.getTranslateX() - viewBounds.width / 2;
+        final double y = transform.getTranslateY() - footprintImageTransform.getTranslateY() - viewBounds.height / 2;
+        g2d.drawImage(footprintImage, (int) Math.round(x), (int) Math.round(y), null);
+    }
+
+    private void renderFootprintImage(final Graphics2D g2d, final Object[] state, final AffineTransform transform,
+                                      final Rectangle viewBounds, final double zoomFactor) {
+        // the image has a margin of half the view size on each side
+        final int width = Math.max(1, 2 * viewBounds.width);
+        final int height = Math.max(1, 2 * viewBounds.height);
+        if (footprintImage == null || footprintImage.getWidth() != width || footprintImage.getHeight() != height) {
+            footprintImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        final AffineTransform imageTransform = AffineTransform.getTranslateInstance(viewBounds.width / 2,
+                                                                                   viewBounds.height / 2);
+        imageTransform.concatenate(transform);
+
+        final Graphics2D imageGraphics = footprintImage.createGraphics();
+        try {
+            imageGraphics.setComposite(AlphaComposite.Clear);
+            imageGraphics.fillRect(0, 0, width, height);
+            imageGraphics.setComposite(AlphaComposite.SrcOver);
+            imageGraphics.setRenderingHints(g2d.getRenderingHints());
+            imageGraphics.setFont(g2d.getFont());
+            for (int i = 0; i < state.length; i += 2) {
+                drawProduct(imageGraphics, (Product) state[i], false, imageTransform, zoomFactor);
+            }
+        } finally {
+            imageGraphics.dispose();
+        }
+        footprintImageTransform = new AffineTransform(transform);
+        footprintImageViewBounds = new Rectangle(viewBounds);
+        footprintImageState = state;
+    }
+
+    private boolean isSameState(final Object[] state) {
+        if (footprintImageState == null || footprintImageState.length != state.length) {
+            return false;
+        }
+        for (int i = 0; i < state.length; i++) {
+            if (footprintImageState[i] != state[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private void drawGeoBoundary(final Graphics2D g2d, final GeoPos[] geoBoundary, final boolean isCurrent,
@@ -81,7 +171,7 @@ public abstract class BoundaryOverlay implements LayerCanvas.Overlay {
         drawText(g2d, text, textCenter, 0.0f);
     }
 
-    private void drawPath(final boolean isCurrent, Graphics2D g2d, final GeneralPath gp, final float offsetX) {
+    private void drawPath(final boolean isCurrent, Graphics2D g2d, final Shape gp, final float offsetX) {
         g2d = prepareGraphics2D(offsetX, g2d);
         if (isCurrent) {
             g2d.setColor(new Color(255, 200, 200, 30));
@@ -140,18 +230,4 @@ public abstract class BoundaryOverlay implements LayerCanvas.Overlay {
         return g2d;
     }
 
-    private PixelPos getProductCenter(final Product product) {
-        final GeoCoding geoCoding = product.getGeoCoding();
-        PixelPos centerPos = null;
-        if (geoCoding != null) {
-            final double pixelX = Math.floor(0.5f * product.getSceneRasterWidth()) + 0.5f;
-            final double pixelY = Math.floor(0.5f * product.getSceneRasterHeight()) + 0.5f;
-            final GeoPos geoPos = geoCoding.getGeoPos(new PixelPos(pixelX, pixelY), null);
-            final AffineTransform transform = layerCanvas.getViewport().getModelToViewTransform();
-            final Point2D point2D = transform.transform(new Point2D.Double(geoPos.getLon(), geoPos.getLat()), null);
-            centerPos = new PixelPos(point2D.getX(), point2D.getY());
-        }
-        return centerPos;
-    }
-
 }
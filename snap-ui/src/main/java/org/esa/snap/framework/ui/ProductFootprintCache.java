@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.framework.ui;
+
+import org.esa.snap.framework.datamodel.GeoCoding;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.Product;
+
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Caches the footprints of products for drawing them on a world map.
+ * <p>
+ * The boundary paths of a product are computed once from its geo-coding. For every zoom band, i.e. for zoom
+ * factors within a power of two, they are simplified by the Douglas-Peucker algorithm with a tolerance of half
+ * a view pixel at the lower end of the band, so that the number of vertices drawn matches the zoom level.
+ * The footprints are recomputed if the geo-coding of a product changes. The products are weakly referenced.
+ */
+class ProductFootprintCache {
+
+    private final Map<Product, Footprint> footprints = new WeakHashMap<>();
+
+    /**
+     * @param product    the product
+     * @param zoomFactor the zoom factor of the viewport, i.e. the view units per degree
+     * @return the simplified boundary paths of the product in model coordinates, must not be modified
+     */
+    GeneralPath[] getPaths(Product product, double zoomFactor) {
+        final Footprint footprint = getFootprint(product);
+        final int zoomBand = getZoomBand(zoomFactor);
+        GeneralPath[] paths = footprint.bandPaths.get(zoomBand);
+        if (paths == null) {
+            final double tolerance = 0.5 / Math.pow(2.0, zoomBand);
+            paths = new GeneralPath[footprint.paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = simplify(footprint.paths[i], tolerance);
+            }
+            footprint.bandPaths.put(zoomBand, paths);
+        }
+        return paths;
+    }
+
+    /**
+     * @return the boundary paths of the product in model coordinates at full resolution, must not be modified
+     */
+    GeneralPath[] getPaths(Product product) {
+        return getFootprint(product).paths;
+    }
+
+    /**
+     * @return the geographical position of the scene centre of the product
+     */
+    GeoPos getCenter(Product product) {
+        return getFootprint(product).center;
+    }
+
+    private Footprint getFootprint(Product product) {
+        Footprint footprint = footprints.get(product);
+        if (footprint == null || footprint.geoCoding != product.getGeoCoding()) {
+            footprint = new Footprint(product);
+            footprints.put(product, footprint);
+        }
+        return footprint;
+    }
+
+    static int getZoomBand(double zoomFactor) {
+        return (int) Math.floor(Math.log(zoomFactor) / Math.log(2.0));
+    }
+
+    /**
+     * Simplifies the polygons of a path by the Douglas-Peucker algorithm.
+     *
+     * @param path      the path consisting of straight line segments
+     * @param tolerance the maximum distance of a removed vertex from the simplified polygon
+     * @return the simplified path
+     */
+    static GeneralPath simplify(GeneralPath path, double tolerance) {
+        final GeneralPath simplifiedPath = new GeneralPath(path.getWindingRule());
+        final double[] coords = new double[6];
+        double[] xs = new double[64];
+        double[] ys = new double[64];
+        int n = 0;
+        final PathIterator iterator = path.getPathIterator(null);
+        while (!iterator.isDone()) {
+            final int segmentType = iterator.currentSegment(coords);
+            if (segmentType == PathIterator.SEG_MOVETO || segmentType == PathIterator.SEG_CLOSE) {
+                appendPolygon(simplifiedPath, xs, ys, n, tolerance, segmentType == PathIterator.SEG_CLOSE);
+                n = 0;
+            }
+            if (segmentType != PathIterator.SEG_CLOSE) {
+                if (n == xs.length) {
+                    xs = Arrays.copyOf(xs, 2 * n);
+                    ys = Arrays.copyOf(ys, 2 * n);
+                }
+                // curves do not occur in boundary paths, their end point is taken
+                final int endIndex = segmentType == PathIterator.SEG_CUBICTO ? 4 : segmentType == PathIterator.SEG_QUADTO ? 2 : 0;
+                xs[n] = coords[endIndex];
+                ys[n] = coords[endIndex + 1];
+                n++;
+            }
+            iterator.next();
+        }
+        appendPolygon(simplifiedPath, xs, ys, n, tolerance, false);
+        return simplifiedPath;
+    }
+
+    private static void appendPolygon(GeneralPath path, double[] xs, double[] ys, int n, double tolerance, boolean closed) {
+        if (n == 0) {
+            return;
+        }
+        final boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        simplify(xs, ys, 0, n - 1, tolerance * tolerance, keep);
+        path.moveTo(xs[0], ys[0]);
+        for (int i = 1; i < n; i++) {
+            if (keep[i]) {
+                path.lineTo(xs[i], ys[i]);
+            }
+        }
+        if (closed) {
+            path.closePath();
+        }
+    }
+
+    private static void simplify(double[] xs, double[] ys, int first, int last, double sqTolerance, boolean[] keep) {
+        // iterative, boundary paths may have many vertices
+        final int[] stack = new int[2 * Math.max(1, last - first + 1)];
+        int top = 0;
+        stack[top++] = first;
+        stack[top++] = last;
+        while (top > 0) {
+            final int end = stack[--top];
+            final int start = stack[--top];
+            double maxSqDistance = 0.0;
+            int index = -1;
+            for (int i = start + 1; i < end; i++) {
+                final double sqDistance = getSqSegmentDistance(xs[i], ys[i], xs[start], ys[start], xs[end], ys[end]);
+                if (sqDistance > maxSqDistance) {
+                    maxSqDistance = sqDistance;
+                    index = i;
+                }
+            }
+            if (index >= 0 && maxSqDistance > sqTolerance) {
+                keep[index] = true;
+                stack[top++] = start;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = end;
+            }
+        }
+    }
+
+    private static double getSqSegmentDistance(double x, double y, double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        if (dx != 0.0 || dy != 0.0) {
+            final double t = ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy);
+            if (t > 1.0) {
+                x1 = x2;
+                y1 = y2;
+            } else if (t > 0.0) {
+                x1 += dx * t;
+                y1 += dy * t;
+            }
+        }
+        dx = x - x1;
+        dy = y - y1;
+        return dx * dx + dy * dy;
+    }
+
+    private static final class Footprint {
+
+        private final GeoCoding geoCoding;
+        private final GeneralPath[] paths;
+        private final GeoPos center;
+        private final Map<Integer, GeneralPath[]> bandPaths = new HashMap<>();
+
+        private Footprint(Product product) {
+            geoCoding = product.getGeoCoding();
+            paths = WorldMapPane.getGeoBoundaryPaths(product);
+            final double pixelX = Math.floor(0.5f * product.getSceneRasterWidth()) + 0.5f;
+            final double pixelY = Math.floor(0.5f * product.getSceneRasterHeight()) + 0.5f;
+            center = geoCoding.getGeoPos(new PixelPos(pixelX, pixelY), null);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package org.esa.snap.framework.ui.product.metadata;
 import org.openide.nodes.ChildFactory;
 import org.openide.nodes.Node;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -12,19 +11,17 @@ import java.util.List;
  */
 class MetadataElementChildFactory extends ChildFactory.Detachable<MetadataTableElement> {
 
-    private List<MetadataTableElement> metadataTableElementList;
+    private final MetadataTableElement parent;
 
-    public MetadataElementChildFactory(MetadataTableElement[] metadataElements) {
-        metadataTableElementList = new ArrayList<>();
-        Collections.addAll(metadataTableElementList, metadataElements);
+    public MetadataElementChildFactory(MetadataTableElement parent) {
+        this.parent = parent;
     }
 
     @Override
     protected boolean createKeys(List<MetadataTableElement> toPopulate) {
-        if (metadataTableElementList.size() == 0) {
-            return true;
-        }
-        return toPopulate.addAll(metadataTableElementList);
+        // called when the node is expanded, hence the children are created on demand
+        Collections.addAll(toPopulate, parent.getMetadataTableElements());
+        return true;
     }
 
     @Override
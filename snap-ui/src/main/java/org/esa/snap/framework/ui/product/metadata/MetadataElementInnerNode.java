@@ -13,16 +13,15 @@ import java.awt.Image;
  */
 class MetadataElementInnerNode extends AbstractNode {
 
-    public MetadataElementInnerNode(MetadataTableInnerElement element) {
+    public MetadataElementInnerNode(MetadataTableElement element) {
         this(element, new InstanceContent());
     }
 
-    private MetadataElementInnerNode(MetadataTableInnerElement element, InstanceContent content) {
-        super(Children.create(new MetadataElementChildFactory(element.getMetadataTableElements()), false),
+    private MetadataElementInnerNode(MetadataTableElement element, InstanceContent content) {
+        super(Children.create(new MetadataElementChildFactory(element), false),
                 new AbstractLookup(content));
         content.add(element);
         setName(element.getName());
-        createSheet();
     }
 
     @Override
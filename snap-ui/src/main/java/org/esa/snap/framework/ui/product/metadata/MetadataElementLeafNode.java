@@ -30,7 +30,6 @@ class MetadataElementLeafNode extends AbstractNode {
         this.leaf = leaf;
         content.add(leaf);
         setName(leaf.getName());
-        createSheet();
     }
 
     @Override
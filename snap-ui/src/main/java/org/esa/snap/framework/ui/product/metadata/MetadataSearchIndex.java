@@ -0,0 +1,164 @@
+package org.esa.snap.framework.ui.product.metadata;
+
+import org.esa.snap.framework.datamodel.MetadataAttribute;
+import org.esa.snap.framework.datamodel.MetadataElement;
+import org.openide.nodes.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An index of the attributes of a metadata element and its sub-elements, searchable by attribute name and value
+ * without creating the nodes of the metadata table.
+ * <p>
+ * The index holds an entry per leaf of the table, i.e. the values of numeric array attributes have separate
+ * entries. The position of an entry in the table is kept as its path of child indices, which is resolved to the
+ * node by {@link #findNode(Node, Hit)}.
+ */
+public class MetadataSearchIndex {
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private MetadataSearchIndex() {
+    }
+
+    /**
+     * Creates the index of the given element. As this traverses all attributes, it should not be called on
+     * the event dispatch thread for large elements.
+     */
+    public static MetadataSearchIndex create(MetadataElement element) {
+        final MetadataSearchIndex index = new MetadataSearchIndex();
+        index.addElement(element, new int[0]);
+        return index;
+    }
+
+    /**
+     * @return the number of attribute values indexed
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the attributes whose name or value contains the given text, ignoring case.
+     *
+     * @return the hits, in the order of the table
+     */
+    public List<Hit> search(String text) {
+        final List<Hit> hits = new ArrayList<>();
+        final String searchText = text.trim().toLowerCase(Locale.ENGLISH);
+        if (searchText.isEmpty()) {
+            return hits;
+        }
+        for (Entry entry : entries) {
+            if (entry.lowerName.contains(searchText) || entry.lowerValue.contains(searchText)) {
+                hits.add(new Hit(entry));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Finds the node of the given hit, creating the nodes along its path.
+     *
+     * @param rootNode the node created by the {@link MetadataTableInnerElement} of the indexed element
+     * @param hit      a hit of this index
+     * @return the node, or {@code null} if the metadata has been changed after creating the index
+     */
+    public static Node findNode(Node rootNode, Hit hit) {
+        Node node = rootNode;
+        for (int index : hit.getPath()) {
+            final MetadataTableInnerElement element = node.getLookup().lookup(MetadataTableInnerElement.class);
+            if (element == null) {
+                return null;
+            }
+            if (element.isPaged()) {
+                node = getChild(node, index / MetadataTableInnerElement.PAGE_SIZE);
+                index %= MetadataTableInnerElement.PAGE_SIZE;
+            }
+            node = getChild(node, index);
+        }
+        return node;
+    }
+
+    private static Node getChild(Node node, int index) {
+        if (node == null) {
+            return null;
+        }
+        final Node[] children = node.getChildren().getNodes(true);
+        return index < children.length ? children[index] : null;
+    }
+
+    private void addElement(MetadataElement element, int[] path) {
+        final int numElements = element.getNumElements();
+        for (int i = 0; i < numElements; i++) {
+            addElement(element.getElementAt(i), append(path, i));
+        }
+        int index = numElements;
+        for (MetadataAttribute attribute : element.getAttributes()) {
+            if (MetadataTableInnerElement.isSplit(attribute)) {
+                final int leafCount = MetadataTableInnerElement.getLeafCount(attribute);
+                for (int j = 0; j < leafCount; j++) {
+                    entries.add(new Entry(path, index + j, MetadataTableInnerElement.getElementLeafName(attribute, j),
+                                          attribute.getData().getElemStringAt(j)));
+                }
+                index += leafCount;
+            } else {
+                entries.add(new Entry(path, index, attribute.getName(), attribute.getData().getElemString()));
+                index++;
+            }
+        }
+    }
+
+    private static int[] append(int[] path, int index) {
+        final int[] childPath = Arrays.copyOf(path, path.length + 1);
+        childPath[path.length] = index;
+        return childPath;
+    }
+
+    private static final class Entry {
+
+        // the path of the parent element, shared by its attributes
+        private final int[] parentPath;
+        private final int index;
+        private final String name;
+        private final String lowerName;
+        private final String lowerValue;
+
+        private Entry(int[] parentPath, int index, String name, String value) {
+            this.parentPath = parentPath;
+            this.index = index;
+            this.name = name;
+            lowerName = name.toLowerCase(Locale.ENGLISH);
+            lowerValue = value != null ? value.toLowerCase(Locale.ENGLISH) : "";
+        }
+    }
+
+    /**
+     * An attribute found.
+     */
+    public static final class Hit {
+
+        private final Entry entry;
+
+        private Hit(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * @return the name of the attribute, as shown in the table
+         */
+        public String getName() {
+            return entry.name;
+        }
+
+        /**
+         * @return the indices of the children leading from the indexed element to the attribute
+         */
+        public int[] getPath() {
+            return append(entry.parentPath, entry.index);
+        }
+    }
+}
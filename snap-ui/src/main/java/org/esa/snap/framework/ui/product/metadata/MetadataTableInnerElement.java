@@ -5,26 +5,42 @@ import org.esa.snap.framework.datamodel.MetadataElement;
 import org.esa.snap.framework.datamodel.ProductData;
 import org.openide.nodes.AbstractNode;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.reflect.Array;
+import java.util.Arrays;
 
 /**
+ * A metadata element shown as an inner node of the metadata table.
+ * <p>
+ * The table elements of the children are created on demand, i.e. when the node is expanded. The children are the
+ * sub-elements followed by the attributes, where the values of numeric array attributes are shown as separate
+ * children. If there are more than {@link #PAGE_SIZE} children, they are grouped into pages of that size.
+ *
  * @author Tonio Fincke
  */
 public class MetadataTableInnerElement implements MetadataTableElement {
 
-    private final MetadataElement metadataElement;
-    private final MetadataTableElement[] metadataTableElements;
+    static final int PAGE_SIZE = 500;
 
+    private final MetadataElement metadataElement;
+    // the index of the first child of each attribute, computed on demand
+    private int[] attributeOffsets;
+    private int childCount;
 
     public MetadataTableInnerElement(MetadataElement metadataElement) {
         this.metadataElement = metadataElement;
-        metadataTableElements = getChildrenElementsFromElement(metadataElement);
     }
 
     @Override
     public MetadataTableElement[] getMetadataTableElements() {
-        return metadataTableElements;
+        final int childCount = getChildCount();
+        if (!isPaged()) {
+            return createChildren(0, childCount);
+        }
+        final MetadataTableElement[] pages = new MetadataTableElement[(childCount + PAGE_SIZE - 1) / PAGE_SIZE];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = new MetadataTablePage(this, i * PAGE_SIZE, Math.min((i + 1) * PAGE_SIZE, childCount));
+        }
+        return pages;
     }
 
     @Override
@@ -37,121 +53,89 @@ public class MetadataTableInnerElement implements MetadataTableElement {
         return new MetadataElementInnerNode(this);
     }
 
-    private static MetadataTableElement[] getChildrenElementsFromElement(MetadataElement metadataElement) {
-        MetadataElement[] elements = metadataElement.getElements();
-        MetadataAttribute[] attributes = metadataElement.getAttributes();
-        List<MetadataTableElement> metadataTableElementList = new ArrayList<>();
-        for (MetadataElement element : elements) {
-            metadataTableElementList.add(new MetadataTableInnerElement(element));
-        }
-        for (MetadataAttribute attribute : attributes) {
-            final long dataElemSize = attribute.getNumDataElems();
-            if (dataElemSize > 1) {
-                //todo refactor this
-                final Object dataElems = attribute.getDataElems();
-                final int dataType = attribute.getDataType();
-                if (ProductData.isFloatingPointType(dataType)) {
-                    if(dataElems instanceof float[]) {
-                        addFloatMetadataAttributes(attribute, (float[]) dataElems, metadataTableElementList);
-                    } else {
-                        addDoubleMetadataAttributes(attribute, (double[]) dataElems, metadataTableElementList);
-                    }
-                } else if (ProductData.isIntType(dataType)) {
-                    if(dataElems instanceof byte[]) {
-                        addByteMetadataAttributes(attribute, (byte[]) dataElems, metadataTableElementList);
-                    } else if(dataElems instanceof short[]) {
-                        addShortMetadataAttributes(attribute, (short[]) dataElems, metadataTableElementList);
-                    } else {
-                        addIntMetadataAttributes(attribute, (int[]) dataElems, metadataTableElementList);
-                    }
-                } else {
-                    metadataTableElementList.add(new MetadataTableLeaf(attribute));
-                }
-            } else {
-                metadataTableElementList.add(new MetadataTableLeaf(attribute));
-            }
-        }
-        return metadataTableElementList.toArray(new MetadataTableElement[metadataTableElementList.size()]);
+    /**
+     * @return {@code true} if the children are grouped into pages
+     */
+    boolean isPaged() {
+        return getChildCount() > PAGE_SIZE;
     }
 
-    private static void addFloatMetadataAttributes(MetadataAttribute attribute, float[] elems,
-                                                   List<MetadataTableElement> metadataTableElementList) {
-        final String name = attribute.getName();
-        final String unit = attribute.getUnit();
-        final int dataType = attribute.getDataType();
-        final String description = attribute.getDescription();
-        for (int j = 0; j < elems.length; j++) {
-            final MetadataAttribute partAttribute =
-                    new MetadataAttribute(name + "." + (j + 1), dataType);
-            partAttribute.setDataElems(new float[]{elems[j]});
-            partAttribute.setUnit(unit);
-            partAttribute.setDescription(description);
-            metadataTableElementList.add(new MetadataTableLeaf(partAttribute));
+    private synchronized int getChildCount() {
+        if (attributeOffsets == null) {
+            final MetadataAttribute[] attributes = metadataElement.getAttributes();
+            attributeOffsets = new int[attributes.length];
+            int offset = metadataElement.getNumElements();
+            for (int i = 0; i < attributes.length; i++) {
+                attributeOffsets[i] = offset;
+                offset += getLeafCount(attributes[i]);
+            }
+            childCount = offset;
         }
+        return childCount;
     }
 
-    private static void addDoubleMetadataAttributes(MetadataAttribute attribute, double[] elems,
-                                                   List<MetadataTableElement> metadataTableElementList) {
-        final String name = attribute.getName();
-        final String unit = attribute.getUnit();
-        final int dataType = attribute.getDataType();
-        final String description = attribute.getDescription();
-        for (int j = 0; j < elems.length; j++) {
-            final MetadataAttribute partAttribute =
-                    new MetadataAttribute(name + "." + (j + 1), dataType);
-            partAttribute.setDataElems(new double[]{elems[j]});
-            partAttribute.setUnit(unit);
-            partAttribute.setDescription(description);
-            metadataTableElementList.add(new MetadataTableLeaf(partAttribute));
+    /**
+     * Creates the table elements of the children within the given range.
+     *
+     * @param from the index of the first child, inclusive
+     * @param to   the index of the last child, exclusive
+     */
+    MetadataTableElement[] createChildren(int from, int to) {
+        getChildCount();
+        final int numElements = metadataElement.getNumElements();
+        final MetadataTableElement[] children = new MetadataTableElement[to - from];
+        for (int index = from; index < to; index++) {
+            if (index < numElements) {
+                children[index - from] = new MetadataTableInnerElement(metadataElement.getElementAt(index));
+            } else {
+                // every attribute has at least one leaf, hence the offsets are strictly increasing
+                int attributeIndex = Arrays.binarySearch(attributeOffsets, index);
+                if (attributeIndex < 0) {
+                    attributeIndex = -attributeIndex - 2;
+                }
+                final MetadataAttribute attribute = metadataElement.getAttributeAt(attributeIndex);
+                if (isSplit(attribute)) {
+                    children[index - from] = createElementLeaf(attribute, index - attributeOffsets[attributeIndex]);
+                } else {
+                    children[index - from] = new MetadataTableLeaf(attribute);
+                }
+            }
         }
+        return children;
     }
 
-    private static void addByteMetadataAttributes(MetadataAttribute attribute, byte[] elems,
-                                                  List<MetadataTableElement> metadataTableElementList) {
-        final String name = attribute.getName();
-        final int dataType = attribute.getDataType();
-        final String unit = attribute.getUnit();
-        final String description = attribute.getDescription();
-        for (int j = 0; j < elems.length; j++) {
-            final MetadataAttribute partAttribute =
-                    new MetadataAttribute(name + "." + (j + 1), dataType);
-            partAttribute.setDataElems(new byte[]{elems[j]});
-            partAttribute.setUnit(unit);
-            partAttribute.setDescription(description);
-            metadataTableElementList.add(new MetadataTableLeaf(partAttribute));
-        }
+    /**
+     * @return the number of leaves the given attribute is shown as
+     */
+    static int getLeafCount(MetadataAttribute attribute) {
+        return isSplit(attribute) ? (int) attribute.getNumDataElems() : 1;
     }
 
-    private static void addShortMetadataAttributes(MetadataAttribute attribute, short[] elems,
-                                                  List<MetadataTableElement> metadataTableElementList) {
-        final String name = attribute.getName();
+    /**
+     * @return {@code true} if the values of the given attribute are shown as separate leaves
+     */
+    static boolean isSplit(MetadataAttribute attribute) {
         final int dataType = attribute.getDataType();
-        final String unit = attribute.getUnit();
-        final String description = attribute.getDescription();
-        for (int j = 0; j < elems.length; j++) {
-            final MetadataAttribute partAttribute =
-                    new MetadataAttribute(name + "." + (j + 1), dataType);
-            partAttribute.setDataElems(new short[]{elems[j]});
-            partAttribute.setUnit(unit);
-            partAttribute.setDescription(description);
-            metadataTableElementList.add(new MetadataTableLeaf(partAttribute));
-        }
+        return attribute.getNumDataElems() > 1
+               && (ProductData.isFloatingPointType(dataType) || ProductData.isIntType(dataType));
     }
 
-    private static void addIntMetadataAttributes(MetadataAttribute attribute, int[] elems,
-                                                 List<MetadataTableElement> metadataTableElementList) {
-        final String name = attribute.getName();
-        final int dataType = attribute.getDataType();
-        final String unit = attribute.getUnit();
-        final String description = attribute.getDescription();
-        for (int j = 0; j < elems.length; j++) {
-            final MetadataAttribute partAttribute =
-                    new MetadataAttribute(name + "." + (j + 1), dataType);
-            partAttribute.setDataElems(new int[]{elems[j]});
-            partAttribute.setUnit(unit);
-            partAttribute.setDescription(description);
-            metadataTableElementList.add(new MetadataTableLeaf(partAttribute));
-        }
+    /**
+     * @return the name of the leaf showing the value at the given index of the given array attribute
+     */
+    static String getElementLeafName(MetadataAttribute attribute, int index) {
+        return attribute.getName() + "." + (index + 1);
     }
 
+    private static MetadataTableLeaf createElementLeaf(MetadataAttribute attribute, int index) {
+        final Object dataElems = attribute.getDataElems();
+        final Object elem = Array.newInstance(dataElems.getClass().getComponentType(), 1);
+        System.arraycopy(dataElems, index, elem, 0, 1);
+        final MetadataAttribute partAttribute =
+                new MetadataAttribute(getElementLeafName(attribute, index), attribute.getDataType());
+        partAttribute.setDataElems(elem);
+        partAttribute.setUnit(attribute.getUnit());
+        partAttribute.setDescription(attribute.getDescription());
+        return new MetadataTableLeaf(partAttribute);
+    }
 }
@@ -0,0 +1,39 @@
+package org.esa.snap.framework.ui.product.metadata;
+
+import org.openide.nodes.AbstractNode;
+
+/**
+ * A range of the children of a metadata element having too many children to be shown at once.
+ */
+class MetadataTablePage implements MetadataTableElement {
+
+    private final MetadataTableInnerElement parent;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param parent the element
+     * @param from   the index of the first child, inclusive
+     * @param to     the index of the last child, exclusive
+     */
+    MetadataTablePage(MetadataTableInnerElement parent, int from, int to) {
+        this.parent = parent;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public MetadataTableElement[] getMetadataTableElements() {
+        return parent.createChildren(from, to);
+    }
+
+    @Override
+    public String getName() {
+        return "[" + (from + 1) + " - " + to + "]";
+    }
+
+    @Override
+    public AbstractNode createNode() {
+        return new MetadataElementInnerNode(this);
+    }
+}
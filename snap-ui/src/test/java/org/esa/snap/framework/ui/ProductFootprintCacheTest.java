@@ -0,0 +1,74 @@
+package org.esa.snap.framework.ui;
+
+import org.junit.Test;
+
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+
+import static org.junit.Assert.*;
+
+public class ProductFootprintCacheTest {
+
+    @Test
+    public void testSimplify() throws Exception {
+        // a square with many vertices along its edges and a small dent
+        final GeneralPath path = new GeneralPath();
+        path.moveTo(0.0, 0.0);
+        for (int i = 1; i <= 100; i++) {
+            path.lineTo(i * 0.1, 0.0);
+        }
+        for (int i = 1; i <= 100; i++) {
+            path.lineTo(10.0, i * 0.1);
+        }
+        path.lineTo(5.0, 10.0);
+        path.lineTo(5.0, 9.99);
+        path.lineTo(4.9, 10.0);
+        path.lineTo(0.0, 10.0);
+        path.closePath();
+
+        final GeneralPath coarse = ProductFootprintCache.simplify(path, 0.1);
+        assertEquals(4, countVertices(coarse));
+        assertEquals(new Rectangle2D.Double(0.0, 0.0, 10.0, 10.0), coarse.getBounds2D());
+
+        final GeneralPath fine = ProductFootprintCache.simplify(path, 0.001);
+        assertEquals(7, countVertices(fine));
+    }
+
+    @Test
+    public void testSimplifyKeepsSubpaths() throws Exception {
+        final GeneralPath path = new GeneralPath();
+        path.moveTo(0.0, 0.0);
+        path.lineTo(1.0, 0.0);
+        path.lineTo(1.0, 1.0);
+        path.closePath();
+        path.moveTo(5.0, 5.0);
+        path.lineTo(6.0, 5.0);
+        path.lineTo(6.0, 6.0);
+        path.closePath();
+
+        final GeneralPath simplified = ProductFootprintCache.simplify(path, 0.01);
+        assertEquals(6, countVertices(simplified));
+        assertTrue(simplified.contains(0.9, 0.1));
+        assertTrue(simplified.contains(5.9, 5.1));
+    }
+
+    @Test
+    public void testGetZoomBand() throws Exception {
+        assertEquals(0, ProductFootprintCache.getZoomBand(1.0));
+        assertEquals(0, ProductFootprintCache.getZoomBand(1.9));
+        assertEquals(1, ProductFootprintCache.getZoomBand(2.0));
+        assertEquals(-2, ProductFootprintCache.getZoomBand(0.3));
+    }
+
+    private static int countVertices(GeneralPath path) {
+        int count = 0;
+        final double[] coords = new double[6];
+        for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            if (iterator.currentSegment(coords) != PathIterator.SEG_CLOSE) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
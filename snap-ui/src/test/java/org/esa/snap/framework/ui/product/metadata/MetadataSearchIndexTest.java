@@ -0,0 +1,85 @@
+package org.esa.snap.framework.ui.product.metadata;
+
+import org.esa.snap.framework.datamodel.MetadataAttribute;
+import org.esa.snap.framework.datamodel.MetadataElement;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+import org.openide.nodes.Node;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetadataSearchIndexTest {
+
+    private MetadataElement root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = new MetadataElement("root");
+        MetadataElement sub = new MetadataElement("sub");
+        float[] values = new float[1200];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        sub.addAttribute(new MetadataAttribute("arr", ProductData.createInstance(values), true));
+        sub.addAttribute(new MetadataAttribute("name", ProductData.createInstance("Hello World"), true));
+        root.addElement(sub);
+        root.addAttribute(new MetadataAttribute("x", ProductData.createInstance(new int[]{5}), true));
+    }
+
+    @Test
+    public void testPagedChildren() throws Exception {
+        MetadataTableInnerElement rootElement = new MetadataTableInnerElement(root);
+        assertFalse(rootElement.isPaged());
+        MetadataTableElement[] children = rootElement.getMetadataTableElements();
+        assertEquals(2, children.length);
+        assertEquals("sub", children[0].getName());
+        assertEquals("x", children[1].getName());
+
+        MetadataTableInnerElement subElement = (MetadataTableInnerElement) children[0];
+        assertTrue(subElement.isPaged());
+        MetadataTableElement[] pages = subElement.getMetadataTableElements();
+        assertEquals(3, pages.length);
+        assertEquals("[1 - 500]", pages[0].getName());
+        assertEquals("[1001 - 1201]", pages[2].getName());
+        MetadataTableElement[] lastPage = pages[2].getMetadataTableElements();
+        assertEquals(201, lastPage.length);
+        assertEquals("arr.1001", lastPage[0].getName());
+        assertEquals(1000.0, ((MetadataTableLeaf) lastPage[0]).getData().getElemDouble(), 0.0);
+        assertEquals("name", lastPage[200].getName());
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        MetadataSearchIndex index = MetadataSearchIndex.create(root);
+        assertEquals(1202, index.size());
+
+        List<MetadataSearchIndex.Hit> hits = index.search("hello");
+        assertEquals(1, hits.size());
+        assertEquals("name", hits.get(0).getName());
+        assertArrayEquals(new int[]{0, 1200}, hits.get(0).getPath());
+
+        hits = index.search("ARR.1000");
+        assertEquals(1, hits.size());
+        assertArrayEquals(new int[]{0, 999}, hits.get(0).getPath());
+
+        assertEquals(0, index.search(" ").size());
+    }
+
+    @Test
+    public void testFindNode() throws Exception {
+        MetadataSearchIndex index = MetadataSearchIndex.create(root);
+        Node rootNode = new MetadataTableInnerElement(root).createNode();
+
+        Node node = MetadataSearchIndex.findNode(rootNode, index.search("hello").get(0));
+        assertNotNull(node);
+        assertEquals("name", node.getName());
+        assertEquals("[1001 - 1201]", node.getParentNode().getName());
+
+        node = MetadataSearchIndex.findNode(rootNode, index.search("arr.1000").get(0));
+        assertNotNull(node);
+        assertEquals("arr.1000", node.getName());
+    }
+}
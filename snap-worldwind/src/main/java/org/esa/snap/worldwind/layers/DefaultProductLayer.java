@@ -21,26 +21,15 @@ import gov.nasa.worldwind.awt.WorldWindowGLCanvas;
 import gov.nasa.worldwind.event.SelectEvent;
 import gov.nasa.worldwind.geom.Angle;
 import gov.nasa.worldwind.geom.Position;
-import gov.nasa.worldwind.geom.Sector;
 import gov.nasa.worldwind.render.Offset;
 import gov.nasa.worldwind.render.PointPlacemark;
 import gov.nasa.worldwind.render.PointPlacemarkAttributes;
-import gov.nasa.worldwind.render.Polyline;
-import gov.nasa.worldwind.render.SurfaceImage;
 import org.esa.snap.datamodel.AbstractMetadata;
 import org.esa.snap.eo.Constants;
 import org.esa.snap.eo.GeoUtils;
-import org.esa.snap.framework.dataio.ProductSubsetDef;
-import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.GeoCoding;
-import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.framework.datamodel.MetadataElement;
-import org.esa.snap.framework.datamodel.PixelPos;
 import org.esa.snap.framework.datamodel.Product;
-import org.esa.snap.framework.datamodel.RasterDataNode;
-import org.esa.snap.framework.gpf.GPF;
-import org.esa.snap.gpf.InputProductValidator;
-import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.util.ProductUtils;
 
 import javax.swing.*;
@@ -49,13 +38,11 @@ import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.PathIterator;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -65,14 +52,18 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
 
     private boolean enableSurfaceImages;
 
-    private final ConcurrentHashMap<String, Polyline[]> outlineTable = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, SurfaceImage> imageTable = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, List<Position[]>> outlineTable = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ProductImagePyramid> imageTable = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, PointPlacemark> labelTable = new ConcurrentHashMap<>();
+    // outline positions of products added before, products are weakly referenced
+    private final Map<Product, List<Position[]>> outlineCache = Collections.synchronizedMap(new WeakHashMap<>());
+    private final ProductOutlineBatch outlineBatch = new ProductOutlineBatch(this);
 
     public WorldWindowGLCanvas theWWD = null;
 
     public DefaultProductLayer() {
         this.setName("Products");
+        addRenderable(outlineBatch);
     }
 
     public void setEnableSurfaceImages(final boolean enableSurfaceImages) {
@@ -93,24 +84,23 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
     public void setOpacity(double opacity) {
         super.setOpacity(opacity);
 
-        for (Map.Entry<String, SurfaceImage> entry : this.imageTable.entrySet()) {
+        for (Map.Entry<String, ProductImagePyramid> entry : this.imageTable.entrySet()) {
             entry.getValue().setOpacity(opacity);
         }
     }
 
     public void setOpacity(String name, double opacity) {
-        final SurfaceImage img = imageTable.get(name);
+        final ProductImagePyramid img = imageTable.get(name);
         if (img != null)
             img.setOpacity(opacity);
     }
 
     public double getOpacity(String name) {
-        final SurfaceImage img = imageTable.get(name);
+        final ProductImagePyramid img = imageTable.get(name);
         if (img != null)
             return img.getOpacity();
         else {
-            final Polyline[] lineList = outlineTable.get(name);
-            return lineList != null ? 1 : 0;
+            return outlineTable.containsKey(name) ? 1 : 0;
         }
     }
 
@@ -122,17 +112,7 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
     public void setSelectedProduct(final Product product) {
         super.setSelectedProduct(product);
 
-        if (selectedProduct != null) {
-            final String selName = getUniqueName(selectedProduct);
-            for (String name : outlineTable.keySet()) {
-                final Polyline[] lineList = outlineTable.get(name);
-                final boolean highlight = name.equals(selName);
-                for (Polyline line : lineList) {
-                    line.setHighlighted(highlight);
-                    line.setHighlightColor(Color.RED);
-                }
-            }
-        }
+        outlineBatch.setHighlighted(selectedProduct != null ? getUniqueName(selectedProduct) : null);
     }
 
     public void addProduct(final Product product, WorldWindowGLCanvas wwd) {
@@ -161,109 +141,80 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
     private void addSurfaceImage(final Product product) {
         final String name = getUniqueName(product);
 
-        final SwingWorker worker = new SwingWorker() {
-
-            @Override
-            protected SurfaceImage doInBackground() throws Exception {
-                try {
-                    final Product newProduct = createSubsampledProduct(product);
-                    final Band band = newProduct.getBandAt(0);
-                    final BufferedImage image = ProductUtils.createRgbImage(new RasterDataNode[]{band},
-                                                                            band.getImageInfo(com.bc.ceres.core.ProgressMonitor.NULL),
-                                                                            com.bc.ceres.core.ProgressMonitor.NULL);
-
-                    final GeoPos geoPos1 = product.getGeoCoding().getGeoPos(new PixelPos(0, 0), null);
-                    final GeoPos geoPos2 = product.getGeoCoding().getGeoPos(new PixelPos(product.getSceneRasterWidth() - 1,
-                                                                                         product.getSceneRasterHeight() - 1),
-                                                                            null
-                    );
-
-                    final Sector sector = new Sector(Angle.fromDegreesLatitude(geoPos1.getLat()),
-                                                     Angle.fromDegreesLatitude(geoPos2.getLat()),
-                                                     Angle.fromDegreesLongitude(geoPos1.getLon()),
-                                                     Angle.fromDegreesLongitude(geoPos2.getLon()));
-
-                    final SurfaceImage si = new SurfaceImage(image, sector);
-                    si.setOpacity(getOpacity());
-                    return si;
-                } catch (Exception e) {
-                    //e.printStackTrace();
-                }
-                return null;
+        ProductImagePyramid.create(product, this::redraw, pyramid -> {
+            removeImage(name);
+            if (pyramid == null) {
+                return;
             }
-
-            @Override
-            public void done() {
-
-                try {
-                    if (imageTable.contains(name))
-                        removeImage(name);
-                    final SurfaceImage si = (SurfaceImage) get();
-                    if (si != null) {
-                        addRenderable(si);
-                        imageTable.put(name, si);
-                    }
-                } catch (Exception e) {
-                    SnapDialogs.showError(e.getMessage());
-                }
+            if (outlineTable.containsKey(name)) {
+                pyramid.setOpacity(getOpacity());
+                addRenderable(pyramid);
+                imageTable.put(name, pyramid);
+                redraw();
+            } else {
+                // removed meanwhile
+                pyramid.dispose();
             }
-        };
-        worker.execute();
+        });
+    }
+
+    private void redraw() {
+        firePropertyChange(AVKey.LAYER, null, this);
     }
 
     private void addOutline(final Product product) {
+        List<Position[]> paths = outlineCache.get(product);
+        if (paths == null) {
+            paths = createOutlinePaths(product);
+            outlineCache.put(product, paths);
+        }
+
+        int numPoints = 0;
+        double centreLat = 0;
+        double centreLon = 0;
+        for (Position[] path : paths) {
+            // without the position closing the loop
+            for (int i = 0; i < path.length - 1; i++) {
+                centreLat += path[i].getLatitude().getDegrees();
+                centreLon += path[i].getLongitude().getDegrees();
+                numPoints++;
+            }
+        }
+        centreLat = centreLat / numPoints;
+        centreLon = centreLon / numPoints;
 
+        addOutline(product, paths, centreLat, centreLon);
+    }
+
+    private static List<Position[]> createOutlinePaths(final Product product) {
         final int step = Math.max(16, (product.getSceneRasterWidth() + product.getSceneRasterHeight()) / 250);
         final GeneralPath[] boundaryPaths = ProductUtils.createGeoBoundaryPaths(product, null, step);
 
-        final Polyline[] polyLineList = new Polyline[boundaryPaths.length];
-        int i = 0;
-        int numPoints = 0;
-        float centreLat = 0;
-        float centreLon = 0;
-
+        final List<Position[]> paths = new ArrayList<>(boundaryPaths.length);
         for (GeneralPath boundaryPath : boundaryPaths) {
             final PathIterator it = boundaryPath.getPathIterator(null);
             final float[] floats = new float[2];
             final List<Position> positions = new ArrayList<>(4);
 
-            it.currentSegment(floats);
-            final Position firstPosition = new Position(Angle.fromDegreesLatitude(floats[1]),
-                                                        Angle.fromDegreesLongitude(floats[0]), 0.0);
-            positions.add(firstPosition);
-            centreLat += floats[1];
-            centreLon += floats[0];
-            it.next();
-            numPoints++;
-
             while (!it.isDone()) {
-                it.currentSegment(floats);
-                positions.add(new Position(Angle.fromDegreesLatitude(floats[1]),
-                                           Angle.fromDegreesLongitude(floats[0]), 0.0));
-
-                centreLat += floats[1];
-                centreLon += floats[0];
+                if (it.currentSegment(floats) != PathIterator.SEG_CLOSE) {
+                    positions.add(new Position(Angle.fromDegreesLatitude(floats[1]),
+                                               Angle.fromDegreesLongitude(floats[0]), 0.0));
+                }
                 it.next();
-                numPoints++;
             }
-            // close the loop
-            positions.add(firstPosition);
-
-            centreLat = centreLat / numPoints;
-            centreLon = centreLon / numPoints;
-
-
-            polyLineList[i] = new Polyline();
-            polyLineList[i].setFollowTerrain(true);
-            polyLineList[i].setPositions(positions);
-
-            // ADDED
-            //polyLineList[i].setColor(new Color(1f, 0f, 0f, 0.99f));
-            //polyLineList[i].setLineWidth(10);
-
-            addRenderable(polyLineList[i]);
-            ++i;
+            if (!positions.isEmpty()) {
+                // close the loop
+                positions.add(positions.get(0));
+                paths.add(positions.toArray(new Position[positions.size()]));
+            }
         }
+        return paths;
+    }
+
+    private void addOutline(final Product product, final List<Position[]> paths, double centreLat, double centreLon) {
+        final String name = getUniqueName(product);
+        outlineBatch.addOutline(name, product, paths);
 
         Position centrePos = new Position(Angle.fromDegreesLatitude(centreLat), Angle.fromDegreesLongitude(centreLon), 0.0);
 
@@ -273,8 +224,8 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
 
         addRenderable(ppm);
 
-        outlineTable.put(getUniqueName(product), polyLineList);
-        labelTable.put(getUniqueName(product), ppm);
+        outlineTable.put(name, paths);
+        labelTable.put(name, ppm);
     }
 
     private void addWaveProduct(final Product product) {
@@ -283,12 +234,11 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
         if (ggADS == null) return;
 
         final MetadataElement[] geoElemList = ggADS.getElements();
-        final Polyline[] lineList = new Polyline[geoElemList.length];
-        int cnt = 0;
+        final List<Position[]> paths = new ArrayList<>(geoElemList.length);
 
         int numPoints = 0;
-        float centreLat = 0;
-        float centreLon = 0;
+        double centreLat = 0;
+        double centreLon = 0;
 
         for (MetadataElement geoElem : geoElemList) {
             final double lat = geoElem.getAttributeDouble("center_lat", 0.0) / Constants.oneMillion;
@@ -303,12 +253,13 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
             final GeoUtils.LatLonHeading corner3 = GeoUtils.vincenty_direct(r2.lon, r2.lat, 2500, heading - 90.0);
             final GeoUtils.LatLonHeading corner4 = GeoUtils.vincenty_direct(r2.lon, r2.lat, 2500, heading + 90.0);
 
-            final List<Position> positions = new ArrayList<>(4);
-            positions.add(new Position(Angle.fromDegreesLatitude(corner1.lat), Angle.fromDegreesLongitude(corner1.lon), 0.0));
-            positions.add(new Position(Angle.fromDegreesLatitude(corner2.lat), Angle.fromDegreesLongitude(corner2.lon), 0.0));
-            positions.add(new Position(Angle.fromDegreesLatitude(corner4.lat), Angle.fromDegreesLongitude(corner4.lon), 0.0));
-            positions.add(new Position(Angle.fromDegreesLatitude(corner3.lat), Angle.fromDegreesLongitude(corner3.lon), 0.0));
-            positions.add(new Position(Angle.fromDegreesLatitude(corner1.lat), Angle.fromDegreesLongitude(corner1.lon), 0.0));
+            paths.add(new Position[]{
+                    new Position(Angle.fromDegreesLatitude(corner1.lat), Angle.fromDegreesLongitude(corner1.lon), 0.0),
+                    new Position(Angle.fromDegreesLatitude(corner2.lat), Angle.fromDegreesLongitude(corner2.lon), 0.0),
+                    new Position(Angle.fromDegreesLatitude(corner4.lat), Angle.fromDegreesLongitude(corner4.lon), 0.0),
+                    new Position(Angle.fromDegreesLatitude(corner3.lat), Angle.fromDegreesLongitude(corner3.lon), 0.0),
+                    new Position(Angle.fromDegreesLatitude(corner1.lat), Angle.fromDegreesLongitude(corner1.lon), 0.0)
+            });
 
             centreLat += corner1.lat;
             centreLon += corner1.lon;
@@ -323,26 +274,12 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
             centreLon += corner4.lon;
 
             numPoints += 4;
-
-            final Polyline line = new Polyline();
-            line.setFollowTerrain(true);
-            line.setPositions(positions);
-
-            addRenderable(line);
-            lineList[cnt++] = line;
         }
 
         centreLat = centreLat / numPoints;
         centreLon = centreLon / numPoints;
-        Position centrePos = new Position(Angle.fromDegreesLatitude(centreLat), Angle.fromDegreesLongitude(centreLon), 0.0);
 
-        PointPlacemark ppm = getLabelPlacemark(centrePos, String.valueOf(product.getRefNo()));
-        ppm.setAltitudeMode(WorldWind.CLAMP_TO_GROUND);
-        ppm.setEnableDecluttering(true);
-        addRenderable(ppm);
-
-        outlineTable.put(getUniqueName(product), lineList);
-        labelTable.put(getUniqueName(product), ppm);
+        addOutline(product, paths, centreLat, centreLon);
     }
 
     private PointPlacemark getLabelPlacemark(Position pos, String label) {
@@ -363,20 +300,17 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
     }
 
     private void removeOutline(String imagePath) {
-        final Polyline[] lineList = this.outlineTable.get(imagePath);
-        if (lineList != null) {
-            for (Polyline line : lineList) {
-                this.removeRenderable(line);
-            }
-            this.outlineTable.remove(imagePath);
+        if (this.outlineTable.remove(imagePath) != null) {
+            outlineBatch.removeOutline(imagePath);
         }
     }
 
     private void removeImage(String imagePath) {
-        final SurfaceImage si = this.imageTable.get(imagePath);
-        if (si != null) {
-            this.removeRenderable(si);
+        final ProductImagePyramid pyramid = this.imageTable.get(imagePath);
+        if (pyramid != null) {
+            this.removeRenderable(pyramid);
             this.imageTable.remove(imagePath);
+            pyramid.dispose();
         }
     }
 
@@ -384,37 +318,8 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
         final PointPlacemark ppm = this.labelTable.get(imagePath);
         if (ppm != null) {
             this.removeRenderable(ppm);
-            this.labelTable.remove(ppm);
-        }
-    }
-
-    private static Product createSubsampledProduct(final Product product) throws IOException {
-
-        final String quicklookBandName = ProductUtils.findSuitableQuicklookBandName(product);
-        final ProductSubsetDef productSubsetDef = new ProductSubsetDef("subset");
-        int scaleFactor = product.getSceneRasterWidth() / 1000;
-        if (scaleFactor < 1) {
-            scaleFactor = 1;
+            this.labelTable.remove(imagePath);
         }
-        productSubsetDef.setSubSampling(scaleFactor, scaleFactor);
-        productSubsetDef.setTreatVirtualBandsAsRealBands(true);
-        productSubsetDef.setNodeNames(new String[]{quicklookBandName});
-        Product productSubset = product.createSubset(productSubsetDef, quicklookBandName, null);
-
-        final InputProductValidator validator = new InputProductValidator(product);
-        if (!validator.isMapProjected() && productSubset.getGeoCoding() != null) {
-            try {
-                final Map<String, Object> projParameters = new HashMap<>();
-                Map<String, Product> projProducts = new HashMap<>();
-                projProducts.put("source", productSubset);
-                projParameters.put("crs", "WGS84(DD)");
-                productSubset = GPF.createProduct("Reproject", projParameters, projProducts);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        return productSubset;
     }
 
     public JPanel getControlPanel(final WorldWindowGLCanvas wwd) {
@@ -0,0 +1,723 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.worldwind.layers;
+
+import com.bc.ceres.core.ProgressMonitor;
+import gov.nasa.worldwind.geom.LatLon;
+import gov.nasa.worldwind.geom.Sector;
+import gov.nasa.worldwind.geom.Vec4;
+import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.render.PreRenderable;
+import gov.nasa.worldwind.render.Renderable;
+import gov.nasa.worldwind.render.SurfaceImage;
+import org.esa.snap.framework.dataio.ProductSubsetDef;
+import org.esa.snap.framework.datamodel.GeoCoding;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.ImageInfo;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.gpf.GPF;
+import org.esa.snap.jai.ImageManager;
+import org.esa.snap.util.ProductUtils;
+import org.esa.snap.util.SystemUtils;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+
+import javax.imageio.ImageIO;
+import javax.media.jai.PlanarImage;
+import javax.swing.SwingUtilities;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Shows the image of a product on the globe as a multi-resolution tile pyramid.
+ * <p>
+ * The quick look band of the product is reprojected to geographic coordinates. The levels of the pyramid are
+ * the resolution levels of the reprojected image, cut into tiles of {@link #TILE_SIZE} pixels. For every frame,
+ * the tiles which match the resolution of the view are selected from the coarsest level down; tiles not loaded
+ * yet are computed in the background and coarser tiles are shown meanwhile.
+ * <p>
+ * Tiles of products read from a file are cached on disk in the application data directory, together with the
+ * geometry of the pyramid, so that a product shown before is shown again without computing its image. The cache
+ * is limited to {@link #MAX_CACHE_SIZE} bytes; the products shown least recently are removed from it first.
+ * Tiles which cannot be computed are requested again after {@link #RETRY_DELAY} milliseconds.
+ * <p>
+ * The tiles loaded into memory by all pyramids share a budget of {@link #MAX_LOADED_TILES_SIZE} bytes; the tiles
+ * drawn least recently are released first, whichever product they belong to.
+ */
+class ProductImagePyramid implements Renderable, PreRenderable {
+
+    static final int TILE_SIZE = 512;
+    static final long MAX_LOADED_TILES_SIZE = 256L * 1024L * 1024L;
+    private static final int NUM_LOADER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final String DESCRIPTOR_NAME = "pyramid.properties";
+    static final long MAX_CACHE_SIZE = 1024L * 1024L * 1024L;
+    static final long RETRY_DELAY = 10000L;
+    // bytes written to the cache since it has been pruned, so that it is pruned while a product is shown
+    private static final AtomicLong bytesWritten = new AtomicLong();
+    // the tiles loaded by all pyramids, least recently drawn first; also guards loadedTilesSize
+    private static final LinkedHashMap<LoadedTile, Boolean> allLoadedTiles = new LinkedHashMap<>(256, 0.75f, true);
+    private static long loadedTilesSize;
+
+    // last in, first out, so that the tiles of the current view are loaded first
+    private static final ExecutorService tileLoader =
+            new ThreadPoolExecutor(NUM_LOADER_THREADS, NUM_LOADER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingDeque<Runnable>() {
+                                       @Override
+                                       public boolean offer(Runnable runnable) {
+                                           return offerFirst(runnable);
+                                       }
+                                   },
+                                   runnable -> {
+                                       final Thread thread = new Thread(runnable, "WorldWind product tile loader");
+                                       thread.setDaemon(true);
+                                       thread.setPriority(Thread.MIN_PRIORITY);
+                                       return thread;
+                                   });
+
+    private final Product product;
+    private final File cacheDir;
+    private final Sector sector;
+    private final int[] levelWidths;
+    private final int[] levelHeights;
+    private final Runnable repaintHandler;
+
+    private final Map<TileKey, LoadedTile> loadedTiles = new HashMap<>();
+    private final Set<TileKey> pendingTiles = new HashSet<>();
+    // the times the tiles which could not be computed have failed
+    private final Map<TileKey, Long> failedTiles = new HashMap<>();
+    private Map<TileKey, SurfaceImage> selectedTiles;
+    // guards the images computed by the loader threads, so that drawing is not blocked by them
+    private final Object imageLock = new Object();
+    private final Map<Integer, RenderedImage> levelImages = new HashMap<>();
+    private Product imageProduct;
+    private RasterDataNode imageRaster;
+    private ImageInfo imageInfo;
+    private double opacity = 1.0;
+    private volatile boolean disposed;
+
+    private ProductImagePyramid(Product product, File cacheDir, Sector sector, int[] levelWidths, int[] levelHeights,
+                                Runnable repaintHandler) {
+        this.product = product;
+        this.cacheDir = cacheDir;
+        this.sector = sector;
+        this.levelWidths = levelWidths;
+        this.levelHeights = levelHeights;
+        this.repaintHandler = repaintHandler;
+    }
+
+    /**
+     * Creates the pyramid of a product in the background.
+     *
+     * @param product        the product
+     * @param repaintHandler called in the EDT whenever tiles have been loaded
+     * @param onCreated      called in the EDT with the pyramid, or with {@code null} if it cannot be created
+     */
+    static void create(final Product product, final Runnable repaintHandler, final Consumer<ProductImagePyramid> onCreated) {
+        tileLoader.execute(() -> {
+            ProductImagePyramid pyramid = null;
+            try {
+                pyramid = createPyramid(product, repaintHandler);
+            } catch (Exception e) {
+                SystemUtils.LOG.warning("Unable to create the image of " + product.getName() + ": " + e.getMessage());
+            }
+            final ProductImagePyramid createdPyramid = pyramid;
+            SwingUtilities.invokeLater(() -> onCreated.accept(createdPyramid));
+        });
+    }
+
+    private static ProductImagePyramid createPyramid(final Product product, final Runnable repaintHandler) throws IOException {
+        final File cacheDir = getCacheDir(product);
+        if (cacheDir != null) {
+            pruneCache(cacheDir.getParentFile());
+            final ProductImagePyramid pyramid = readDescriptor(product, cacheDir, repaintHandler);
+            if (pyramid != null) {
+                return pyramid;
+            }
+        }
+
+        final Product imageProduct = createImageProduct(product);
+        final RasterDataNode raster = imageProduct.getBandAt(0);
+        final GeoCoding geoCoding = imageProduct.getGeoCoding();
+        final int width = imageProduct.getSceneRasterWidth();
+        final int height = imageProduct.getSceneRasterHeight();
+        // the corners of the image, not the centres of the corner pixels
+        final GeoPos upperLeft = geoCoding.getGeoPos(new PixelPos(0, 0), null);
+        final GeoPos lowerRight = geoCoding.getGeoPos(new PixelPos(width, height), null);
+        final Sector sector = Sector.fromDegrees(lowerRight.getLat(), upperLeft.getLat(),
+                                                 upperLeft.getLon(), lowerRight.getLon());
+
+        // down to the level at which the image fits into a single tile
+        final int levelCount = raster.getSourceImage().getModel().getLevelCount();
+        int numLevels = 1;
+        while (numLevels < levelCount && Math.max(width, height) >> (numLevels - 1) > TILE_SIZE) {
+            numLevels++;
+        }
+        final int[] levelWidths = new int[numLevels];
+        final int[] levelHeights = new int[numLevels];
+        for (int level = 0; level < numLevels; level++) {
+            final RenderedImage levelImage = raster.getSourceImage().getImage(level);
+            levelWidths[level] = levelImage.getWidth();
+            levelHeights[level] = levelImage.getHeight();
+        }
+
+        final ProductImagePyramid pyramid = new ProductImagePyramid(product, cacheDir, sector, levelWidths, levelHeights,
+                                                                    repaintHandler);
+        pyramid.imageProduct = imageProduct;
+        pyramid.imageRaster = raster;
+        if (cacheDir != null) {
+            pyramid.writeDescriptor();
+        }
+        return pyramid;
+    }
+
+    Sector getSector() {
+        return sector;
+    }
+
+    synchronized void setOpacity(final double opacity) {
+        this.opacity = opacity;
+        for (LoadedTile tile : loadedTiles.values()) {
+            tile.image.setOpacity(opacity);
+        }
+    }
+
+    synchronized double getOpacity() {
+        return opacity;
+    }
+
+    /**
+     * Releases the tiles and the reprojected product. Tiles still being loaded are discarded.
+     */
+    void dispose() {
+        synchronized (this) {
+            disposed = true;
+            loadedTiles.clear();
+            selectedTiles = null;
+        }
+        removeLoadedTiles(this);
+        synchronized (imageLock) {
+            levelImages.clear();
+            if (imageProduct != null) {
+                imageProduct.dispose();
+            }
+            imageProduct = null;
+            imageRaster = null;
+        }
+    }
+
+    @Override
+    public synchronized void preRender(final DrawContext dc) {
+        selectedTiles = selectTiles(dc);
+        for (SurfaceImage tile : selectedTiles.values()) {
+            tile.preRender(dc);
+        }
+    }
+
+    @Override
+    public synchronized void render(final DrawContext dc) {
+        if (selectedTiles == null) {
+            selectedTiles = selectTiles(dc);
+        }
+        for (SurfaceImage tile : selectedTiles.values()) {
+            tile.render(dc);
+        }
+    }
+
+    /*
+     * Selects the loaded tiles to draw, from coarse to fine, and requests the missing tiles of the required level.
+     */
+    private Map<TileKey, SurfaceImage> selectTiles(final DrawContext dc) {
+        final Map<TileKey, SurfaceImage> tiles = new LinkedHashMap<>();
+        if (disposed) {
+            return tiles;
+        }
+        final int coarsestLevel = levelWidths.length - 1;
+        final int numTilesX = getNumTiles(levelWidths[coarsestLevel]);
+        final int numTilesY = getNumTiles(levelHeights[coarsestLevel]);
+        for (int tileY = 0; tileY < numTilesY; tileY++) {
+            for (int tileX = 0; tileX < numTilesX; tileX++) {
+                selectTiles(dc, new TileKey(coarsestLevel, tileX, tileY), tiles);
+            }
+        }
+        return tiles;
+    }
+
+    private void selectTiles(final DrawContext dc, final TileKey key, final Map<TileKey, SurfaceImage> tiles) {
+        final Sector tileSector = getTileSector(key);
+        if (dc.getVisibleSector() != null && !tileSector.intersects(dc.getVisibleSector())) {
+            return;
+        }
+        final LoadedTile tile = loadedTiles.get(key);
+        if (tile == null) {
+            requestTile(key);
+            return;
+        }
+        touchLoadedTile(tile);
+        if (key.level > 0 && needsFinerLevel(dc, key, tileSector)) {
+            final TileKey[] children = getChildren(key);
+            boolean childrenLoaded = true;
+            for (TileKey child : children) {
+                if (!loadedTiles.containsKey(child)) {
+                    requestTile(child);
+                    childrenLoaded = false;
+                }
+            }
+            if (childrenLoaded) {
+                for (TileKey child : children) {
+                    selectTiles(dc, child, tiles);
+                }
+                return;
+            }
+        }
+        tiles.put(key, tile.image);
+    }
+
+    /*
+     * Whether a texel of the tile is larger than a pixel of the view at the distance of the tile.
+     */
+    private boolean needsFinerLevel(final DrawContext dc, final TileKey key, final Sector tileSector) {
+        final double radius = dc.getGlobe().getRadius();
+        final LatLon centroid = tileSector.getCentroid();
+        final Vec4 centrePoint = dc.getGlobe().computePointFromPosition(centroid.getLatitude(), centroid.getLongitude(), 0.0);
+        final double tileRadius = 0.5 * radius * Math.hypot(tileSector.getDeltaLatRadians(),
+                                                            tileSector.getDeltaLonRadians() * centroid.getLatitude().cos());
+        final double distance = Math.max(1.0, dc.getView().getEyePoint().distanceTo3(centrePoint) - tileRadius);
+        final double texelSize = radius * sector.getDeltaLatRadians() / levelHeights[key.level];
+        return texelSize > dc.getView().computePixelSizeAtDistance(distance);
+    }
+
+    private TileKey[] getChildren(final TileKey key) {
+        final int level = key.level - 1;
+        final int numTilesX = getNumTiles(levelWidths[level]);
+        final int numTilesY = getNumTiles(levelHeights[level]);
+        final TileKey[] children = new TileKey[4];
+        int numChildren = 0;
+        for (int tileY = 2 * key.tileY; tileY <= 2 * key.tileY + 1 && tileY < numTilesY; tileY++) {
+            for (int tileX = 2 * key.tileX; tileX <= 2 * key.tileX + 1 && tileX < numTilesX; tileX++) {
+                children[numChildren++] = new TileKey(level, tileX, tileY);
+            }
+        }
+        final TileKey[] result = new TileKey[numChildren];
+        System.arraycopy(children, 0, result, 0, numChildren);
+        return result;
+    }
+
+    private Sector getTileSector(final TileKey key) {
+        final Rectangle rect = getTileRectangle(key);
+        final double levelWidth = levelWidths[key.level];
+        final double levelHeight = levelHeights[key.level];
+        final double maxLat = sector.getMaxLatitude().degrees - sector.getDeltaLatDegrees() * rect.y / levelHeight;
+        final double minLat = sector.getMaxLatitude().degrees - sector.getDeltaLatDegrees() * (rect.y + rect.height) / levelHeight;
+        final double minLon = sector.getMinLongitude().degrees + sector.getDeltaLonDegrees() * rect.x / levelWidth;
+        final double maxLon = sector.getMinLongitude().degrees + sector.getDeltaLonDegrees() * (rect.x + rect.width) / levelWidth;
+        return Sector.fromDegrees(minLat, maxLat, minLon, maxLon);
+    }
+
+    private Rectangle getTileRectangle(final TileKey key) {
+        final int x = key.tileX * TILE_SIZE;
+        final int y = key.tileY * TILE_SIZE;
+        return new Rectangle(x, y, Math.min(TILE_SIZE, levelWidths[key.level] - x),
+                             Math.min(TILE_SIZE, levelHeights[key.level] - y));
+    }
+
+    private static int getNumTiles(final int size) {
+        return (size + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    private void requestTile(final TileKey key) {
+        final Long failureTime = failedTiles.get(key);
+        if (failureTime != null && System.currentTimeMillis() - failureTime < RETRY_DELAY) {
+            return;
+        }
+        if (!pendingTiles.add(key)) {
+            return;
+        }
+        failedTiles.remove(key);
+        final Sector tileSector = getTileSector(key);
+        tileLoader.execute(() -> {
+            BufferedImage image = null;
+            if (!disposed) {
+                try {
+                    image = loadTileImage(key);
+                } catch (Throwable e) {
+                    SystemUtils.LOG.warning("Unable to compute the image of " + product.getName() + ": " + e.getMessage());
+                }
+            }
+            final BufferedImage tileImage = image;
+            SwingUtilities.invokeLater(() -> {
+                final LoadedTile tile;
+                synchronized (ProductImagePyramid.this) {
+                    if (disposed) {
+                        return;
+                    }
+                    pendingTiles.remove(key);
+                    if (tileImage == null) {
+                        failedTiles.put(key, System.currentTimeMillis());
+                        return;
+                    }
+                    final SurfaceImage image = new SurfaceImage(tileImage, tileSector);
+                    image.setOpacity(opacity);
+                    tile = new LoadedTile(ProductImagePyramid.this, key, image, getSize(tileImage));
+                    loadedTiles.put(key, tile);
+                }
+                // outside of the lock of this pyramid, as tiles of other pyramids may be released
+                addLoadedTile(tile);
+                if (disposed) {
+                    removeLoadedTiles(this);
+                }
+                repaintHandler.run();
+            });
+        });
+    }
+
+    private static long getSize(final BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Math.max(1, image.getColorModel().getPixelSize() / 8);
+    }
+
+    /*
+     * Adds a tile to the tiles loaded by all pyramids and releases the tiles drawn least recently, until the
+     * loaded tiles fit into MAX_LOADED_TILES_SIZE. Must not be called while holding the lock of a pyramid.
+     */
+    private static void addLoadedTile(final LoadedTile tile) {
+        final List<LoadedTile> releasedTiles = new ArrayList<>();
+        synchronized (allLoadedTiles) {
+            allLoadedTiles.put(tile, Boolean.TRUE);
+            loadedTilesSize += tile.size;
+            final Iterator<LoadedTile> iterator = allLoadedTiles.keySet().iterator();
+            // the tile just added is kept in any case
+            while (loadedTilesSize > MAX_LOADED_TILES_SIZE && allLoadedTiles.size() > 1) {
+                final LoadedTile releasedTile = iterator.next();
+                iterator.remove();
+                loadedTilesSize -= releasedTile.size;
+                releasedTiles.add(releasedTile);
+            }
+        }
+        for (LoadedTile releasedTile : releasedTiles) {
+            synchronized (releasedTile.pyramid) {
+                releasedTile.pyramid.loadedTiles.remove(releasedTile.key, releasedTile);
+            }
+        }
+    }
+
+    private static void touchLoadedTile(final LoadedTile tile) {
+        synchronized (allLoadedTiles) {
+            allLoadedTiles.get(tile);
+        }
+    }
+
+    private static void removeLoadedTiles(final ProductImagePyramid pyramid) {
+        synchronized (allLoadedTiles) {
+            final Iterator<LoadedTile> iterator = allLoadedTiles.keySet().iterator();
+            while (iterator.hasNext()) {
+                final LoadedTile tile = iterator.next();
+                if (tile.pyramid == pyramid) {
+                    iterator.remove();
+                    loadedTilesSize -= tile.size;
+                }
+            }
+        }
+    }
+
+    private BufferedImage loadTileImage(final TileKey key) throws IOException {
+        final File tileFile = cacheDir != null ? new File(cacheDir, key.level + "_" + key.tileX + "_" + key.tileY + ".png") : null;
+        if (tileFile != null && tileFile.isFile()) {
+            final BufferedImage image = ImageIO.read(tileFile);
+            if (image != null) {
+                return image;
+            }
+        }
+        final BufferedImage image = PlanarImage.wrapRenderedImage(getLevelImage(key.level))
+                .getAsBufferedImage(getTileRectangle(key), null);
+        if (tileFile != null) {
+            storeTileImage(image, tileFile);
+        }
+        return image;
+    }
+
+    /*
+     * Writes a temporary file first, so that a tile is never read while being written or after a failed write.
+     */
+    private static void storeTileImage(final BufferedImage image, final File tileFile) {
+        final File tempFile = new File(tileFile.getParentFile(), tileFile.getName() + '.' + Thread.currentThread().getId() + ".tmp");
+        try {
+            if (!tileFile.getParentFile().isDirectory() && !tileFile.getParentFile().mkdirs()) {
+                throw new IOException("Unable to create " + tileFile.getParentFile());
+            }
+            if (!ImageIO.write(image, "png", tempFile)) {
+                throw new IOException("No PNG writer");
+            }
+            Files.move(tempFile.toPath(), tileFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (bytesWritten.addAndGet(tileFile.length()) > MAX_CACHE_SIZE / 8) {
+                pruneCache(tileFile.getParentFile().getParentFile());
+            }
+        } catch (IOException e) {
+            SystemUtils.LOG.warning("Unable to store tile " + tileFile + ": " + e.getMessage());
+            if (tempFile.exists() && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    private RenderedImage getLevelImage(final int level) throws IOException {
+        synchronized (imageLock) {
+            if (disposed) {
+                throw new IOException("Product image has been disposed");
+            }
+            RenderedImage levelImage = levelImages.get(level);
+            if (levelImage == null) {
+                if (imageRaster == null) {
+                    // the pyramid has been read from the cache, but not all of its tiles
+                    imageProduct = createImageProduct(product);
+                    imageRaster = imageProduct.getBandAt(0);
+                }
+                if (imageInfo == null) {
+                    imageInfo = imageRaster.getImageInfo(ProgressMonitor.NULL);
+                }
+                levelImage = ImageManager.getInstance().createColoredBandImage(new RasterDataNode[]{imageRaster}, imageInfo, level);
+                levelImages.put(level, levelImage);
+            }
+            return levelImage;
+        }
+    }
+
+    /*
+     * Creates the product of the quick look band in geographic coordinates.
+     */
+    private static Product createImageProduct(final Product product) throws IOException {
+        final String quicklookBandName = ProductUtils.findSuitableQuicklookBandName(product);
+        final ProductSubsetDef productSubsetDef = new ProductSubsetDef("subset");
+        productSubsetDef.setTreatVirtualBandsAsRealBands(true);
+        productSubsetDef.setNodeNames(new String[]{quicklookBandName});
+        final Product productSubset = product.createSubset(productSubsetDef, quicklookBandName, null);
+
+        final GeoCoding geoCoding = productSubset.getGeoCoding();
+        if (geoCoding == null) {
+            throw new IOException("No geo-coding");
+        }
+        if (CRS.equalsIgnoreMetadata(geoCoding.getMapCRS(), DefaultGeographicCRS.WGS84)) {
+            return productSubset;
+        }
+        final Map<String, Object> projParameters = new HashMap<>();
+        final Map<String, Product> projProducts = new HashMap<>();
+        projProducts.put("source", productSubset);
+        projParameters.put("crs", "WGS84(DD)");
+        return GPF.createProduct("Reproject", projParameters, projProducts);
+    }
+
+    /*
+     * The tiles are cached per product file and quick look band, as long as the file is not modified. The directory
+     * is named after the SHA-256 digest of these, so that different products never share a directory.
+     */
+    private static File getCacheDir(final Product product) {
+        final File file = product.getFileLocation();
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        final String key = file.getAbsolutePath() + '|' + file.lastModified() + '|'
+                           + ProductUtils.findSuitableQuicklookBandName(product);
+        final File cacheDir = new File(SystemUtils.getApplicationDataDir(),
+                                       "worldwind" + File.separator + "tiles" + File.separator + getDigest(key));
+        if (cacheDir.isDirectory() || cacheDir.mkdirs()) {
+            // marks the directory as used recently
+            cacheDir.setLastModified(System.currentTimeMillis());
+            return cacheDir;
+        }
+        return null;
+    }
+
+    private static String getDigest(final String key) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+        final byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+        final StringBuilder hex = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /*
+     * Removes the directories of the products shown least recently until the cache is not larger than
+     * MAX_CACHE_SIZE. The directory used most recently is kept in any case.
+     */
+    static synchronized void pruneCache(final File tilesDir) {
+        bytesWritten.set(0L);
+        final File[] dirs = tilesDir.listFiles(File::isDirectory);
+        if (dirs == null || dirs.length < 2) {
+            return;
+        }
+        final long[] sizes = new long[dirs.length];
+        long cacheSize = 0L;
+        Arrays.sort(dirs, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < dirs.length; i++) {
+            final File[] files = dirs[i].listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    sizes[i] += file.length();
+                }
+            }
+            cacheSize += sizes[i];
+        }
+        for (int i = 0; i < dirs.length - 1 && cacheSize > MAX_CACHE_SIZE; i++) {
+            final File[] files = dirs[i].listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.delete()) {
+                        SystemUtils.LOG.warning("Unable to delete " + file);
+                    }
+                }
+            }
+            if (!dirs[i].delete()) {
+                SystemUtils.LOG.warning("Unable to delete " + dirs[i]);
+            }
+            cacheSize -= sizes[i];
+        }
+    }
+
+    private static ProductImagePyramid readDescriptor(final Product product, final File cacheDir,
+                                                      final Runnable repaintHandler) {
+        final File descriptorFile = new File(cacheDir, DESCRIPTOR_NAME);
+        if (!descriptorFile.isFile()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (InputStream stream = new FileInputStream(descriptorFile)) {
+            properties.load(stream);
+            final Sector sector = Sector.fromDegrees(Double.parseDouble(properties.getProperty("minLat")),
+                                                     Double.parseDouble(properties.getProperty("maxLat")),
+                                                     Double.parseDouble(properties.getProperty("minLon")),
+                                                     Double.parseDouble(properties.getProperty("maxLon")));
+            final int numLevels = Integer.parseInt(properties.getProperty("numLevels"));
+            final int[] levelWidths = new int[numLevels];
+            final int[] levelHeights = new int[numLevels];
+            for (int level = 0; level < numLevels; level++) {
+                levelWidths[level] = Integer.parseInt(properties.getProperty("width." + level));
+                levelHeights[level] = Integer.parseInt(properties.getProperty("height." + level));
+            }
+            return new ProductImagePyramid(product, cacheDir, sector, levelWidths, levelHeights, repaintHandler);
+        } catch (IOException | RuntimeException e) {
+            SystemUtils.LOG.warning("Unable to read " + descriptorFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDescriptor() {
+        final Properties properties = new Properties();
+        properties.setProperty("minLat", String.valueOf(sector.getMinLatitude().degrees));
+        properties.setProperty("maxLat", String.valueOf(sector.getMaxLatitude().degrees));
+        properties.setProperty("minLon", String.valueOf(sector.getMinLongitude().degrees));
+        properties.setProperty("maxLon", String.valueOf(sector.getMaxLongitude().degrees));
+        properties.setProperty("numLevels", String.valueOf(levelWidths.length));
+        for (int level = 0; level < levelWidths.length; level++) {
+            properties.setProperty("width." + level, String.valueOf(levelWidths[level]));
+            properties.setProperty("height." + level, String.valueOf(levelHeights[level]));
+        }
+        final File descriptorFile = new File(cacheDir, DESCRIPTOR_NAME);
+        final File tempFile = new File(cacheDir, DESCRIPTOR_NAME + ".tmp");
+        try {
+            try (OutputStream stream = new FileOutputStream(tempFile)) {
+                properties.store(stream, product.getName());
+            }
+            Files.move(tempFile.toPath(), descriptorFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            SystemUtils.LOG.warning("Unable to write " + descriptorFile + ": " + e.getMessage());
+        }
+    }
+
+    /*
+     * A tile loaded into memory. Instances are compared by identity.
+     */
+    private static final class LoadedTile {
+
+        private final ProductImagePyramid pyramid;
+        private final TileKey key;
+        private final SurfaceImage image;
+        private final long size;
+
+        private LoadedTile(ProductImagePyramid pyramid, TileKey key, SurfaceImage image, long size) {
+            this.pyramid = pyramid;
+            this.key = key;
+            this.image = image;
+            this.size = size;
+        }
+    }
+
+    private static final class TileKey {
+
+        private final int level;
+        private final int tileX;
+        private final int tileY;
+
+        private TileKey(int level, int tileX, int tileY) {
+            this.level = level;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            final TileKey other = (TileKey) o;
+            return level == other.level && tileX == other.tileX && tileY == other.tileY;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * level + tileX) * 31 + tileY;
+        }
+    }
+}
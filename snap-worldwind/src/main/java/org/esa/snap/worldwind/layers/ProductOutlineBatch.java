@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.worldwind.layers;
+
+import com.jogamp.common.nio.Buffers;
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.geom.Vec4;
+import gov.nasa.worldwind.globes.Globe;
+import gov.nasa.worldwind.layers.Layer;
+import gov.nasa.worldwind.pick.PickSupport;
+import gov.nasa.worldwind.pick.Pickable;
+import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.render.Renderable;
+import gov.nasa.worldwind.util.OGLStackHandler;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import java.awt.Color;
+import java.awt.Point;
+import java.nio.FloatBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws the outlines of all products of a layer as a single renderable.
+ * <p>
+ * The vertices of all outlines are packed into one vertex buffer, relative to a common reference centre, and
+ * drawn by a single call per frame. For picking, each outline is drawn in a unique colour which is mapped to the
+ * object of the outline, usually its product. Outlines are added and removed incrementally: the model
+ * coordinates of an outline are computed once, only the buffer is packed again.
+ * <p>
+ * The vertices follow the terrain at their positions. Their model coordinates are computed again if the globe
+ * or the vertical exaggeration change, and every few seconds while the view moves, as the terrain is refined.
+ */
+class ProductOutlineBatch implements Renderable, Pickable {
+
+    private static final double ELEVATION_OFFSET = 10.0;
+    private static final long TERRAIN_UPDATE_INTERVAL = 2000L;
+    private static final Color LINE_COLOR = Color.WHITE;
+    private static final Color HIGHLIGHT_COLOR = Color.RED;
+
+    private final Layer layer;
+    private final Map<String, Outline> outlines = new LinkedHashMap<>();
+    private final PickSupport pickSupport = new PickSupport();
+    private String highlightedName;
+
+    // the packed vertex buffer
+    private boolean bufferValid;
+    private FloatBuffer vertices;
+    private int[] firsts = new int[0];
+    private int[] counts = new int[0];
+    private Vec4 referenceCenter = Vec4.ZERO;
+
+    // the state the model coordinates have been computed for
+    private Object globeStateKey;
+    private double verticalExaggeration;
+    private Position eyePosition;
+    private long terrainUpdateTime;
+
+    ProductOutlineBatch(Layer layer) {
+        this.layer = layer;
+    }
+
+    /**
+     * @param name       the unique name of the outline
+     * @param userObject the object reported when the outline is picked
+     * @param paths      the closed paths of the outline
+     */
+    synchronized void addOutline(final String name, final Object userObject, final List<Position[]> paths) {
+        outlines.put(name, new Outline(userObject, paths));
+        bufferValid = false;
+    }
+
+    synchronized void removeOutline(final String name) {
+        if (outlines.remove(name) != null) {
+            bufferValid = false;
+        }
+    }
+
+    synchronized void setHighlighted(final String name) {
+        highlightedName = name;
+    }
+
+    @Override
+    public synchronized void render(final DrawContext dc) {
+        draw(dc, false);
+    }
+
+    @Override
+    public synchronized void pick(final DrawContext dc, final Point pickPoint) {
+        pickSupport.clearPickList();
+        pickSupport.beginPicking(dc);
+        try {
+            draw(dc, true);
+        } finally {
+            pickSupport.endPicking(dc);
+        }
+        pickSupport.resolvePick(dc, pickPoint, layer);
+    }
+
+    private void draw(final DrawContext dc, final boolean pickMode) {
+        if (outlines.isEmpty()) {
+            return;
+        }
+        updateVertices(dc);
+
+        final GL2 gl = dc.getGL().getGL2();
+        final OGLStackHandler ogsh = new OGLStackHandler();
+        ogsh.pushAttrib(gl, GL2.GL_CURRENT_BIT | GL2.GL_LINE_BIT | GL2.GL_ENABLE_BIT | GL2.GL_COLOR_BUFFER_BIT);
+        ogsh.pushClientAttrib(gl, GL2.GL_CLIENT_VERTEX_ARRAY_BIT);
+        dc.getView().pushReferenceCenter(dc, referenceCenter);
+        try {
+            gl.glDisable(GL.GL_TEXTURE_2D);
+            gl.glEnable(GL.GL_DEPTH_TEST);
+            if (!pickMode) {
+                gl.glEnable(GL.GL_BLEND);
+                gl.glBlendFunc(GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA);
+                gl.glEnable(GL.GL_LINE_SMOOTH);
+            }
+            gl.glLineWidth(pickMode ? 5.0f : 1.0f);
+            gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+            vertices.rewind();
+            gl.glVertexPointer(3, GL.GL_FLOAT, 0, vertices);
+
+            if (pickMode) {
+                for (Outline outline : outlines.values()) {
+                    final Color color = dc.getUniquePickColor();
+                    pickSupport.addPickableObject(color.getRGB(), outline.userObject);
+                    gl.glColor3ub((byte) color.getRed(), (byte) color.getGreen(), (byte) color.getBlue());
+                    drawOutline(gl, outline);
+                }
+            } else {
+                applyColor(gl, LINE_COLOR);
+                gl.glMultiDrawArrays(GL.GL_LINE_STRIP, firsts, 0, counts, 0, firsts.length);
+                final Outline highlighted = highlightedName != null ? outlines.get(highlightedName) : null;
+                if (highlighted != null) {
+                    applyColor(gl, HIGHLIGHT_COLOR);
+                    drawOutline(gl, highlighted);
+                }
+            }
+        } finally {
+            dc.getView().popReferenceCenter(dc);
+            ogsh.pop(gl);
+        }
+    }
+
+    private void drawOutline(final GL2 gl, final Outline outline) {
+        for (int i = 0; i < outline.paths.size(); i++) {
+            gl.glDrawArrays(GL.GL_LINE_STRIP, firsts[outline.firstPath + i], counts[outline.firstPath + i]);
+        }
+    }
+
+    private static void applyColor(final GL2 gl, final Color color) {
+        gl.glColor4ub((byte) color.getRed(), (byte) color.getGreen(), (byte) color.getBlue(), (byte) color.getAlpha());
+    }
+
+    private void updateVertices(final DrawContext dc) {
+        final Globe globe = dc.getGlobe();
+        final Object stateKey = globe.getGlobeStateKey(dc);
+        final long time = System.currentTimeMillis();
+        boolean recompute = !stateKey.equals(globeStateKey) || dc.getVerticalExaggeration() != verticalExaggeration;
+        if (!recompute && !dc.getView().getEyePosition().equals(eyePosition)
+            && time - terrainUpdateTime > TERRAIN_UPDATE_INTERVAL) {
+            recompute = true;
+        }
+        if (recompute) {
+            globeStateKey = stateKey;
+            verticalExaggeration = dc.getVerticalExaggeration();
+            eyePosition = dc.getView().getEyePosition();
+            terrainUpdateTime = time;
+            for (Outline outline : outlines.values()) {
+                outline.points = null;
+            }
+            bufferValid = false;
+        }
+        if (!bufferValid) {
+            packVertices(globe);
+            bufferValid = true;
+        }
+    }
+
+    /*
+     * Packs the model coordinates of all outlines into the vertex buffer, computing those not known yet.
+     */
+    private void packVertices(final Globe globe) {
+        int numPaths = 0;
+        int numVertices = 0;
+        for (Outline outline : outlines.values()) {
+            if (outline.points == null) {
+                outline.points = computePoints(globe, outline.paths);
+            }
+            numPaths += outline.paths.size();
+            numVertices += outline.points.length / 3;
+        }
+
+        double cx = 0.0;
+        double cy = 0.0;
+        double cz = 0.0;
+        for (Outline outline : outlines.values()) {
+            for (int i = 0; i < outline.points.length; i += 3) {
+                cx += outline.points[i];
+                cy += outline.points[i + 1];
+                cz += outline.points[i + 2];
+            }
+        }
+        referenceCenter = numVertices > 0 ? new Vec4(cx / numVertices, cy / numVertices, cz / numVertices) : Vec4.ZERO;
+
+        if (vertices == null || vertices.capacity() < 3 * numVertices) {
+            vertices = Buffers.newDirectFloatBuffer(Math.max(3 * numVertices, 2 * (vertices != null ? vertices.capacity() : 0)));
+        }
+        vertices.clear();
+        firsts = new int[numPaths];
+        counts = new int[numPaths];
+        int pathIndex = 0;
+        int vertexIndex = 0;
+        for (Outline outline : outlines.values()) {
+            outline.firstPath = pathIndex;
+            int pointIndex = 0;
+            for (Position[] path : outline.paths) {
+                firsts[pathIndex] = vertexIndex;
+                counts[pathIndex] = path.length;
+                for (int i = 0; i < path.length; i++) {
+                    vertices.put((float) (outline.points[pointIndex++] - referenceCenter.x));
+                    vertices.put((float) (outline.points[pointIndex++] - referenceCenter.y));
+                    vertices.put((float) (outline.points[pointIndex++] - referenceCenter.z));
+                }
+                vertexIndex += path.length;
+                pathIndex++;
+            }
+        }
+        vertices.flip();
+    }
+
+    private double[] computePoints(final Globe globe, final List<Position[]> paths) {
+        int numPoints = 0;
+        for (Position[] path : paths) {
+            numPoints += path.length;
+        }
+        final double[] points = new double[3 * numPoints];
+        int index = 0;
+        for (Position[] path : paths) {
+            for (Position position : path) {
+                final double elevation = globe.getElevation(position.getLatitude(), position.getLongitude())
+                                         * verticalExaggeration + ELEVATION_OFFSET;
+                final Vec4 point = globe.computePointFromPosition(position.getLatitude(), position.getLongitude(), elevation);
+                points[index++] = point.x;
+                points[index++] = point.y;
+                points[index++] = point.z;
+            }
+        }
+        return points;
+    }
+
+    private static final class Outline {
+
+        private final Object userObject;
+        private final List<Position[]> paths;
+        // model coordinates of the positions, depend on the globe
+        private double[] points;
+        // the index of the first path in the vertex buffer
+        private int firstPath;
+
+        private Outline(Object userObject, List<Position[]> paths) {
+            this.userObject = userObject;
+            this.paths = paths;
+        }
+    }
+}